@@ -13,12 +13,18 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.core.task.TaskExecutor;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import com.lpvs.util.LPVSExitHandler;
 
+import java.util.Map;
+import java.util.concurrent.ThreadPoolExecutor;
+
 /**
  * The main class for the License Pre-Validation Service (LPVS) application.
  * This class configures and launches the LPVS Spring Boot application.
@@ -26,6 +32,7 @@ import com.lpvs.util.LPVSExitHandler;
 @SpringBootApplication(scanBasePackages = {"com.lpvs"})
 @EnableAutoConfiguration
 @EnableAsync
+@EnableScheduling
 @Slf4j
 public class LicensePreValidationService {
 
@@ -34,6 +41,16 @@ public class LicensePreValidationService {
      */
     private static int corePoolSize = 8;
 
+    /**
+     * Indicates whether webhooks are processed on virtual threads instead of the thread pool.
+     */
+    private static boolean virtualThreads = false;
+
+    /**
+     * Number of threads saving the files of the pull requests in parallel.
+     */
+    private static int fileThreads = 4;
+
     /**
      * The exit handler for handling application exits.
      */
@@ -70,6 +87,25 @@ public class LicensePreValidationService {
                     String version = environment.getProperty("lpvs.version", "Unknown");
                     log.info(getEmblem(version));
                     corePoolSize = Integer.parseInt(environment.getProperty("lpvs.cores", "8"));
+                    virtualThreads =
+                            Boolean.parseBoolean(
+                                    environment.getProperty("lpvs.virtual-threads", "false"));
+                    if (virtualThreads && !isVirtualThreadsSupported()) {
+                        log.warn(
+                                "Virtual threads require Java 21 or later, webhooks are"
+                                        + " processed by lpvs.cores platform threads instead");
+                        virtualThreads = false;
+                        // the number of workers of the queue processor follows the property
+                        environment
+                                .getPropertySources()
+                                .addFirst(
+                                        new MapPropertySource(
+                                                "lpvsVirtualThreads",
+                                                Map.of("lpvs.virtual-threads", "false")));
+                    }
+                    fileThreads =
+                            Integer.parseInt(
+                                    environment.getProperty("lpvs.workspace.threads", "4"));
                 });
         try {
             ApplicationContext applicationContext = app.run(args);
@@ -89,19 +125,101 @@ public class LicensePreValidationService {
         }
     }
 
+    /**
+     * Checks whether the Java runtime supports virtual threads.
+     *
+     * @return true if the runtime is Java 21 or later.
+     */
+    static boolean isVirtualThreadsSupported() {
+        return Runtime.version().feature() >= 21;
+    }
+
     /**
      * Configures and retrieves an asynchronous task executor bean.
+     * The pool and its task queue are bounded, the admission of new tasks is controlled
+     * by {@link com.lpvs.service.LPVSQueueProcessorService}.
+     * <p>
+     * If virtual threads are enabled, each task runs on its own virtual thread. Scarce resources
+     * are then bounded by {@link com.lpvs.service.LPVSResourceLimiter} instead of the pool size.
+     * If the Java runtime does not support virtual threads, they are disabled at startup, so
+     * the thread pool of {@code lpvs.cores} threads is used.
+     * </p>
      *
      * @return An asynchronous task executor bean.
      */
     @Bean("threadPoolTaskExecutor")
     public TaskExecutor getAsyncExecutor() {
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("LPVS::");
+            executor.setVirtualThreads(true);
+            log.info("Webhooks are processed on virtual threads");
+            return executor;
+        }
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         executor.setCorePoolSize(corePoolSize);
+        executor.setMaxPoolSize(corePoolSize);
+        executor.setQueueCapacity(corePoolSize);
         executor.setThreadNamePrefix("LPVS::");
         return executor;
     }
 
+    /**
+     * Configures and retrieves the executor of the GitHub API calls which are made
+     * concurrently with the other calls of the same webhook. Every webhook in processing
+     * has at most one such call in flight, so the pool has the size of the processing pool.
+     *
+     * @return The executor of the concurrent GitHub API calls.
+     */
+    @Bean("gitHubTaskExecutor")
+    public TaskExecutor getGitHubExecutor() {
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("LPVS-github::");
+            executor.setVirtualThreads(true);
+            return executor;
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(corePoolSize);
+        executor.setMaxPoolSize(corePoolSize);
+        executor.setThreadNamePrefix("LPVS-github::");
+        return executor;
+    }
+
+    /**
+     * Configures and retrieves the executor saving the files of the pull requests in parallel.
+     * The pool and its task queue are bounded; when both are full, the thread listing the files
+     * saves the next file itself, so the listing does not run ahead of the saving.
+     *
+     * @return The executor saving the files of the pull requests.
+     */
+    @Bean("fileTaskExecutor")
+    public TaskExecutor getFileExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(fileThreads);
+        executor.setMaxPoolSize(fileThreads);
+        executor.setQueueCapacity(fileThreads * 4);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setThreadNamePrefix("LPVS-files::");
+        return executor;
+    }
+
+    /**
+     * Configures and retrieves the executor of the outbox publisher. The publications are
+     * made by a single thread apart from the scheduler, so that slow GitHub calls do not delay
+     * the renewal of the queue leases. A run started while the previous one is still going is
+     * rejected.
+     *
+     * @return The executor of the outbox publisher.
+     */
+    @Bean("outboxTaskExecutor")
+    public TaskExecutor getOutboxExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("LPVS-outbox::");
+        return executor;
+    }
+
     /**
      * Returns the emblem for the License Pre-Validation Service.
      *
@@ -8,6 +8,7 @@ package com.lpvs.controller;
 
 import com.lpvs.entity.LPVSQueue;
 import com.lpvs.entity.enums.LPVSPullRequestAction;
+import com.lpvs.entity.enums.LPVSQueuePriority;
 import com.lpvs.repository.LPVSQueueRepository;
 import com.lpvs.service.LPVSGitHubConnectionService;
 import com.lpvs.service.LPVSGitHubService;
@@ -101,6 +102,7 @@ public class GitHubController {
     private LPVSExitHandler exitHandler;
 
     private static final String SIGNATURE = "X-Hub-Signature-256";
+    private static final String EVENT = "X-GitHub-Event";
     private static final String SUCCESS = "Success";
     private static final String ERROR = "Error";
     private static final String ALGORITHM = "HmacSHA256";
@@ -154,13 +156,16 @@ public class GitHubController {
      * Endpoint for handling GitHub webhook events and processing the payload.
      *
      * @param signature The signature of the webhook event.
+     * @param event     The type of the webhook event.
      * @param payload   The payload of the webhook event.
      * @return The response entity indicating the status of the processing.
      * @throws Exception if an error occurs during processing.
      */
     @RequestMapping(value = "/webhooks", method = RequestMethod.POST)
     public ResponseEntity<LPVSResponseWrapper> gitHubWebhooks(
-            @RequestHeader(SIGNATURE) String signature, @RequestBody String payload)
+            @RequestHeader(SIGNATURE) String signature,
+            @RequestHeader(value = EVENT, required = false) String event,
+            @RequestBody String payload)
             throws Exception {
         log.debug("New GitHub webhook request received");
 
@@ -186,11 +191,16 @@ public class GitHubController {
             return ResponseEntity.ok()
                     .headers(LPVSPayloadUtil.generateSecurityHeaders())
                     .body(new LPVSResponseWrapper(SUCCESS));
+        } else if (LPVSPayloadUtil.isRepositoryEvent(event)) {
+            // the cached metadata of the repository is outdated by the change
+            String repositoryName = LPVSPayloadUtil.getChangedRepository(event, payload);
+            if (repositoryName != null) {
+                gitHubService.invalidateRepository(repositoryName);
+            }
         } else if (LPVSPayloadUtil.checkPayload(payload)) {
             LPVSQueue webhookConfig = LPVSPayloadUtil.getGitHubWebhookConfig(payload);
             webhookConfig.setDate(new Date());
             webhookConfig.setReviewSystemType("github");
-            queueRepository.save(webhookConfig);
             log.debug("Pull request scanning is enabled");
             gitHubService.setPendingCheck(webhookConfig);
             log.debug("Set status to Pending done");
@@ -239,15 +249,18 @@ public class GitHubController {
         gitHubRepo = HtmlUtils.htmlEscape(gitHubRepo);
 
         try {
-            GitHub gitHub = gitHubConnectionService.connectToGitHubApi();
+            GitHub gitHub =
+                    gitHubConnectionService.isAppAuthentication()
+                            ? gitHubConnectionService.connectToGitHubApi(gitHubOrg, gitHubRepo)
+                            : gitHubConnectionService.connectToGitHubApi();
             GHRepository repository = gitHub.getRepository(gitHubOrg + "/" + gitHubRepo);
             GHPullRequest pullRequest = repository.getPullRequest(prNumber);
             LPVSQueue scanConfig = LPVSPayloadUtil.getGitHubWebhookConfig(repository, pullRequest);
             scanConfig.setAction(LPVSPullRequestAction.SINGLE_SCAN);
+            scanConfig.setPriority(LPVSQueuePriority.INTERACTIVE);
             scanConfig.setAttempts(0);
             scanConfig.setDate(new Date());
             scanConfig.setReviewSystemType("github");
-            queueRepository.save(scanConfig);
             log.debug("Pull request scanning is enabled");
             gitHubService.setPendingCheck(scanConfig);
             log.debug("Set status to Pending done");
@@ -7,6 +7,8 @@
 package com.lpvs.controller;
 
 import com.lpvs.repository.LPVSQueueRepository;
+import com.lpvs.service.LPVSPipeline;
+import com.lpvs.service.LPVSRateLimitGovernor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -32,14 +34,31 @@ public class HealthController {
      */
     private final LPVSQueueRepository queueRepository;
 
+    /**
+     * Pipeline processing the webhooks in stages.
+     */
+    private final LPVSPipeline pipeline;
+
+    /**
+     * Governor pacing the processing against the GitHub API rate limit.
+     */
+    private final LPVSRateLimitGovernor rateLimitGovernor;
+
     /**
      * Constructor for HealthController.
      *
      * @param queueRepository Repository for accessing LPVSQueue entities.
+     * @param pipeline Pipeline processing the webhooks in stages.
+     * @param rateLimitGovernor Governor pacing the processing against the GitHub API rate limit.
      */
     @Autowired
-    public HealthController(LPVSQueueRepository queueRepository) {
+    public HealthController(
+            LPVSQueueRepository queueRepository,
+            LPVSPipeline pipeline,
+            LPVSRateLimitGovernor rateLimitGovernor) {
         this.queueRepository = queueRepository;
+        this.pipeline = pipeline;
+        this.rateLimitGovernor = rateLimitGovernor;
     }
 
     /**
@@ -56,4 +75,28 @@ public class HealthController {
         log.info("Current queue length: {}", queueLength);
         return ResponseEntity.ok(response);
     }
+
+    /**
+     * Endpoint for checking the occupancy of the pipeline stages.
+     * Returns the number of busy workers and queued webhooks of every stage
+     * together with the size of its pool and queue.
+     *
+     * @return A ResponseEntity containing a map of stage names to their occupancy.
+     */
+    @GetMapping("/pipeline")
+    public ResponseEntity<Map<String, Map<String, Integer>>> getPipelineStatus() {
+        return ResponseEntity.ok(pipeline.getOccupancy());
+    }
+
+    /**
+     * Endpoint for checking the state of the GitHub API rate limit.
+     * Returns the limit, the remaining requests and the reset time known from the last
+     * responses, together with the estimated cost of a webhook and the current dispatch delay.
+     *
+     * @return A ResponseEntity containing a map of the rate limit state.
+     */
+    @GetMapping("/github")
+    public ResponseEntity<Map<String, Long>> getGitHubRateLimitStatus() {
+        return ResponseEntity.ok(rateLimitGovernor.getStatus());
+    }
 }
@@ -0,0 +1,137 @@
+/**
+ * Copyright (c) 2024, Samsung Electronics Co., Ltd. All rights reserved.
+ *
+ * Use of this source code is governed by a MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.lpvs.entity;
+
+import com.lpvs.util.LPVSPayloadUtil;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Represents the scan results of a pull request waiting to be published on GitHub.
+ * This class is mapped to the "lpvs_outbox" table in the "lpvs" schema.
+ * <p>
+ * The results are committed to the database together with the detected licenses, so
+ * the publication is retried on its own when GitHub is not available, without scanning
+ * the pull request again.
+ * </p>
+ */
+@Entity
+@Table(name = "lpvs_outbox")
+@Getter
+@Setter
+public class LPVSOutbox implements Serializable {
+
+    /**
+     * The unique identifier for the outbox item.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    /**
+     * The pull request whose scan results are published.
+     */
+    @ManyToOne
+    @JoinColumn(name = "pull_request_id", referencedColumnName = "id")
+    private LPVSPullRequest pullRequest;
+
+    /**
+     * The URL of the repository of the pull request.
+     */
+    @Column(name = "repository_url", columnDefinition = "LONGTEXT")
+    private String repositoryUrl;
+
+    /**
+     * The URL of the pull request.
+     */
+    @Column(name = "pull_request_url", columnDefinition = "LONGTEXT")
+    private String pullRequestUrl;
+
+    /**
+     * The hash of the pull request URL, set together with the URL and indexed to find
+     * the newer results of the same pull request.
+     */
+    @Column(name = "pull_request_url_hash", length = 64)
+    @Setter(AccessLevel.NONE)
+    private String pullRequestUrlHash;
+
+    /**
+     * The API URL of the pull request.
+     */
+    @Column(name = "pull_request_api_url", columnDefinition = "LONGTEXT")
+    private String pullRequestAPIUrl;
+
+    /**
+     * The SHA of the scanned head commit of the pull request.
+     */
+    @Column(name = "commit_sha")
+    private String headCommitSHA;
+
+    /**
+     * Indicates whether license issues were detected.
+     */
+    @Column(name = "issues")
+    private boolean issues;
+
+    /**
+     * The report of the scan posted in the comment of the pull request.
+     */
+    @Column(name = "comment", columnDefinition = "LONGTEXT")
+    private String comment;
+
+    /**
+     * The link to the validation details added to the comment of the pull request.
+     */
+    @Column(name = "hub_link", columnDefinition = "LONGTEXT")
+    private String hubLink;
+
+    /**
+     * The number of failed attempts to publish the results.
+     */
+    @Column(name = "attempts")
+    private int attempts;
+
+    /**
+     * The time when the results were saved.
+     */
+    @Column(name = "created_date")
+    private Date date;
+
+    /**
+     * The time before which the results must not be published (used to delay retries).
+     */
+    @Column(name = "not_before")
+    private Date notBefore;
+
+    /**
+     * The identifier of the LPVS instance which currently publishes the results.
+     */
+    @Column(name = "lease_owner")
+    private String leaseOwner;
+
+    /**
+     * The time until which the lease on the outbox item is held by its owner.
+     */
+    @Column(name = "lease_expiry")
+    private Date leaseExpiry;
+
+    /**
+     * Sets the URL of the pull request and its hash.
+     *
+     * @param pullRequestUrl The URL of the pull request.
+     */
+    public void setPullRequestUrl(String pullRequestUrl) {
+        this.pullRequestUrl = pullRequestUrl;
+        this.pullRequestUrlHash = LPVSPayloadUtil.getPullRequestUrlHash(pullRequestUrl);
+    }
+}
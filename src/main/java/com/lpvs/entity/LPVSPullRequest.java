@@ -96,6 +96,12 @@ public class LPVSPullRequest implements Serializable {
     @Column(name = "sender")
     private String sender;
 
+    /**
+     * The head commit SHA of the pull request whose scan results were published.
+     */
+    @Column(name = "scanned_commit_sha")
+    private String scannedCommitSha;
+
     /**
      * Checks if this pull request is equal to another object based on specific criteria.
      *
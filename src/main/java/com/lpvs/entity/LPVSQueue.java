@@ -7,13 +7,19 @@
 package com.lpvs.entity;
 
 import com.lpvs.entity.enums.LPVSPullRequestAction;
+import com.lpvs.entity.enums.LPVSQueueCheckpoint;
+import com.lpvs.entity.enums.LPVSQueuePriority;
+import com.lpvs.util.LPVSPayloadUtil;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
+import org.kohsuke.github.GHPullRequest;
 
 import jakarta.persistence.*;
 import java.io.Serializable;
 import java.util.Date;
 import java.util.Objects;
+import java.util.Set;
 
 /**
  * Represents an item in the LPVS queue for processing pull requests.
@@ -74,6 +80,14 @@ public class LPVSQueue implements Serializable {
     @Column(name = "pull_request_url", columnDefinition = "LONGTEXT")
     private String pullRequestUrl;
 
+    /**
+     * The hash of the pull request URL, set together with the URL and indexed to find
+     * the queue items of the same pull request.
+     */
+    @Column(name = "pull_request_url_hash", length = 64)
+    @Setter(AccessLevel.NONE)
+    private String pullRequestUrlHash;
+
     /**
      * The URL of the pull request files associated with the queue item.
      */
@@ -116,6 +130,43 @@ public class LPVSQueue implements Serializable {
     @Column(name = "sender")
     private String sender;
 
+    /**
+     * The identifier of the LPVS instance which currently holds the lease on the queue item.
+     */
+    @Column(name = "lease_owner")
+    private String leaseOwner;
+
+    /**
+     * The time until which the lease on the queue item is held by its owner.
+     */
+    @Column(name = "lease_expiry")
+    private Date leaseExpiry;
+
+    /**
+     * The priority class of the queue item, stored by its code.
+     */
+    @Column(name = "priority")
+    @Convert(converter = LPVSQueuePriority.CodeConverter.class)
+    private LPVSQueuePriority priority;
+
+    /**
+     * The estimated cost of processing the queue item (number of changed lines in the pull request).
+     */
+    @Column(name = "cost")
+    private Long cost;
+
+    /**
+     * The time before which the queue item must not be processed (used to delay retries).
+     */
+    @Column(name = "not_before")
+    private Date notBefore;
+
+    /**
+     * The last completed stage of the processing, used to resume the interrupted processing.
+     */
+    @Column(name = "scan_checkpoint")
+    private LPVSQueueCheckpoint checkpoint;
+
     /**
      * Transient field representing the license information associated with the queue item.
      */
@@ -126,6 +177,34 @@ public class LPVSQueue implements Serializable {
      */
     @Transient private String hubLink;
 
+    /**
+     * Transient field caching the GitHub pull request resolved during the processing
+     * of the queue item, so that it is looked up only once.
+     */
+    @Transient private transient GHPullRequest gitHubPullRequest;
+
+    /**
+     * Transient field with the files changed since the last scan of the pull request.
+     * Only these files are downloaded and scanned, null if all files are scanned.
+     */
+    @Transient private transient Set<String> changedFiles;
+
+    /**
+     * Transient field with the directory of the workspaces in which the files of the queue item
+     * are saved, null if they are saved in the default directory on disk.
+     */
+    @Transient private transient String workspaceRoot;
+
+    /**
+     * Sets the URL of the pull request and its hash.
+     *
+     * @param pullRequestUrl The URL of the pull request.
+     */
+    public void setPullRequestUrl(String pullRequestUrl) {
+        this.pullRequestUrl = pullRequestUrl;
+        this.pullRequestUrlHash = LPVSPayloadUtil.getPullRequestUrlHash(pullRequestUrl);
+    }
+
     /**
      * Checks if this queue item is equal to another object based on specific criteria.
      *
@@ -0,0 +1,67 @@
+/**
+ * Copyright (c) 2024, Samsung Electronics Co., Ltd. All rights reserved.
+ *
+ * Use of this source code is governed by a MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.lpvs.entity.enums;
+
+import com.lpvs.exception.LPVSPullRequestNotFoundException;
+import com.lpvs.exception.LPVSScannerException;
+import org.kohsuke.github.GHFileNotFoundException;
+import org.kohsuke.github.HttpException;
+
+/**
+ * Represents the classes of failures which can happen during the processing of a queue element.
+ * Each class has its own retry policy.
+ */
+public enum LPVSFailureType {
+
+    /**
+     * Represents exceeding of the GitHub API rate limit.
+     */
+    RATE_LIMIT,
+
+    /**
+     * Represents a crash or a non-zero exit of the license scanner.
+     */
+    SCANNER_CRASH,
+
+    /**
+     * Represents a pull request or repository which cannot be found.
+     */
+    PULL_REQUEST_NOT_FOUND,
+
+    /**
+     * Represents any other failure.
+     */
+    OTHER;
+
+    /**
+     * Determines the class of the failure based on the exception and its causes.
+     *
+     * @param throwable The exception which caused the failure.
+     * @return The class of the failure.
+     */
+    public static LPVSFailureType of(Throwable throwable) {
+        for (Throwable t = throwable; t != null; t = t.getCause()) {
+            if (t instanceof HttpException) {
+                HttpException httpException = (HttpException) t;
+                if (httpException.getResponseCode() == 429
+                        || (httpException.getResponseCode() == 403
+                                && httpException.getMessage() != null
+                                && httpException.getMessage().toLowerCase().contains("rate limit"))) {
+                    return RATE_LIMIT;
+                }
+            }
+            if (t instanceof GHFileNotFoundException
+                    || t instanceof LPVSPullRequestNotFoundException) {
+                return PULL_REQUEST_NOT_FOUND;
+            }
+            if (t instanceof LPVSScannerException) {
+                return SCANNER_CRASH;
+            }
+        }
+        return OTHER;
+    }
+}
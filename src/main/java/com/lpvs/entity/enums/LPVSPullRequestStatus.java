@@ -35,7 +35,12 @@ public enum LPVSPullRequestStatus {
     /**
      * Indicates that the scan of the pull request is scheduled and in progress.
      */
-    SCANNING("Scan is scheduled");
+    SCANNING("Scan is scheduled"),
+
+    /**
+     * Indicates that the scan of the pull request was cancelled because a newer commit was pushed.
+     */
+    SUPERSEDED("Scan superseded by a newer commit");
 
     /**
      * The string representation of the pull request status.
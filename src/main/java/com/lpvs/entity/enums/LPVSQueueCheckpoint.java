@@ -0,0 +1,25 @@
+/**
+ * Copyright (c) 2024, Samsung Electronics Co., Ltd. All rights reserved.
+ *
+ * Use of this source code is governed by a MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.lpvs.entity.enums;
+
+/**
+ * Represents the last completed stage of the processing of an element in the LPVS queue.
+ * The processing interrupted by a shutdown is resumed after this stage, the order of
+ * the constants must not be changed.
+ */
+public enum LPVSQueueCheckpoint {
+
+    /**
+     * Represents the pull request files saved in the local workspace.
+     */
+    FILES_FETCHED,
+
+    /**
+     * Represents the scanner results saved in the results directory.
+     */
+    SCANNED
+}
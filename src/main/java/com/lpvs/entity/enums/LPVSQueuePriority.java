@@ -0,0 +1,130 @@
+/**
+ * Copyright (c) 2024, Samsung Electronics Co., Ltd. All rights reserved.
+ *
+ * Use of this source code is governed by a MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.lpvs.entity.enums;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Represents the priority classes of the elements in the LPVS queue.
+ * Each class is stored in the database by its explicit code, elements of a class with a lower
+ * code are always processed before elements of the classes with higher codes.
+ */
+public enum LPVSQueuePriority {
+
+    /**
+     * Represents a scan explicitly requested by a user who is waiting for the result.
+     */
+    INTERACTIVE(0),
+
+    /**
+     * Represents a scan triggered by a new pull request event.
+     */
+    WEBHOOK(1),
+
+    /**
+     * Represents a repeated scan after a failed attempt.
+     */
+    RETRY(2),
+
+    /**
+     * Represents a scan triggered by automation which is not time critical.
+     */
+    BACKFILL(3);
+
+    /**
+     * The code of the priority class stored in the database.
+     */
+    private final int code;
+
+    /**
+     * Constructs an LPVSQueuePriority with the specified code.
+     *
+     * @param code The code of the priority class stored in the database.
+     */
+    LPVSQueuePriority(final int code) {
+        this.code = code;
+    }
+
+    /**
+     * Gets the code of the priority class stored in the database.
+     *
+     * @return The code of the priority class.
+     */
+    public int getCode() {
+        return code;
+    }
+
+    /**
+     * Gets the priority class with the specified code.
+     *
+     * @param code The code of the priority class.
+     * @return The priority class, or null if there is no class with the code.
+     */
+    public static LPVSQueuePriority fromCode(Integer code) {
+        if (code == null) {
+            return null;
+        }
+        for (LPVSQueuePriority priority : values()) {
+            if (priority.getCode() == code) {
+                return priority;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the default priority class for the specified pull request action.
+     *
+     * @param action The pull request action.
+     * @return The priority class of the queue element.
+     */
+    public static LPVSQueuePriority forAction(LPVSPullRequestAction action) {
+        if (action == null) {
+            return WEBHOOK;
+        }
+        switch (action) {
+            case SINGLE_SCAN:
+            case RESCAN:
+                return INTERACTIVE;
+            case BOT_SCAN:
+            case REPO_SCAN:
+                return BACKFILL;
+            default:
+                return WEBHOOK;
+        }
+    }
+
+    /**
+     * Converts the priority classes to their codes stored in the database and back.
+     */
+    @Converter
+    public static class CodeConverter implements AttributeConverter<LPVSQueuePriority, Integer> {
+
+        /**
+         * Converts the priority class to its code.
+         *
+         * @param priority The priority class.
+         * @return The code of the priority class, or null if the class is null.
+         */
+        @Override
+        public Integer convertToDatabaseColumn(LPVSQueuePriority priority) {
+            return priority == null ? null : priority.getCode();
+        }
+
+        /**
+         * Converts the code stored in the database to the priority class.
+         *
+         * @param code The code of the priority class.
+         * @return The priority class, or null if there is no class with the code.
+         */
+        @Override
+        public LPVSQueuePriority convertToEntityAttribute(Integer code) {
+            return fromCode(code);
+        }
+    }
+}
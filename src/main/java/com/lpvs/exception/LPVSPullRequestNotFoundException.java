@@ -0,0 +1,22 @@
+/**
+ * Copyright (c) 2024, Samsung Electronics Co., Ltd. All rights reserved.
+ *
+ * Use of this source code is governed by a MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.lpvs.exception;
+
+/**
+ * Exception thrown when the pull request to be scanned or its files cannot be found.
+ */
+public class LPVSPullRequestNotFoundException extends RuntimeException {
+
+    /**
+     * Constructs a new LPVSPullRequestNotFoundException with the specified detail message.
+     *
+     * @param message The detail message.
+     */
+    public LPVSPullRequestNotFoundException(String message) {
+        super(message);
+    }
+}
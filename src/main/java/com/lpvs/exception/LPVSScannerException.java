@@ -0,0 +1,23 @@
+/**
+ * Copyright (c) 2024, Samsung Electronics Co., Ltd. All rights reserved.
+ *
+ * Use of this source code is governed by a MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.lpvs.exception;
+
+/**
+ * Exception thrown when the license scanner fails to scan the files.
+ */
+public class LPVSScannerException extends RuntimeException {
+
+    /**
+     * Constructs a new LPVSScannerException with the specified detail message and cause.
+     *
+     * @param message The detail message.
+     * @param cause   The exception which caused the scanner failure.
+     */
+    public LPVSScannerException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ * Copyright (c) 2024, Samsung Electronics Co., Ltd. All rights reserved.
+ *
+ * Use of this source code is governed by a MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.lpvs.repository;
+
+import com.lpvs.entity.LPVSOutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Repository interface for managing {@link LPVSOutbox} entities.
+ * Extends {@link org.springframework.data.jpa.repository.JpaRepository} for basic CRUD operations.
+ */
+public interface LPVSOutboxRepository extends JpaRepository<LPVSOutbox, Long> {
+
+    /**
+     * Find outbox items which are not leased or whose lease has expired, and which are not
+     * delayed until a later time.
+     *
+     * @param now      The current time used to detect expired leases.
+     * @param pageable The pagination information limiting the number of returned items.
+     * @return List of the outbox items available for publishing, oldest first.
+     */
+    @Query(
+            "SELECT o FROM LPVSOutbox o WHERE (o.leaseExpiry IS NULL OR o.leaseExpiry < :now) "
+                    + "AND (o.notBefore IS NULL OR o.notBefore <= :now) ORDER BY o.id ASC")
+    List<LPVSOutbox> findPublishable(@Param("now") Date now, Pageable pageable);
+
+    /**
+     * Atomically claim the outbox item if it is not leased or its lease has expired.
+     * Only one LPVS instance can succeed for the same item.
+     *
+     * @param id     ID of the outbox item to claim.
+     * @param owner  Identifier of the LPVS instance claiming the item.
+     * @param expiry The time until which the lease is held.
+     * @param now    The current time used to detect expired leases.
+     * @return The number of updated rows, {@code 1} if the item was claimed.
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query(
+            "UPDATE LPVSOutbox o SET o.leaseOwner = :owner, o.leaseExpiry = :expiry "
+                    + "WHERE o.id = :id AND (o.leaseExpiry IS NULL OR o.leaseExpiry < :now)")
+    int claim(
+            @Param("id") Long id,
+            @Param("owner") String owner,
+            @Param("expiry") Date expiry,
+            @Param("now") Date now);
+
+    /**
+     * Check whether newer results are saved for the same pull request.
+     *
+     * @param pullRequestUrlHash The hash of the URL of the pull request.
+     * @param id                 ID of the outbox item to compare with.
+     * @return true if there is an outbox item for the pull request with a greater ID.
+     */
+    boolean existsByPullRequestUrlHashAndIdGreaterThan(
+            @Param("pullRequestUrlHash") String pullRequestUrlHash, @Param("id") Long id);
+}
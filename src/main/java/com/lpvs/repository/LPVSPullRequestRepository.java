@@ -13,6 +13,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -32,6 +33,21 @@ public interface LPVSPullRequestRepository extends JpaRepository<LPVSPullRequest
                     "SELECT pr FROM LPVSPullRequest pr WHERE pr.queueId = :queueId ORDER BY pr.id DESC LIMIT 1")
     LPVSPullRequest findByQueueId(@Param("queueId") Long queueId);
 
+    /**
+     * Find the latest pull request with the specified URL whose scan results were published.
+     *
+     * @param url      The URL of the pull request.
+     * @param statuses The statuses of the pull requests with published scan results.
+     * @return The latest {@link LPVSPullRequest} entity with published scan results, or null.
+     */
+    @Query(
+            value =
+                    "SELECT pr FROM LPVSPullRequest pr WHERE pr.pullRequestUrl = :url"
+                            + " AND pr.scannedCommitSha IS NOT NULL AND pr.status IN :statuses"
+                            + " ORDER BY pr.id DESC LIMIT 1")
+    LPVSPullRequest findLatestScanned(
+            @Param("url") String url, @Param("statuses") Collection<String> statuses);
+
     /**
      * Find all pull requests with the specified base name, paginated.
      *
@@ -7,10 +7,201 @@
 package com.lpvs.repository;
 
 import com.lpvs.entity.LPVSQueue;
+import com.lpvs.entity.enums.LPVSQueueCheckpoint;
+import com.lpvs.entity.enums.LPVSQueuePriority;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
 
 /**
  * Repository interface for managing {@link LPVSQueue} entities.
  * Extends {@link org.springframework.data.jpa.repository.JpaRepository} for basic CRUD operations.
  */
-public interface LPVSQueueRepository extends JpaRepository<LPVSQueue, Long> {}
+public interface LPVSQueueRepository extends JpaRepository<LPVSQueue, Long> {
+
+    /**
+     * Find queue elements which are not leased or whose lease has expired, and which are not
+     * delayed until a later time.
+     *
+     * @param now      The current time used to detect expired leases.
+     * @param pageable The pagination information limiting the number of returned elements.
+     * @return List of the queue elements available for claiming, ordered by priority class,
+     * then by estimated cost (cheapest first), then by age (oldest first).
+     */
+    @Query(
+            "SELECT q FROM LPVSQueue q WHERE (q.leaseExpiry IS NULL OR q.leaseExpiry < :now) "
+                    + "AND (q.notBefore IS NULL OR q.notBefore <= :now) "
+                    + "ORDER BY q.priority ASC, q.cost ASC, q.id ASC")
+    List<LPVSQueue> findClaimable(@Param("now") Date now, Pageable pageable);
+
+    /**
+     * Atomically claim the queue element if it is not leased or its lease has expired.
+     * Only one LPVS instance can succeed for the same element, others get {@code 0}
+     * and move on to the next candidate without waiting for a row lock.
+     *
+     * @param id     ID of the queue element to claim.
+     * @param owner  Identifier of the LPVS instance claiming the element.
+     * @param expiry The time until which the lease is held.
+     * @param now    The current time used to detect expired leases.
+     * @return The number of updated rows, {@code 1} if the element was claimed.
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query(
+            "UPDATE LPVSQueue q SET q.leaseOwner = :owner, q.leaseExpiry = :expiry "
+                    + "WHERE q.id = :id AND (q.leaseExpiry IS NULL OR q.leaseExpiry < :now)")
+    int claim(
+            @Param("id") Long id,
+            @Param("owner") String owner,
+            @Param("expiry") Date expiry,
+            @Param("now") Date now);
+
+    /**
+     * Extend the leases of the queue elements held by the specified owner.
+     *
+     * @param ids    IDs of the queue elements whose leases should be extended.
+     * @param owner  Identifier of the LPVS instance holding the leases.
+     * @param expiry The new time until which the leases are held.
+     * @return The number of extended leases.
+     */
+    @Transactional
+    @Modifying
+    @Query(
+            "UPDATE LPVSQueue q SET q.leaseExpiry = :expiry "
+                    + "WHERE q.leaseOwner = :owner AND q.id IN :ids")
+    int renewLeases(
+            @Param("ids") Collection<Long> ids,
+            @Param("owner") String owner,
+            @Param("expiry") Date expiry);
+
+    /**
+     * Release the leases which have expired, making the queue elements available again.
+     *
+     * @param now The current time used to detect expired leases.
+     * @return The number of released leases.
+     */
+    @Transactional
+    @Modifying
+    @Query(
+            "UPDATE LPVSQueue q SET q.leaseOwner = NULL, q.leaseExpiry = NULL "
+                    + "WHERE q.leaseExpiry < :now")
+    int releaseExpiredLeases(@Param("now") Date now);
+
+    /**
+     * Release all leases held by the specified owner.
+     *
+     * @param owner Identifier of the LPVS instance holding the leases.
+     * @return The number of released leases.
+     */
+    @Transactional
+    @Modifying
+    @Query(
+            "UPDATE LPVSQueue q SET q.leaseOwner = NULL, q.leaseExpiry = NULL "
+                    + "WHERE q.leaseOwner = :owner")
+    int releaseLeases(@Param("owner") String owner);
+
+    /**
+     * Return the queue element leased by the specified owner to the queue, releasing the lease
+     * and saving the fields updated for the next attempt. The element leased by another owner
+     * is not changed.
+     *
+     * @param id        ID of the queue element.
+     * @param owner     Identifier of the LPVS instance holding the lease.
+     * @param attempts  The number of the processing attempts.
+     * @param priority  The priority class of the queue element.
+     * @param notBefore The time before which the element must not be processed.
+     * @return The number of updated rows, {@code 1} if the element was returned to the queue.
+     */
+    @Transactional
+    @Modifying
+    @Query(
+            "UPDATE LPVSQueue q SET q.leaseOwner = NULL, q.leaseExpiry = NULL, "
+                    + "q.attempts = :attempts, q.priority = :priority, q.notBefore = :notBefore "
+                    + "WHERE q.id = :id AND q.leaseOwner = :owner")
+    int requeue(
+            @Param("id") Long id,
+            @Param("owner") String owner,
+            @Param("attempts") int attempts,
+            @Param("priority") LPVSQueuePriority priority,
+            @Param("notBefore") Date notBefore);
+
+    /**
+     * Save the last completed stage of the processing of the queue element leased by
+     * the specified owner.
+     *
+     * @param id         ID of the queue element.
+     * @param owner      Identifier of the LPVS instance holding the lease.
+     * @param checkpoint The last completed stage of the processing.
+     * @return The number of updated rows, {@code 1} if the checkpoint was saved.
+     */
+    @Transactional
+    @Modifying
+    @Query(
+            "UPDATE LPVSQueue q SET q.checkpoint = :checkpoint "
+                    + "WHERE q.id = :id AND q.leaseOwner = :owner")
+    int saveCheckpoint(
+            @Param("id") Long id,
+            @Param("owner") String owner,
+            @Param("checkpoint") LPVSQueueCheckpoint checkpoint);
+
+    /**
+     * Check whether a newer queue element exists for the same pull request.
+     *
+     * @param pullRequestUrlHash The hash of the URL of the pull request.
+     * @param id                 ID of the queue element to compare with.
+     * @return true if there is a queue element for the pull request with a greater ID.
+     */
+    boolean existsByPullRequestUrlHashAndIdGreaterThan(
+            @Param("pullRequestUrlHash") String pullRequestUrlHash, @Param("id") Long id);
+
+    /**
+     * Find IDs of the specified queue elements for which a newer element exists
+     * for the same pull request.
+     *
+     * @param ids IDs of the queue elements to check.
+     * @return List of IDs of the superseded queue elements.
+     */
+    @Query(
+            "SELECT q.id FROM LPVSQueue q WHERE q.id IN :ids AND EXISTS "
+                    + "(SELECT n.id FROM LPVSQueue n "
+                    + "WHERE n.pullRequestUrlHash = q.pullRequestUrlHash AND n.id > q.id)")
+    List<Long> findSupersededIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Delete the queue elements for the same pull request which are older than the specified
+     * element and are not being processed.
+     *
+     * @param pullRequestUrlHash The hash of the URL of the pull request.
+     * @param id                 ID of the newest queue element for the pull request.
+     * @param now                The current time used to detect expired leases.
+     * @return The number of deleted queue elements.
+     */
+    @Transactional
+    @Modifying
+    @Query(
+            "DELETE FROM LPVSQueue q WHERE q.pullRequestUrlHash = :pullRequestUrlHash "
+                    + "AND q.id < :id AND (q.leaseExpiry IS NULL OR q.leaseExpiry < :now)")
+    int deleteSuperseded(
+            @Param("pullRequestUrlHash") String pullRequestUrlHash,
+            @Param("id") Long id,
+            @Param("now") Date now);
+
+    /**
+     * Reset the estimated cost of the queue elements waiting since before the specified time,
+     * so that large elements are not postponed indefinitely by a stream of smaller ones.
+     *
+     * @param threshold The time before which the elements were added to the queue.
+     * @return The number of updated queue elements.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE LPVSQueue q SET q.cost = 0 WHERE q.cost > 0 AND q.date < :threshold")
+    int resetCostOfWaiting(@Param("threshold") Date threshold);
+}
@@ -0,0 +1,204 @@
+/**
+ * Copyright (c) 2024, Samsung Electronics Co., Ltd. All rights reserved.
+ *
+ * Use of this source code is governed by a MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.lpvs.service;
+
+import org.kohsuke.github.authorization.AuthorizationProvider;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.util.Base64;
+
+/**
+ * Provider of the JSON Web Tokens authenticating LPVS as a GitHub App.
+ * <p>
+ * The token is signed with the private key of the GitHub App (RS256) and is used only to
+ * request the installation tokens. A new token is signed shortly before the previous one
+ * expires. The private key is accepted in the PKCS#8 ({@code BEGIN PRIVATE KEY}) and
+ * the PKCS#1 ({@code BEGIN RSA PRIVATE KEY}) PEM format generated by GitHub.
+ * </p>
+ */
+public class LPVSGitHubAppJwtProvider implements AuthorizationProvider {
+
+    /**
+     * Validity of the token in seconds, GitHub accepts at most 10 minutes.
+     */
+    static final long TOKEN_VALIDITY = 540;
+
+    /**
+     * Time in seconds the token is issued in the past to allow for clock drift.
+     */
+    static final long CLOCK_DRIFT = 60;
+
+    /**
+     * Time in seconds before the expiry when a new token is signed.
+     */
+    private static final long REFRESH_MARGIN = 60;
+
+    /**
+     * Algorithm identifier of the RSA keys in the PKCS#8 structure.
+     */
+    private static final byte[] RSA_ALGORITHM_ID = {
+        0x30, 0x0d, 0x06, 0x09, 0x2a, (byte) 0x86, 0x48, (byte) 0x86, (byte) 0xf7, 0x0d, 0x01,
+        0x01, 0x01, 0x05, 0x00
+    };
+
+    /**
+     * ID of the GitHub App.
+     */
+    private final String appId;
+
+    /**
+     * Private key of the GitHub App.
+     */
+    private final PrivateKey privateKey;
+
+    /**
+     * The last signed token.
+     */
+    private String token;
+
+    /**
+     * Time in milliseconds after which a new token is signed.
+     */
+    private long validUntil;
+
+    /**
+     * Constructs the provider of the tokens of the GitHub App.
+     *
+     * @param appId         ID of the GitHub App.
+     * @param privateKeyPem Private key of the GitHub App in the PEM format.
+     * @throws GeneralSecurityException if the private key is not a valid RSA key.
+     */
+    public LPVSGitHubAppJwtProvider(String appId, String privateKeyPem)
+            throws GeneralSecurityException {
+        this.appId = appId;
+        this.privateKey = parsePrivateKey(privateKeyPem);
+    }
+
+    /**
+     * Gets the authorization header value with the token, signing a new token if the previous
+     * one is about to expire.
+     *
+     * @return The authorization header value.
+     */
+    @Override
+    public synchronized String getEncodedAuthorization() {
+        long now = System.currentTimeMillis();
+        if (token == null || now >= validUntil) {
+            token = createToken(now / 1000);
+            validUntil = now + (TOKEN_VALIDITY - CLOCK_DRIFT - REFRESH_MARGIN) * 1000;
+        }
+        return "Bearer " + token;
+    }
+
+    /**
+     * Creates the token signed with the private key of the GitHub App.
+     *
+     * @param now The current time in epoch seconds.
+     * @return The signed token.
+     */
+    String createToken(long now) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        String header =
+                encoder.encodeToString(
+                        "{\"alg\":\"RS256\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.UTF_8));
+        String payload =
+                encoder.encodeToString(
+                        ("{\"iat\":"
+                                        + (now - CLOCK_DRIFT)
+                                        + ",\"exp\":"
+                                        + (now - CLOCK_DRIFT + TOKEN_VALIDITY)
+                                        + ",\"iss\":\""
+                                        + appId
+                                        + "\"}")
+                                .getBytes(StandardCharsets.UTF_8));
+        try {
+            Signature signature = Signature.getInstance("SHA256withRSA");
+            signature.initSign(privateKey);
+            signature.update((header + "." + payload).getBytes(StandardCharsets.US_ASCII));
+            return header + "." + payload + "." + encoder.encodeToString(signature.sign());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Can't sign GitHub App token: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Parses the RSA private key in the PEM format.
+     *
+     * @param pem The private key in the PKCS#8 or PKCS#1 PEM format.
+     * @return The private key.
+     * @throws GeneralSecurityException if the private key is not a valid RSA key.
+     */
+    static PrivateKey parsePrivateKey(String pem) throws GeneralSecurityException {
+        if (pem == null) {
+            throw new GeneralSecurityException("Private key is empty");
+        }
+        boolean pkcs1 = pem.contains("BEGIN RSA PRIVATE KEY");
+        byte[] der;
+        try {
+            der =
+                    Base64.getMimeDecoder()
+                            .decode(pem.replaceAll("-----[A-Z ]+-----", "").trim());
+        } catch (IllegalArgumentException e) {
+            throw new GeneralSecurityException("Private key is not in the PEM format", e);
+        }
+        if (pkcs1) {
+            der = toPkcs8(der);
+        }
+        return KeyFactory.getInstance("RSA").generatePrivate(new PKCS8EncodedKeySpec(der));
+    }
+
+    /**
+     * Wraps the PKCS#1 RSA private key into the PKCS#8 structure.
+     *
+     * @param pkcs1 The PKCS#1 RSA private key.
+     * @return The PKCS#8 private key.
+     */
+    static byte[] toPkcs8(byte[] pkcs1) {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        // version 0, RSA algorithm, the key as an octet string
+        content.write(0x02);
+        content.write(0x01);
+        content.write(0x00);
+        content.writeBytes(RSA_ALGORITHM_ID);
+        content.write(0x04);
+        writeLength(content, pkcs1.length);
+        content.writeBytes(pkcs1);
+
+        ByteArrayOutputStream pkcs8 = new ByteArrayOutputStream();
+        pkcs8.write(0x30);
+        writeLength(pkcs8, content.size());
+        pkcs8.writeBytes(content.toByteArray());
+        return pkcs8.toByteArray();
+    }
+
+    /**
+     * Writes the length of the DER element.
+     *
+     * @param out    The stream of the DER structure.
+     * @param length The length of the element.
+     */
+    private static void writeLength(ByteArrayOutputStream out, int length) {
+        if (length < 0x80) {
+            out.write(length);
+            return;
+        }
+        int bytes = 0;
+        for (int value = length; value > 0; value >>= 8) {
+            bytes++;
+        }
+        out.write(0x80 | bytes);
+        for (int i = bytes - 1; i >= 0; i--) {
+            out.write((length >> (8 * i)) & 0xff);
+        }
+    }
+}
@@ -9,18 +9,50 @@ package com.lpvs.service;
 import com.lpvs.util.LPVSExitHandler;
 import io.micrometer.common.util.StringUtils;
 import lombok.extern.slf4j.Slf4j;
+import okhttp3.Cache;
+import okhttp3.CacheControl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
 import org.kohsuke.github.GitHub;
+import org.kohsuke.github.authorization.AppInstallationAuthorizationProvider;
+import org.kohsuke.github.authorization.AuthorizationProvider;
+import org.kohsuke.github.HttpException;
+import org.kohsuke.github.GitHubBuilder;
+import org.kohsuke.github.extras.okhttp3.OkHttpGitHubConnector;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Service class for managing connections to the GitHub API.
  *
  * It provides methods to connect to the GitHub API with the specified login and authentication token.
+ * <p>
+ * GitHub clients are thread-safe, so one client is created per credential and shared by all
+ * workers. When the response cache is enabled, the clients use a common HTTP client keeping
+ * the connections alive and caching the responses on disk: repeated reads are sent as
+ * conditional requests, and the 304 responses do not count against the rate limit. These clients
+ * also report the state of the rate limit to {@link LPVSRateLimitGovernor}.
+ * </p>
+ * <p>
+ * When the ID and the private key of a GitHub App are configured, LPVS is authenticated as
+ * the app instead of the static token. Each owner of the repositories gets a client of its
+ * installation of the app, so every installation has its own rate limit. The installation
+ * tokens are cached and requested again shortly before they expire.
+ * </p>
  */
 @Service
 @Slf4j
@@ -77,11 +109,82 @@ public class LPVSGitHubConnectionService {
      */
     private static final String GITHUB_API_URL_ENV_VAR_NAME = "LPVS_GITHUB_API_URL";
 
+    /**
+     * Name of the GitHub App ID environment variable.
+     */
+    private static final String GITHUB_APP_ID_ENV_VAR_NAME = "LPVS_GITHUB_APP_ID";
+
+    /**
+     * Name of the GitHub App private key file environment variable.
+     */
+    private static final String GITHUB_APP_PRIVATE_KEY_ENV_VAR_NAME =
+            "LPVS_GITHUB_APP_PRIVATE_KEY";
+
+    /**
+     * ID of the GitHub App LPVS is authenticated as (optional).
+     */
+    @Value("${github.app.id:}")
+    private String appId;
+
+    /**
+     * Path to the private key of the GitHub App in the PEM format (optional).
+     */
+    @Value("${github.app.private-key:}")
+    private String appPrivateKey;
+
+    /**
+     * Output mode of the results, the {@code checks} mode requires the GitHub App authentication.
+     */
+    @Value("${github.output.mode:status}")
+    private String outputMode;
+
+    /**
+     * Provider of the tokens of the GitHub App, created on the first use.
+     */
+    private LPVSGitHubAppJwtProvider appTokenProvider;
+
+    /**
+     * Providers of the installation tokens of the GitHub App for each repository owner.
+     */
+    private final Map<String, AuthorizationProvider> installations = new ConcurrentHashMap<>();
+
     /**
      * Handler for exiting the application.
      */
     private LPVSExitHandler exitHandler;
 
+    /**
+     * Directory of the cache of GitHub API responses (temporary directory if not set).
+     */
+    @Value("${github.cache.dir:}")
+    private String cacheDir;
+
+    /**
+     * Maximum size of the cache of GitHub API responses in megabytes (0 - disabled).
+     */
+    @Value("${github.cache.size:0}")
+    private long cacheSize;
+
+    /**
+     * GitHub clients created for each credential.
+     */
+    private final Map<String, GitHub> clients = new ConcurrentHashMap<>();
+
+    /**
+     * HTTP client shared by the GitHub clients, created on the first use.
+     */
+    private OkHttpClient httpClient;
+
+    /**
+     * HTTP client downloading the diffs when the response cache is disabled.
+     */
+    private OkHttpClient diffHttpClient;
+
+    /**
+     * Governor receiving the state of the GitHub API rate limit from the clients (optional).
+     */
+    private LPVSRateLimitGovernor rateLimitGovernor;
+
     /**
      * Constructs an instance of LPVSGitHubConnectionService with the specified properties and exit handler.
      *
@@ -117,11 +220,48 @@ public class LPVSGitHubConnectionService {
         this.exitHandler = exitHandler;
     }
 
+    /**
+     * Sets the governor receiving the state of the GitHub API rate limit from the clients.
+     *
+     * @param rateLimitGovernor Governor pacing the processing against the GitHub API rate limit.
+     */
+    @Autowired(required = false)
+    public void setRateLimitGovernor(LPVSRateLimitGovernor rateLimitGovernor) {
+        this.rateLimitGovernor = rateLimitGovernor;
+    }
+
     /**
      * Checks if the GitHub authentication token is set and exits the application if not.
+     * Exits the application as well if the check runs are used without the GitHub App
+     * authentication, as GitHub accepts check runs from the installations of GitHub Apps only.
      */
     @PostConstruct
     private void checks() {
+        if (StringUtils.isBlank(appId)) {
+            appId = Optional.ofNullable(System.getenv(GITHUB_APP_ID_ENV_VAR_NAME)).orElse("");
+        }
+        if (StringUtils.isBlank(appPrivateKey)) {
+            appPrivateKey =
+                    Optional.ofNullable(System.getenv(GITHUB_APP_PRIVATE_KEY_ENV_VAR_NAME))
+                            .orElse("");
+        }
+        if (isAppAuthentication()) {
+            log.info("GitHub App authentication is used, app ID: " + appId);
+            if (rateLimitGovernor != null) {
+                log.warn(
+                        "Processing is not paced against the GitHub API rate limit with"
+                                + " GitHub App authentication, each installation has its own"
+                                + " rate limit; only the secondary rate limit pauses it.");
+            }
+            return;
+        }
+        if ("checks".equalsIgnoreCase(outputMode) && StringUtils.isBlank(localPath)) {
+            log.error(
+                    "github.output.mode=checks requires the GitHub App authentication "
+                            + "(github.app.id, github.app.private-key).");
+            exitHandler.exit(-1);
+            return;
+        }
         if (this.GITHUB_AUTH_TOKEN.isEmpty() && StringUtils.isBlank(localPath)) {
             log.error(
                     GITHUB_AUTH_TOKEN_ENV_VAR_NAME
@@ -139,13 +279,42 @@ public class LPVSGitHubConnectionService {
      * @throws IOException if an error occurs during the GitHub connection.
      */
     public GitHub connectToGitHubApi() throws IOException {
-        GitHub gH;
         if (GITHUB_AUTH_TOKEN.isEmpty()) setGithubTokenFromEnv();
-        if (GITHUB_API_URL.isEmpty()) gH = GitHub.connect(GITHUB_LOGIN, GITHUB_AUTH_TOKEN);
-        else
-            gH =
-                    GitHub.connectToEnterpriseWithOAuth(
-                            GITHUB_API_URL, GITHUB_LOGIN, GITHUB_AUTH_TOKEN);
+        return getClient(
+                GITHUB_API_URL, GITHUB_LOGIN, GITHUB_AUTH_TOKEN, !GITHUB_API_URL.isEmpty());
+    }
+
+    /**
+     * Checks whether LPVS is authenticated as a GitHub App.
+     *
+     * @return true if the ID and the private key of a GitHub App are configured.
+     */
+    public boolean isAppAuthentication() {
+        return !StringUtils.isBlank(appId) && !StringUtils.isBlank(appPrivateKey);
+    }
+
+    /**
+     * Connects to the GitHub API with the credential for the repository: the installation of
+     * the GitHub App for the owner of the repository, or the configured token.
+     *
+     * @param owner      The owner of the repository (organization or user).
+     * @param repository The name of the repository, used to find the installation.
+     * @return GitHub instance for interacting with the GitHub API.
+     * @throws IOException if an error occurs during the GitHub connection.
+     */
+    public GitHub connectToGitHubApi(String owner, String repository) throws IOException {
+        if (!isAppAuthentication()) {
+            return connectToGitHubApi();
+        }
+        String key = "app\n" + owner.toLowerCase(Locale.ROOT);
+        GitHub gH = clients.get(key);
+        if (gH == null) {
+            gH = createClient(GITHUB_API_URL, getInstallation(owner, repository));
+            GitHub existing = clients.putIfAbsent(key, gH);
+            if (existing != null) {
+                gH = existing;
+            }
+        }
         return gH;
     }
 
@@ -157,15 +326,257 @@ public class LPVSGitHubConnectionService {
      * @throws IOException if an error occurs during the GitHub connection.
      */
     public GitHub connectToEnterpriseApiWithCustomToken(String token) throws IOException {
-        GitHub gH;
         if (StringUtils.isBlank(token)) {
-            gH = connectToGitHubApi();
-        } else {
-            gH = GitHub.connectToEnterpriseWithOAuth(GITHUB_API_URL, GITHUB_LOGIN, token);
+            return connectToGitHubApi();
+        }
+        return getClient(GITHUB_API_URL, GITHUB_LOGIN, token, true);
+    }
+
+    /**
+     * Opens the unified diff of the pull request with the configured authentication token.
+     * The diff is streamed from GitHub and is not stored in the response cache.
+     *
+     * @param pullRequestApiUrl The API URL of the pull request.
+     * @return The stream of the diff, to be closed by the caller.
+     * @throws IOException if an error occurs or GitHub refuses to generate the diff.
+     */
+    public InputStream openPullRequestDiff(String pullRequestApiUrl) throws IOException {
+        if (GITHUB_AUTH_TOKEN.isEmpty()) setGithubTokenFromEnv();
+        Request.Builder request =
+                new Request.Builder()
+                        .url(pullRequestApiUrl)
+                        .header("Accept", "application/vnd.github.diff")
+                        .cacheControl(new CacheControl.Builder().noStore().build());
+        String[] repository = isAppAuthentication() ? getRepository(pullRequestApiUrl) : null;
+        if (repository != null) {
+            request.header(
+                    "Authorization",
+                    getInstallation(repository[0], repository[1]).getEncodedAuthorization());
+        } else if (!GITHUB_AUTH_TOKEN.isEmpty()) {
+            request.header("Authorization", "Bearer " + GITHUB_AUTH_TOKEN);
+        }
+        if (rateLimitGovernor != null) {
+            rateLimitGovernor.requested();
+        }
+        Response response = getDiffHttpClient().newCall(request.build()).execute();
+        if (!response.isSuccessful() || response.body() == null) {
+            String message = response.body() == null ? "" : response.body().string();
+            response.close();
+            throw new HttpException(
+                    message, response.code(), response.message(), pullRequestApiUrl);
+        }
+        return response.body().byteStream();
+    }
+
+    /**
+     * Releases the connections and the response cache of the GitHub clients.
+     */
+    @PreDestroy
+    public synchronized void close() {
+        clients.clear();
+        installations.clear();
+        if (httpClient != null) {
+            httpClient.connectionPool().evictAll();
+            try {
+                if (httpClient.cache() != null) {
+                    httpClient.cache().close();
+                }
+            } catch (IOException e) {
+                log.warn("Can't close the cache of GitHub responses: " + e.getMessage());
+            }
+            httpClient = null;
+        }
+        if (diffHttpClient != null) {
+            diffHttpClient.connectionPool().evictAll();
+            diffHttpClient = null;
+        }
+    }
+
+    /**
+     * Gets the GitHub client of the credential, creating it on the first use.
+     *
+     * @param apiUrl     GitHub API URL.
+     * @param login      GitHub login username.
+     * @param token      GitHub authentication token.
+     * @param enterprise Indicates whether the API URL of a GitHub Enterprise instance is used.
+     * @return GitHub instance for interacting with the GitHub API.
+     * @throws IOException if an error occurs during the GitHub connection.
+     */
+    private GitHub getClient(String apiUrl, String login, String token, boolean enterprise)
+            throws IOException {
+        String key = (enterprise ? apiUrl : "") + "\n" + login + "\n" + token;
+        GitHub gH = clients.get(key);
+        if (gH == null) {
+            gH = createClient(apiUrl, login, token, enterprise);
+            GitHub existing = clients.putIfAbsent(key, gH);
+            if (existing != null) {
+                gH = existing;
+            }
         }
         return gH;
     }
 
+    /**
+     * Creates the GitHub client of the credential.
+     *
+     * @param apiUrl     GitHub API URL.
+     * @param login      GitHub login username.
+     * @param token      GitHub authentication token.
+     * @param enterprise Indicates whether the API URL of a GitHub Enterprise instance is used.
+     * @return GitHub instance for interacting with the GitHub API.
+     * @throws IOException if an error occurs during the GitHub connection.
+     */
+    private GitHub createClient(String apiUrl, String login, String token, boolean enterprise)
+            throws IOException {
+        OkHttpClient client = getHttpClient();
+        if (client == null && rateLimitGovernor == null) {
+            return enterprise
+                    ? GitHub.connectToEnterpriseWithOAuth(apiUrl, login, token)
+                    : GitHub.connect(login, token);
+        }
+        GitHubBuilder builder = new GitHubBuilder().withOAuthToken(token, login);
+        if (client != null) {
+            builder.withConnector(new OkHttpGitHubConnector(client));
+        }
+        if (enterprise) {
+            builder.withEndpoint(apiUrl);
+        }
+        if (rateLimitGovernor != null) {
+            builder.withRateLimitChecker(rateLimitGovernor.getRateLimitChecker())
+                    .withAbuseLimitHandler(rateLimitGovernor.getAbuseLimitHandler());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Creates the GitHub client of the installation of the GitHub App. The rate limit of
+     * the installation is not reported to {@link LPVSRateLimitGovernor}, which paces a single
+     * shared budget, while each installation has its own one, so the processing is paced
+     * only by the secondary rate limit with GitHub App authentication.
+     *
+     * @param apiUrl       GitHub API URL, empty for github.com.
+     * @param installation Provider of the installation tokens.
+     * @return GitHub instance for interacting with the GitHub API.
+     * @throws IOException if an error occurs during the GitHub connection.
+     */
+    private GitHub createClient(String apiUrl, AuthorizationProvider installation)
+            throws IOException {
+        GitHubBuilder builder = new GitHubBuilder().withAuthorizationProvider(installation);
+        OkHttpClient client = getHttpClient();
+        if (client != null) {
+            builder.withConnector(new OkHttpGitHubConnector(client));
+        }
+        if (!StringUtils.isBlank(apiUrl)) {
+            builder.withEndpoint(apiUrl);
+        }
+        if (rateLimitGovernor != null) {
+            builder.withAbuseLimitHandler(rateLimitGovernor.getAbuseLimitHandler());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Gets the provider of the installation tokens of the GitHub App for the owner of
+     * the repository, creating it on the first use.
+     *
+     * @param owner      The owner of the repository (organization or user).
+     * @param repository The name of the repository, used to find the installation.
+     * @return The provider of the installation tokens.
+     * @throws IOException if the private key of the GitHub App can't be read.
+     */
+    private AuthorizationProvider getInstallation(String owner, String repository)
+            throws IOException {
+        String key = owner.toLowerCase(Locale.ROOT);
+        AuthorizationProvider installation = installations.get(key);
+        if (installation == null) {
+            installation =
+                    new AppInstallationAuthorizationProvider(
+                            app -> app.getInstallationByRepository(owner, repository),
+                            getAppTokenProvider());
+            AuthorizationProvider existing = installations.putIfAbsent(key, installation);
+            if (existing != null) {
+                installation = existing;
+            }
+        }
+        return installation;
+    }
+
+    /**
+     * Gets the provider of the tokens of the GitHub App, reading its private key on
+     * the first use.
+     *
+     * @return The provider of the tokens of the GitHub App.
+     * @throws IOException if the private key of the GitHub App can't be read.
+     */
+    private synchronized LPVSGitHubAppJwtProvider getAppTokenProvider() throws IOException {
+        if (appTokenProvider == null) {
+            try {
+                appTokenProvider =
+                        new LPVSGitHubAppJwtProvider(
+                                appId, Files.readString(Paths.get(appPrivateKey)));
+            } catch (GeneralSecurityException e) {
+                throw new IOException("Wrong private key of the GitHub App: " + e.getMessage(), e);
+            }
+        }
+        return appTokenProvider;
+    }
+
+    /**
+     * Gets the owner and the name of the repository from the API URL of its pull request.
+     *
+     * @param pullRequestApiUrl The API URL of the pull request.
+     * @return The owner and the name of the repository, or null if the URL is not recognized.
+     */
+    static String[] getRepository(String pullRequestApiUrl) {
+        String[] path = pullRequestApiUrl.split("/");
+        for (int i = 0; i + 2 < path.length; i++) {
+            if ("repos".equals(path[i])) {
+                return new String[] {path[i + 1], path[i + 2]};
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the HTTP client with the response cache, creating it on the first use.
+     *
+     * @return The HTTP client, or null if the response cache is disabled.
+     */
+    private synchronized OkHttpClient getHttpClient() {
+        if (cacheSize <= 0) {
+            return null;
+        }
+        if (httpClient == null) {
+            File directory =
+                    StringUtils.isBlank(cacheDir)
+                            ? new File(System.getProperty("java.io.tmpdir"), "lpvs-github-cache")
+                            : new File(cacheDir);
+            log.debug("GitHub responses are cached in " + directory.getAbsolutePath());
+            httpClient =
+                    new OkHttpClient.Builder()
+                            .cache(new Cache(directory, cacheSize * 1024 * 1024))
+                            .build();
+        }
+        return httpClient;
+    }
+
+    /**
+     * Gets the HTTP client downloading the diffs: the shared HTTP client if the response cache
+     * is enabled, otherwise a client created on the first use.
+     *
+     * @return The HTTP client downloading the diffs.
+     */
+    private synchronized OkHttpClient getDiffHttpClient() {
+        OkHttpClient client = getHttpClient();
+        if (client != null) {
+            return client;
+        }
+        if (diffHttpClient == null) {
+            diffHttpClient = new OkHttpClient();
+        }
+        return diffHttpClient;
+    }
+
     /**
      * Sets the GitHub authentication token from the environment variable if available.
      */
@@ -8,6 +8,7 @@ package com.lpvs.service;
 
 import com.lpvs.entity.*;
 import com.lpvs.entity.LPVSQueue;
+import com.lpvs.entity.enums.LPVSFailureType;
 import com.lpvs.entity.enums.LPVSPullRequestStatus;
 import com.lpvs.entity.enums.LPVSVcs;
 import com.lpvs.entity.report.LPVSReportBuilder;
@@ -15,6 +16,7 @@ import com.lpvs.repository.LPVSDetectedLicenseRepository;
 import com.lpvs.repository.LPVSLicenseConflictRepository;
 import com.lpvs.repository.LPVSLicenseRepository;
 import com.lpvs.repository.LPVSPullRequestRepository;
+import com.lpvs.util.LPVSBlobStore;
 import com.lpvs.util.LPVSFileUtil;
 import com.lpvs.util.LPVSPayloadUtil;
 import io.micrometer.common.util.StringUtils;
@@ -25,15 +27,32 @@ import org.kohsuke.github.GHPullRequest;
 import org.kohsuke.github.GHLicense;
 import org.kohsuke.github.GHIssueState;
 import org.kohsuke.github.GHCommitState;
+import org.kohsuke.github.GHCheckRun;
+import org.kohsuke.github.GHCommit;
+import org.kohsuke.github.GHCompare;
+import org.kohsuke.github.GHCheckRunBuilder;
+import org.kohsuke.github.GHIssueComment;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
 
 /**
  * Service class for interacting with GitHub repositories and managing license-related actions.
+ * <p>
+ * The results are published either as commit statuses and a new comment for every scan, or,
+ * in the {@code checks} output mode, as a single check run per head commit with annotations
+ * on the files and a single LPVS comment which is edited by the following scans.
+ * </p>
  */
 @Service
 @Slf4j
@@ -65,9 +84,77 @@ public class LPVSGitHubService {
     private LPVSGitHubConnectionService gitHubConnectionService;
 
     /**
-     * The GitHub instance for interacting with the GitHub API.
+     * Cache of the metadata of GitHub repositories (optional).
      */
-    private static GitHub gitHub;
+    private LPVSRepositoryMetadataCache repositoryMetadataCache;
+
+    /**
+     * Store of the saved files shared by the processed pull requests (optional).
+     */
+    private LPVSBlobStore blobStore;
+
+    /**
+     * Executor saving the listed files of the pull requests in parallel (optional). It is not
+     * used for the streamed diff, which is a single response written while it is read.
+     */
+    private Executor fileExecutor;
+
+    /**
+     * Output mode of the results: {@code status} for commit statuses and new comments,
+     * {@code checks} for a check run and a single edited comment.
+     */
+    @Value("${github.output.mode:status}")
+    private String outputMode;
+
+    /**
+     * Name of the LPVS check run and context of the LPVS commit statuses.
+     */
+    private static final String CHECK_NAME = "LPVS";
+
+    /**
+     * Hidden marker identifying the LPVS comment in the pull request.
+     */
+    private static final String COMMENT_MARKER = "<!-- LPVS -->";
+
+    /**
+     * Maximum length of the summary of a check run accepted by GitHub.
+     */
+    private static final int MAX_CHECK_SUMMARY = 65535;
+
+    /**
+     * Indicates whether the files are saved from the streamed unified diff of the pull request
+     * instead of the paginated list of its files.
+     */
+    @Value("${github.diff.stream:true}")
+    private boolean streamDiff;
+
+    /**
+     * Indicates whether only the lines of the hunks are saved to the workspace instead of
+     * the changed files padded with empty lines up to the line numbers of the hunks.
+     */
+    @Value("${lpvs.workspace.sparse:false}")
+    private boolean sparseWorkspace;
+
+    /**
+     * Maximum number of files returned by GitHub in the list of the pull request files.
+     */
+    private static final int MAX_LISTED_FILES = 3000;
+
+    /**
+     * Maximum number of files of the pull request whose unified diff is generated by GitHub.
+     */
+    private static final int MAX_DIFF_FILES = 300;
+
+    /**
+     * Maximum number of changed lines of the pull request whose unified diff is generated
+     * by GitHub.
+     */
+    private static final int MAX_DIFF_LINES = 20000;
+
+    /**
+     * Maximum number of files returned by GitHub in the comparison of two commits.
+     */
+    private static final int MAX_COMPARED_FILES = 300;
 
     /**
      * Constructs an instance of LPVSGitHubService with the specified repositories and connection service.
@@ -93,72 +180,280 @@ public class LPVSGitHubService {
     }
 
     /**
-     * Retrieves the file differences for a given pull request from GitHub.
+     * Sets the cache of the repository metadata shared by the processed pull requests.
+     *
+     * @param repositoryMetadataCache Cache of the metadata of GitHub repositories.
+     */
+    @Autowired(required = false)
+    public void setRepositoryMetadataCache(LPVSRepositoryMetadataCache repositoryMetadataCache) {
+        this.repositoryMetadataCache = repositoryMetadataCache;
+    }
+
+    /**
+     * Sets the store of the saved files shared by the processed pull requests.
+     *
+     * @param blobStore Store of the saved files addressed by the SHAs of their git blobs.
+     */
+    @Autowired(required = false)
+    public void setBlobStore(LPVSBlobStore blobStore) {
+        this.blobStore = blobStore;
+    }
+
+    /**
+     * Sets the executor saving the listed files of the pull requests in parallel. Without it,
+     * the files are saved one after another.
+     *
+     * @param fileExecutor The executor saving the files.
+     */
+    @Autowired(required = false)
+    public void setFileExecutor(@Qualifier("fileTaskExecutor") Executor fileExecutor) {
+        this.fileExecutor = fileExecutor;
+    }
+
+    /**
+     * Retrieves the GitHub repository of the pull request. The repository can be shared by
+     * the independent calls made for the same LPVSQueue element, so it is fetched only once.
      *
      * @param webhookConfig LPVSQueue configuration for the pull request.
-     * @return String representation of the pull request files or null if an error occurs.
+     * @return The GitHub repository or null if an error occurs.
      */
-    public String getPullRequestFiles(LPVSQueue webhookConfig) {
+    public GHRepository getRepository(LPVSQueue webhookConfig) {
         try {
-            gitHub = gitHubConnectionService.connectToGitHubApi();
+            GitHub gitHub = connect(webhookConfig);
             log.debug(
                     "Repository Info: "
                             + LPVSPayloadUtil.getRepositoryOrganization(webhookConfig)
                             + "/"
                             + LPVSPayloadUtil.getRepositoryName(webhookConfig));
-            GHRepository repository =
-                    gitHub.getRepository(
-                            LPVSPayloadUtil.getRepositoryOrganization(webhookConfig)
-                                    + "/"
-                                    + LPVSPayloadUtil.getRepositoryName(webhookConfig));
+            return loadRepository(gitHub, webhookConfig);
+        } catch (IOException | IllegalArgumentException e) {
+            log.error("Can't authorize getRepository(): " + e.getMessage());
+            rethrowIfRateLimited(e);
+        }
+        return null;
+    }
+
+    /**
+     * Retrieves the file differences for a given pull request from GitHub.
+     *
+     * @param webhookConfig LPVSQueue configuration for the pull request.
+     * @return String representation of the pull request files or null if an error occurs.
+     */
+    public String getPullRequestFiles(LPVSQueue webhookConfig) {
+        return getPullRequestFiles(webhookConfig, getRepository(webhookConfig));
+    }
 
+    /**
+     * Retrieves the file differences for a given pull request from the GitHub repository.
+     *
+     * @param webhookConfig LPVSQueue configuration for the pull request.
+     * @param repository    The GitHub repository of the pull request.
+     * @return String representation of the pull request files or null if an error occurs.
+     */
+    public String getPullRequestFiles(LPVSQueue webhookConfig, GHRepository repository) {
+        if (repository == null) {
+            return null;
+        }
+        try {
             GHPullRequest pullRequest = getPullRequest(webhookConfig, repository);
             if (pullRequest == null) {
                 log.error("Can't find pull request " + webhookConfig.getPullRequestUrl());
                 return null;
             }
             log.debug("Saving files...");
-            return LPVSFileUtil.saveGithubDiffs(pullRequest.listFiles(), webhookConfig);
+            if (streamDiff && isDiffAvailable(pullRequest)) {
+                String directoryPath = saveDiff(webhookConfig, pullRequest);
+                if (directoryPath != null) {
+                    return directoryPath;
+                }
+            }
+            if (pullRequest.getChangedFiles() > MAX_LISTED_FILES) {
+                log.warn(
+                        "Pull request "
+                                + webhookConfig.getPullRequestUrl()
+                                + " changes "
+                                + pullRequest.getChangedFiles()
+                                + " files, only "
+                                + MAX_LISTED_FILES
+                                + " of them are listed by GitHub");
+            }
+            return LPVSFileUtil.saveGithubDiffs(
+                    pullRequest.listFiles(),
+                    webhookConfig,
+                    sparseWorkspace,
+                    blobStore,
+                    fileExecutor);
         } catch (IOException | IllegalArgumentException e) {
             log.error("Can't authorize getPullRequestFiles(): " + e.getMessage());
+            rethrowIfRateLimited(e);
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether GitHub generates the unified diff of the pull request. The diff of
+     * the pull request changing too many files or lines is refused, so its files are listed
+     * without an attempt to stream the diff.
+     *
+     * @param pullRequest The GitHub pull request.
+     * @return true if the diff of the pull request can be streamed, false otherwise.
+     * @throws IOException if the pull request details can't be retrieved.
+     */
+    private static boolean isDiffAvailable(GHPullRequest pullRequest) throws IOException {
+        return pullRequest.getChangedFiles() <= MAX_DIFF_FILES
+                && pullRequest.getAdditions() + pullRequest.getDeletions() <= MAX_DIFF_LINES;
+    }
+
+    /**
+     * Saves the files of the pull request from its unified diff, streamed from GitHub in
+     * a single response instead of the pages of the list of the pull request files.
+     *
+     * @param webhookConfig LPVSQueue configuration for the pull request.
+     * @param pullRequest   The GitHub pull request.
+     * @return The path to the directory with the saved files, or null if the diff is not
+     * available, e.g. GitHub refuses to generate a too large diff.
+     * @throws IOException if the GitHub API rate limit is exceeded.
+     */
+    private String saveDiff(LPVSQueue webhookConfig, GHPullRequest pullRequest)
+            throws IOException {
+        String pullRequestApiUrl =
+                pullRequest.getUrl() != null
+                        ? pullRequest.getUrl().toString()
+                        : webhookConfig.getPullRequestAPIUrl();
+        if (StringUtils.isBlank(pullRequestApiUrl)) {
+            return null;
+        }
+        try (InputStream diff = gitHubConnectionService.openPullRequestDiff(pullRequestApiUrl)) {
+            return LPVSFileUtil.saveGithubDiff(diff, webhookConfig, sparseWorkspace);
+        } catch (IOException e) {
+            if (LPVSFailureType.of(e) == LPVSFailureType.RATE_LIMIT) {
+                throw e;
+            }
+            log.warn(
+                    "Can't save the diff of pull request "
+                            + webhookConfig.getPullRequestUrl()
+                            + ", listing its files: "
+                            + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Retrieves the files changed between two commits of the pull request. The changes can be
+     * rescanned alone only if the new commit descends from the old one and GitHub lists all
+     * the changed files.
+     *
+     * @param repository The GitHub repository of the pull request.
+     * @param baseSHA    The SHA of the old head commit.
+     * @param headSHA    The SHA of the new head commit.
+     * @return The names of the changed files, including the old names of the renamed files,
+     * or null if the whole pull request has to be scanned.
+     */
+    public Set<String> getChangedFiles(GHRepository repository, String baseSHA, String headSHA) {
+        if (repository == null || StringUtils.isBlank(baseSHA) || StringUtils.isBlank(headSHA)) {
+            return null;
+        }
+        try {
+            GHCompare compare = repository.getCompare(baseSHA, headSHA);
+            if (compare.getStatus() == GHCompare.Status.identical) {
+                return new HashSet<>();
+            }
+            if (compare.getStatus() != GHCompare.Status.ahead) {
+                log.debug("Commit " + headSHA + " does not descend from " + baseSHA);
+                return null;
+            }
+            GHCommit.File[] files = compare.getFiles();
+            if (files == null || files.length >= MAX_COMPARED_FILES) {
+                return null;
+            }
+            Set<String> changedFiles = new HashSet<>();
+            for (GHCommit.File file : files) {
+                changedFiles.add(file.getFileName());
+                if (file.getPreviousFilename() != null) {
+                    changedFiles.add(file.getPreviousFilename());
+                }
+            }
+            return changedFiles;
+        } catch (IOException e) {
+            log.error("Can't authorize getChangedFiles(): " + e.getMessage());
+            rethrowIfRateLimited(e);
         }
         return null;
     }
 
     /**
      * Retrieves the GitHub pull request associated with the provided LPVSQueue configuration.
+     * The pull request is looked up by its number and cached in the LPVSQueue element,
+     * so the following calls for the same element do not query GitHub again.
      *
      * @param webhookConfig LPVSQueue configuration for the pull request.
      * @param repository    The GitHub repository.
      * @return The GitHub pull request or null if not found or an error occurs.
      */
     private GHPullRequest getPullRequest(LPVSQueue webhookConfig, GHRepository repository) {
+        if (webhookConfig.getGitHubPullRequest() != null) {
+            return webhookConfig.getGitHubPullRequest();
+        }
         try {
-            List<GHPullRequest> pullRequests = repository.getPullRequests(GHIssueState.OPEN);
-            for (GHPullRequest pullRequest : pullRequests) {
-                if (null != pullRequest.getUrl()) {
-                    log.debug(
-                            "Pull request check: "
-                                    + pullRequest.getUrl().toString()
-                                    + " / "
-                                    + webhookConfig.getPullRequestAPIUrl());
-                    if (pullRequest
-                            .getUrl()
-                            .toString()
-                            .equals(webhookConfig.getPullRequestAPIUrl())) {
-                        log.debug("Return pull request " + pullRequest.getDiffUrl());
-                        return pullRequest;
-                    }
-                } else {
-                    log.warn("Failed to get pull request URL");
-                }
+            Integer pullRequestNumber = LPVSPayloadUtil.getPullRequestNumber(webhookConfig);
+            GHPullRequest pullRequest =
+                    pullRequestNumber != null
+                            ? repository.getPullRequest(pullRequestNumber)
+                            : findOpenPullRequest(webhookConfig, repository);
+            if (pullRequest != null) {
+                log.debug("Return pull request " + pullRequest.getDiffUrl());
             }
+            webhookConfig.setGitHubPullRequest(pullRequest);
+            return pullRequest;
         } catch (IOException e) {
             log.error("Can't authorize getPullRequest() " + e);
+            rethrowIfRateLimited(e);
         }
         return null;
     }
 
+    /**
+     * Searches the open pull requests of the repository for the one with the API URL of
+     * the provided LPVSQueue configuration. Used when the URL does not contain the number.
+     *
+     * @param webhookConfig LPVSQueue configuration for the pull request.
+     * @param repository    The GitHub repository.
+     * @return The GitHub pull request or null if not found.
+     * @throws IOException if an error occurs while listing the pull requests.
+     */
+    private GHPullRequest findOpenPullRequest(LPVSQueue webhookConfig, GHRepository repository)
+            throws IOException {
+        List<GHPullRequest> pullRequests = repository.getPullRequests(GHIssueState.OPEN);
+        for (GHPullRequest pullRequest : pullRequests) {
+            if (null != pullRequest.getUrl()) {
+                log.debug(
+                        "Pull request check: "
+                                + pullRequest.getUrl().toString()
+                                + " / "
+                                + webhookConfig.getPullRequestAPIUrl());
+                if (pullRequest.getUrl().toString().equals(webhookConfig.getPullRequestAPIUrl())) {
+                    return pullRequest;
+                }
+            } else {
+                log.warn("Failed to get pull request URL");
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Rethrows the exception if it is caused by exceeding of the GitHub API rate limit,
+     * so that the processing is retried later instead of being treated as a missing pull request.
+     *
+     * @param e The exception to be checked.
+     * @throws UncheckedIOException if the rate limit is exceeded.
+     */
+    private static void rethrowIfRateLimited(Exception e) {
+        if (e instanceof IOException && LPVSFailureType.of(e) == LPVSFailureType.RATE_LIMIT) {
+            throw new UncheckedIOException((IOException) e);
+        }
+    }
+
     /**
      * Sets the commit status to pending for the specified pull request.
      *
@@ -166,12 +461,18 @@ public class LPVSGitHubService {
      */
     public void setPendingCheck(LPVSQueue webhookConfig) {
         try {
-            gitHub = gitHubConnectionService.connectToGitHubApi();
-            GHRepository repository =
-                    gitHub.getRepository(
-                            LPVSPayloadUtil.getRepositoryOrganization(webhookConfig)
-                                    + "/"
-                                    + LPVSPayloadUtil.getRepositoryName(webhookConfig));
+            GitHub gitHub = connect(webhookConfig);
+            GHRepository repository = loadRepository(gitHub, webhookConfig);
+            if (isChecksMode()) {
+                getCheckRunBuilder(repository, webhookConfig.getHeadCommitSHA())
+                        .withStatus(GHCheckRun.Status.IN_PROGRESS)
+                        .add(
+                                new GHCheckRunBuilder.Output(
+                                        "Scanning opensource licenses",
+                                        "Scanning opensource licenses"))
+                        .create();
+                return;
+            }
             repository.createCommitStatus(
                     webhookConfig.getHeadCommitSHA(),
                     GHCommitState.PENDING,
@@ -190,12 +491,17 @@ public class LPVSGitHubService {
      */
     public void setErrorCheck(LPVSQueue webhookConfig) {
         try {
-            gitHub = gitHubConnectionService.connectToGitHubApi();
-            GHRepository repository =
-                    gitHub.getRepository(
-                            LPVSPayloadUtil.getRepositoryOrganization(webhookConfig)
-                                    + "/"
-                                    + LPVSPayloadUtil.getRepositoryName(webhookConfig));
+            GitHub gitHub = connect(webhookConfig);
+            GHRepository repository = loadRepository(gitHub, webhookConfig);
+            if (isChecksMode()) {
+                completeCheckRun(
+                        repository,
+                        webhookConfig,
+                        GHCheckRun.Conclusion.FAILURE,
+                        new GHCheckRunBuilder.Output(
+                                "Scanning process failed", "Scanning process failed"));
+                return;
+            }
             repository.createCommitStatus(
                     webhookConfig.getHeadCommitSHA(),
                     GHCommitState.ERROR,
@@ -222,11 +528,8 @@ public class LPVSGitHubService {
             LPVSPullRequest lpvsPullRequest)
             throws Exception {
 
-        GHRepository repository =
-                gitHub.getRepository(
-                        LPVSPayloadUtil.getRepositoryOrganization(webhookConfig)
-                                + "/"
-                                + LPVSPayloadUtil.getRepositoryName(webhookConfig));
+        GitHub gitHub = connect(webhookConfig);
+        GHRepository repository = loadRepository(gitHub, webhookConfig);
         GHPullRequest pullRequest = getPullRequest(webhookConfig, repository);
 
         if (pullRequest == null) {
@@ -239,6 +542,14 @@ public class LPVSGitHubService {
             log.error("Files are not found in pull request " + webhookConfig.getPullRequestUrl());
             lpvsPullRequest.setStatus(LPVSPullRequestStatus.COMPLETED.toString());
             pullRequestRepository.saveAndFlush(lpvsPullRequest);
+            if (isChecksMode()) {
+                completeCheckRun(
+                        repository,
+                        webhookConfig,
+                        GHCheckRun.Conclusion.SUCCESS,
+                        new GHCheckRunBuilder.Output("Files are not found", "Files are not found"));
+                return;
+            }
             repository.createCommitStatus(
                     webhookConfig.getHeadCommitSHA(),
                     GHCommitState.SUCCESS,
@@ -248,13 +559,45 @@ public class LPVSGitHubService {
             return;
         }
 
-        boolean hasProhibitedOrRestricted = false;
-        boolean hasConflicts = false;
+        String commitComment = getComment(webhookConfig, scanResults, conflicts);
+        boolean hasIssues = saveResults(webhookConfig, scanResults, conflicts, lpvsPullRequest);
+        publishResults(
+                repository, pullRequest, webhookConfig, hasIssues, commitComment, scanResults);
+    }
+
+    /**
+     * Generates the report of the scan posted in the comment of the pull request.
+     *
+     * @param webhookConfig LPVSQueue configuration for the pull request.
+     * @param scanResults   List of detected files and licenses.
+     * @param conflicts     List of license conflicts.
+     * @return The report of the scan.
+     */
+    public String getComment(
+            LPVSQueue webhookConfig,
+            List<LPVSFile> scanResults,
+            List<LPVSConflict<String, String>> conflicts) {
         LPVSReportBuilder reportBuilder = new LPVSReportBuilder(null);
-        String commitComment =
-                reportBuilder.generatePullRequestComment(
-                        scanResults, conflicts, webhookConfig, LPVSVcs.GITHUB);
+        return reportBuilder.generatePullRequestComment(
+                scanResults, conflicts, webhookConfig, LPVSVcs.GITHUB);
+    }
 
+    /**
+     * Saves the detected licenses and license conflicts of the pull request and its status.
+     *
+     * @param webhookConfig   LPVSQueue configuration for the pull request.
+     * @param scanResults     List of detected files and licenses.
+     * @param conflicts       List of license conflicts.
+     * @param lpvsPullRequest LPVS entity representing the pull request.
+     * @return true if license issues are detected, false otherwise.
+     */
+    public boolean saveResults(
+            LPVSQueue webhookConfig,
+            List<LPVSFile> scanResults,
+            List<LPVSConflict<String, String>> conflicts,
+            LPVSPullRequest lpvsPullRequest) {
+        boolean hasProhibitedOrRestricted = false;
+        boolean hasConflicts = false;
         if (scanResults != null && !scanResults.isEmpty()) {
             for (LPVSFile file : scanResults) {
                 for (LPVSLicense license : file.getLicenses()) {
@@ -272,10 +615,7 @@ public class LPVSGitHubService {
                     detectedIssue.setComponentUrl(file.getComponentUrl());
                     detectedIssue.setComponentVersion(file.getComponentVersion());
                     detectedIssue.setComponentVendor(file.getComponentVendor());
-                    if (license.getAccess().isEmpty()
-                            || license.getAccess().equalsIgnoreCase("prohibited")
-                            || license.getAccess().equalsIgnoreCase("restricted")
-                            || license.getAccess().equalsIgnoreCase("unreviewed")) {
+                    if (isIssue(license)) {
                         hasProhibitedOrRestricted = true;
                         detectedIssue.setIssue(true);
                     } else {
@@ -317,6 +657,71 @@ public class LPVSGitHubService {
             }
         }
 
+        boolean hasIssues = hasProhibitedOrRestricted || hasConflicts;
+        lpvsPullRequest.setStatus(
+                hasIssues
+                        ? LPVSPullRequestStatus.ISSUES_DETECTED.toString()
+                        : LPVSPullRequestStatus.COMPLETED.toString());
+        pullRequestRepository.save(lpvsPullRequest);
+        return hasIssues;
+    }
+
+    /**
+     * Publishes the saved scan results of the pull request on GitHub.
+     *
+     * @param outbox      The saved scan results.
+     * @param scanResults List of detected files and licenses, used for the annotations.
+     * @throws Exception if an error occurs while publishing the results.
+     */
+    public void publishResults(LPVSOutbox outbox, List<LPVSFile> scanResults) throws Exception {
+        LPVSQueue webhookConfig = new LPVSQueue();
+        webhookConfig.setRepositoryUrl(outbox.getRepositoryUrl());
+        webhookConfig.setPullRequestUrl(outbox.getPullRequestUrl());
+        webhookConfig.setPullRequestAPIUrl(outbox.getPullRequestAPIUrl());
+        webhookConfig.setHeadCommitSHA(outbox.getHeadCommitSHA());
+        webhookConfig.setHubLink(outbox.getHubLink());
+
+        GitHub gitHub = connect(webhookConfig);
+        GHRepository repository = loadRepository(gitHub, webhookConfig);
+        GHPullRequest pullRequest = getPullRequest(webhookConfig, repository);
+        if (pullRequest == null) {
+            log.error("Pull request is not found " + webhookConfig.getPullRequestUrl());
+            LPVSPullRequest lpvsPullRequest = outbox.getPullRequest();
+            if (lpvsPullRequest != null) {
+                lpvsPullRequest.setStatus(LPVSPullRequestStatus.NO_ACCESS.toString());
+                pullRequestRepository.saveAndFlush(lpvsPullRequest);
+            }
+            return;
+        }
+        publishResults(
+                repository,
+                pullRequest,
+                webhookConfig,
+                outbox.isIssues(),
+                outbox.getComment(),
+                scanResults);
+    }
+
+    /**
+     * Posts the scan results on the pull request as a comment and a commit status, or as
+     * a check run and an edited comment in the {@code checks} output mode.
+     *
+     * @param repository    The GitHub repository.
+     * @param pullRequest   The GitHub pull request.
+     * @param webhookConfig LPVSQueue configuration for the pull request.
+     * @param hasIssues     Indicates whether license issues are detected.
+     * @param commitComment The report of the scan.
+     * @param scanResults   List of detected files and licenses.
+     * @throws IOException if an error occurs while posting the results.
+     */
+    private void publishResults(
+            GHRepository repository,
+            GHPullRequest pullRequest,
+            LPVSQueue webhookConfig,
+            boolean hasIssues,
+            String commitComment,
+            List<LPVSFile> scanResults)
+            throws IOException {
         // Generate hub link
         String hubLink = "";
         if (!StringUtils.isBlank(webhookConfig.getHubLink())) {
@@ -326,9 +731,22 @@ public class LPVSGitHubService {
                             + ")</p>";
         }
 
-        if (hasProhibitedOrRestricted || hasConflicts) {
-            lpvsPullRequest.setStatus(LPVSPullRequestStatus.ISSUES_DETECTED.toString());
-            pullRequestRepository.save(lpvsPullRequest);
+        if (isChecksMode()) {
+            String title =
+                    hasIssues ? "Potential license issues detected" : "No license issues detected";
+            updateComment(
+                    pullRequest,
+                    (hasIssues
+                                    ? "**\\[LPVS\\]** Potential license issues detected \n\n"
+                                    : "**\\[LPVS\\]**  No license issue detected \n\n")
+                            + commitComment
+                            + hubLink);
+            completeCheckRun(
+                    repository,
+                    webhookConfig,
+                    hasIssues ? GHCheckRun.Conclusion.FAILURE : GHCheckRun.Conclusion.SUCCESS,
+                    getCheckRunOutput(title, commitComment, scanResults));
+        } else if (hasIssues) {
             pullRequest.comment(
                     "**\\[LPVS\\]** Potential license issues detected \n\n"
                             + commitComment
@@ -340,8 +758,6 @@ public class LPVSGitHubService {
                     "Potential license issues detected",
                     "[LPVS]");
         } else {
-            lpvsPullRequest.setStatus(LPVSPullRequestStatus.COMPLETED.toString());
-            pullRequestRepository.save(lpvsPullRequest);
             pullRequest.comment(
                     "**\\[LPVS\\]**  No license issue detected \n\n" + commitComment + hubLink);
             repository.createCommitStatus(
@@ -353,6 +769,157 @@ public class LPVSGitHubService {
         }
     }
 
+    /**
+     * Checks whether the results are published as a check run and a single edited comment.
+     *
+     * @return true in the {@code checks} output mode, false otherwise.
+     */
+    private boolean isChecksMode() {
+        return "checks".equalsIgnoreCase(outputMode);
+    }
+
+    /**
+     * Checks whether the license detected in a file is an issue.
+     *
+     * @param license The detected license.
+     * @return true if the license is prohibited, restricted, unreviewed or unknown.
+     */
+    private static boolean isIssue(LPVSLicense license) {
+        return license.getAccess().isEmpty()
+                || license.getAccess().equalsIgnoreCase("prohibited")
+                || license.getAccess().equalsIgnoreCase("restricted")
+                || license.getAccess().equalsIgnoreCase("unreviewed");
+    }
+
+    /**
+     * Gets the builder updating the LPVS check run of the commit, or creating it if the commit
+     * has none, so that each commit has a single LPVS check run.
+     *
+     * @param repository The GitHub repository.
+     * @param headSHA    The SHA of the commit.
+     * @return The builder of the check run.
+     * @throws IOException if an error occurs while reading the check runs.
+     */
+    private GHCheckRunBuilder getCheckRunBuilder(GHRepository repository, String headSHA)
+            throws IOException {
+        for (GHCheckRun checkRun : repository.getCheckRuns(headSHA).toList()) {
+            if (CHECK_NAME.equals(checkRun.getName())) {
+                return checkRun.update();
+            }
+        }
+        return repository.createCheckRun(CHECK_NAME, headSHA);
+    }
+
+    /**
+     * Completes the LPVS check run of the head commit of the pull request.
+     *
+     * @param repository    The GitHub repository.
+     * @param webhookConfig LPVSQueue configuration for the pull request.
+     * @param conclusion    The conclusion of the check run.
+     * @param output        The output of the check run.
+     * @throws IOException if an error occurs while updating the check run.
+     */
+    private void completeCheckRun(
+            GHRepository repository,
+            LPVSQueue webhookConfig,
+            GHCheckRun.Conclusion conclusion,
+            GHCheckRunBuilder.Output output)
+            throws IOException {
+        getCheckRunBuilder(repository, webhookConfig.getHeadCommitSHA())
+                .withStatus(GHCheckRun.Status.COMPLETED)
+                .withConclusion(conclusion)
+                .add(output)
+                .create();
+    }
+
+    /**
+     * Creates the output of the check run with an annotation for every license issue.
+     *
+     * @param title       The title of the output.
+     * @param summary     The report of the scan.
+     * @param scanResults List of detected files and licenses.
+     * @return The output of the check run.
+     */
+    private static GHCheckRunBuilder.Output getCheckRunOutput(
+            String title, String summary, List<LPVSFile> scanResults) {
+        if (summary.length() > MAX_CHECK_SUMMARY) {
+            summary = summary.substring(0, MAX_CHECK_SUMMARY);
+        }
+        GHCheckRunBuilder.Output output = new GHCheckRunBuilder.Output(title, summary);
+        if (scanResults == null) {
+            return output;
+        }
+        for (LPVSFile file : scanResults) {
+            for (LPVSLicense license : file.getLicenses()) {
+                if (!isIssue(license)) {
+                    continue;
+                }
+                int[] lines = getAnnotationLines(file.getMatchedLines());
+                output.add(
+                        new GHCheckRunBuilder.Annotation(
+                                file.getFilePath(),
+                                lines[0],
+                                lines[1],
+                                license.getAccess().equalsIgnoreCase("prohibited")
+                                        ? GHCheckRun.AnnotationLevel.FAILURE
+                                        : GHCheckRun.AnnotationLevel.WARNING,
+                                (license.getAccess().isEmpty() ? "UNKNOWN" : license.getAccess())
+                                        + " license "
+                                        + license.getSpdxId()
+                                        + " detected"
+                                        + (StringUtils.isBlank(file.getComponentName())
+                                                ? ""
+                                                : " from " + file.getComponentName())));
+            }
+        }
+        return output;
+    }
+
+    /**
+     * Gets the lines of the annotation from the first range of matched lines.
+     *
+     * @param matchedLines The matched lines in the format {@code 1-6,10-12} or {@code all}.
+     * @return The start and end line of the annotation, the first line if the lines are unknown.
+     */
+    static int[] getAnnotationLines(String matchedLines) {
+        if (!StringUtils.isBlank(matchedLines)) {
+            String[] range = matchedLines.split(",")[0].trim().split("-");
+            try {
+                int start = Integer.parseInt(range[0].trim());
+                int end = range.length > 1 ? Integer.parseInt(range[1].trim()) : start;
+                if (start > 0 && end >= start) {
+                    return new int[] {start, end};
+                }
+            } catch (NumberFormatException e) {
+                log.debug("Matched lines are not a range: " + matchedLines);
+            }
+        }
+        return new int[] {1, 1};
+    }
+
+    /**
+     * Edits the LPVS comment of the pull request, or adds it if the pull request has none,
+     * so that the pull request has a single LPVS comment. The comment is not edited if its
+     * text is not changed. The comments are paged until the LPVS comment is found.
+     *
+     * @param pullRequest The GitHub pull request.
+     * @param comment     The text of the comment.
+     * @throws IOException if an error occurs while reading or writing the comments.
+     */
+    private void updateComment(GHPullRequest pullRequest, String comment) throws IOException {
+        String body = COMMENT_MARKER + "\n" + comment;
+        for (GHIssueComment issueComment : pullRequest.listComments()) {
+            if (issueComment.getBody() != null
+                    && issueComment.getBody().startsWith(COMMENT_MARKER)) {
+                if (!body.equals(issueComment.getBody())) {
+                    issueComment.update(body);
+                }
+                return;
+            }
+        }
+        pullRequest.comment(body);
+    }
+
     /**
      * Retrieves the license of the GitHub repository associated with the pull request.
      *
@@ -361,24 +928,102 @@ public class LPVSGitHubService {
      */
     public String[] getRepositoryLicense(LPVSQueue webhookConfig) {
         try {
-            String repositoryName = LPVSPayloadUtil.getRepositoryName(webhookConfig);
-            String repositoryOrganization =
-                    LPVSPayloadUtil.getRepositoryOrganization(webhookConfig);
-            gitHub = gitHubConnectionService.connectToGitHubApi();
-            GHRepository repository =
-                    gitHub.getRepository(repositoryOrganization + "/" + repositoryName);
-            GHLicense license = repository.getLicense();
-            if (license == null) {
-                return null;
-            } else {
-                return new String[] {license.getSpdxId(), license.getName()};
-            }
+            GitHub gitHub = connect(webhookConfig);
+            GHRepository repository = loadRepository(gitHub, webhookConfig);
+            return getRepositoryLicense(webhookConfig, repository);
         } catch (IOException | IllegalArgumentException e) {
             log.error("Can't authorize getRepositoryLicense(): " + e.getMessage());
         }
         return null;
     }
 
+    /**
+     * Retrieves the license of the GitHub repository.
+     *
+     * @param webhookConfig LPVSQueue configuration for the pull request.
+     * @param repository    The GitHub repository of the pull request.
+     * @return License SPDX ID and name for the GitHub repository or null if not available.
+     */
+    public String[] getRepositoryLicense(LPVSQueue webhookConfig, GHRepository repository) {
+        if (repository == null) {
+            return null;
+        }
+        if (repositoryMetadataCache != null) {
+            LPVSRepositoryMetadataCache.Metadata metadata =
+                    repositoryMetadataCache.get(repository.getFullName());
+            if (metadata != null && metadata.isLicenseLoaded()) {
+                return metadata.getLicense();
+            }
+        }
+        GHLicense license;
+        try {
+            license = repository.getLicense();
+        } catch (IOException e) {
+            log.error("Can't authorize getRepositoryLicense(): " + e.getMessage());
+            return null;
+        }
+        String[] repositoryLicense =
+                license == null ? null : new String[] {license.getSpdxId(), license.getName()};
+        if (repositoryMetadataCache != null) {
+            repositoryMetadataCache.putLicense(repository.getFullName(), repositoryLicense);
+        }
+        return repositoryLicense;
+    }
+
+    /**
+     * Removes the cached metadata of the repository, so that it is loaded again by the next
+     * pull request.
+     *
+     * @param repositoryName The repository in the format {@code org/repo}.
+     */
+    public void invalidateRepository(String repositoryName) {
+        if (repositoryMetadataCache != null) {
+            repositoryMetadataCache.invalidate(repositoryName);
+        }
+    }
+
+    /**
+     * Connects to the GitHub API with the credential for the repository of the pull request,
+     * which is the installation of the GitHub App for the owner of the repository when LPVS
+     * is authenticated as a GitHub App.
+     *
+     * @param webhookConfig LPVSQueue configuration for the pull request.
+     * @return GitHub instance for interacting with the GitHub API.
+     * @throws IOException if an error occurs during the GitHub connection.
+     */
+    private GitHub connect(LPVSQueue webhookConfig) throws IOException {
+        if (gitHubConnectionService.isAppAuthentication()) {
+            return gitHubConnectionService.connectToGitHubApi(
+                    LPVSPayloadUtil.getRepositoryOrganization(webhookConfig),
+                    LPVSPayloadUtil.getRepositoryName(webhookConfig));
+        }
+        return gitHubConnectionService.connectToGitHubApi();
+    }
+
+    /**
+     * Gets the GitHub repository of the pull request with the client of the job, and caches
+     * its metadata. The repository is not taken from the cache, as it is bound to the client
+     * which loaded it; with the cache of GitHub responses, it is loaded by a conditional
+     * request not counted against the rate limit.
+     *
+     * @param gitHub        The GitHub client.
+     * @param webhookConfig LPVSQueue configuration for the pull request.
+     * @return The GitHub repository.
+     * @throws IOException if an error occurs while getting the repository.
+     */
+    private GHRepository loadRepository(GitHub gitHub, LPVSQueue webhookConfig)
+            throws IOException {
+        String repositoryName =
+                LPVSPayloadUtil.getRepositoryOrganization(webhookConfig)
+                        + "/"
+                        + LPVSPayloadUtil.getRepositoryName(webhookConfig);
+        GHRepository repository = gitHub.getRepository(repositoryName);
+        if (repositoryMetadataCache != null && repository != null) {
+            repositoryMetadataCache.putRepository(repositoryName, repository);
+        }
+        return repository;
+    }
+
     /**
      * Retrieves the LPVSQueue configuration for a given GitHub pull request URL.
      *
@@ -400,7 +1045,12 @@ public class LPVSGitHubService {
                                             pullRequestSplit.length - 4,
                                             pullRequestSplit.length - 2));
             int pullRequestNum = Integer.parseInt(pullRequestSplit[pullRequestSplit.length - 1]);
-            gitHub = gitHubConnectionService.connectToGitHubApi();
+            GitHub gitHub =
+                    gitHubConnectionService.isAppAuthentication()
+                            ? gitHubConnectionService.connectToGitHubApi(
+                                    pullRequestSplit[pullRequestSplit.length - 4],
+                                    pullRequestSplit[pullRequestSplit.length - 3])
+                            : gitHubConnectionService.connectToGitHubApi();
             GHRepository repo = gitHub.getRepository(pullRequestRepo);
             GHPullRequest pR = repo.getPullRequest(pullRequestNum);
             return LPVSPayloadUtil.getGitHubWebhookConfig(repo, pR);
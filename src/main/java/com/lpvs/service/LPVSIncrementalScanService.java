@@ -0,0 +1,199 @@
+/**
+ * Copyright (c) 2024, Samsung Electronics Co., Ltd. All rights reserved.
+ *
+ * Use of this source code is governed by a MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.lpvs.service;
+
+import com.lpvs.entity.LPVSDetectedLicense;
+import com.lpvs.entity.LPVSFile;
+import com.lpvs.entity.LPVSPullRequest;
+import com.lpvs.entity.LPVSQueue;
+import com.lpvs.entity.enums.LPVSPullRequestAction;
+import com.lpvs.entity.enums.LPVSPullRequestStatus;
+import com.lpvs.repository.LPVSDetectedLicenseRepository;
+import com.lpvs.repository.LPVSPullRequestRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Service supporting the incremental rescan of updated pull requests.
+ * <p>
+ * When new commits are pushed to a pull request, only the files changed since the last scanned
+ * commit have to be scanned again. The licenses detected in the other files are taken from
+ * the results of the previous scan of the pull request stored in the database.
+ * </p>
+ */
+@Service
+@Slf4j
+public class LPVSIncrementalScanService {
+
+    /**
+     * Repository for storing LPVSPullRequest entities.
+     */
+    private final LPVSPullRequestRepository pullRequestRepository;
+
+    /**
+     * Repository for storing LPVSDetectedLicense entities.
+     */
+    private final LPVSDetectedLicenseRepository detectedLicenseRepository;
+
+    /**
+     * Indicates whether updated pull requests are rescanned incrementally.
+     */
+    @Value("${lpvs.incremental-scan.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * Statuses of the pull requests whose scan results were published completely.
+     */
+    private static final Collection<String> SCANNED_STATUSES =
+            Arrays.asList(
+                    LPVSPullRequestStatus.COMPLETED.toString(),
+                    LPVSPullRequestStatus.ISSUES_DETECTED.toString());
+
+    /**
+     * Constructor for LPVSIncrementalScanService.
+     *
+     * @param pullRequestRepository     Repository for storing LPVSPullRequest entities.
+     * @param detectedLicenseRepository Repository for storing LPVSDetectedLicense entities.
+     */
+    public LPVSIncrementalScanService(
+            LPVSPullRequestRepository pullRequestRepository,
+            LPVSDetectedLicenseRepository detectedLicenseRepository) {
+        this.pullRequestRepository = pullRequestRepository;
+        this.detectedLicenseRepository = detectedLicenseRepository;
+    }
+
+    /**
+     * Finds the previous scan of the pull request to which the new commits can be added.
+     *
+     * @param webhookConfig The LPVSQueue element of the updated pull request.
+     * @return The pull request with the published results of the previous scan, or null if
+     * the pull request has to be scanned completely.
+     */
+    public LPVSPullRequest findBaseline(LPVSQueue webhookConfig) {
+        if (!enabled
+                || webhookConfig.getAction() != LPVSPullRequestAction.UPDATE
+                || webhookConfig.getPullRequestUrl() == null) {
+            return null;
+        }
+        LPVSPullRequest baseline =
+                pullRequestRepository.findLatestScanned(
+                        webhookConfig.getPullRequestUrl(), SCANNED_STATUSES);
+        if (baseline != null
+                && baseline.getScannedCommitSha().equals(webhookConfig.getHeadCommitSHA())) {
+            // the same commit is scanned again on request, e.g. after the license list changed
+            return null;
+        }
+        return baseline;
+    }
+
+    /**
+     * Restores the files with licenses detected by the previous scan which are not changed
+     * by the new commits.
+     *
+     * @param baseline     The pull request with the results of the previous scan.
+     * @param changedFiles The names of the files changed by the new commits.
+     * @param scannedFiles The files scanned again, whose previous results are replaced.
+     * @return List of the unchanged files with licenses detected by the previous scan.
+     */
+    public List<LPVSFile> getStoredFiles(
+            LPVSPullRequest baseline, Set<String> changedFiles, List<LPVSFile> scannedFiles) {
+        Set<String> replacedFiles = new HashSet<>();
+        for (String fileName : changedFiles) {
+            replacedFiles.add(normalize(fileName));
+        }
+        if (scannedFiles != null) {
+            for (LPVSFile file : scannedFiles) {
+                replacedFiles.add(normalize(file.getFilePath()));
+            }
+        }
+        // detected licenses are stored one per license, the file is restored with all of them
+        Map<List<String>, LPVSFile> files = new LinkedHashMap<>();
+        for (LPVSDetectedLicense detectedLicense :
+                detectedLicenseRepository.findByPullRequestAndLicenseIsNotNull(baseline)) {
+            if (detectedLicense.getFilePath() == null
+                    || replacedFiles.contains(normalize(detectedLicense.getFilePath()))) {
+                continue;
+            }
+            LPVSFile file =
+                    files.computeIfAbsent(getKey(detectedLicense), key -> toFile(detectedLicense));
+            file.getLicenses().add(detectedLicense.getLicense());
+        }
+        log.debug(
+                "Restored "
+                        + files.size()
+                        + " unchanged file(s) from the scan of pull request "
+                        + baseline.getId());
+        return new ArrayList<>(files.values());
+    }
+
+    /**
+     * Normalizes the file path to compare the paths of GitHub with the scanned ones.
+     *
+     * @param filePath The path of the file.
+     * @return The path of the file without the leading slash.
+     */
+    private static String normalize(String filePath) {
+        if (filePath == null) {
+            return null;
+        }
+        return filePath.startsWith("/") ? filePath.substring(1) : filePath;
+    }
+
+    /**
+     * Gets the key identifying the scanned match of the detected license.
+     *
+     * @param detectedLicense The detected license.
+     * @return The key of the scanned match.
+     */
+    private static List<String> getKey(LPVSDetectedLicense detectedLicense) {
+        return Arrays.asList(
+                detectedLicense.getFilePath(),
+                detectedLicense.getType(),
+                detectedLicense.getMatch(),
+                detectedLicense.getLines(),
+                detectedLicense.getComponentFilePath(),
+                detectedLicense.getComponentFileUrl(),
+                detectedLicense.getComponentName(),
+                detectedLicense.getComponentLines(),
+                detectedLicense.getComponentUrl(),
+                detectedLicense.getComponentVersion(),
+                detectedLicense.getComponentVendor());
+    }
+
+    /**
+     * Restores the scanned file from the detected license.
+     *
+     * @param detectedLicense The detected license.
+     * @return The scanned file without licenses.
+     */
+    private static LPVSFile toFile(LPVSDetectedLicense detectedLicense) {
+        LPVSFile file = new LPVSFile();
+        file.setFilePath(detectedLicense.getFilePath());
+        file.setSnippetType(detectedLicense.getType());
+        file.setSnippetMatch(detectedLicense.getMatch());
+        file.setMatchedLines(detectedLicense.getLines());
+        file.setComponentFilePath(detectedLicense.getComponentFilePath());
+        file.setComponentFileUrl(detectedLicense.getComponentFileUrl());
+        file.setComponentName(detectedLicense.getComponentName());
+        file.setComponentLines(detectedLicense.getComponentLines());
+        file.setComponentUrl(detectedLicense.getComponentUrl());
+        file.setComponentVersion(detectedLicense.getComponentVersion());
+        file.setComponentVendor(detectedLicense.getComponentVendor());
+        file.setLicenses(new HashSet<>());
+        return file;
+    }
+}
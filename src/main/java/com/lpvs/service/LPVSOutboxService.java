@@ -0,0 +1,284 @@
+/**
+ * Copyright (c) 2024, Samsung Electronics Co., Ltd. All rights reserved.
+ *
+ * Use of this source code is governed by a MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.lpvs.service;
+
+import com.lpvs.entity.LPVSConflict;
+import com.lpvs.entity.LPVSFile;
+import com.lpvs.entity.LPVSOutbox;
+import com.lpvs.entity.LPVSPullRequest;
+import com.lpvs.entity.LPVSQueue;
+import com.lpvs.entity.enums.LPVSFailureType;
+import com.lpvs.repository.LPVSOutboxRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Service publishing the scan results of pull requests through the outbox.
+ * <p>
+ * The detected licenses, the status of the pull request and the report of the scan are
+ * committed to the database in one transaction when the scan is finished, and the LPVSQueue
+ * element is removed. The results are then posted on GitHub by the publisher, which retries
+ * the failed publications with its own backoff, so that an outage of GitHub only delays
+ * the results instead of scanning the pull requests again.
+ * </p>
+ * <p>
+ * The publisher takes the results in batches, oldest first. The results superseded by newer
+ * results for the same pull request are dropped without being posted. The results are leased
+ * like the LPVSQueue elements, so several LPVS instances can share the outbox.
+ * </p>
+ */
+@Service
+@Slf4j
+public class LPVSOutboxService {
+
+    /**
+     * Repository for storing LPVSOutbox entities.
+     */
+    private final LPVSOutboxRepository outboxRepository;
+
+    /**
+     * Service for interacting with GitHub.
+     */
+    private final LPVSGitHubService gitHubService;
+
+    /**
+     * Service for managing LPVSQueue elements, providing the node ID and the retry delays.
+     */
+    private final LPVSQueueService queueService;
+
+    /**
+     * Service restoring the scanned files from the saved detected licenses.
+     */
+    private final LPVSIncrementalScanService incrementalScanService;
+
+    /**
+     * Indicates whether the results are published through the outbox.
+     */
+    @Value("${lpvs.outbox.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * Maximum number of results published in one run of the publisher.
+     */
+    @Value("${lpvs.outbox.batch-size:20}")
+    private int batchSize;
+
+    /**
+     * Maximum number of attempts to publish the results (0 - unlimited).
+     */
+    @Value("${lpvs.outbox.attempts:20}")
+    private int maxAttempts;
+
+    /**
+     * Duration of the lease on the published results in milliseconds.
+     */
+    @Value("${lpvs.queue.lease.duration:600000}")
+    private long leaseDuration;
+
+    /**
+     * Executor running the publisher apart from the scheduler, null to run it on
+     * the scheduler thread.
+     */
+    private Executor publisherExecutor;
+
+    /**
+     * Constructor for LPVSOutboxService.
+     *
+     * @param outboxRepository       Repository for storing LPVSOutbox entities.
+     * @param gitHubService          Service for interacting with GitHub.
+     * @param queueService           Service for managing LPVSQueue elements.
+     * @param incrementalScanService Service restoring the scanned files from the database.
+     */
+    public LPVSOutboxService(
+            LPVSOutboxRepository outboxRepository,
+            LPVSGitHubService gitHubService,
+            LPVSQueueService queueService,
+            LPVSIncrementalScanService incrementalScanService) {
+        this.outboxRepository = outboxRepository;
+        this.gitHubService = gitHubService;
+        this.queueService = queueService;
+        this.incrementalScanService = incrementalScanService;
+    }
+
+    /**
+     * Sets the executor running the publisher. Without it, the publisher runs on the thread of
+     * the scheduler shared with the renewal of the queue leases.
+     *
+     * @param publisherExecutor The executor of the outbox publisher.
+     */
+    @Autowired(required = false)
+    public void setPublisherExecutor(@Qualifier("outboxTaskExecutor") Executor publisherExecutor) {
+        this.publisherExecutor = publisherExecutor;
+    }
+
+    /**
+     * Checks whether the results are published through the outbox.
+     *
+     * @return true if the outbox is enabled, false if the results are posted directly.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Saves the scan results of the pull request to be published by the publisher.
+     *
+     * @param webhookConfig The processed LPVSQueue element.
+     * @param scanResults   List of detected files and licenses.
+     * @param conflicts     List of license conflicts.
+     * @param pullRequest   LPVS entity representing the pull request.
+     * @return The saved outbox item.
+     */
+    @Transactional
+    public LPVSOutbox enqueue(
+            LPVSQueue webhookConfig,
+            List<LPVSFile> scanResults,
+            List<LPVSConflict<String, String>> conflicts,
+            LPVSPullRequest pullRequest) {
+        LPVSOutbox outbox = new LPVSOutbox();
+        outbox.setComment(gitHubService.getComment(webhookConfig, scanResults, conflicts));
+        outbox.setIssues(
+                gitHubService.saveResults(webhookConfig, scanResults, conflicts, pullRequest));
+        outbox.setPullRequest(pullRequest);
+        outbox.setRepositoryUrl(webhookConfig.getRepositoryUrl());
+        outbox.setPullRequestUrl(webhookConfig.getPullRequestUrl());
+        outbox.setPullRequestAPIUrl(webhookConfig.getPullRequestAPIUrl());
+        outbox.setHeadCommitSHA(webhookConfig.getHeadCommitSHA());
+        outbox.setHubLink(webhookConfig.getHubLink());
+        outbox.setDate(new Date());
+        return outboxRepository.save(outbox);
+    }
+
+    /**
+     * Periodically starts the publication of the saved results on the executor of
+     * the publisher. The run is skipped while the previous one is still going.
+     */
+    @Scheduled(
+            fixedDelayString = "${lpvs.outbox.poll.interval:5000}",
+            initialDelayString = "${lpvs.outbox.poll.interval:5000}")
+    public void publishPending() {
+        if (!enabled) {
+            return;
+        }
+        if (publisherExecutor == null) {
+            publishBatch();
+            return;
+        }
+        try {
+            publisherExecutor.execute(this::publishBatch);
+        } catch (RejectedExecutionException e) {
+            log.debug("Outbox publisher is still running, the run is skipped");
+        }
+    }
+
+    /**
+     * Publishes a batch of the saved results on GitHub. The batch is stopped when
+     * the GitHub API rate limit is exceeded.
+     */
+    void publishBatch() {
+        Date now = new Date();
+        List<LPVSOutbox> batch =
+                outboxRepository.findPublishable(now, PageRequest.of(0, Math.max(batchSize, 1)));
+        for (LPVSOutbox outbox : batch) {
+            // the lease is counted from the claim, not from the start of the batch
+            Date claimed = new Date();
+            if (outboxRepository.claim(
+                            outbox.getId(),
+                            queueService.getNodeId(),
+                            new Date(claimed.getTime() + leaseDuration),
+                            claimed)
+                    == 0) {
+                continue;
+            }
+            if (!publish(outbox)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Publishes the claimed results on GitHub, or schedules the next attempt if it fails.
+     *
+     * @param outbox The claimed outbox item.
+     * @return false if the GitHub API rate limit is exceeded, true otherwise.
+     */
+    boolean publish(LPVSOutbox outbox) {
+        if (outboxRepository.existsByPullRequestUrlHashAndIdGreaterThan(
+                outbox.getPullRequestUrlHash(), outbox.getId())) {
+            log.debug("Results of " + outbox.getPullRequestUrl() + " superseded by newer ones");
+            outboxRepository.delete(outbox);
+            return true;
+        }
+        try {
+            List<LPVSFile> scanResults =
+                    outbox.getPullRequest() != null
+                            ? incrementalScanService.getStoredFiles(
+                                    outbox.getPullRequest(), Collections.emptySet(), null)
+                            : null;
+            gitHubService.publishResults(outbox, scanResults);
+            outboxRepository.delete(outbox);
+            log.info("Results of " + outbox.getPullRequestUrl() + " posted on GitHub");
+            return true;
+        } catch (Exception e) {
+            return retry(outbox, e);
+        }
+    }
+
+    /**
+     * Schedules the next attempt to publish the results, or drops the results if the maximum
+     * number of attempts is reached.
+     *
+     * @param outbox The outbox item which failed to be published.
+     * @param e      The cause of the failure.
+     * @return false if the GitHub API rate limit is exceeded, true otherwise.
+     */
+    private boolean retry(LPVSOutbox outbox, Exception e) {
+        LPVSFailureType failure = LPVSFailureType.of(e);
+        int attempts = outbox.getAttempts() + 1;
+        if (maxAttempts > 0 && attempts >= maxAttempts) {
+            log.error(
+                    "Results of "
+                            + outbox.getPullRequestUrl()
+                            + " are not posted after "
+                            + attempts
+                            + " attempts: "
+                            + e.getMessage());
+            outboxRepository.delete(outbox);
+            return failure != LPVSFailureType.RATE_LIMIT;
+        }
+        long delay = queueService.getRetryDelay(failure, attempts);
+        outbox.setAttempts(attempts);
+        outbox.setNotBefore(new Date(System.currentTimeMillis() + delay));
+        outbox.setLeaseOwner(null);
+        outbox.setLeaseExpiry(null);
+        outboxRepository.save(outbox);
+        log.warn(
+                "Results of "
+                        + outbox.getPullRequestUrl()
+                        + " are not posted ("
+                        + failure
+                        + "), attempt "
+                        + attempts
+                        + " scheduled in "
+                        + delay / 1000
+                        + " s: "
+                        + e.getMessage());
+        return failure != LPVSFailureType.RATE_LIMIT;
+    }
+}
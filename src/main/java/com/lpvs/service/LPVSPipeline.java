@@ -0,0 +1,288 @@
+/**
+ * Copyright (c) 2024, Samsung Electronics Co., Ltd. All rights reserved.
+ *
+ * Use of this source code is governed by a MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.lpvs.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Service running the processing of webhooks as a pipeline of stages.
+ * <p>
+ * Each stage has its own pool of workers and its own bounded queue, so a job waiting for
+ * GitHub does not hold a scanner, and the scanner works on other jobs in the meantime.
+ * When the queue of a stage is full, the worker of the previous stage waits until there is
+ * room, so the pipeline never takes more work than it can hold. The occupancy of the stages
+ * is available through {@link #getOccupancy()} to size the pools.
+ * </p>
+ */
+@Service
+@Slf4j
+public class LPVSPipeline {
+
+    /**
+     * Represents the stages of the webhook processing.
+     */
+    public enum Stage {
+        /**
+         * Represents the download of the pull request files and metadata from GitHub.
+         */
+        FETCH,
+
+        /**
+         * Represents the run of the license scanner.
+         */
+        SCAN,
+
+        /**
+         * Represents the license resolution, conflict detection and their persistence.
+         */
+        RESOLVE,
+
+        /**
+         * Represents the publication of the results on GitHub.
+         */
+        PUBLISH
+    }
+
+    /**
+     * Indicates whether webhooks are processed by the pipeline of stages.
+     */
+    @Value("${lpvs.pipeline.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * Number of workers of the fetch stage.
+     */
+    @Value("${lpvs.pipeline.fetch.workers:4}")
+    private int fetchWorkers;
+
+    /**
+     * Capacity of the queue of the fetch stage.
+     */
+    @Value("${lpvs.pipeline.fetch.queue:8}")
+    private int fetchQueue;
+
+    /**
+     * Number of workers of the scan stage.
+     */
+    @Value("${lpvs.pipeline.scan.workers:${lpvs.cores:8}}")
+    private int scanWorkers;
+
+    /**
+     * Capacity of the queue of the scan stage.
+     */
+    @Value("${lpvs.pipeline.scan.queue:8}")
+    private int scanQueue;
+
+    /**
+     * Number of workers of the resolve stage.
+     */
+    @Value("${lpvs.pipeline.resolve.workers:2}")
+    private int resolveWorkers;
+
+    /**
+     * Capacity of the queue of the resolve stage.
+     */
+    @Value("${lpvs.pipeline.resolve.queue:8}")
+    private int resolveQueue;
+
+    /**
+     * Number of workers of the publish stage.
+     */
+    @Value("${lpvs.pipeline.publish.workers:2}")
+    private int publishWorkers;
+
+    /**
+     * Capacity of the queue of the publish stage.
+     */
+    @Value("${lpvs.pipeline.publish.queue:8}")
+    private int publishQueue;
+
+    /**
+     * Interval in milliseconds to check whether the stage was stopped while waiting
+     * for a free place in its queue.
+     */
+    private static final long SHUTDOWN_CHECK_INTERVAL = 100;
+
+    /**
+     * Executors of the stages, created on the first use.
+     */
+    private final Map<Stage, ThreadPoolExecutor> executors = new EnumMap<>(Stage.class);
+
+    /**
+     * Checks whether webhooks are processed by the pipeline of stages.
+     *
+     * @return true if the pipeline is enabled, false otherwise.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Runs the action in the specified stage.
+     *
+     * @param stage  The stage of the processing.
+     * @param action The action to be run.
+     * @return The future completed when the action is finished.
+     */
+    public CompletableFuture<Void> run(Stage stage, Runnable action) {
+        return CompletableFuture.runAsync(action, getExecutor(stage));
+    }
+
+    /**
+     * Gets the maximum number of jobs the pipeline can hold in all its stages.
+     *
+     * @return The number of workers and queue places of all stages.
+     */
+    public int getCapacity() {
+        int capacity = 0;
+        for (Stage stage : Stage.values()) {
+            capacity += getWorkers(stage) + getQueueCapacity(stage);
+        }
+        return capacity;
+    }
+
+    /**
+     * Gets the occupancy of the stages: the number of busy workers and queued jobs
+     * together with the size of the pool and of the queue.
+     *
+     * @return Map of stage names to their occupancy.
+     */
+    public Map<String, Map<String, Integer>> getOccupancy() {
+        Map<String, Map<String, Integer>> occupancy = new LinkedHashMap<>();
+        for (Stage stage : Stage.values()) {
+            ThreadPoolExecutor executor;
+            synchronized (executors) {
+                executor = executors.get(stage);
+            }
+            Map<String, Integer> stageOccupancy = new LinkedHashMap<>();
+            stageOccupancy.put("active", executor == null ? 0 : executor.getActiveCount());
+            stageOccupancy.put("workers", getWorkers(stage));
+            stageOccupancy.put("queued", executor == null ? 0 : executor.getQueue().size());
+            stageOccupancy.put("capacity", getQueueCapacity(stage));
+            occupancy.put(stage.name().toLowerCase(), stageOccupancy);
+        }
+        return occupancy;
+    }
+
+    /**
+     * Stops the workers of all stages.
+     */
+    @PreDestroy
+    public void shutdown() {
+        synchronized (executors) {
+            executors.values().forEach(ExecutorService::shutdownNow);
+            executors.clear();
+        }
+    }
+
+    /**
+     * Gets the executor of the stage, creating it on the first use.
+     *
+     * @param stage The stage of the processing.
+     * @return The executor of the stage.
+     */
+    private Executor getExecutor(Stage stage) {
+        synchronized (executors) {
+            return executors.computeIfAbsent(stage, this::createExecutor);
+        }
+    }
+
+    /**
+     * Creates the executor of the stage with a bounded queue. When the queue is full,
+     * the submitting thread waits for a free place, unless the stage is stopped.
+     *
+     * @param stage The stage of the processing.
+     * @return The executor of the stage.
+     */
+    private ThreadPoolExecutor createExecutor(Stage stage) {
+        int workers = getWorkers(stage);
+        log.debug("Starting stage " + stage + " with " + workers + " worker(s)");
+        return new ThreadPoolExecutor(
+                workers,
+                workers,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(getQueueCapacity(stage)),
+                new CustomizableThreadFactory("LPVS-" + stage.name().toLowerCase() + "::"),
+                (task, executor) -> {
+                    try {
+                        while (!executor.getQueue()
+                                .offer(task, SHUTDOWN_CHECK_INTERVAL, TimeUnit.MILLISECONDS)) {
+                            if (executor.isShutdown()) {
+                                throw new RejectedExecutionException(
+                                        "Stage " + stage + " is stopped");
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RejectedExecutionException(
+                                "Interrupted while waiting for stage " + stage);
+                    }
+                    // the stage may have been stopped while waiting, its queue is not run then
+                    if (executor.isShutdown() && executor.getQueue().remove(task)) {
+                        throw new RejectedExecutionException("Stage " + stage + " is stopped");
+                    }
+                });
+    }
+
+    /**
+     * Gets the number of workers of the stage.
+     *
+     * @param stage The stage of the processing.
+     * @return The number of workers, at least 1.
+     */
+    private int getWorkers(Stage stage) {
+        int workers;
+        switch (stage) {
+            case FETCH:
+                workers = fetchWorkers;
+                break;
+            case SCAN:
+                workers = scanWorkers;
+                break;
+            case RESOLVE:
+                workers = resolveWorkers;
+                break;
+            default:
+                workers = publishWorkers;
+        }
+        return Math.max(workers, 1);
+    }
+
+    /**
+     * Gets the capacity of the queue of the stage.
+     *
+     * @param stage The stage of the processing.
+     * @return The capacity of the queue, at least 1.
+     */
+    private int getQueueCapacity(Stage stage) {
+        int capacity;
+        switch (stage) {
+            case FETCH:
+                capacity = fetchQueue;
+                break;
+            case SCAN:
+                capacity = scanQueue;
+                break;
+            case RESOLVE:
+                capacity = resolveQueue;
+                break;
+            default:
+                capacity = publishQueue;
+        }
+        return Math.max(capacity, 1);
+    }
+}
@@ -12,15 +12,41 @@ import com.lpvs.service.webhook.LPVSWebhookServiceFactory;
 import io.micrometer.common.util.StringUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.ContextClosedEvent;
 import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Service responsible for processing LPVSQueue elements.
+ * <p>
+ * Queue elements are taken only when a worker slot is free, so pending work stays in the queue
+ * instead of piling up in the executor. The free worker is given to the repository chosen by
+ * {@link LPVSQueueScheduler}, which shares the workers fairly between organizations and
+ * repositories and limits the number of their simultaneously processed elements.
+ * </p>
+ * <p>
+ * When the pipeline is enabled, the elements are processed by {@link LPVSPipeline} and hold
+ * the worker slot until they leave its last stage, so the number of taken elements is limited
+ * by the capacity of the pipeline.
+ * </p>
+ * <p>
+ * Elements are taken only when the GitHub API budget allows it: {@link LPVSRateLimitGovernor}
+ * delays the processing until the rate limit is reset instead of letting the elements fail.
+ * </p>
+ * <p>
+ * On shutdown the processing is drained: no new elements are taken, and the running ones are
+ * given time to finish. Elements still running after that are suspended and resumed from
+ * their checkpoints after the restart.
+ * </p>
  */
 @Service
 @Slf4j
@@ -31,6 +57,41 @@ public class LPVSQueueProcessorService {
      */
     private LPVSQueueService queueService;
 
+    /**
+     * Executor running the processing of LPVSQueue elements.
+     */
+    private final TaskExecutor taskExecutor;
+
+    /**
+     * Free worker slots of the executor.
+     */
+    private final Semaphore workerSlots;
+
+    /**
+     * Number of LPVSQueue elements processed simultaneously.
+     */
+    private final int workers;
+
+    /**
+     * Maximum time in milliseconds to wait for suspended elements to save their state.
+     */
+    private static final long SUSPEND_TIMEOUT = 10000;
+
+    /**
+     * Scheduler sharing the workers between organizations and repositories.
+     */
+    private final LPVSQueueScheduler scheduler;
+
+    /**
+     * Pipeline processing the LPVSQueue elements in stages, if enabled.
+     */
+    private final LPVSPipeline pipeline;
+
+    /**
+     * Governor pacing the processing against the GitHub API rate limit.
+     */
+    private final LPVSRateLimitGovernor rateLimitGovernor;
+
     /**
      * Trigger value to start a single scan of a pull request (optional).
      */
@@ -43,6 +104,12 @@ public class LPVSQueueProcessorService {
     @Value("${local.path:}")
     private String localPath;
 
+    /**
+     * Maximum time in milliseconds to wait for running elements to finish on shutdown.
+     */
+    @Value("${lpvs.shutdown.drain-timeout:60000}")
+    private long drainTimeout;
+
     @Autowired private LPVSWebhookService webhookService;
 
     /**
@@ -51,13 +118,31 @@ public class LPVSQueueProcessorService {
      * @param queueService The LPVSQueueService to be injected.
      * @param webhookServiceFactory Service for creating instance of the webhook service.
      * @param isInternal Indicates the mode of LPVS operation.
+     * @param taskExecutor Executor running the processing of LPVSQueue elements.
+     * @param scheduler Scheduler sharing the workers between organizations and repositories.
+     * @param pipeline Pipeline processing the LPVSQueue elements in stages, if enabled.
+     * @param rateLimitGovernor Governor pacing the processing against the GitHub API rate limit.
+     * @param workers Number of LPVSQueue elements processed simultaneously (the number of cores,
+     *                or the maximum number of jobs when running on virtual threads).
      */
     LPVSQueueProcessorService(
             LPVSQueueService queueService,
             LPVSWebhookServiceFactory webhookServiceFactory,
-            @Value("${lpvs.mode.internal:false}") boolean isInternal) {
+            @Value("${lpvs.mode.internal:false}") boolean isInternal,
+            @Qualifier("threadPoolTaskExecutor") TaskExecutor taskExecutor,
+            LPVSQueueScheduler scheduler,
+            LPVSPipeline pipeline,
+            LPVSRateLimitGovernor rateLimitGovernor,
+            @Value("#{${lpvs.virtual-threads:false} ? ${lpvs.virtual-threads.max-jobs:256} : ${lpvs.cores:8}}")
+                    int workers) {
         this.webhookService = webhookServiceFactory.createWebhookService(isInternal);
         this.queueService = queueService;
+        this.taskExecutor = taskExecutor;
+        this.scheduler = scheduler;
+        this.pipeline = pipeline;
+        this.rateLimitGovernor = rateLimitGovernor;
+        this.workers = Math.max(pipeline.isEnabled() ? pipeline.getCapacity() : workers, 1);
+        this.workerSlots = new Semaphore(this.workers);
     }
 
     /**
@@ -71,17 +156,139 @@ public class LPVSQueueProcessorService {
         // Check for any pending elements in the LPVSQueue.
         queueService.checkForQueue();
 
-        // Process LPVSQueue elements until the trigger is set.
-        while (StringUtils.isBlank(trigger) && StringUtils.isBlank(localPath)) {
-            // Get the first element from the LPVSQueue.
-            LPVSQueue webhookConfig = queueService.getQueueFirstElement();
+        // Process LPVSQueue elements until the trigger is set or the queue is drained.
+        while (StringUtils.isBlank(trigger)
+                && StringUtils.isBlank(localPath)
+                && !queueService.isDraining()) {
+            // Wait for a free worker slot before taking the next element.
+            workerSlots.acquire();
+
+            // Wait for the GitHub API budget, then get the element of the repository next
+            // in turn which can be processed now.
+            LPVSQueue webhookConfig = null;
+            try {
+                if (rateLimitGovernor.awaitBudget(queueService::isDraining)) {
+                    webhookConfig =
+                            queueService.getQueueFirstElement(scheduler::isAdmitted, scheduler);
+                }
+            } catch (InterruptedException | RuntimeException e) {
+                workerSlots.release();
+                throw e;
+            }
+            if (webhookConfig == null) {
+                workerSlots.release();
+                break;
+            }
             log.info("PROCESS Webhook id = " + webhookConfig.getId());
 
             // Set the date of the LPVSQueue element.
             webhookConfig.setDate(new Date());
 
             // Process the LPVSQueue element.
-            webhookService.processWebHook(webhookConfig);
+            dispatch(webhookConfig);
+        }
+    }
+
+    /**
+     * Event listener method triggered when the application is shutting down, before
+     * the executor is stopped. Stops taking new elements and waits for the running ones
+     * to finish. Elements still running after the drain timeout are suspended, so that
+     * their processing is resumed from the checkpoint after the restart.
+     */
+    @EventListener(ContextClosedEvent.class)
+    public void drain() {
+        log.info("Draining the queue before shutdown");
+        queueService.drain();
+        try {
+            if (!awaitWorkers(drainTimeout)) {
+                log.warn("Webhooks are still in processing, suspending them");
+                queueService.suspendAll();
+                if (!awaitWorkers(SUSPEND_TIMEOUT)) {
+                    log.warn("Webhooks in processing did not stop in time");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        queueService.releaseAll();
+    }
+
+    /**
+     * Waits until all worker slots are free.
+     *
+     * @param timeout Maximum time to wait in milliseconds.
+     * @return true if all worker slots are free, false if the time elapsed.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    private boolean awaitWorkers(long timeout) throws InterruptedException {
+        if (workerSlots.tryAcquire(workers, timeout, TimeUnit.MILLISECONDS)) {
+            workerSlots.release(workers);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Hands the LPVSQueue element over to the executor, holding the worker slot until
+     * the processing is finished.
+     *
+     * @param webhookConfig The LPVSQueue element to be processed.
+     * @throws InterruptedException If interrupted while returning the element to the queue.
+     */
+    private void dispatch(LPVSQueue webhookConfig) throws InterruptedException {
+        scheduler.started(webhookConfig);
+        rateLimitGovernor.started();
+        try {
+            if (pipeline.isEnabled()) {
+                // Register the element for cancellation while it waits for the first stage
+                queueService.startProcessing(webhookConfig);
+                queueService.pauseProcessing(webhookConfig);
+                webhookService
+                        .processWebHook(webhookConfig, pipeline)
+                        .whenComplete(
+                                (result, e) -> {
+                                    queueService.finishProcessing(webhookConfig);
+                                    release(webhookConfig);
+                                });
+                return;
+            }
+            taskExecutor.execute(
+                    () -> {
+                        queueService.startProcessing(webhookConfig);
+                        try {
+                            webhookService.processWebHook(webhookConfig);
+                        } finally {
+                            queueService.finishProcessing(webhookConfig);
+                            release(webhookConfig);
+                        }
+                    });
+        } catch (RejectedExecutionException e) {
+            log.warn("Webhook id = " + webhookConfig.getId() + " rejected by the executor");
+            queueService.finishProcessing(webhookConfig);
+            release(webhookConfig);
+            queueService.add(webhookConfig);
         }
     }
+
+    /**
+     * Releases the worker slot and the repository slot taken by the processed element.
+     *
+     * @param webhookConfig The processed LPVSQueue element.
+     */
+    private void release(LPVSQueue webhookConfig) {
+        scheduler.finished(webhookConfig);
+        rateLimitGovernor.finished();
+        workerSlots.release();
+        queueService.wakeUp();
+    }
+
+    /**
+     * Gets the number of LPVSQueue elements in processing for the specified tenant.
+     *
+     * @param tenant The organization or the repository in the format {@code org/repo}.
+     * @return The number of LPVSQueue elements in processing.
+     */
+    public int getInFlight(String tenant) {
+        return scheduler.getInFlight(tenant);
+    }
 }
@@ -0,0 +1,305 @@
+/**
+ * Copyright (c) 2024, Samsung Electronics Co., Ltd. All rights reserved.
+ *
+ * Use of this source code is governed by a MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.lpvs.service;
+
+import com.lpvs.entity.LPVSQueue;
+import com.lpvs.util.LPVSPayloadUtil;
+import io.micrometer.common.util.StringUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Service deciding which repository gets the next worker, so that the processing capacity
+ * is shared fairly between organizations and repositories.
+ * <p>
+ * Weighted fair queuing is applied on two levels: first between organizations, then between
+ * repositories of the same organization. Every dispatched element advances the virtual time
+ * of its organization and repository by the inverse of their weights, and the repository with
+ * the smallest virtual time is served first. Tenants which were idle start from the current
+ * virtual time, so they cannot accumulate credit. The number of simultaneously processed
+ * elements can also be limited per organization and per repository.
+ * </p>
+ * <p>
+ * The virtual times and the limits are kept in memory of each LPVS node, so the share and
+ * the limits apply per node: when several nodes share the queue table, a repository can have
+ * up to the number of nodes times its limit in processing.
+ * </p>
+ */
+@Service
+@Slf4j
+public class LPVSQueueScheduler implements Comparator<LPVSQueue> {
+
+    /**
+     * Default maximum number of simultaneously processed elements per repository on this node
+     * (0 - unlimited).
+     */
+    @Value("${lpvs.queue.repository.max-jobs:0}")
+    private int repositoryMaxJobs;
+
+    /**
+     * Per-repository limits of simultaneously processed elements in the format
+     * {@code org/repo=limit,org/repo2=limit}.
+     */
+    @Value("${lpvs.queue.repository.limits:}")
+    private String repositoryLimits;
+
+    /**
+     * Default maximum number of simultaneously processed elements per organization on this
+     * node (0 - unlimited).
+     */
+    @Value("${lpvs.queue.organization.max-jobs:0}")
+    private int organizationMaxJobs;
+
+    /**
+     * Per-organization limits of simultaneously processed elements in the format
+     * {@code org=limit,org2=limit}.
+     */
+    @Value("${lpvs.queue.organization.limits:}")
+    private String organizationLimits;
+
+    /**
+     * Weights of organizations and repositories in the format {@code org=weight,org/repo=weight}.
+     * Tenants without a weight have the weight 1.
+     */
+    @Value("${lpvs.queue.fair.weights:}")
+    private String weights;
+
+    /**
+     * Parsed limits of organizations and repositories.
+     */
+    private Map<String, Integer> parsedLimits;
+
+    /**
+     * Parsed weights of organizations and repositories.
+     */
+    private Map<String, Integer> parsedWeights;
+
+    /**
+     * Number of elements in processing per organization and per repository.
+     */
+    private final Map<String, Integer> inFlight = new HashMap<>();
+
+    /**
+     * Virtual finish times of organizations.
+     */
+    private final Map<String, Double> organizationTimes = new HashMap<>();
+
+    /**
+     * Virtual finish times of repositories in the format {@code org/repo}.
+     */
+    private final Map<String, Double> repositoryTimes = new HashMap<>();
+
+    /**
+     * Virtual time of the last dispatched element between organizations.
+     */
+    private double organizationClock = 0;
+
+    /**
+     * Virtual times of the last dispatched elements between repositories of each organization.
+     */
+    private final Map<String, Double> repositoryClocks = new HashMap<>();
+
+    /**
+     * Checks whether the LPVSQueue element can be processed now without exceeding the limits
+     * of simultaneously processed elements for its organization and repository.
+     *
+     * @param webhookConfig The LPVSQueue element to be checked.
+     * @return true if the element can be processed now, false otherwise.
+     */
+    public synchronized boolean isAdmitted(LPVSQueue webhookConfig) {
+        String repository = getRepositoryKey(webhookConfig);
+        String organization = getOrganization(repository);
+        int repositoryLimit = getLimits().getOrDefault(repository, repositoryMaxJobs);
+        int organizationLimit = getLimits().getOrDefault(organization, organizationMaxJobs);
+        return (repositoryLimit <= 0 || getInFlight(repository) < repositoryLimit)
+                && (organizationLimit <= 0 || getInFlight(organization) < organizationLimit);
+    }
+
+    /**
+     * Compares LPVSQueue elements by the fair share of their repositories: the element of
+     * the organization with the smaller virtual time goes first, and within an organization
+     * the element of the repository with the smaller virtual time goes first.
+     *
+     * @param webhookConfig      The first LPVSQueue element.
+     * @param otherWebhookConfig The second LPVSQueue element.
+     * @return A negative number if the first element should be served first, a positive
+     * number if the second one, zero if their repositories are equally entitled.
+     */
+    @Override
+    public synchronized int compare(LPVSQueue webhookConfig, LPVSQueue otherWebhookConfig) {
+        String repository = getRepositoryKey(webhookConfig);
+        String otherRepository = getRepositoryKey(otherWebhookConfig);
+        String organization = getOrganization(repository);
+        String otherOrganization = getOrganization(otherRepository);
+        int result =
+                Double.compare(
+                        getStartTime(organizationTimes, organizationClock, organization),
+                        getStartTime(organizationTimes, organizationClock, otherOrganization));
+        if (result == 0 && organization.equals(otherOrganization)) {
+            double clock = repositoryClocks.getOrDefault(organization, 0.0);
+            result =
+                    Double.compare(
+                            getStartTime(repositoryTimes, clock, repository),
+                            getStartTime(repositoryTimes, clock, otherRepository));
+        }
+        return result;
+    }
+
+    /**
+     * Registers the start of the processing of the LPVSQueue element, charging its organization
+     * and repository for the used share.
+     *
+     * @param webhookConfig The LPVSQueue element to be processed.
+     */
+    public synchronized void started(LPVSQueue webhookConfig) {
+        String repository = getRepositoryKey(webhookConfig);
+        String organization = getOrganization(repository);
+        inFlight.merge(repository, 1, Integer::sum);
+        if (!organization.equals(repository)) {
+            inFlight.merge(organization, 1, Integer::sum);
+        }
+
+        organizationClock = getStartTime(organizationTimes, organizationClock, organization);
+        organizationTimes.put(organization, organizationClock + 1.0 / getWeight(organization));
+        organizationTimes.values().removeIf(time -> time <= organizationClock);
+
+        double clock =
+                getStartTime(
+                        repositoryTimes,
+                        repositoryClocks.getOrDefault(organization, 0.0),
+                        repository);
+        repositoryClocks.put(organization, clock);
+        repositoryTimes.put(repository, clock + 1.0 / getWeight(repository));
+    }
+
+    /**
+     * Registers the end of the processing of the LPVSQueue element.
+     *
+     * @param webhookConfig The processed LPVSQueue element.
+     */
+    public synchronized void finished(LPVSQueue webhookConfig) {
+        String repository = getRepositoryKey(webhookConfig);
+        String organization = getOrganization(repository);
+        inFlight.computeIfPresent(repository, (key, count) -> count > 1 ? count - 1 : null);
+        if (!organization.equals(repository)) {
+            inFlight.computeIfPresent(organization, (key, count) -> count > 1 ? count - 1 : null);
+        }
+        if (!inFlight.containsKey(organization)) {
+            // forget idle tenants which have no credit left
+            repositoryTimes
+                    .entrySet()
+                    .removeIf(
+                            entry ->
+                                    getOrganization(entry.getKey()).equals(organization)
+                                            && entry.getValue()
+                                                    <= repositoryClocks.getOrDefault(
+                                                            organization, 0.0));
+        }
+    }
+
+    /**
+     * Gets the number of LPVSQueue elements in processing for the specified tenant.
+     *
+     * @param tenant The organization or the repository in the format {@code org/repo}.
+     * @return The number of LPVSQueue elements in processing.
+     */
+    public synchronized int getInFlight(String tenant) {
+        return inFlight.getOrDefault(tenant, 0);
+    }
+
+    /**
+     * Gets the virtual start time of the tenant: its finish time, or the current virtual time
+     * if the tenant was idle.
+     *
+     * @param times  Virtual finish times of the tenants.
+     * @param clock  The current virtual time.
+     * @param tenant The tenant.
+     * @return The virtual start time of the tenant.
+     */
+    private static double getStartTime(Map<String, Double> times, double clock, String tenant) {
+        return Math.max(times.getOrDefault(tenant, clock), clock);
+    }
+
+    /**
+     * Gets the weight of the organization or repository.
+     *
+     * @param tenant The organization or the repository in the format {@code org/repo}.
+     * @return The weight of the tenant, at least 1.
+     */
+    private int getWeight(String tenant) {
+        if (parsedWeights == null) {
+            parsedWeights = parse(weights, "weight");
+        }
+        return Math.max(parsedWeights.getOrDefault(tenant, 1), 1);
+    }
+
+    /**
+     * Gets the limits of simultaneously processed elements of organizations and repositories.
+     *
+     * @return Map of organizations and repositories to their limits.
+     */
+    private Map<String, Integer> getLimits() {
+        if (parsedLimits == null) {
+            Map<String, Integer> limits = new HashMap<>(parse(organizationLimits, "limit"));
+            limits.putAll(parse(repositoryLimits, "limit"));
+            parsedLimits = limits;
+        }
+        return parsedLimits;
+    }
+
+    /**
+     * Parses the list of tenant values in the format {@code key=value,key2=value}.
+     *
+     * @param values The list of values.
+     * @param name   The name of the values used in the log.
+     * @return Map of tenants to their values.
+     */
+    private static Map<String, Integer> parse(String values, String name) {
+        Map<String, Integer> result = new HashMap<>();
+        if (!StringUtils.isBlank(values)) {
+            for (String entry : values.split(",")) {
+                String[] pair = entry.trim().split("=");
+                try {
+                    result.put(pair[0].trim(), Integer.parseInt(pair[1].trim()));
+                } catch (NumberFormatException | IndexOutOfBoundsException e) {
+                    log.warn("Wrong " + name + ": " + entry);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the key of the repository of the LPVSQueue element.
+     *
+     * @param webhookConfig The LPVSQueue element.
+     * @return The repository in the format {@code org/repo}, or an empty string if unknown.
+     */
+    private static String getRepositoryKey(LPVSQueue webhookConfig) {
+        try {
+            return LPVSPayloadUtil.getRepositoryOrganization(webhookConfig)
+                    + "/"
+                    + LPVSPayloadUtil.getRepositoryName(webhookConfig);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            return "";
+        }
+    }
+
+    /**
+     * Gets the organization of the repository.
+     *
+     * @param repository The repository in the format {@code org/repo}.
+     * @return The organization, or an empty string if unknown.
+     */
+    private static String getOrganization(String repository) {
+        int index = repository.indexOf('/');
+        return index < 0 ? repository : repository.substring(0, index);
+    }
+}
@@ -7,16 +7,55 @@
 package com.lpvs.service;
 
 import com.lpvs.entity.LPVSQueue;
+import com.lpvs.entity.enums.LPVSFailureType;
+import com.lpvs.entity.enums.LPVSQueueCheckpoint;
+import com.lpvs.entity.enums.LPVSQueuePriority;
 import com.lpvs.repository.LPVSQueueRepository;
+import io.micrometer.common.util.StringUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
 import java.util.*;
-import java.util.concurrent.BlockingDeque;
-import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 
 /**
  * Service for managing LPVSQueue elements and processing webhooks.
+ * <p>
+ * Pending elements are kept in the "lpvs_queue" table only. Workers claim an element by taking
+ * a lease on it (owner plus expiry time), so several LPVS instances can share one database.
+ * Leases of the elements being processed are renewed periodically, and leases left behind by
+ * crashed instances expire and are reclaimed automatically.
+ * </p>
+ * <p>
+ * Elements are taken by priority class first (see {@link LPVSQueuePriority}), and within
+ * a class the cheapest elements (fewest changed lines) go first. Elements waiting longer than
+ * the configured time lose their cost estimate and are then taken in the order of arrival.
+ * </p>
+ * <p>
+ * Failed elements are retried with exponential backoff: the element gets a "not before" time
+ * and stays in the table without occupying a worker until that time. The initial delay and
+ * the number of attempts depend on the class of the failure (see {@link LPVSFailureType}).
+ * </p>
+ * <p>
+ * Only the newest element of a pull request is processed. Older pending elements of the same
+ * pull request are dropped, and the processing of an older element is cancelled as soon as
+ * a newer one appears.
+ * </p>
+ * <p>
+ * On shutdown the queue is drained: no new elements are taken, and elements which cannot be
+ * finished in time are suspended. The last completed stage of the processing is saved as
+ * a checkpoint, so the processing of suspended elements is resumed from it after the restart.
+ * </p>
  */
 @Service
 @Slf4j
@@ -28,9 +67,128 @@ public class LPVSQueueService {
     private final LPVSQueueRepository queueRepository;
 
     /**
-     * BlockingDeque for managing LPVSQueue elements.
+     * Maximum number of candidates fetched from the database per claim attempt.
+     */
+    private static final int CLAIM_BATCH_SIZE = 10;
+
+    /**
+     * Maximum number of candidates fetched from the database per fair claim attempt.
      */
-    private static final BlockingDeque<LPVSQueue> QUEUE = new LinkedBlockingDeque<>();
+    private static final int FAIR_CLAIM_BATCH_SIZE = 100;
+
+    /**
+     * Identifier of this LPVS instance in the shared queue (derived from the host name and
+     * the server port if not set).
+     */
+    @Value("${lpvs.queue.node-id:}")
+    private String nodeId;
+
+    /**
+     * Port of this LPVS instance, distinguishing the instances running on the same host.
+     */
+    @Value("${server.port:8080}")
+    private String serverPort;
+
+    /**
+     * Duration of the lease on the claimed queue element in milliseconds.
+     */
+    @Value("${lpvs.queue.lease.duration:600000}")
+    private long leaseDuration;
+
+    /**
+     * Maximum time in milliseconds to wait for new elements before polling the database again.
+     */
+    @Value("${lpvs.queue.poll.interval:5000}")
+    private long pollInterval;
+
+    /**
+     * Time in milliseconds after which a waiting element is no longer ordered by its cost.
+     */
+    @Value("${lpvs.queue.aging:1800000}")
+    private long agingTime;
+
+    /**
+     * Initial delay in milliseconds before retrying a failed element.
+     */
+    @Value("${lpvs.queue.retry.delay:30000}")
+    private long retryDelay;
+
+    /**
+     * Maximum delay in milliseconds before retrying a failed element.
+     */
+    @Value("${lpvs.queue.retry.max-delay:3600000}")
+    private long retryMaxDelay;
+
+    /**
+     * Initial delay in milliseconds before retrying an element failed due to the rate limit.
+     */
+    @Value("${lpvs.queue.retry.rate-limit.delay:300000}")
+    private long rateLimitRetryDelay;
+
+    /**
+     * Maximum number of attempts for an element failed due to the rate limit (0 - default).
+     */
+    @Value("${lpvs.queue.retry.rate-limit.attempts:0}")
+    private int rateLimitRetryAttempts;
+
+    /**
+     * Initial delay in milliseconds before retrying an element failed due to a scanner crash.
+     */
+    @Value("${lpvs.queue.retry.scanner.delay:60000}")
+    private long scannerRetryDelay;
+
+    /**
+     * Maximum number of attempts for an element failed due to a scanner crash (0 - default).
+     */
+    @Value("${lpvs.queue.retry.scanner.attempts:0}")
+    private int scannerRetryAttempts;
+
+    /**
+     * Initial delay in milliseconds before retrying an element whose pull request was not found.
+     */
+    @Value("${lpvs.queue.retry.not-found.delay:60000}")
+    private long notFoundRetryDelay;
+
+    /**
+     * Maximum number of attempts for an element whose pull request was not found (0 - default).
+     */
+    @Value("${lpvs.queue.retry.not-found.attempts:0}")
+    private int notFoundRetryAttempts;
+
+    /**
+     * IDs of the queue elements currently leased by this LPVS instance.
+     */
+    private final Set<Long> leasedElements = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Signal raised when a new element is added to the queue by this LPVS instance.
+     */
+    private final Semaphore newElements = new Semaphore(0);
+
+    /**
+     * Queue elements in processing on this LPVS instance, mapped by their IDs.
+     */
+    private final Map<Long, LPVSQueue> processingElements = new ConcurrentHashMap<>();
+
+    /**
+     * Worker threads processing the queue elements, mapped by IDs of the elements.
+     */
+    private final Map<Long, Thread> workers = new ConcurrentHashMap<>();
+
+    /**
+     * IDs of the queue elements whose processing was cancelled.
+     */
+    private final Set<Long> cancelledElements = ConcurrentHashMap.newKeySet();
+
+    /**
+     * IDs of the queue elements whose processing was suspended by the shutdown.
+     */
+    private final Set<Long> suspendedElements = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Indicates that the queue is drained and no new elements are taken for processing.
+     */
+    private volatile boolean draining = false;
 
     /**
      * Constructor for LPVSQueueService.
@@ -43,33 +201,306 @@ public class LPVSQueueService {
     }
 
     /**
-     * Gets the first element from the LPVSQueue.
+     * Gets the first available element from the LPVSQueue and takes the lease on it.
+     * Waits until an element becomes available.
      *
-     * @return The first LPVSQueue element.
+     * @return The first LPVSQueue element, or null if the queue is drained.
      * @throws InterruptedException If interrupted while waiting for the element.
      */
     public LPVSQueue getQueueFirstElement() throws InterruptedException {
-        return QUEUE.takeFirst();
+        return getQueueFirstElement(webhookConfig -> true);
+    }
+
+    /**
+     * Gets the first available element from the LPVSQueue accepted by the specified filter
+     * and takes the lease on it. Waits until such an element becomes available.
+     *
+     * @param filter Predicate deciding whether the element can be taken for processing now.
+     * @return The first accepted LPVSQueue element, or null if the queue is drained.
+     * @throws InterruptedException If interrupted while waiting for the element.
+     */
+    public LPVSQueue getQueueFirstElement(Predicate<LPVSQueue> filter)
+            throws InterruptedException {
+        return getQueueFirstElement(filter, null);
+    }
+
+    /**
+     * Gets the first available element from the LPVSQueue accepted by the specified filter,
+     * choosing between repositories in the specified order, and takes the lease on it.
+     * Waits until such an element becomes available.
+     *
+     * @param filter Predicate deciding whether the element can be taken for processing now.
+     * @param order  Order of the repositories within a priority class, or null to take
+     *               the elements in the queue order.
+     * @return The first accepted LPVSQueue element, or null if the queue is drained.
+     * @throws InterruptedException If interrupted while waiting for the element.
+     */
+    public LPVSQueue getQueueFirstElement(
+            Predicate<LPVSQueue> filter, Comparator<LPVSQueue> order)
+            throws InterruptedException {
+        while (!draining) {
+            LPVSQueue webhookConfig =
+                    order == null ? claimNext(filter) : claimNext(filter, order);
+            if (webhookConfig != null) {
+                return webhookConfig;
+            }
+            if (newElements.tryAcquire(pollInterval, TimeUnit.MILLISECONDS)) {
+                newElements.drainPermits();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Tries to take the lease on the first available element of the LPVSQueue.
+     *
+     * @return The claimed LPVSQueue element, or null if there are no available elements.
+     */
+    public LPVSQueue claimNext() {
+        return claimNext(webhookConfig -> true);
+    }
+
+    /**
+     * Tries to take the lease on the first available element of the LPVSQueue
+     * accepted by the specified filter.
+     *
+     * @param filter Predicate deciding whether the element can be taken for processing now.
+     * @return The claimed LPVSQueue element, or null if there are no accepted elements.
+     */
+    public LPVSQueue claimNext(Predicate<LPVSQueue> filter) {
+        Date now = new Date();
+        int page = 0;
+        List<LPVSQueue> candidates;
+        do {
+            candidates =
+                    queueRepository.findClaimable(now, PageRequest.of(page++, CLAIM_BATCH_SIZE));
+            for (LPVSQueue candidate : candidates) {
+                if (filter.test(candidate) && claim(candidate, now)) {
+                    return candidate;
+                }
+            }
+        } while (candidates.size() == CLAIM_BATCH_SIZE);
+        return null;
+    }
+
+    /**
+     * Tries to take the lease on the first available element of the LPVSQueue accepted by
+     * the specified filter, sharing the workers fairly between repositories.
+     * <p>
+     * Only the first accepted element of each repository competes for the worker. Within
+     * a priority class the repositories are served in the specified order, so a repository
+     * with many pending elements cannot monopolize the workers.
+     * </p>
+     *
+     * @param filter Predicate deciding whether the element can be taken for processing now.
+     * @param order  Order of the repositories within a priority class.
+     * @return The claimed LPVSQueue element, or null if there are no accepted elements.
+     */
+    public LPVSQueue claimNext(Predicate<LPVSQueue> filter, Comparator<LPVSQueue> order) {
+        Date now = new Date();
+        int page = 0;
+        List<LPVSQueue> candidates;
+        do {
+            candidates =
+                    queueRepository.findClaimable(
+                            now, PageRequest.of(page++, FAIR_CLAIM_BATCH_SIZE));
+            // Candidates are ordered by priority and cost, keep the first one per repository
+            Map<String, LPVSQueue> heads = new LinkedHashMap<>();
+            for (LPVSQueue candidate : candidates) {
+                if (!heads.containsKey(candidate.getRepositoryUrl()) && filter.test(candidate)) {
+                    heads.put(candidate.getRepositoryUrl(), candidate);
+                }
+            }
+            List<LPVSQueue> ordered = new ArrayList<>(heads.values());
+            ordered.sort(
+                    Comparator.comparing(
+                                    LPVSQueue::getPriority,
+                                    Comparator.nullsFirst(
+                                            Comparator.<LPVSQueuePriority>naturalOrder()))
+                            .thenComparing(order));
+            for (LPVSQueue candidate : ordered) {
+                if (claim(candidate, now)) {
+                    return candidate;
+                }
+            }
+        } while (candidates.size() == FAIR_CLAIM_BATCH_SIZE);
+        return null;
+    }
+
+    /**
+     * Tries to take the lease on the LPVSQueue element. Superseded elements are removed
+     * instead of being claimed.
+     *
+     * @param candidate The LPVSQueue element to be claimed.
+     * @param now       The current time.
+     * @return true if the lease was taken, false otherwise.
+     */
+    private boolean claim(LPVSQueue candidate, Date now) {
+        Date expiry = getLeaseExpiry(now);
+        if (queueRepository.claim(candidate.getId(), getNodeId(), expiry, now) != 1) {
+            return false;
+        }
+        if (isSuperseded(candidate)) {
+            log.info(
+                    "Webhook id = "
+                            + candidate.getId()
+                            + " is superseded by a newer one and removed.");
+            queueRepository.deleteById(candidate.getId());
+            return false;
+        }
+        candidate.setLeaseOwner(getNodeId());
+        candidate.setLeaseExpiry(expiry);
+        leasedElements.add(candidate.getId());
+        log.debug("Lease on webhook id = " + candidate.getId() + " taken by " + getNodeId());
+        return true;
+    }
+
+    /**
+     * Wakes up the thread waiting for the queue elements, so that elements which were
+     * previously rejected by the filter are checked again.
+     */
+    public void wakeUp() {
+        newElements.release();
     }
 
     /**
      * Adds the LPVSQueue element to the front of the queue.
+     * Elements are taken from the queue in the order they were created, so the element
+     * is released for processing and becomes available for claiming immediately.
      *
      * @param webhookConfig The LPVSQueue element to be added.
      * @throws InterruptedException If interrupted while waiting to add the element.
      */
     public void addFirst(LPVSQueue webhookConfig) throws InterruptedException {
-        QUEUE.putFirst(webhookConfig);
+        add(webhookConfig);
     }
 
     /**
-     * Adds the LPVSQueue element to the end of the queue.
+     * Adds the LPVSQueue element to the end of the queue. A new element is inserted, while
+     * an element which is already stored is returned to the queue only if its lease is held
+     * by this instance, so that the lease taken by another instance is never released.
      *
      * @param webhookConfig The LPVSQueue element to be added.
      * @throws InterruptedException If interrupted while waiting to add the element.
      */
     public void add(LPVSQueue webhookConfig) throws InterruptedException {
-        QUEUE.put(webhookConfig);
+        if (webhookConfig.getPriority() == null) {
+            webhookConfig.setPriority(LPVSQueuePriority.forAction(webhookConfig.getAction()));
+        }
+        Long id = webhookConfig.getId();
+        if (id == null) {
+            webhookConfig.setLeaseOwner(null);
+            webhookConfig.setLeaseExpiry(null);
+            queueRepository.save(webhookConfig);
+        } else {
+            leasedElements.remove(id);
+            if (queueRepository.requeue(
+                            id,
+                            getNodeId(),
+                            webhookConfig.getAttempts(),
+                            webhookConfig.getPriority(),
+                            webhookConfig.getNotBefore())
+                    != 1) {
+                log.warn("Webhook id = " + id + " is not leased by " + getNodeId() + ", skipped");
+                return;
+            }
+            webhookConfig.setLeaseOwner(null);
+            webhookConfig.setLeaseExpiry(null);
+        }
+        if (webhookConfig.getId() != null) {
+            supersedeOlderElements(webhookConfig);
+        }
+        wakeUp();
+    }
+
+    /**
+     * Returns the failed LPVSQueue element to the queue, delayed according to the retry policy
+     * of the failure class. The element is not returned if the number of attempts is exhausted.
+     *
+     * @param webhookConfig The failed LPVSQueue element.
+     * @param failure       The class of the failure.
+     * @param maxAttempts   The default maximum number of attempts.
+     * @return true if the element will be retried, false if no attempts are left.
+     * @throws InterruptedException If interrupted while returning the element to the queue.
+     */
+    public boolean retry(LPVSQueue webhookConfig, LPVSFailureType failure, int maxAttempts)
+            throws InterruptedException {
+        int attempts = webhookConfig.getAttempts() + 1;
+        if (attempts >= getRetryAttempts(failure, maxAttempts)) {
+            return false;
+        }
+        long delay = getRetryDelay(failure, attempts);
+        webhookConfig.setAttempts(attempts);
+        webhookConfig.setPriority(LPVSQueuePriority.RETRY);
+        webhookConfig.setNotBefore(new Date(System.currentTimeMillis() + delay));
+        add(webhookConfig);
+        log.info(
+                "Webhook id = "
+                        + webhookConfig.getId()
+                        + " failed ("
+                        + failure
+                        + "), attempt "
+                        + attempts
+                        + " scheduled in "
+                        + delay / 1000
+                        + " s");
+        return true;
+    }
+
+    /**
+     * Gets the maximum number of attempts for the failure class.
+     *
+     * @param failure     The class of the failure.
+     * @param maxAttempts The default maximum number of attempts.
+     * @return The maximum number of attempts.
+     */
+    private int getRetryAttempts(LPVSFailureType failure, int maxAttempts) {
+        int attempts;
+        switch (failure) {
+            case RATE_LIMIT:
+                attempts = rateLimitRetryAttempts;
+                break;
+            case SCANNER_CRASH:
+                attempts = scannerRetryAttempts;
+                break;
+            case PULL_REQUEST_NOT_FOUND:
+                attempts = notFoundRetryAttempts;
+                break;
+            default:
+                attempts = 0;
+        }
+        return attempts > 0 ? attempts : maxAttempts;
+    }
+
+    /**
+     * Calculates the delay before the next attempt: the initial delay of the failure class
+     * doubled for each previous attempt, limited by the maximum delay, with a random jitter
+     * of up to a half of the delay so that elements failed together are not retried together.
+     *
+     * @param failure  The class of the failure.
+     * @param attempts The number of the failed attempts.
+     * @return The delay in milliseconds.
+     */
+    protected long getRetryDelay(LPVSFailureType failure, int attempts) {
+        long delay;
+        switch (failure) {
+            case RATE_LIMIT:
+                delay = rateLimitRetryDelay;
+                break;
+            case SCANNER_CRASH:
+                delay = scannerRetryDelay;
+                break;
+            case PULL_REQUEST_NOT_FOUND:
+                delay = notFoundRetryDelay;
+                break;
+            default:
+                delay = retryDelay;
+        }
+        delay = Math.min(delay << Math.min(Math.max(attempts - 1, 0), 30), retryMaxDelay);
+        if (delay <= 1) {
+            return Math.max(delay, 0);
+        }
+        return delay - ThreadLocalRandom.current().nextLong(delay / 2 + 1);
     }
 
     /**
@@ -79,30 +510,307 @@ public class LPVSQueueService {
      */
     public void delete(LPVSQueue webhookConfig) {
         queueRepository.deleteById(webhookConfig.getId());
-        QUEUE.remove(webhookConfig);
+        if (webhookConfig.getId() != null) {
+            leasedElements.remove(webhookConfig.getId());
+        }
+    }
+
+    /**
+     * Checks whether a newer LPVSQueue element exists for the same pull request.
+     *
+     * @param webhookConfig The LPVSQueue element to be checked.
+     * @return true if the element is superseded by a newer one, false otherwise.
+     */
+    public boolean isSuperseded(LPVSQueue webhookConfig) {
+        return webhookConfig.getId() != null
+                && webhookConfig.getPullRequestUrlHash() != null
+                && queueRepository.existsByPullRequestUrlHashAndIdGreaterThan(
+                        webhookConfig.getPullRequestUrlHash(), webhookConfig.getId());
+    }
+
+    /**
+     * Drops pending LPVSQueue elements of the same pull request which are older than the specified
+     * element, and cancels the processing of older elements on this LPVS instance.
+     *
+     * @param webhookConfig The newest LPVSQueue element of the pull request.
+     */
+    private void supersedeOlderElements(LPVSQueue webhookConfig) {
+        String pullRequestUrl = webhookConfig.getPullRequestUrl();
+        if (pullRequestUrl == null) {
+            return;
+        }
+        int deleted =
+                queueRepository.deleteSuperseded(
+                        webhookConfig.getPullRequestUrlHash(), webhookConfig.getId(), new Date());
+        if (deleted > 0) {
+            log.info(
+                    "Removed "
+                            + deleted
+                            + " superseded webhook(s) for pull request "
+                            + pullRequestUrl);
+        }
+        for (LPVSQueue processing : processingElements.values()) {
+            if (pullRequestUrl.equals(processing.getPullRequestUrl())
+                    && processing.getId() < webhookConfig.getId()) {
+                cancel(processing.getId());
+            }
+        }
+    }
+
+    /**
+     * Registers the current thread as the worker processing the LPVSQueue element.
+     *
+     * @param webhookConfig The LPVSQueue element to be processed.
+     */
+    public void startProcessing(LPVSQueue webhookConfig) {
+        if (webhookConfig.getId() != null) {
+            processingElements.put(webhookConfig.getId(), webhookConfig);
+            workers.put(webhookConfig.getId(), Thread.currentThread());
+        }
+    }
+
+    /**
+     * Unregisters the current thread as the worker of the LPVSQueue element which stays
+     * in processing, e.g. when the element is handed over to the next stage of the pipeline.
+     *
+     * @param webhookConfig The LPVSQueue element in processing.
+     */
+    public void pauseProcessing(LPVSQueue webhookConfig) {
+        if (webhookConfig.getId() != null) {
+            workers.remove(webhookConfig.getId(), Thread.currentThread());
+        }
+        // Clear the interruption left by cancellation, the thread is reused for other elements
+        Thread.interrupted();
+    }
+
+    /**
+     * Unregisters the current thread as the worker processing the LPVSQueue element.
+     *
+     * @param webhookConfig The processed LPVSQueue element.
+     */
+    public void finishProcessing(LPVSQueue webhookConfig) {
+        if (webhookConfig.getId() != null) {
+            workers.remove(webhookConfig.getId());
+            processingElements.remove(webhookConfig.getId());
+            cancelledElements.remove(webhookConfig.getId());
+            suspendedElements.remove(webhookConfig.getId());
+        }
+        // Clear the interruption left by cancellation, the thread is reused for other elements
+        Thread.interrupted();
+    }
+
+    /**
+     * Cancels the processing of the LPVSQueue element on this LPVS instance. The worker thread
+     * is interrupted, which also terminates the running scanner process.
+     *
+     * @param id ID of the LPVSQueue element to be cancelled.
+     */
+    public void cancel(Long id) {
+        processingElements.computeIfPresent(
+                id,
+                (key, webhookConfig) -> {
+                    log.info("Cancel processing of superseded webhook id = " + id);
+                    cancelledElements.add(id);
+                    interruptWorker(id);
+                    return webhookConfig;
+                });
+    }
+
+    /**
+     * Interrupts the thread currently processing the LPVSQueue element, if any.
+     *
+     * @param id ID of the LPVSQueue element.
+     */
+    private void interruptWorker(Long id) {
+        workers.computeIfPresent(
+                id,
+                (key, thread) -> {
+                    thread.interrupt();
+                    return thread;
+                });
+    }
+
+    /**
+     * Checks whether the processing of the LPVSQueue element was cancelled.
+     *
+     * @param webhookConfig The LPVSQueue element to be checked.
+     * @return true if the processing was cancelled, false otherwise.
+     */
+    public boolean isCancelled(LPVSQueue webhookConfig) {
+        return webhookConfig.getId() != null && cancelledElements.contains(webhookConfig.getId());
+    }
+
+    /**
+     * Saves the last completed stage of the processing of the LPVSQueue element, so that
+     * the processing can be resumed from it if it is interrupted.
+     *
+     * @param webhookConfig The LPVSQueue element being processed.
+     * @param checkpoint    The last completed stage of the processing.
+     */
+    public void checkpoint(LPVSQueue webhookConfig, LPVSQueueCheckpoint checkpoint) {
+        webhookConfig.setCheckpoint(checkpoint);
+        if (webhookConfig.getId() != null) {
+            queueRepository.saveCheckpoint(webhookConfig.getId(), getNodeId(), checkpoint);
+        }
+    }
+
+    /**
+     * Starts draining the queue: no new elements are taken for processing from now on.
+     */
+    public void drain() {
+        draining = true;
+        wakeUp();
+    }
+
+    /**
+     * Checks whether the queue is drained.
+     *
+     * @return true if no new elements are taken for processing, false otherwise.
+     */
+    public boolean isDraining() {
+        return draining;
+    }
+
+    /**
+     * Suspends the processing of all LPVSQueue elements on this LPVS instance. The worker
+     * threads are interrupted, and the elements are returned to the queue with their
+     * checkpoints.
+     */
+    public void suspendAll() {
+        for (Long id : processingElements.keySet()) {
+            processingElements.computeIfPresent(
+                    id,
+                    (key, webhookConfig) -> {
+                        log.info("Suspend processing of webhook id = " + id);
+                        suspendedElements.add(id);
+                        interruptWorker(id);
+                        return webhookConfig;
+                    });
+        }
+    }
+
+    /**
+     * Checks whether the processing of the LPVSQueue element was suspended by the shutdown.
+     *
+     * @param webhookConfig The LPVSQueue element to be checked.
+     * @return true if the processing was suspended, false otherwise.
+     */
+    public boolean isSuspended(LPVSQueue webhookConfig) {
+        return webhookConfig.getId() != null && suspendedElements.contains(webhookConfig.getId());
+    }
+
+    /**
+     * Releases all leases held by this LPVS instance, so that the remaining elements can be
+     * taken by other instances or after the restart without waiting for the leases to expire.
+     */
+    public void releaseAll() {
+        leasedElements.clear();
+        int released = queueRepository.releaseLeases(getNodeId());
+        if (released > 0) {
+            log.info("Released " + released + " lease(s) on unfinished webhooks.");
+        }
     }
 
     /**
      * Gets the entire LPVSQueue.
      *
-     * @return The BlockingDeque containing LPVSQueue elements.
+     * @return The list of LPVSQueue elements stored in the repository.
      */
-    public BlockingDeque<LPVSQueue> getQueue() {
-        return QUEUE;
+    public List<LPVSQueue> getQueue() {
+        return queueRepository.findAll();
     }
 
     /**
-     * Checks for any previous LPVSQueue elements and processes them.
+     * Checks for any previous LPVSQueue elements and makes them available for processing.
+     * Leases held by this LPVS instance before restart and all expired leases are released.
      *
      * @throws InterruptedException If interrupted while processing the queue.
      */
     public void checkForQueue() throws InterruptedException {
-        QUEUE.clear();
         log.debug("Checking for previous queue");
-        List<LPVSQueue> webhookConfigList = queueRepository.findAll();
-        for (LPVSQueue webhook : webhookConfigList) {
-            log.info("Add WebHook id = " + webhook.getId() + " to the queue.");
-            QUEUE.putFirst(webhook);
+        leasedElements.clear();
+        int released =
+                queueRepository.releaseLeases(getNodeId())
+                        + queueRepository.releaseExpiredLeases(new Date());
+        if (released > 0) {
+            log.info("Released " + released + " lease(s) on previous webhooks.");
+        }
+        log.info("Webhooks in the queue: " + queueRepository.count());
+    }
+
+    /**
+     * Periodically extends the leases on the elements processed by this LPVS instance
+     * and releases expired leases of other instances.
+     */
+    @Scheduled(
+            fixedDelayString = "${lpvs.queue.lease.renewal:60000}",
+            initialDelayString = "${lpvs.queue.lease.renewal:60000}")
+    public void renewLeases() {
+        Date now = new Date();
+        if (!leasedElements.isEmpty()) {
+            List<Long> leased = new ArrayList<>(leasedElements);
+            queueRepository.renewLeases(leased, getNodeId(), getLeaseExpiry(now));
+            // Newer elements for the same pull requests may have been added on other instances
+            for (Long id : queueRepository.findSupersededIds(leased)) {
+                if (processingElements.containsKey(id)) {
+                    cancel(id);
+                }
+            }
+        }
+        int released = queueRepository.releaseExpiredLeases(now);
+        if (released > 0) {
+            log.info("Released " + released + " expired lease(s) on webhooks.");
+            wakeUp();
+        }
+    }
+
+    /**
+     * Periodically resets the estimated cost of the elements waiting too long, so that large
+     * pull requests are not postponed indefinitely by a stream of smaller ones.
+     */
+    @Scheduled(
+            fixedDelayString = "${lpvs.queue.lease.renewal:60000}",
+            initialDelayString = "${lpvs.queue.lease.renewal:60000}")
+    public void promoteWaitingElements() {
+        if (agingTime <= 0) {
+            return;
+        }
+        int promoted =
+                queueRepository.resetCostOfWaiting(
+                        new Date(System.currentTimeMillis() - agingTime));
+        if (promoted > 0) {
+            log.debug("Promoted " + promoted + " long waiting webhook(s).");
+        }
+    }
+
+    /**
+     * Gets the identifier of this LPVS instance in the shared queue. The identifier stays
+     * the same after the restart, so the leases held before the restart are released
+     * by {@link #checkForQueue()}.
+     *
+     * @return The identifier of this LPVS instance.
+     */
+    public synchronized String getNodeId() {
+        if (StringUtils.isBlank(nodeId)) {
+            String hostName;
+            try {
+                hostName = InetAddress.getLocalHost().getHostName();
+            } catch (UnknownHostException e) {
+                hostName = "lpvs";
+            }
+            nodeId = hostName + ":" + serverPort;
+            log.info("LPVS queue node id: " + nodeId);
         }
+        return nodeId;
+    }
+
+    /**
+     * Calculates the expiry time of the lease taken at the specified time.
+     *
+     * @param now The time when the lease is taken or renewed.
+     * @return The expiry time of the lease.
+     */
+    private Date getLeaseExpiry(Date now) {
+        return new Date(now.getTime() + leaseDuration);
     }
 }
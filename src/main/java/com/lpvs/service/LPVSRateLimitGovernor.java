@@ -0,0 +1,291 @@
+/**
+ * Copyright (c) 2024, Samsung Electronics Co., Ltd. All rights reserved.
+ *
+ * Use of this source code is governed by a MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.lpvs.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.kohsuke.github.GHRateLimit;
+import org.kohsuke.github.GitHubAbuseLimitHandler;
+import org.kohsuke.github.RateLimitChecker;
+import org.kohsuke.github.connector.GitHubConnectorResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Service pacing the processing of webhooks against the GitHub API rate limit.
+ * <p>
+ * The remaining requests of the primary rate limit are taken from the responses of the GitHub
+ * clients, and the secondary rate limit pauses the processing for the time requested by GitHub.
+ * The cost of a webhook is estimated as the average number of requests of the processed ones.
+ * New webhooks are taken only when the remaining requests cover them and the ones in processing,
+ * so the processing waits for the reset of the limit instead of failing. When less than a half
+ * of the limit is left, the webhooks are spread evenly until the reset.
+ * </p>
+ * <p>
+ * The budget is the rate limit of the configured token. With GitHub App authentication each
+ * installation has its own rate limit, which is not reported here, so the processing is paused
+ * only by the secondary rate limit.
+ * </p>
+ */
+@Service
+@Slf4j
+public class LPVSRateLimitGovernor {
+
+    /**
+     * Number of requests kept in reserve for other uses of the GitHub API.
+     */
+    @Value("${github.rate-limit.reserve:100}")
+    private int reserve;
+
+    /**
+     * Estimated number of requests of a webhook before any webhook is processed.
+     */
+    @Value("${github.rate-limit.job-cost:20}")
+    private int defaultJobCost;
+
+    /**
+     * Maximum time in milliseconds to wait before checking the budget again.
+     */
+    private static final long WAIT_CHECK_INTERVAL = 1000;
+
+    /**
+     * Default pause in milliseconds when GitHub does not say how long to wait.
+     */
+    private static final long DEFAULT_PAUSE = 60000;
+
+    /**
+     * Number of requests per hour of the primary rate limit (-1 - unknown).
+     */
+    private int limit = -1;
+
+    /**
+     * Number of remaining requests of the primary rate limit (-1 - unknown).
+     */
+    private int remaining = -1;
+
+    /**
+     * Time in milliseconds when the primary rate limit is reset.
+     */
+    private long resetTime;
+
+    /**
+     * Time in milliseconds until which the processing is paused by the secondary rate limit.
+     */
+    private long pausedUntil;
+
+    /**
+     * Number of requests sent to the GitHub API.
+     */
+    private long requests;
+
+    /**
+     * Number of processed webhooks.
+     */
+    private long jobs;
+
+    /**
+     * Number of webhooks in processing.
+     */
+    private int inFlight;
+
+    /**
+     * Time in milliseconds when the last webhook was taken for processing.
+     */
+    private long lastDispatch;
+
+    /**
+     * Waits until the GitHub API budget allows processing one more webhook.
+     *
+     * @param cancelled Condition to stop waiting.
+     * @return true if the webhook can be processed, false if the waiting was stopped.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public boolean awaitBudget(BooleanSupplier cancelled) throws InterruptedException {
+        long delay = getDispatchDelay(System.currentTimeMillis());
+        if (delay > 0) {
+            log.info("GitHub API budget is low, waiting " + delay / 1000 + " s");
+        }
+        while (delay > 0) {
+            if (cancelled.getAsBoolean()) {
+                return false;
+            }
+            Thread.sleep(Math.min(delay, WAIT_CHECK_INTERVAL));
+            delay = getDispatchDelay(System.currentTimeMillis());
+        }
+        return !cancelled.getAsBoolean();
+    }
+
+    /**
+     * Registers the start of the processing of a webhook.
+     */
+    public synchronized void started() {
+        inFlight++;
+        lastDispatch = System.currentTimeMillis();
+    }
+
+    /**
+     * Registers the end of the processing of a webhook.
+     */
+    public synchronized void finished() {
+        inFlight = Math.max(inFlight - 1, 0);
+        jobs++;
+    }
+
+    /**
+     * Updates the state of the primary rate limit from the GitHub response.
+     *
+     * @param record The rate limit record of the response.
+     */
+    public synchronized void update(GHRateLimit.Record record) {
+        if (record == null || record.getLimit() <= 0) {
+            return;
+        }
+        limit = record.getLimit();
+        remaining = record.getRemaining();
+        resetTime = record.getResetEpochSeconds() * 1000;
+    }
+
+    /**
+     * Pauses the processing of webhooks until the specified time.
+     *
+     * @param until Time in milliseconds until which the processing is paused.
+     */
+    public synchronized void pause(long until) {
+        if (until > pausedUntil) {
+            log.warn("GitHub API secondary rate limit exceeded, pausing the processing");
+            pausedUntil = until;
+        }
+    }
+
+    /**
+     * Gets the checker updating the state of the primary rate limit before each request.
+     * The checker never blocks the request, the processing is paced by {@link #awaitBudget}.
+     *
+     * @return The rate limit checker for the GitHub client.
+     */
+    public RateLimitChecker getRateLimitChecker() {
+        return new RateLimitChecker() {
+            @Override
+            protected boolean checkRateLimit(GHRateLimit.Record rateLimitRecord, long count) {
+                if (count == 0) {
+                    requested();
+                }
+                update(rateLimitRecord);
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Gets the handler pausing the processing when the secondary rate limit is exceeded.
+     * The failed request itself waits and is repeated as by the default handler.
+     *
+     * @return The secondary rate limit handler for the GitHub client.
+     */
+    public GitHubAbuseLimitHandler getAbuseLimitHandler() {
+        return new GitHubAbuseLimitHandler() {
+            @Override
+            public void onError(GitHubConnectorResponse connectorResponse) throws IOException {
+                pause(
+                        getRetryTime(
+                                connectorResponse.header("Retry-After"),
+                                connectorResponse.header("X-RateLimit-Reset"),
+                                System.currentTimeMillis()));
+                GitHubAbuseLimitHandler.WAIT.onError(connectorResponse);
+            }
+        };
+    }
+
+    /**
+     * Gets the state of the rate limit and of the pacing.
+     *
+     * @return Map of the state names to their values.
+     */
+    public synchronized Map<String, Long> getStatus() {
+        long now = System.currentTimeMillis();
+        Map<String, Long> status = new LinkedHashMap<>();
+        status.put("limit", (long) limit);
+        status.put("remaining", (long) remaining);
+        status.put("reset", resetTime / 1000);
+        status.put("jobCost", getJobCost());
+        status.put("inFlight", (long) inFlight);
+        status.put("pausedUntil", pausedUntil > now ? pausedUntil / 1000 : 0);
+        status.put("dispatchDelay", getDispatchDelay(now));
+        return status;
+    }
+
+    /**
+     * Registers a request sent to the GitHub API.
+     */
+    synchronized void requested() {
+        requests++;
+    }
+
+    /**
+     * Gets the time to wait before taking the next webhook for processing.
+     *
+     * @param now The current time in milliseconds.
+     * @return The time to wait in milliseconds, 0 if the webhook can be taken now.
+     */
+    synchronized long getDispatchDelay(long now) {
+        if (pausedUntil > now) {
+            return pausedUntil - now;
+        }
+        if (remaining < 0 || resetTime <= now) {
+            return 0;
+        }
+        long cost = getJobCost();
+        long available = remaining - reserve - inFlight * cost;
+        if (available < cost) {
+            return resetTime - now;
+        }
+        if (remaining * 2L >= limit) {
+            return 0;
+        }
+        long interval = (resetTime - now) / (available / cost);
+        return Math.max(lastDispatch + interval - now, 0);
+    }
+
+    /**
+     * Gets the estimated number of requests of a webhook.
+     *
+     * @return The average number of requests of the processed webhooks, or the default
+     * estimation if none were processed yet.
+     */
+    private long getJobCost() {
+        if (jobs == 0) {
+            return Math.max(defaultJobCost, 1);
+        }
+        return Math.max((requests + jobs - 1) / jobs, 1);
+    }
+
+    /**
+     * Gets the time when the request can be repeated after the secondary rate limit is exceeded.
+     *
+     * @param retryAfter The value of the Retry-After header in seconds.
+     * @param reset      The value of the X-RateLimit-Reset header in epoch seconds.
+     * @param now        The current time in milliseconds.
+     * @return The time in milliseconds when the request can be repeated.
+     */
+    static long getRetryTime(String retryAfter, String reset, long now) {
+        try {
+            if (retryAfter != null) {
+                return now + Long.parseLong(retryAfter.trim()) * 1000;
+            }
+            if (reset != null) {
+                return Math.max(Long.parseLong(reset.trim()) * 1000, now);
+            }
+        } catch (NumberFormatException e) {
+            log.warn("Wrong rate limit header: " + e.getMessage());
+        }
+        return now + DEFAULT_PAUSE;
+    }
+}
@@ -0,0 +1,213 @@
+/**
+ * Copyright (c) 2024, Samsung Electronics Co., Ltd. All rights reserved.
+ *
+ * Use of this source code is governed by a MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.lpvs.service;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.kohsuke.github.GHRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Service caching the metadata of GitHub repositories between the processed webhooks.
+ * <p>
+ * The default branch, the visibility and the license of a repository are kept for
+ * the configured time, so the jobs of the same repository do not request its license again.
+ * The repository object itself is not kept, as it is bound to the client and the credential
+ * of the job which loaded it; every job gets the repository with its own client. The least
+ * recently used repositories are evicted when the cache is full. The metadata of a repository
+ * is invalidated earlier when GitHub reports a change of the repository or a push of its
+ * license files.
+ * </p>
+ */
+@Service
+@Slf4j
+public class LPVSRepositoryMetadataCache {
+
+    /**
+     * Time in milliseconds for which the metadata of a repository is kept.
+     */
+    @Value("${github.repository.cache.ttl:3600000}")
+    private long ttl;
+
+    /**
+     * Maximum number of cached repositories (0 - disabled).
+     */
+    @Value("${github.repository.cache.size:1000}")
+    private int maxSize;
+
+    /**
+     * Cached metadata of the repositories in the order of their use.
+     */
+    private final Map<String, Metadata> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Metadata of a GitHub repository.
+     */
+    @Getter
+    public static class Metadata {
+
+        /**
+         * Default branch of the repository, or null if the repository is not loaded.
+         */
+        private final String defaultBranch;
+
+        /**
+         * Indicates whether the repository is private.
+         */
+        private final boolean privateRepository;
+
+        /**
+         * Indicates whether the default branch and the visibility of the repository are loaded.
+         */
+        private final boolean repositoryLoaded;
+
+        /**
+         * License SPDX ID and name of the repository, or null if the repository has no license.
+         */
+        private final String[] license;
+
+        /**
+         * Indicates whether the license of the repository is loaded.
+         */
+        private final boolean licenseLoaded;
+
+        /**
+         * Time in milliseconds when the metadata was loaded.
+         */
+        private final long loadTime;
+
+        /**
+         * Constructs the metadata of a GitHub repository.
+         *
+         * @param defaultBranch     Default branch of the repository.
+         * @param privateRepository Indicates whether the repository is private.
+         * @param repositoryLoaded  Indicates whether the default branch and the visibility
+         *                          of the repository are loaded.
+         * @param license           License SPDX ID and name of the repository.
+         * @param licenseLoaded     Indicates whether the license of the repository is loaded.
+         * @param loadTime          Time in milliseconds when the metadata was loaded.
+         */
+        Metadata(
+                String defaultBranch,
+                boolean privateRepository,
+                boolean repositoryLoaded,
+                String[] license,
+                boolean licenseLoaded,
+                long loadTime) {
+            this.defaultBranch = defaultBranch;
+            this.privateRepository = privateRepository;
+            this.repositoryLoaded = repositoryLoaded;
+            this.license = license;
+            this.licenseLoaded = licenseLoaded;
+            this.loadTime = loadTime;
+        }
+    }
+
+    /**
+     * Gets the cached metadata of the repository.
+     *
+     * @param repositoryName The repository in the format {@code org/repo}.
+     * @return The metadata of the repository, or null if it is not cached or expired.
+     */
+    public synchronized Metadata get(String repositoryName) {
+        if (maxSize <= 0 || repositoryName == null) {
+            return null;
+        }
+        String key = repositoryName.toLowerCase(Locale.ROOT);
+        Metadata metadata = entries.get(key);
+        if (metadata != null && System.currentTimeMillis() - metadata.getLoadTime() >= ttl) {
+            entries.remove(key);
+            return null;
+        }
+        return metadata;
+    }
+
+    /**
+     * Caches the default branch and the visibility of the repository.
+     *
+     * @param repositoryName The repository in the format {@code org/repo}.
+     * @param repository     The GitHub repository.
+     */
+    public synchronized void putRepository(String repositoryName, GHRepository repository) {
+        Metadata metadata = get(repositoryName);
+        if (metadata != null && metadata.isRepositoryLoaded()) {
+            return;
+        }
+        put(
+                repositoryName,
+                new Metadata(
+                        repository.getDefaultBranch(),
+                        repository.isPrivate(),
+                        true,
+                        metadata == null ? null : metadata.getLicense(),
+                        metadata != null && metadata.isLicenseLoaded(),
+                        metadata == null ? System.currentTimeMillis() : metadata.getLoadTime()));
+    }
+
+    /**
+     * Caches the license of the repository.
+     *
+     * @param repositoryName The repository in the format {@code org/repo}.
+     * @param license        License SPDX ID and name of the repository, or null if none.
+     */
+    public synchronized void putLicense(String repositoryName, String[] license) {
+        Metadata metadata = get(repositoryName);
+        put(
+                repositoryName,
+                new Metadata(
+                        metadata == null ? null : metadata.getDefaultBranch(),
+                        metadata != null && metadata.isPrivateRepository(),
+                        metadata != null && metadata.isRepositoryLoaded(),
+                        license,
+                        true,
+                        metadata == null ? System.currentTimeMillis() : metadata.getLoadTime()));
+    }
+
+    /**
+     * Removes the metadata of the repository from the cache.
+     *
+     * @param repositoryName The repository in the format {@code org/repo}.
+     */
+    public synchronized void invalidate(String repositoryName) {
+        if (repositoryName != null
+                && entries.remove(repositoryName.toLowerCase(Locale.ROOT)) != null) {
+            log.debug("Metadata of repository " + repositoryName + " is invalidated");
+        }
+    }
+
+    /**
+     * Gets the number of cached repositories.
+     *
+     * @return The number of cached repositories.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Puts the metadata of the repository to the cache, evicting the least recently used
+     * repository if the cache is full.
+     *
+     * @param repositoryName The repository in the format {@code org/repo}.
+     * @param metadata       The metadata of the repository.
+     */
+    private void put(String repositoryName, Metadata metadata) {
+        if (maxSize <= 0 || repositoryName == null) {
+            return;
+        }
+        entries.put(repositoryName.toLowerCase(Locale.ROOT), metadata);
+        while (entries.size() > maxSize) {
+            String eldest = entries.keySet().iterator().next();
+            entries.remove(eldest);
+        }
+    }
+}
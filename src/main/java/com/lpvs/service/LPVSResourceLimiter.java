@@ -0,0 +1,141 @@
+/**
+ * Copyright (c) 2024, Samsung Electronics Co., Ltd. All rights reserved.
+ *
+ * Use of this source code is governed by a MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.lpvs.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Service bounding the number of simultaneous uses of scarce resources by the webhook processing.
+ * <p>
+ * The number of webhooks in processing can be much larger than the number of scanner processes,
+ * database connections or GitHub requests which can be served at the same time, especially when
+ * webhooks are processed on virtual threads. Each resource is guarded by its own semaphore,
+ * so the processing waits for the resource instead of overloading it.
+ * </p>
+ */
+@Service
+public class LPVSResourceLimiter {
+
+    /**
+     * Represents the scarce resources used by the webhook processing.
+     */
+    public enum Resource {
+        /**
+         * Represents the license scanner processes.
+         */
+        SCANNER,
+
+        /**
+         * Represents the database connections.
+         */
+        DATABASE,
+
+        /**
+         * Represents the requests to the GitHub API.
+         */
+        GITHUB
+    }
+
+    /**
+     * Represents an action using a limited resource.
+     *
+     * @param <T> The type of the result of the action.
+     */
+    @FunctionalInterface
+    public interface LimitedAction<T> {
+        /**
+         * Performs the action.
+         *
+         * @return The result of the action.
+         * @throws Exception If an error occurs during the action.
+         */
+        T call() throws Exception;
+    }
+
+    /**
+     * Semaphores of the limited resources, unlimited resources are not present.
+     */
+    private final Map<Resource, Semaphore> limits = new EnumMap<>(Resource.class);
+
+    /**
+     * Constructor for LPVSResourceLimiter.
+     *
+     * @param scannerLimit  Maximum number of simultaneous scanner processes (0 - unlimited).
+     * @param databaseLimit Maximum number of simultaneous database operations (0 - unlimited).
+     * @param gitHubLimit   Maximum number of simultaneous GitHub requests (0 - unlimited).
+     */
+    @Autowired
+    public LPVSResourceLimiter(
+            @Value("${lpvs.limits.scanner:${lpvs.cores:8}}") int scannerLimit,
+            @Value("${lpvs.limits.database:${spring.datasource.hikari.maximum-pool-size:10}}")
+                    int databaseLimit,
+            @Value("${lpvs.limits.github:16}") int gitHubLimit) {
+        setLimit(Resource.SCANNER, scannerLimit);
+        setLimit(Resource.DATABASE, databaseLimit);
+        setLimit(Resource.GITHUB, gitHubLimit);
+    }
+
+    /**
+     * Creates a resource limiter which does not limit any resources.
+     *
+     * @return The unlimited resource limiter.
+     */
+    public static LPVSResourceLimiter unlimited() {
+        return new LPVSResourceLimiter(0, 0, 0);
+    }
+
+    /**
+     * Sets the maximum number of simultaneous uses of the resource.
+     *
+     * @param resource The resource to be limited.
+     * @param limit    The maximum number of simultaneous uses (0 - unlimited).
+     */
+    private void setLimit(Resource resource, int limit) {
+        if (limit > 0) {
+            limits.put(resource, new Semaphore(limit, true));
+        }
+    }
+
+    /**
+     * Performs the action when the resource becomes available.
+     *
+     * @param resource The resource used by the action.
+     * @param action   The action to be performed.
+     * @param <T>      The type of the result of the action.
+     * @return The result of the action.
+     * @throws Exception If an error occurs during the action or the waiting is interrupted.
+     */
+    public <T> T call(Resource resource, LimitedAction<T> action) throws Exception {
+        Semaphore semaphore = limits.get(resource);
+        if (semaphore == null) {
+            return action.call();
+        }
+        semaphore.acquire();
+        try {
+            return action.call();
+        } finally {
+            semaphore.release();
+        }
+    }
+
+    /**
+     * Gets the number of uses of the resource available now.
+     *
+     * @param resource The resource.
+     * @return The number of available uses, or -1 if the resource is not limited.
+     */
+    public int getAvailable(Resource resource) {
+        Semaphore semaphore = limits.get(resource);
+        return semaphore == null ? -1 : semaphore.availablePermits();
+    }
+}
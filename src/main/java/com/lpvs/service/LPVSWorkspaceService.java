@@ -0,0 +1,156 @@
+/**
+ * Copyright (c) 2024, Samsung Electronics Co., Ltd. All rights reserved.
+ *
+ * Use of this source code is governed by a MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.lpvs.service;
+
+import com.lpvs.entity.LPVSQueue;
+import com.lpvs.util.LPVSFileUtil;
+import com.lpvs.util.LPVSLineMap;
+import io.micrometer.common.util.StringUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Service placing the workspaces of the processed pull requests in memory.
+ * <p>
+ * The files of the pull request are written to a directory backed by memory, e.g. tmpfs,
+ * which the scanner reads as any other directory, and deleted as soon as they are scanned.
+ * The size of the workspace is estimated from the number of changed lines of the pull request.
+ * The workspace of the pull request which is too large, whose size is not known or which
+ * does not fit into the remaining memory is placed on disk. The workspaces are placed in memory
+ * only if the files are sparse, the size of the files padded up to the lines of their hunks
+ * does not depend on the number of changed lines.
+ * </p>
+ */
+@Service
+@Slf4j
+public class LPVSWorkspaceService {
+
+    /**
+     * Estimated size in bytes of a changed line of the pull request.
+     */
+    static final long LINE_SIZE = 80;
+
+    /**
+     * The directory backed by memory for the workspaces, empty if the workspaces are on disk.
+     */
+    @Value("${lpvs.workspace.memory.path:}")
+    private String memoryPath;
+
+    /**
+     * Indicates whether only the lines of the hunks are saved to the workspaces.
+     */
+    @Value("${lpvs.workspace.sparse:false}")
+    private boolean sparse;
+
+    /**
+     * Maximum estimated size in bytes of a workspace placed in memory.
+     */
+    @Value("${lpvs.workspace.memory.max-size:67108864}")
+    private long maxSize;
+
+    /**
+     * Maximum estimated size in bytes of all workspaces placed in memory at once.
+     */
+    @Value("${lpvs.workspace.memory.total-size:536870912}")
+    private long totalSize;
+
+    /**
+     * Estimated sizes of the workspaces in memory by the IDs of the LPVSQueue elements.
+     */
+    private final Map<Long, Long> allocated = new HashMap<>();
+
+    /**
+     * Checks whether the workspaces can be placed in memory.
+     *
+     * @return true if the directory backed by memory is configured and the files are sparse,
+     *         false otherwise.
+     */
+    public boolean isEnabled() {
+        return sparse && StringUtils.isNotBlank(memoryPath);
+    }
+
+    /**
+     * Places the workspace of the LPVSQueue element in memory if it fits, otherwise on disk.
+     * The location is set to the element, so it is used by
+     * {@link LPVSFileUtil#getLocalDirectoryPath(LPVSQueue)}.
+     *
+     * @param webhookConfig The LPVSQueue element being processed.
+     * @return true if the workspace is placed in memory, false if it is on disk.
+     */
+    public synchronized boolean allocate(LPVSQueue webhookConfig) {
+        webhookConfig.setWorkspaceRoot(null);
+        allocated.remove(webhookConfig.getId());
+        if (!isEnabled() || webhookConfig.getId() == null || webhookConfig.getCost() == null) {
+            return false;
+        }
+        long size = Math.max(webhookConfig.getCost(), 1) * LINE_SIZE;
+        long used = getAllocatedSize();
+        if (size > maxSize || used + size > totalSize) {
+            log.debug(
+                    "Webhook ID: "
+                            + webhookConfig.getId()
+                            + " - workspace of "
+                            + size
+                            + " bytes is placed on disk, "
+                            + used
+                            + " bytes are in memory");
+            return false;
+        }
+        try {
+            Path root = Files.createDirectories(Paths.get(memoryPath));
+            if (Files.getFileStore(root).getUsableSpace() < size) {
+                log.debug(
+                        "Webhook ID: "
+                                + webhookConfig.getId()
+                                + " - not enough memory for workspace, it is placed on disk");
+                return false;
+            }
+        } catch (IOException e) {
+            log.warn("Can't use " + memoryPath + " for workspaces: " + e.getMessage());
+            return false;
+        }
+        allocated.put(webhookConfig.getId(), size);
+        webhookConfig.setWorkspaceRoot(memoryPath);
+        return true;
+    }
+
+    /**
+     * Deletes the workspace of the LPVSQueue element if it is placed in memory, freeing
+     * the memory for the next workspaces. The workspace on disk is kept.
+     *
+     * @param webhookConfig The LPVSQueue element being processed.
+     */
+    public void release(LPVSQueue webhookConfig) {
+        if (webhookConfig.getWorkspaceRoot() == null) {
+            return;
+        }
+        String directoryPath = LPVSFileUtil.getLocalDirectoryPath(webhookConfig);
+        LPVSFileUtil.deleteIfExists(directoryPath);
+        LPVSLineMap.delete(directoryPath);
+        webhookConfig.setWorkspaceRoot(null);
+        synchronized (this) {
+            allocated.remove(webhookConfig.getId());
+        }
+    }
+
+    /**
+     * Gets the estimated size in bytes of all workspaces placed in memory.
+     *
+     * @return The estimated size of the workspaces in memory.
+     */
+    public synchronized long getAllocatedSize() {
+        return allocated.values().stream().mapToLong(Long::longValue).sum();
+    }
+}
@@ -7,6 +7,7 @@
 package com.lpvs.service.scan;
 
 import java.io.File;
+import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
@@ -14,10 +15,12 @@ import java.util.List;
 
 import com.lpvs.entity.report.LPVSReportBuilder;
 import com.lpvs.entity.LPVSConflict;
+import com.lpvs.entity.enums.LPVSQueueCheckpoint;
 import com.lpvs.service.LPVSGitHubConnectionService;
 import com.lpvs.service.LPVSGitHubService;
 import com.lpvs.service.LPVSLicenseService;
 import com.lpvs.util.LPVSFileUtil;
+import com.lpvs.util.LPVSLineMap;
 import io.micrometer.common.util.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -80,6 +83,26 @@ public class LPVSDetectService {
     @Value("${local.path:}")
     private String localPath;
 
+    /**
+     * Mode of the single scan of local files: {@code copy} to scan a copy of the files,
+     * {@code link} to scan a snapshot of hard links to the files, or {@code in-place} to scan
+     * the local folder itself.
+     */
+    @Value("${local.scan.mode:copy}")
+    private String localScanMode;
+
+    /**
+     * Comma-separated glob patterns of the local files to be scanned (optional).
+     */
+    @Value("${local.scan.include:}")
+    private String localScanInclude;
+
+    /**
+     * Comma-separated glob patterns of the local files and folders to be skipped (optional).
+     */
+    @Value("${local.scan.exclude:}")
+    private String localScanExclude;
+
     /**
      * Optional parameter to save html report to specified location.
      */
@@ -174,14 +197,10 @@ public class LPVSDetectService {
                 if (localFile.exists()) {
                     // 1. Generate webhook config
                     webhookConfig = getInternalQueueByLocalPath();
-                    // 2. Copy files
-                    LPVSFileUtil.copyFiles(
-                            localPath, LPVSFileUtil.getLocalDirectoryPath(webhookConfig));
+                    // 2. Copy, link or select files in place
+                    String scanPath = prepareLocalFiles(localFile, webhookConfig);
                     // 3. Trigger scan
-                    scanResult =
-                            this.runScan(
-                                    webhookConfig,
-                                    LPVSFileUtil.getLocalDirectoryPath(webhookConfig));
+                    scanResult = this.runScan(webhookConfig, scanPath);
 
                     detectedConflicts = licenseService.findConflicts(webhookConfig, scanResult);
                     generateReport = true;
@@ -244,6 +263,39 @@ public class LPVSDetectService {
         return false;
     }
 
+    /**
+     * Prepares the local file or folder for the scan according to the scan mode. The folder
+     * is scanned in place only if no include or exclude patterns are set, since the scanner
+     * reads the whole folder; otherwise a snapshot of hard links to the selected files is
+     * scanned instead.
+     *
+     * @param localFile     The local file or folder to be scanned.
+     * @param webhookConfig LPVSQueue configuration for the scan.
+     * @return The path to be scanned.
+     * @throws IOException if the files can't be copied or linked.
+     */
+    private String prepareLocalFiles(File localFile, LPVSQueue webhookConfig)
+            throws IOException {
+        boolean inPlace = "in-place".equalsIgnoreCase(localScanMode);
+        boolean filtered =
+                !StringUtils.isBlank(localScanInclude) || !StringUtils.isBlank(localScanExclude);
+        if (inPlace && localFile.isDirectory() && !filtered) {
+            log.info("Scanning local files in place: " + localFile.getAbsolutePath());
+            return localFile.getAbsolutePath();
+        }
+        if (inPlace) {
+            log.info("Local files are filtered or not a folder, scanning a snapshot of links");
+        }
+        String directoryPath = LPVSFileUtil.getLocalDirectoryPath(webhookConfig);
+        LPVSFileUtil.snapshotFiles(
+                localFile.getAbsolutePath(),
+                directoryPath,
+                localScanInclude,
+                localScanExclude,
+                inPlace || "link".equalsIgnoreCase(localScanMode));
+        return directoryPath;
+    }
+
     /**
      * Creates a new LPVSQueue object with default values for a local scan.
      *
@@ -262,7 +314,9 @@ public class LPVSDetectService {
     }
 
     /**
-     * Runs a license scan based on the selected scanner type.
+     * Runs a license scan based on the selected scanner type. If the scan of the same
+     * LPVSQueue element was completed before the processing was interrupted, its results
+     * are reused.
      *
      * @param webhookConfig LPVSQueue configuration for the scan.
      * @param path          Local directory path for the scan.
@@ -271,8 +325,16 @@ public class LPVSDetectService {
      */
     public List<LPVSFile> runScan(LPVSQueue webhookConfig, String path) throws Exception {
         try {
-            scanService.runScan(webhookConfig, path);
+            if (webhookConfig.getCheckpoint() == LPVSQueueCheckpoint.SCANNED
+                    && new File(LPVSFileUtil.getScanResultsJsonFilePath(webhookConfig))
+                            .isFile()) {
+                log.info("Reusing scan results of webhook ID: " + webhookConfig.getId());
+            } else {
+                scanService.runScan(webhookConfig, path);
+            }
             List<LPVSFile> files = scanService.checkLicenses(webhookConfig);
+            // the files saved as sparse have their lines mapped to the original files
+            LPVSLineMap lineMap = path == null ? null : LPVSLineMap.load(path);
             for (LPVSFile file : files) {
                 if (file.getFilePath().startsWith(path)) {
                     file.setAbsoluteFilePath(file.getFilePath());
@@ -283,6 +345,10 @@ public class LPVSDetectService {
                     file.setAbsoluteFilePath(path + File.separator + file.getFilePath());
                 }
                 file.setMatchedLines(file.convertBytesToLinesNumbers());
+                if (lineMap != null) {
+                    file.setMatchedLines(
+                            lineMap.toOriginalLines(file.getFilePath(), file.getMatchedLines()));
+                }
             }
             return files;
         } catch (IllegalArgumentException | NullPointerException ex) {
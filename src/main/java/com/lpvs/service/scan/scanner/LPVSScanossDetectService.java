@@ -131,6 +131,8 @@ public class LPVSScanossDetectService implements LPVSScanService {
             throw ex;
         } finally {
             if (process != null) {
+                // the scan can be interrupted when cancelled, so terminate child processes too
+                process.descendants().forEach(ProcessHandle::destroy);
                 process.destroy();
             }
         }
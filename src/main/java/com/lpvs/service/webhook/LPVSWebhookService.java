@@ -7,6 +7,9 @@
 package com.lpvs.service.webhook;
 
 import com.lpvs.entity.LPVSQueue;
+import com.lpvs.service.LPVSPipeline;
+
+import java.util.concurrent.CompletableFuture;
 
 /**
  * The LPVSWebhookService interface defines the contract for processing LPVSQueue elements and handling webhook events.
@@ -19,4 +22,17 @@ public interface LPVSWebhookService {
      * @param webhookConfig The LPVSQueue element to be processed.
      */
     void processWebHook(LPVSQueue webhookConfig);
+
+    /**
+     * Processes the LPVSQueue element in the stages of the pipeline. By default, the whole
+     * processing runs in the first stage.
+     *
+     * @param webhookConfig The LPVSQueue element to be processed.
+     * @param pipeline      The pipeline running the stages of the processing.
+     * @return The future completed when the processing is finished.
+     */
+    default CompletableFuture<Void> processWebHook(
+            LPVSQueue webhookConfig, LPVSPipeline pipeline) {
+        return pipeline.run(LPVSPipeline.Stage.FETCH, () -> processWebHook(webhookConfig));
+    }
 }
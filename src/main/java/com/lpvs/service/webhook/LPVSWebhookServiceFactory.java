@@ -14,6 +14,7 @@ import com.lpvs.service.LPVSQueueService;
 import com.lpvs.service.scan.LPVSDetectService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
 import org.springframework.stereotype.Service;
 
 import java.lang.reflect.Constructor;
@@ -60,6 +61,12 @@ public class LPVSWebhookServiceFactory {
     @Value("${lpvs.attempts:4}")
     private int maxAttempts;
 
+    /**
+     * Bean factory injecting the optional dependencies of the created service.
+     */
+    @Autowired(required = false)
+    private AutowireCapableBeanFactory beanFactory;
+
     /**
      * Creates a scan service based on the specified scanner type and configuration.
      *
@@ -86,15 +93,21 @@ public class LPVSWebhookServiceFactory {
                             LPVSQueueRepository.class,
                             LPVSPullRequestRepository.class,
                             int.class);
-            return (LPVSWebhookService)
-                    constructor.newInstance(
-                            detectService,
-                            licenseService,
-                            gitHubService,
-                            queueService,
-                            queueRepository,
-                            lpvsPullRequestRepository,
-                            maxAttempts);
+            LPVSWebhookService webhookService =
+                    (LPVSWebhookService)
+                            constructor.newInstance(
+                                    detectService,
+                                    licenseService,
+                                    gitHubService,
+                                    queueService,
+                                    queueRepository,
+                                    lpvsPullRequestRepository,
+                                    maxAttempts);
+            if (beanFactory != null) {
+                // inject the optional dependencies set by the @Autowired setters
+                beanFactory.autowireBean(webhookService);
+            }
+            return webhookService;
         } catch (Exception e) {
             throw new IllegalArgumentException("Error creating webhook service", e);
         }
@@ -10,24 +10,49 @@ import com.lpvs.entity.LPVSFile;
 import com.lpvs.entity.LPVSLicense;
 import com.lpvs.entity.LPVSPullRequest;
 import com.lpvs.entity.LPVSQueue;
+import com.lpvs.entity.enums.LPVSFailureType;
 import com.lpvs.entity.enums.LPVSPullRequestStatus;
+import com.lpvs.entity.enums.LPVSQueueCheckpoint;
+import com.lpvs.exception.LPVSPullRequestNotFoundException;
+import com.lpvs.exception.LPVSScannerException;
 import com.lpvs.repository.LPVSPullRequestRepository;
 import com.lpvs.repository.LPVSQueueRepository;
 import com.lpvs.entity.LPVSConflict;
 import com.lpvs.service.LPVSGitHubService;
+import com.lpvs.service.LPVSIncrementalScanService;
 import com.lpvs.service.LPVSLicenseService;
+import com.lpvs.service.LPVSOutboxService;
+import com.lpvs.service.LPVSPipeline;
+import com.lpvs.service.LPVSPipeline.Stage;
 import com.lpvs.service.LPVSQueueService;
+import com.lpvs.service.LPVSResourceLimiter;
+import com.lpvs.service.LPVSResourceLimiter.LimitedAction;
+import com.lpvs.service.LPVSResourceLimiter.Resource;
+import com.lpvs.service.LPVSWorkspaceService;
 import com.lpvs.service.scan.LPVSDetectService;
+import com.lpvs.util.LPVSFileUtil;
 import com.lpvs.util.LPVSPayloadUtil;
 import lombok.extern.slf4j.Slf4j;
+import org.kohsuke.github.GHRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
 
 /**
  * The LPVSWebhookServiceImpl class provides an implementation of the LPVSWebhookService interface.
@@ -71,6 +96,31 @@ public class LPVSWebhookServiceImpl implements LPVSWebhookService {
      */
     private final int maxAttempts;
 
+    /**
+     * Limiter of the scarce resources used by the processing.
+     */
+    private LPVSResourceLimiter resourceLimiter = LPVSResourceLimiter.unlimited();
+
+    /**
+     * Executor of the GitHub API calls made concurrently with the other calls of the job.
+     */
+    private Executor gitHubExecutor = Runnable::run;
+
+    /**
+     * Service supporting the incremental rescan of updated pull requests, if available.
+     */
+    private LPVSIncrementalScanService incrementalScanService;
+
+    /**
+     * Service publishing the scan results through the outbox, if available.
+     */
+    private LPVSOutboxService outboxService;
+
+    /**
+     * Service placing the workspaces of the pull requests in memory, if available.
+     */
+    private LPVSWorkspaceService workspaceService;
+
     /**
      * Constructor for LPVSWebhookServiceImpl.
      *
@@ -100,13 +150,149 @@ public class LPVSWebhookServiceImpl implements LPVSWebhookService {
     }
 
     /**
-     * Asynchronously processes the LPVSQueue element, handling GitHub webhook events.
+     * Sets the limiter of the scarce resources used by the processing.
+     *
+     * @param resourceLimiter The resource limiter.
+     */
+    @Autowired(required = false)
+    public void setResourceLimiter(LPVSResourceLimiter resourceLimiter) {
+        this.resourceLimiter = resourceLimiter;
+    }
+
+    /**
+     * Sets the executor of the GitHub API calls made concurrently with the other calls
+     * of the job. Without it, the calls are made one after another.
+     *
+     * @param gitHubExecutor The executor of the concurrent GitHub API calls.
+     */
+    @Autowired(required = false)
+    public void setGitHubExecutor(@Qualifier("gitHubTaskExecutor") Executor gitHubExecutor) {
+        this.gitHubExecutor = gitHubExecutor;
+    }
+
+    /**
+     * Sets the service supporting the incremental rescan of updated pull requests. Without it,
+     * all files of the pull request are scanned on every update.
+     *
+     * @param incrementalScanService The incremental scan service.
+     */
+    @Autowired(required = false)
+    public void setIncrementalScanService(LPVSIncrementalScanService incrementalScanService) {
+        this.incrementalScanService = incrementalScanService;
+    }
+
+    /**
+     * Sets the service publishing the scan results through the outbox. Without it, the results
+     * are posted on GitHub by the processing itself.
+     *
+     * @param outboxService The outbox service.
+     */
+    @Autowired(required = false)
+    public void setOutboxService(LPVSOutboxService outboxService) {
+        this.outboxService = outboxService;
+    }
+
+    /**
+     * Sets the service placing the workspaces of the pull requests in memory. Without it,
+     * the files of the pull requests are saved on disk.
+     *
+     * @param workspaceService The workspace service.
+     */
+    @Autowired(required = false)
+    public void setWorkspaceService(LPVSWorkspaceService workspaceService) {
+        this.workspaceService = workspaceService;
+    }
+
+    /**
+     * Processes the LPVSQueue element, handling GitHub webhook events.
+     * It is called on the worker thread provided by {@link com.lpvs.service.LPVSQueueProcessorService}.
      *
      * @param webhookConfig The LPVSQueue element to be processed.
      */
     @Override
-    @Async("threadPoolTaskExecutor")
     public void processWebHook(LPVSQueue webhookConfig) {
+        Job job = new Job(webhookConfig);
+        try {
+            start(job);
+            fetch(job);
+            scan(job);
+            resolve(job);
+            publish(job);
+        } catch (Exception | Error e) {
+            fail(job, e);
+        }
+    }
+
+    /**
+     * Processes the LPVSQueue element in the stages of the pipeline. Every stage runs on
+     * the workers of the stage and hands the element over to the next one.
+     *
+     * @param webhookConfig The LPVSQueue element to be processed.
+     * @param pipeline      The pipeline running the stages.
+     * @return The future completed when the processing is finished.
+     */
+    @Override
+    public CompletableFuture<Void> processWebHook(LPVSQueue webhookConfig, LPVSPipeline pipeline) {
+        Job job = new Job(webhookConfig);
+        return pipeline.run(
+                        Stage.FETCH,
+                        stage(
+                                job,
+                                () -> {
+                                    start(job);
+                                    fetch(job);
+                                }))
+                .thenCompose(ignored -> pipeline.run(Stage.SCAN, stage(job, () -> scan(job))))
+                .thenCompose(
+                        ignored -> pipeline.run(Stage.RESOLVE, stage(job, () -> resolve(job))))
+                .thenCompose(
+                        ignored -> pipeline.run(Stage.PUBLISH, stage(job, () -> publish(job))))
+                .handle(
+                        (ignored, e) -> {
+                            if (e != null) {
+                                fail(job, e instanceof CompletionException ? e.getCause() : e);
+                            }
+                            return null;
+                        });
+    }
+
+    /**
+     * Wraps the stage of the processing, so that the worker of the stage can be interrupted
+     * when the LPVSQueue element is cancelled or suspended. Checked exceptions are passed
+     * to the next stages wrapped in {@link CompletionException}.
+     *
+     * @param job    The processed LPVSQueue element.
+     * @param action The stage of the processing.
+     * @return The action to be run by the worker of the stage.
+     */
+    private Runnable stage(Job job, Step action) {
+        return () -> {
+            queueService.startProcessing(job.webhookConfig);
+            try {
+                if (queueService.isSuspended(job.webhookConfig)) {
+                    throw new CancellationException(
+                            "Processing of webhook ID " + job.webhookConfig.getId() + " suspended");
+                }
+                checkCancelled(job.webhookConfig);
+                action.run();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            } finally {
+                queueService.pauseProcessing(job.webhookConfig);
+            }
+        };
+    }
+
+    /**
+     * Finds or creates the pull request of the LPVSQueue element and marks it as scanning.
+     *
+     * @param job The processed LPVSQueue element.
+     * @throws Exception If an error occurs while waiting for or calling the database.
+     */
+    private void start(Job job) throws Exception {
+        LPVSQueue webhookConfig = job.webhookConfig;
         Long id = webhookConfig.getId();
         log.info(
                 "Processing webhook ID: "
@@ -115,7 +301,9 @@ public class LPVSWebhookServiceImpl implements LPVSWebhookService {
                         + (webhookConfig.getAttempts() + 1)
                         + " for PR: "
                         + webhookConfig.getPullRequestUrl());
-        LPVSPullRequest pullRequest = lpvsPullRequestRepository.findByQueueId(id);
+        LPVSPullRequest pullRequest =
+                resourceLimiter.call(
+                        Resource.DATABASE, () -> lpvsPullRequestRepository.findByQueueId(id));
 
         if (pullRequest == null) {
             pullRequest = new LPVSPullRequest();
@@ -131,77 +319,521 @@ public class LPVSWebhookServiceImpl implements LPVSWebhookService {
             pullRequest.setPullRequestBase(webhookConfig.getPullRequestBase());
             pullRequest.setSender(LPVSPayloadUtil.extractId(webhookConfig.getSender()));
         }
+        job.pullRequest = pullRequest;
+
+        pullRequest.setDate(webhookConfig.getDate());
+        pullRequest.setStatus(LPVSPullRequestStatus.SCANNING.toString());
+        job.pullRequest = savePullRequest(pullRequest);
+    }
+
+    /**
+     * Saves the pull request when a database connection becomes available.
+     *
+     * @param pullRequest The pull request to be saved.
+     * @return The saved pull request.
+     * @throws Exception If an error occurs while waiting for or calling the database.
+     */
+    private LPVSPullRequest savePullRequest(LPVSPullRequest pullRequest) throws Exception {
+        return resourceLimiter.call(
+                Resource.DATABASE, () -> lpvsPullRequestRepository.saveAndFlush(pullRequest));
+    }
+
+    /**
+     * Updates the LPVSQueue element in the database when a database connection becomes
+     * available.
+     *
+     * @param action The update of the LPVSQueue element.
+     * @throws Exception If an error occurs while waiting for or calling the database.
+     */
+    private void updateQueue(Runnable action) throws Exception {
+        resourceLimiter.call(
+                Resource.DATABASE,
+                () -> {
+                    action.run();
+                    return null;
+                });
+    }
+
+    /**
+     * Downloads the files of the pull request and the license of the repository.
+     *
+     * @param job The processed LPVSQueue element.
+     * @throws Exception If an error occurs while waiting for or calling GitHub.
+     * @throws LPVSPullRequestNotFoundException if the files of the pull request are not found.
+     */
+    private void fetch(Job job) throws Exception {
+        LPVSQueue webhookConfig = job.webhookConfig;
+        // the repository is shared by the independent calls of the job
+        GHRepository repository =
+                resourceLimiter.call(
+                        Resource.GITHUB, () -> gitHubService.getRepository(webhookConfig));
+
+        // check repository license while the files are downloaded
+        CompletableFuture<String[]> repositoryLicense =
+                callAsync(
+                        Resource.GITHUB,
+                        () -> gitHubService.getRepositoryLicense(webhookConfig, repository));
+
+        // only the files changed since the previous scan are downloaded, if it is known
+        findBaseline(job, repository);
+
+        if (workspaceService != null) {
+            workspaceService.allocate(webhookConfig);
+        }
+        String filePath = getCheckpointedFiles(webhookConfig);
+        if (filePath == null) {
+            // the download makes many paged requests, a GitHub permit held for all of them
+            // would block the short calls of the other jobs, so it is paced by the rate limit
+            filePath = gitHubService.getPullRequestFiles(webhookConfig, repository);
+            checkCancelled(webhookConfig);
+            if (isNotEmpty(filePath)) {
+                updateQueue(
+                        () ->
+                                queueService.checkpoint(
+                                        webhookConfig, LPVSQueueCheckpoint.FILES_FETCHED));
+            }
+        } else {
+            log.info(
+                    "Webhook ID: "
+                            + webhookConfig.getId()
+                            + " - resuming with previously downloaded files");
+        }
+        if (!isNotEmpty(filePath) && job.baseline != null && filePath != null) {
+            // the new commits do not change any scanned file
+            log.debug("No files changed since the previous scan");
+            job.filePath = null;
+            job.repositoryLicense = await(repositoryLicense);
+            return;
+        }
+        if (!isNotEmpty(filePath)) {
+            log.warn("Files are not found. Probably pull request does not exist.");
+            throw new LPVSPullRequestNotFoundException(
+                    "Files are not found. Probably pull request does not exist. Terminating.");
+        }
+        log.debug("Successfully downloaded files");
+        job.filePath = filePath;
+        job.repositoryLicense = await(repositoryLicense);
+    }
 
+    /**
+     * Finds the previous scan of the updated pull request and the files changed since its
+     * commit. The pull request is scanned completely if any of them is not known.
+     *
+     * @param job        The processed LPVSQueue element.
+     * @param repository The GitHub repository of the pull request.
+     * @throws Exception If an error occurs while waiting for or calling GitHub or the database.
+     */
+    private void findBaseline(Job job, GHRepository repository) throws Exception {
+        LPVSQueue webhookConfig = job.webhookConfig;
+        webhookConfig.setChangedFiles(null);
+        if (incrementalScanService == null) {
+            return;
+        }
+        LPVSPullRequest baseline =
+                resourceLimiter.call(
+                        Resource.DATABASE,
+                        () -> incrementalScanService.findBaseline(webhookConfig));
+        if (baseline == null) {
+            return;
+        }
+        Set<String> changedFiles =
+                resourceLimiter.call(
+                        Resource.GITHUB,
+                        () ->
+                                gitHubService.getChangedFiles(
+                                        repository,
+                                        baseline.getScannedCommitSha(),
+                                        webhookConfig.getHeadCommitSHA()));
+        if (changedFiles == null) {
+            return;
+        }
+        log.info(
+                "Webhook ID: "
+                        + webhookConfig.getId()
+                        + " - rescanning "
+                        + changedFiles.size()
+                        + " file(s) changed since commit "
+                        + baseline.getScannedCommitSha());
+        job.baseline = baseline;
+        webhookConfig.setChangedFiles(changedFiles);
+    }
+
+    /**
+     * Calls the action on the executor of the concurrent GitHub API calls when the resource
+     * becomes available.
+     *
+     * @param resource The resource used by the action.
+     * @param action   The action to be called.
+     * @param <T>      The type of the result of the action.
+     * @return The future completed with the result of the action.
+     */
+    private <T> CompletableFuture<T> callAsync(Resource resource, LimitedAction<T> action) {
+        return CompletableFuture.supplyAsync(
+                () -> {
+                    try {
+                        return resourceLimiter.call(resource, action);
+                    } catch (RuntimeException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        throw new CompletionException(e);
+                    }
+                },
+                gitHubExecutor);
+    }
+
+    /**
+     * Waits for the result of the concurrent call.
+     *
+     * @param future The future of the call.
+     * @param <T>    The type of the result of the call.
+     * @return The result of the call.
+     * @throws Exception The exception thrown by the call.
+     */
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
         try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
 
-            pullRequest.setDate(webhookConfig.getDate());
-            pullRequest.setStatus(LPVSPullRequestStatus.SCANNING.toString());
-            pullRequest = lpvsPullRequestRepository.saveAndFlush(pullRequest);
-
-            String filePath = gitHubService.getPullRequestFiles(webhookConfig);
-            if (filePath != null && Files.list(Paths.get(filePath)).count() != 0) {
-                log.debug("Successfully downloaded files");
-
-                // check repository license
-                String[] repositoryLicense = gitHubService.getRepositoryLicense(webhookConfig);
-
-                if (repositoryLicense != null) {
-                    LPVSLicense repoLicense =
-                            licenseService.getLicenseBySpdxIdAndName(
-                                    repositoryLicense[0],
-                                    Optional.ofNullable(repositoryLicense[1]));
-                    webhookConfig.setRepositoryLicense(repoLicense.getSpdxId());
-                } else {
-                    webhookConfig.setRepositoryLicense(null);
-                }
-                log.debug("Repository license: " + webhookConfig.getRepositoryLicense());
-
-                List<LPVSFile> files = detectService.runScan(webhookConfig, filePath);
-
-                // check license conflicts
-                List<LPVSConflict<String, String>> detectedConflicts =
-                        licenseService.findConflicts(webhookConfig, files);
-
-                log.debug("Creating comment");
-                gitHubService.commentResults(webhookConfig, files, detectedConflicts, pullRequest);
-                log.debug("Results posted on GitHub");
-                queueService.delete(webhookConfig);
-            } else {
-                log.warn("Files are not found. Probably pull request does not exist.");
-                throw new Exception(
-                        "Files are not found. Probably pull request does not exist. Terminating.");
+    /**
+     * Runs the license scan of the downloaded files. In the incremental rescan, the results
+     * of the previous scan are added for the unchanged files.
+     *
+     * @param job The processed LPVSQueue element.
+     * @throws Exception If an error occurs while waiting for or calling the database.
+     */
+    private void scan(Job job) throws Exception {
+        List<LPVSFile> files =
+                job.filePath != null ? runScan(job.webhookConfig, job.filePath) : null;
+        // the scanned files are not needed anymore, the memory is freed for the next jobs
+        releaseWorkspace(job.webhookConfig);
+        if (job.baseline != null) {
+            List<LPVSFile> scannedFiles = files;
+            List<LPVSFile> storedFiles =
+                    resourceLimiter.call(
+                            Resource.DATABASE,
+                            () ->
+                                    incrementalScanService.getStoredFiles(
+                                            job.baseline,
+                                            job.webhookConfig.getChangedFiles(),
+                                            scannedFiles));
+            files = new ArrayList<>(files != null ? files : List.of());
+            files.addAll(storedFiles);
+        }
+        job.files = files;
+        updateQueue(() -> queueService.checkpoint(job.webhookConfig, LPVSQueueCheckpoint.SCANNED));
+    }
+
+    /**
+     * Resolves the license of the repository and detects the license conflicts.
+     *
+     * @param job The processed LPVSQueue element.
+     * @throws Exception If an error occurs while waiting for or calling the database.
+     */
+    private void resolve(Job job) throws Exception {
+        LPVSQueue webhookConfig = job.webhookConfig;
+        String[] repositoryLicense = job.repositoryLicense;
+        if (repositoryLicense != null) {
+            LPVSLicense repoLicense =
+                    resourceLimiter.call(
+                            Resource.DATABASE,
+                            () ->
+                                    licenseService.getLicenseBySpdxIdAndName(
+                                            repositoryLicense[0],
+                                            Optional.ofNullable(repositoryLicense[1])));
+            webhookConfig.setRepositoryLicense(repoLicense.getSpdxId());
+        } else {
+            webhookConfig.setRepositoryLicense(null);
+        }
+        log.debug("Repository license: " + webhookConfig.getRepositoryLicense());
+
+        // check license conflicts
+        job.conflicts =
+                resourceLimiter.call(
+                        Resource.DATABASE,
+                        () -> licenseService.findConflicts(webhookConfig, job.files));
+    }
+
+    /**
+     * Posts the results of the scan on GitHub and removes the LPVSQueue element. With
+     * the outbox, the results are saved to be posted by its publisher, so a failure of GitHub
+     * does not cause the pull request to be scanned again.
+     *
+     * @param job The processed LPVSQueue element.
+     * @throws Exception If an error occurs while waiting for or calling GitHub.
+     */
+    private void publish(Job job) throws Exception {
+        LPVSQueue webhookConfig = job.webhookConfig;
+        // do not post results which are already outdated
+        checkCancelled(webhookConfig);
+
+        job.pullRequest.setScannedCommitSha(webhookConfig.getHeadCommitSHA());
+        if (outboxService != null && outboxService.isEnabled()) {
+            resourceLimiter.call(
+                    Resource.DATABASE,
+                    () ->
+                            outboxService.enqueue(
+                                    webhookConfig, job.files, job.conflicts, job.pullRequest));
+            log.debug("Results saved for publishing");
+            updateQueue(() -> queueService.delete(webhookConfig));
+            log.info(
+                    "Webhook ID: "
+                            + webhookConfig.getId()
+                            + " - processing successfully completed");
+            return;
+        }
+
+        log.debug("Creating comment");
+        resourceLimiter.call(
+                Resource.GITHUB,
+                () -> {
+                    gitHubService.commentResults(
+                            webhookConfig, job.files, job.conflicts, job.pullRequest);
+                    return null;
+                });
+        log.debug("Results posted on GitHub");
+        updateQueue(() -> queueService.delete(webhookConfig));
+        log.info("Webhook ID: " + webhookConfig.getId() + " - processing successfully completed");
+    }
+
+    /**
+     * Handles the failure of the processing: suspended elements are left for the restart,
+     * cancelled ones are marked as superseded, others are retried or reported as failed.
+     *
+     * @param job The processed LPVSQueue element.
+     * @param e   The cause of the failure.
+     */
+    private void fail(Job job, Throwable e) {
+        LPVSQueue webhookConfig = job.webhookConfig;
+        Long id = webhookConfig.getId();
+        if (queueService.isSuspended(webhookConfig)) {
+            log.info(
+                    "Webhook ID: "
+                            + id
+                            + " - processing suspended by shutdown at checkpoint "
+                            + webhookConfig.getCheckpoint());
+            return;
+        }
+        releaseWorkspace(webhookConfig);
+        LPVSPullRequest pullRequest = job.pullRequest;
+        if (queueService.isCancelled(webhookConfig)) {
+            // the element may be cancelled in the pipeline before its pull request is created
+            if (pullRequest != null) {
+                pullRequest.setStatus(LPVSPullRequestStatus.SUPERSEDED.toString());
+                saveFailedPullRequest(pullRequest);
             }
-            log.info("Webhook ID: " + id + " - processing successfully completed");
-        } catch (Exception | Error e) {
+            queueService.delete(webhookConfig);
+            log.info(
+                    "Webhook ID: "
+                            + id
+                            + " - processing cancelled, the pull request has a newer commit");
+            return;
+        }
+        if (pullRequest == null) {
+            // the processing failed before its pull request was created
+            log.error("Can't start processing of webhook ID: " + id + " " + e.getMessage());
+        } else {
             pullRequest.setStatus(LPVSPullRequestStatus.INTERNAL_ERROR.toString());
-            pullRequest = lpvsPullRequestRepository.saveAndFlush(pullRequest);
+            // the results are not published, the next update has to be scanned completely
+            pullRequest.setScannedCommitSha(null);
+            pullRequest = saveFailedPullRequest(pullRequest);
             log.error("Can't authorize commentResults() " + e.getMessage());
-            int currentAttempts = webhookConfig.getAttempts() + 1;
-            if (currentAttempts < maxAttempts) {
-                webhookConfig.setAttempts(currentAttempts);
-                try {
-                    queueService.addFirst(webhookConfig);
-                } catch (InterruptedException e1) {
-                    log.warn("Failed to update Queue element");
-                }
-                queueRepository.save(webhookConfig);
-            } else {
-                log.warn(
-                        "Maximum amount of processing webhook reached for pull request: "
-                                + pullRequest.getId()
-                                + " "
-                                + pullRequest.getPullRequestUrl());
+        }
+        boolean retried;
+        try {
+            retried = queueService.retry(webhookConfig, LPVSFailureType.of(e), maxAttempts);
+        } catch (InterruptedException e1) {
+            log.warn("Failed to update Queue element");
+            retried = true;
+        }
+        if (!retried) {
+            log.warn(
+                    "Maximum amount of processing webhook reached for pull request: "
+                            + (pullRequest != null ? pullRequest.getId() : null)
+                            + " "
+                            + webhookConfig.getPullRequestUrl());
+            if (pullRequest != null) {
+                LPVSPullRequest failedPullRequest = pullRequest;
                 try {
-                    gitHubService.commentResults(webhookConfig, null, null, pullRequest);
+                    resourceLimiter.call(
+                            Resource.GITHUB,
+                            () -> {
+                                gitHubService.commentResults(
+                                        webhookConfig, null, null, failedPullRequest);
+                                return null;
+                            });
                 } catch (Exception ex) {
                     log.error("Exception occurred: " + ex.getMessage());
                 }
-                queueService.delete(webhookConfig);
-                log.info(
-                        "Webhook ID: "
-                                + id
-                                + " - removed from the webhook because the number of attempts exceeded the max value");
             }
+            queueService.delete(webhookConfig);
+            log.info(
+                    "Webhook ID: "
+                            + id
+                            + " - removed from the webhook because the number of attempts exceeded the max value");
+        }
+    }
+
+    /**
+     * Saves the pull request of the failed processing when a database connection becomes
+     * available. The failure of the saving is logged, so that the element is still retried.
+     *
+     * @param pullRequest The pull request to be saved.
+     * @return The saved pull request, or the specified one if it can't be saved.
+     */
+    private LPVSPullRequest saveFailedPullRequest(LPVSPullRequest pullRequest) {
+        try {
+            return savePullRequest(pullRequest);
+        } catch (Exception e) {
+            log.error("Can't save pull request " + pullRequest.getId() + ": " + e.getMessage());
+            return pullRequest;
+        }
+    }
+
+    /**
+     * Deletes the workspace of the LPVSQueue element if it is placed in memory.
+     *
+     * @param webhookConfig The LPVSQueue element being processed.
+     */
+    private void releaseWorkspace(LPVSQueue webhookConfig) {
+        if (workspaceService != null) {
+            workspaceService.release(webhookConfig);
+        }
+    }
+
+    /**
+     * Gets the files downloaded by the previous processing of the LPVSQueue element which was
+     * interrupted by a shutdown.
+     *
+     * @param webhookConfig The LPVSQueue element being processed.
+     * @return The path to the downloaded files, or null if the files have to be downloaded.
+     */
+    private String getCheckpointedFiles(LPVSQueue webhookConfig) {
+        if (webhookConfig.getCheckpoint() == null) {
+            return null;
+        }
+        String filePath = LPVSFileUtil.getLocalDirectoryPath(webhookConfig);
+        if (isNotEmpty(filePath)) {
+            return filePath;
+        }
+        // the workspace is gone, the processing is started from scratch
+        webhookConfig.setCheckpoint(null);
+        return null;
+    }
+
+    /**
+     * Checks whether the directory exists and contains files.
+     *
+     * @param filePath The path to the directory.
+     * @return true if the directory contains files, false otherwise.
+     */
+    private static boolean isNotEmpty(String filePath) {
+        if (filePath == null) {
+            return false;
+        }
+        try (Stream<Path> files = Files.list(Paths.get(filePath))) {
+            return files.findAny().isPresent();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Runs the license scan of the downloaded files when a scanner becomes available.
+     *
+     * @param webhookConfig The LPVSQueue element being processed.
+     * @param filePath      The path to the downloaded files.
+     * @return List of the scanned files with detected licenses.
+     * @throws LPVSScannerException if the scan fails.
+     */
+    private List<LPVSFile> runScan(LPVSQueue webhookConfig, String filePath) {
+        try {
+            return resourceLimiter.call(
+                    Resource.SCANNER, () -> detectService.runScan(webhookConfig, filePath));
+        } catch (Exception e) {
+            throw new LPVSScannerException("Scan failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Stops the processing of the LPVSQueue element if it was cancelled because
+     * a newer element for the same pull request appeared.
+     *
+     * @param webhookConfig The LPVSQueue element being processed.
+     * @throws CancellationException if the processing was cancelled.
+     */
+    private void checkCancelled(LPVSQueue webhookConfig) {
+        if (queueService.isCancelled(webhookConfig)) {
+            throw new CancellationException(
+                    "Processing of webhook ID " + webhookConfig.getId() + " cancelled");
+        }
+    }
+
+    /**
+     * Represents a stage of the processing.
+     */
+    @FunctionalInterface
+    private interface Step {
+        /**
+         * Runs the stage.
+         *
+         * @throws Exception If an error occurs during the stage.
+         */
+        void run() throws Exception;
+    }
+
+    /**
+     * Holds the state of the LPVSQueue element passed between the stages of the processing.
+     */
+    private static class Job {
+
+        /**
+         * The processed LPVSQueue element.
+         */
+        private final LPVSQueue webhookConfig;
+
+        /**
+         * The pull request of the LPVSQueue element.
+         */
+        private LPVSPullRequest pullRequest;
+
+        /**
+         * The pull request with the previous scan, if only the changed files are rescanned.
+         */
+        private LPVSPullRequest baseline;
+
+        /**
+         * The path to the downloaded files, or null if no files have to be scanned.
+         */
+        private String filePath;
+
+        /**
+         * The SPDX identifier and the name of the repository license reported by GitHub.
+         */
+        private String[] repositoryLicense;
+
+        /**
+         * The scanned files with detected licenses.
+         */
+        private List<LPVSFile> files;
+
+        /**
+         * The detected license conflicts.
+         */
+        private List<LPVSConflict<String, String>> conflicts;
+
+        /**
+         * Constructor for Job.
+         *
+         * @param webhookConfig The processed LPVSQueue element.
+         */
+        private Job(LPVSQueue webhookConfig) {
+            this.webhookConfig = webhookConfig;
         }
     }
 }
@@ -0,0 +1,278 @@
+/**
+ * Copyright (c) 2024, Samsung Electronics Co., Ltd. All rights reserved.
+ *
+ * Use of this source code is governed by a MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.lpvs.util;
+
+import io.micrometer.common.util.StringUtils;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Store of the saved files of the pull requests shared by the jobs, addressed by the SHAs
+ * of the git blobs of the files.
+ * <p>
+ * A file saved from its patch is linked into the store, and the same blob in the next pull
+ * requests and retries is linked from the store into their workspaces instead of being saved
+ * again. The files are linked with hard links, or copied if the store and the workspace are
+ * on different file systems. The least recently used files are evicted when the total size
+ * of the store exceeds its quota; the files linked to the workspaces are not affected.
+ * </p>
+ * <p>
+ * The full blob SHAs are known only for the listed files of the pull requests. The streamed
+ * diff names the blobs by abbreviated SHAs, which are not unique enough to share the files
+ * between repositories, so the store requires {@code github.diff.stream=false} and is used
+ * otherwise only for the pull requests too large to be streamed.
+ * </p>
+ */
+@Component
+@Slf4j
+public class LPVSBlobStore {
+
+    /**
+     * Pattern of the SHA-1 or SHA-256 of a git blob.
+     */
+    private static final Pattern BLOB_SHA = Pattern.compile("[0-9a-f]{40}|[0-9a-f]{64}");
+
+    /**
+     * Path to the directory of the store, the default is used if empty.
+     */
+    @Value("${lpvs.workspace.blob-store.path:}")
+    private String storePath;
+
+    /**
+     * Maximum total size in bytes of the stored files (0 - disabled).
+     */
+    @Value("${lpvs.workspace.blob-store.size:0}")
+    private long quota;
+
+    /**
+     * Indicates whether the files are saved from the streamed diff, not using the store.
+     */
+    @Value("${github.diff.stream:true}")
+    private boolean streamDiff;
+
+    /**
+     * Sizes of the stored files by their blob SHAs in the order of their use.
+     */
+    private final Map<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Total size in bytes of the stored files.
+     */
+    private long size;
+
+    /**
+     * Loads the files remaining in the store from the previous run, the least recently used
+     * first.
+     */
+    @PostConstruct
+    public synchronized void init() {
+        entries.clear();
+        size = 0;
+        Path root = getRoot();
+        if (isEnabled() && streamDiff) {
+            log.warn(
+                    "Blob store is used only for pull requests too large to be streamed,"
+                            + " set github.diff.stream=false to use it for all pull requests");
+        }
+        if (!isEnabled() || !Files.isDirectory(root)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(root, 2)) {
+            List<Path> blobs =
+                    files.filter(Files::isRegularFile)
+                            .filter(path -> isBlobSha(path.getFileName().toString()))
+                            .sorted(Comparator.comparingLong(path -> path.toFile().lastModified()))
+                            .toList();
+            for (Path blob : blobs) {
+                long blobSize = Files.size(blob);
+                entries.put(blob.getFileName().toString(), blobSize);
+                size += blobSize;
+            }
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Can't load blob store " + root + ": " + e.getMessage());
+        }
+        evict();
+        log.debug("Blob store " + root + " contains " + entries.size() + " file(s)");
+    }
+
+    /**
+     * Checks whether the store is enabled.
+     *
+     * @return true if the quota of the store is set, false otherwise.
+     */
+    public boolean isEnabled() {
+        return quota > 0;
+    }
+
+    /**
+     * Links the stored file of the blob to the path in the workspace.
+     *
+     * @param blobSha The SHA of the git blob of the file.
+     * @param target  The path to the file in the workspace.
+     * @return true if the file is linked, false if the blob is not stored.
+     */
+    public synchronized boolean link(String blobSha, Path target) {
+        // the lookup marks the file as recently used
+        if (!isEnabled() || !isBlobSha(blobSha) || entries.get(blobSha) == null) {
+            return false;
+        }
+        Path blob = getPath(blobSha);
+        try {
+            Files.createDirectories(target.getParent());
+            LPVSFileUtil.linkOrCopy(blob, target);
+            // the time of the last use orders the files loaded after a restart
+            Files.setLastModifiedTime(blob, FileTime.fromMillis(System.currentTimeMillis()));
+            return true;
+        } catch (IOException e) {
+            log.warn("Can't link blob " + blobSha + ": " + e.getMessage());
+            if (!Files.isRegularFile(blob)) {
+                remove(blobSha);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Adds the saved file of the blob to the store, evicting the least recently used files
+     * if the quota is exceeded.
+     *
+     * @param blobSha The SHA of the git blob of the file.
+     * @param source  The path to the saved file in the workspace.
+     */
+    public synchronized void store(String blobSha, Path source) {
+        if (!isEnabled() || !isBlobSha(blobSha) || entries.containsKey(blobSha)) {
+            return;
+        }
+        Path blob = getPath(blobSha);
+        try {
+            long blobSize = Files.size(source);
+            if (blobSize > quota) {
+                return;
+            }
+            Files.createDirectories(blob.getParent());
+            try {
+                LPVSFileUtil.linkOrCopy(source, blob);
+            } catch (FileAlreadyExistsException e) {
+                log.debug("Blob " + blobSha + " is already stored");
+                blobSize = Files.size(blob);
+            }
+            entries.put(blobSha, blobSize);
+            size += blobSize;
+        } catch (IOException e) {
+            log.warn("Can't store blob " + blobSha + ": " + e.getMessage());
+        }
+        evict();
+    }
+
+    /**
+     * Gets the total size of the stored files.
+     *
+     * @return The total size in bytes.
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * Checks whether the blob is stored.
+     *
+     * @param blobSha The SHA of the git blob.
+     * @return true if the blob is stored, false otherwise.
+     */
+    public synchronized boolean contains(String blobSha) {
+        return entries.containsKey(blobSha);
+    }
+
+    /**
+     * Evicts the least recently used files until the total size fits the quota.
+     */
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (size > quota && iterator.hasNext()) {
+            Map.Entry<String, Long> entry = iterator.next();
+            iterator.remove();
+            size -= entry.getValue();
+            delete(entry.getKey());
+        }
+    }
+
+    /**
+     * Removes the blob from the store.
+     *
+     * @param blobSha The SHA of the git blob.
+     */
+    private void remove(String blobSha) {
+        Long blobSize = entries.remove(blobSha);
+        if (blobSize != null) {
+            size -= blobSize;
+        }
+        delete(blobSha);
+    }
+
+    /**
+     * Deletes the file of the blob.
+     *
+     * @param blobSha The SHA of the git blob.
+     */
+    private void delete(String blobSha) {
+        try {
+            Files.deleteIfExists(getPath(blobSha));
+        } catch (IOException e) {
+            log.warn("Can't delete blob " + blobSha + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Checks whether the string is the SHA of a git blob, so it can be used as a file name.
+     *
+     * @param blobSha The string to be checked.
+     * @return true if the string is the SHA of a git blob, false otherwise.
+     */
+    private static boolean isBlobSha(String blobSha) {
+        return blobSha != null && BLOB_SHA.matcher(blobSha).matches();
+    }
+
+    /**
+     * Gets the path to the file of the blob, placed in the subdirectory named by the first
+     * two characters of its SHA.
+     *
+     * @param blobSha The SHA of the git blob.
+     * @return The path to the file of the blob.
+     */
+    private Path getPath(String blobSha) {
+        return getRoot().resolve(blobSha.substring(0, 2)).resolve(blobSha);
+    }
+
+    /**
+     * Gets the path to the directory of the store.
+     *
+     * @return The configured path, or {@code ~/LPVS/Blobs} by default.
+     */
+    private Path getRoot() {
+        if (StringUtils.isNotBlank(storePath)) {
+            return Paths.get(storePath);
+        }
+        return Paths.get(System.getProperty("user.home"), "LPVS", "Blobs");
+    }
+}
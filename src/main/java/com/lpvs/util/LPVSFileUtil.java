@@ -13,17 +13,33 @@ import org.springframework.util.FileSystemUtils;
 import org.springframework.web.util.HtmlUtils;
 import io.micrometer.common.util.StringUtils;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
+import java.nio.file.PathMatcher;
 import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardCopyOption;
-import java.util.Arrays;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 /**
  * Utility class providing methods for handling files, directories, and file-related operations
@@ -42,6 +58,7 @@ public class LPVSFileUtil {
 
     /**
      * Saves a file with the specified content in a given directory.
+     * The lines of the patch are written to the file one by one.
      *
      * @param fileName      The name of the file to be saved.
      * @param directoryPath The path to the directory where the file will be saved.
@@ -54,41 +71,19 @@ public class LPVSFileUtil {
             log.error("Empty patch for file " + fileName);
             return false;
         }
-        int cnt = 1;
-        StringBuilder prettyPatch = new StringBuilder();
-        for (String patchedLine : patchedLines) {
-            // empty line
-            if (patchedLine.isEmpty()) {
-                prettyPatch.append("\n");
-                cnt++;
-            }
-            // added and unchanged lines
-            else if (patchedLine.charAt(0) == '+' || patchedLine.charAt(0) == ' ') {
-                prettyPatch.append(patchedLine.substring(1));
-                prettyPatch.append("\n");
-                cnt++;
-            }
-            // information(location, number of lines) about changed lines
-            else if (patchedLine.charAt(0) == '@') {
-                int fIndex = patchedLine.indexOf("+") + 1;
-                int lIndex = patchedLine.indexOf(',', fIndex);
-                if (lIndex == -1) lIndex = patchedLine.indexOf(' ', fIndex);
-                int startLine = Integer.parseInt(patchedLine.substring(fIndex, lIndex));
-                log.debug("Line from: " + startLine + " Git string: " + patchedLine);
-                for (int i = cnt; i < startLine; i++) {
-                    prettyPatch.append("\n");
-                }
-                cnt = startLine;
-            }
+        PatchWriter patchWriter = createPatchWriter(fileName, directoryPath, null);
+        if (patchWriter == null) {
+            return false;
         }
-
-        if (!prettyPatch.isEmpty()) {
-            try {
-                saveFileToDisk(directoryPath, fileName, prettyPatch.toString());
-            } catch (IOException e) {
-                log.error(e.getMessage());
-                return false;
+        try {
+            for (String patchedLine : patchedLines) {
+                patchWriter.write(patchedLine);
             }
+        } catch (IOException e) {
+            log.error(e.getMessage());
+            return false;
+        } finally {
+            closePatchWriter(patchWriter);
         }
         return true;
     }
@@ -133,29 +128,566 @@ public class LPVSFileUtil {
 
     /**
      * Saves the GitHub pull request file details, including the file patches, to a local directory.
+     * If the changed files of the webhook are set, only these files are saved. The added files
+     * are linked from the blob store if their blobs are stored, otherwise they are added to it.
+     * The files are listed one after another and saved by the executor in parallel, every patch
+     * is written line by line as it is read.
      *
      * @param files          The iterable of GitHub pull request file details.
      * @param webhookConfig  The {@link LPVSQueue} configuration for the webhook.
+     * @param sparse         Indicates whether only the lines of the hunks are saved, mapped to
+     *                       the lines of the original files by {@link LPVSLineMap}.
+     * @param blobStore      The store of the files shared by the jobs, null if not used.
+     * @param executor       The executor saving the files, null to save them one after another.
      * @return The path to the directory where the files are saved.
      */
     public static String saveGithubDiffs(
-            Iterable<GHPullRequestFileDetail> files, LPVSQueue webhookConfig) {
+            Iterable<GHPullRequestFileDetail> files,
+            LPVSQueue webhookConfig,
+            boolean sparse,
+            LPVSBlobStore blobStore,
+            Executor executor) {
         String directoryPath = LPVSFileUtil.getLocalDirectoryPath(webhookConfig);
         deleteIfExists(directoryPath);
+        LPVSLineMap.delete(directoryPath);
+        LPVSLineMap lineMap = sparse ? new LPVSLineMap() : null;
+        Executor fileExecutor = executor != null ? executor : Runnable::run;
         boolean result = new File(directoryPath).mkdirs();
         if (result) {
-            for (GHPullRequestFileDetail file : files) {
-                if (file.getPatch() != null) {
-                    List<String> patch = Arrays.asList(file.getPatch().split("\n"));
-                    saveFile(file.getFilename(), directoryPath, patch);
-                } else {
-                    log.error("NULL PATCH for file " + file.getFilename());
+            List<CompletableFuture<Void>> savedFiles = new ArrayList<>();
+            try {
+                for (GHPullRequestFileDetail file : files) {
+                    if (webhookConfig.getChangedFiles() != null
+                            && !webhookConfig.getChangedFiles().contains(file.getFilename())) {
+                        continue;
+                    }
+                    if (file.getPatch() != null) {
+                        savedFiles.add(
+                                CompletableFuture.runAsync(
+                                        () ->
+                                                saveFileDetail(
+                                                        file, directoryPath, lineMap, blobStore),
+                                        fileExecutor));
+                    } else {
+                        log.error("NULL PATCH for file " + file.getFilename());
+                    }
                 }
+            } finally {
+                // no file is written to the directory after it is returned or the listing fails
+                CompletableFuture.allOf(savedFiles.toArray(CompletableFuture<?>[]::new))
+                        .handle((ignored, e) -> null)
+                        .join();
+            }
+            for (CompletableFuture<Void> savedFile : savedFiles) {
+                rethrowFailure(savedFile);
             }
+            saveLineMap(lineMap, directoryPath);
         }
         return directoryPath;
     }
 
+    /**
+     * Rethrows the exception of the completed saving of the file.
+     *
+     * @param savedFile The completed saving of the file.
+     */
+    private static void rethrowFailure(CompletableFuture<Void> savedFile) {
+        try {
+            savedFile.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Saves the files of the pull request from its unified diff to a local directory.
+     * The diff is read line by line and the lines of every file are written as they come,
+     * so neither the diff nor the patches of the files are held in memory. If the changed files
+     * of the webhook are set, only these files are saved.
+     *
+     * @param diff           The stream of the unified diff of the pull request.
+     * @param webhookConfig  The {@link LPVSQueue} configuration for the webhook.
+     * @return The path to the directory where the files are saved.
+     * @throws IOException If an error occurs while reading the diff or writing the files.
+     */
+    public static String saveGithubDiff(InputStream diff, LPVSQueue webhookConfig)
+            throws IOException {
+        return saveGithubDiff(diff, webhookConfig, false);
+    }
+
+    /**
+     * Saves the files of the pull request from its unified diff to a local directory.
+     * The diff is read line by line and the lines of every file are written as they come,
+     * so neither the diff nor the patches of the files are held in memory. If the changed files
+     * of the webhook are set, only these files are saved.
+     *
+     * @param diff           The stream of the unified diff of the pull request.
+     * @param webhookConfig  The {@link LPVSQueue} configuration for the webhook.
+     * @param sparse         Indicates whether only the lines of the hunks are saved, mapped to
+     *                       the lines of the original files by {@link LPVSLineMap}.
+     * @return The path to the directory where the files are saved.
+     * @throws IOException If an error occurs while reading the diff or writing the files.
+     */
+    public static String saveGithubDiff(InputStream diff, LPVSQueue webhookConfig, boolean sparse)
+            throws IOException {
+        String directoryPath = LPVSFileUtil.getLocalDirectoryPath(webhookConfig);
+        deleteIfExists(directoryPath);
+        LPVSLineMap.delete(directoryPath);
+        LPVSLineMap lineMap = sparse ? new LPVSLineMap() : null;
+        if (new File(directoryPath).mkdirs()) {
+            try (BufferedReader reader =
+                    new BufferedReader(new InputStreamReader(diff, StandardCharsets.UTF_8))) {
+                int savedFiles =
+                        saveUnifiedDiff(
+                                reader, directoryPath, webhookConfig.getChangedFiles(), lineMap);
+                log.debug("Saved " + savedFiles + " file(s)");
+            }
+            saveLineMap(lineMap, directoryPath);
+        }
+        return directoryPath;
+    }
+
+    /**
+     * Saves the map of the lines of the sparse files next to the workspace directory.
+     *
+     * @param lineMap       The map of the lines, null if the files are not sparse.
+     * @param directoryPath The path to the workspace directory.
+     */
+    private static void saveLineMap(LPVSLineMap lineMap, String directoryPath) {
+        if (lineMap == null || lineMap.isEmpty()) {
+            return;
+        }
+        try {
+            lineMap.save(directoryPath);
+        } catch (IOException e) {
+            log.error("Can't save line map of " + directoryPath + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Saves the files of the unified diff to the directory. Deleted and binary files are
+     * skipped, for other files the added and unchanged lines are saved at their line numbers.
+     *
+     * @param reader        The reader of the unified diff.
+     * @param directoryPath The path to the directory where the files are saved.
+     * @param fileNames     The names of the files to be saved, null to save all files.
+     * @return The number of saved files.
+     * @throws IOException If an error occurs while reading the diff or writing the files.
+     */
+    static int saveUnifiedDiff(BufferedReader reader, String directoryPath, Set<String> fileNames)
+            throws IOException {
+        return saveUnifiedDiff(reader, directoryPath, fileNames, null);
+    }
+
+    /**
+     * Saves the files of the unified diff to the directory. Deleted and binary files are
+     * skipped, for other files the added and unchanged lines are saved at their line numbers,
+     * or one after another if the files are sparse.
+     *
+     * @param reader        The reader of the unified diff.
+     * @param directoryPath The path to the directory where the files are saved.
+     * @param fileNames     The names of the files to be saved, null to save all files.
+     * @param lineMap       The map receiving the lines of the sparse files, null to save
+     *                      the lines at their line numbers.
+     * @return The number of saved files.
+     * @throws IOException If an error occurs while reading the diff or writing the files.
+     */
+    static int saveUnifiedDiff(
+            BufferedReader reader,
+            String directoryPath,
+            Set<String> fileNames,
+            LPVSLineMap lineMap)
+            throws IOException {
+        int savedFiles = 0;
+        String fileName = null;
+        PatchWriter patchWriter = null;
+        // remaining lines of the current hunk in the old and in the new file
+        int oldLines = 0;
+        int newLines = 0;
+        String line;
+        try {
+            while ((line = reader.readLine()) != null) {
+                if (oldLines > 0 || newLines > 0) {
+                    if (line.isEmpty() || line.charAt(0) == ' ') {
+                        oldLines--;
+                        newLines--;
+                    } else if (line.charAt(0) == '+') {
+                        newLines--;
+                    } else if (line.charAt(0) == '-') {
+                        oldLines--;
+                        continue;
+                    } else {
+                        continue;
+                    }
+                    if (patchWriter != null) {
+                        patchWriter.write(line);
+                    }
+                } else if (line.startsWith("diff --git ")) {
+                    savedFiles += closePatchWriter(patchWriter);
+                    patchWriter = null;
+                    fileName = null;
+                } else if (line.startsWith("+++ ")) {
+                    fileName = getDiffFileName(line.substring(4));
+                    if (fileNames != null && !fileNames.contains(fileName)) {
+                        fileName = null;
+                    }
+                } else if (line.startsWith("@@")) {
+                    int[] hunk = getHunkLines(line);
+                    oldLines = hunk[0];
+                    newLines = hunk[1];
+                    if (patchWriter == null && fileName != null) {
+                        patchWriter = createPatchWriter(fileName, directoryPath, lineMap);
+                        // a skipped file is not retried by its next hunks
+                        fileName = null;
+                    }
+                    if (patchWriter != null) {
+                        patchWriter.write(line);
+                    }
+                }
+            }
+        } finally {
+            savedFiles += closePatchWriter(patchWriter);
+        }
+        return savedFiles;
+    }
+
+    /**
+     * Saves the file of the pull request from its patch. The content of the added file is
+     * determined by its blob alone, so it is linked from the blob store if the blob is stored,
+     * and added to the store after it is saved otherwise. Its lines are not mapped, the only
+     * hunk of the added file starts at its first line.
+     *
+     * @param file          The GitHub pull request file detail.
+     * @param directoryPath The path to the directory where the file will be saved.
+     * @param lineMap       The map receiving the lines of the sparse file, null to save
+     *                      the lines at their line numbers.
+     * @param blobStore     The store of the files shared by the jobs, null if not used.
+     */
+    private static void saveFileDetail(
+            GHPullRequestFileDetail file,
+            String directoryPath,
+            LPVSLineMap lineMap,
+            LPVSBlobStore blobStore) {
+        String blobSha =
+                blobStore != null && blobStore.isEnabled() && "added".equals(file.getStatus())
+                        ? file.getSha()
+                        : null;
+        if (blobSha != null) {
+            Path path = getFilePath(file.getFilename(), directoryPath);
+            if (path == null || blobStore.link(blobSha, path)) {
+                return;
+            }
+        }
+        Path path = savePatch(file.getFilename(), directoryPath, file.getPatch(), lineMap);
+        if (blobSha != null && path != null) {
+            blobStore.store(blobSha, path);
+        }
+    }
+
+    /**
+     * Saves the file from its patch in the format of the GitHub pull request files.
+     *
+     * @param fileName      The name of the file to be saved.
+     * @param directoryPath The path to the directory where the file will be saved.
+     * @param patch         The patch of the file.
+     * @param lineMap       The map receiving the lines of the sparse file, null to save
+     *                      the lines at their line numbers.
+     * @return The path to the saved file, or null if the file is not saved.
+     */
+    private static Path savePatch(
+            String fileName, String directoryPath, String patch, LPVSLineMap lineMap) {
+        PatchWriter patchWriter = createPatchWriter(fileName, directoryPath, lineMap);
+        if (patchWriter == null) {
+            return null;
+        }
+        boolean saved = false;
+        try (BufferedReader reader = new BufferedReader(new StringReader(patch))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                patchWriter.write(line);
+            }
+        } catch (IOException e) {
+            log.error(e.getMessage());
+        } finally {
+            saved = closePatchWriter(patchWriter) > 0;
+        }
+        return saved ? patchWriter.path : null;
+    }
+
+    /**
+     * Creates the writer of the file in the directory.
+     *
+     * @param fileName      The name of the file.
+     * @param directoryPath The path to the directory where the file is saved.
+     * @param lineMap       The map receiving the lines of the sparse file, null to save
+     *                      the lines at their line numbers.
+     * @return The writer of the file, or null if the file is outside of the directory.
+     */
+    private static PatchWriter createPatchWriter(
+            String fileName, String directoryPath, LPVSLineMap lineMap) {
+        Path path = getFilePath(fileName, directoryPath);
+        return path == null ? null : new PatchWriter(fileName, path, lineMap);
+    }
+
+    /**
+     * Gets the path to the file in the directory.
+     *
+     * @param fileName      The name of the file.
+     * @param directoryPath The path to the directory where the file is saved.
+     * @return The path to the file, or null if the file is outside of the directory or its
+     * name can't be encoded in the file system.
+     */
+    private static Path getFilePath(String fileName, String directoryPath) {
+        Path directory = Paths.get(directoryPath).normalize();
+        Path path;
+        try {
+            path = directory.resolve(fileName).normalize();
+        } catch (InvalidPathException e) {
+            log.error("Can't save file " + fileName + ": " + e.getMessage());
+            return null;
+        }
+        if (!path.startsWith(directory) || path.equals(directory)) {
+            log.error("Wrong file name " + fileName);
+            return null;
+        }
+        return path;
+    }
+
+    /**
+     * Closes the writer of the file.
+     *
+     * @param patchWriter The writer of the file, may be null.
+     * @return 1 if the file is saved, 0 otherwise.
+     */
+    private static int closePatchWriter(PatchWriter patchWriter) {
+        if (patchWriter == null) {
+            return 0;
+        }
+        try {
+            return patchWriter.close() ? 1 : 0;
+        } catch (IOException e) {
+            log.error(e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Gets the name of the file from the path of the new file in the header of the diff.
+     *
+     * @param path The path in the {@code +++} line of the diff, quoted if it contains special
+     *             characters.
+     * @return The name of the file, or null if the file is deleted.
+     */
+    static String getDiffFileName(String path) {
+        if (path.startsWith("\"")) {
+            path = unquote(path);
+        }
+        if (path.equals("/dev/null")) {
+            return null;
+        }
+        return path.startsWith("b/") ? path.substring(2) : path;
+    }
+
+    /**
+     * Removes the quotes and the escaping of the path quoted by git.
+     *
+     * @param path The quoted path.
+     * @return The path without quotes.
+     */
+    private static String unquote(String path) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (int i = 1; i < path.length() && path.charAt(i) != '"'; i++) {
+            char c = path.charAt(i);
+            if (c == '\\' && i + 1 < path.length()) {
+                c = path.charAt(++i);
+                if (c >= '0' && c <= '7' && i + 2 < path.length()) {
+                    bytes.write(Integer.parseInt(path.substring(i, i + 3), 8));
+                    i += 2;
+                    continue;
+                }
+                c = c == 't' ? '\t' : c == 'n' ? '\n' : c;
+            }
+            byte[] encoded = String.valueOf(c).getBytes(StandardCharsets.UTF_8);
+            bytes.write(encoded, 0, encoded.length);
+        }
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Gets the number of lines of the hunk in the old and in the new file.
+     *
+     * @param header The header of the hunk in the format {@code @@ -8,7 +8,6 @@}.
+     * @return The number of lines in the old and in the new file.
+     */
+    static int[] getHunkLines(String header) {
+        int[] lines = new int[2];
+        String[] ranges = header.split(" ");
+        for (int i = 1; i < ranges.length && i < 3; i++) {
+            int comma = ranges[i].indexOf(',');
+            try {
+                lines[i - 1] = comma == -1 ? 1 : Integer.parseInt(ranges[i].substring(comma + 1));
+            } catch (NumberFormatException e) {
+                log.debug("Wrong hunk header: " + header);
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Writer saving the added and unchanged lines of a patch at their line numbers in the file.
+     * The file is created when the first line is written. A sparse file gets only the lines of
+     * the hunks, one after another, and its segments are added to the map of the lines.
+     */
+    private static class PatchWriter {
+
+        /**
+         * The name of the file.
+         */
+        private final String fileName;
+
+        /**
+         * The path to the file.
+         */
+        private final Path path;
+
+        /**
+         * The writer of the file, created when the first line is written.
+         */
+        private BufferedWriter writer;
+
+        /**
+         * The number of the next line of the file.
+         */
+        private int cnt = 1;
+
+        /**
+         * The map receiving the lines of the sparse file, null if the file is not sparse.
+         */
+        private final LPVSLineMap lineMap;
+
+        /**
+         * The segments of the sparse file: the first line in the sparse file, the first line
+         * in the original file and the number of lines.
+         */
+        private final List<int[]> segments = new ArrayList<>();
+
+        /**
+         * Creates the writer of the file.
+         *
+         * @param fileName The name of the file.
+         * @param path     The path to the file.
+         * @param lineMap  The map receiving the lines of the sparse file, null to save the lines
+         *                 at their line numbers.
+         */
+        PatchWriter(String fileName, Path path, LPVSLineMap lineMap) {
+            this.fileName = fileName;
+            this.path = path;
+            this.lineMap = lineMap;
+        }
+
+        /**
+         * Writes the line of the patch to the file.
+         *
+         * @param patchedLine The line of the patch.
+         * @throws IOException If an error occurs while writing the file.
+         */
+        void write(String patchedLine) throws IOException {
+            // empty line
+            if (patchedLine.isEmpty()) {
+                appendLine("");
+            }
+            // added and unchanged lines
+            else if (patchedLine.charAt(0) == '+' || patchedLine.charAt(0) == ' ') {
+                appendLine(patchedLine.substring(1));
+            }
+            // information(location, number of lines) about changed lines
+            else if (patchedLine.charAt(0) == '@') {
+                int fIndex = patchedLine.indexOf("+") + 1;
+                int lIndex = patchedLine.indexOf(',', fIndex);
+                if (lIndex == -1) lIndex = patchedLine.indexOf(' ', fIndex);
+                int startLine = Integer.parseInt(patchedLine.substring(fIndex, lIndex));
+                if (lineMap != null) {
+                    startSegment(startLine);
+                    return;
+                }
+                while (cnt < startLine) {
+                    append("");
+                }
+                cnt = startLine;
+            }
+        }
+
+        /**
+         * Starts the segment of the sparse file for the hunk. The hunk continuing the previous
+         * one extends its segment, otherwise the hunks are separated by an empty line, so that
+         * the scanner does not match a snippet across them.
+         *
+         * @param startLine The first line of the hunk in the original file.
+         * @throws IOException If an error occurs while writing the file.
+         */
+        private void startSegment(int startLine) throws IOException {
+            int[] last = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+            if (last != null && last[1] + last[2] == startLine) {
+                return;
+            }
+            if (last != null) {
+                append("");
+            }
+            segments.add(new int[] {cnt, startLine, 0});
+        }
+
+        /**
+         * Appends the line of the patch to the file, counting it in the segment of the sparse
+         * file.
+         *
+         * @param content The content of the line.
+         * @throws IOException If an error occurs while writing the file.
+         */
+        private void appendLine(String content) throws IOException {
+            append(content);
+            if (!segments.isEmpty()) {
+                segments.get(segments.size() - 1)[2]++;
+            }
+        }
+
+        /**
+         * Appends the line to the file, creating the file on the first line.
+         *
+         * @param content The content of the line.
+         * @throws IOException If an error occurs while writing the file.
+         */
+        private void append(String content) throws IOException {
+            if (writer == null) {
+                Files.createDirectories(path.getParent());
+                writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+            }
+            writer.write(content);
+            writer.write("\n");
+            cnt++;
+        }
+
+        /**
+         * Closes the file.
+         *
+         * @return true if the file is saved, false if the patch has no lines to save.
+         * @throws IOException If an error occurs while closing the file.
+         */
+        boolean close() throws IOException {
+            if (writer == null) {
+                log.error("Empty patch for file " + fileName);
+                return false;
+            }
+            writer.close();
+            if (lineMap != null) {
+                lineMap.add(fileName, segments);
+            }
+            return true;
+        }
+    }
+
     /**
      * Copies files from a source path to a destination directory path.
      *
@@ -198,6 +730,146 @@ public class LPVSFileUtil {
         }
     }
 
+    /**
+     * Copies or links the files of the local file or folder to the specified directory,
+     * keeping only the files matched by the include and exclude rules. The rules are
+     * comma-separated glob patterns; a pattern without {@code /} is matched against the names
+     * of the files and folders at any depth, other patterns against their paths relative to
+     * the source folder. The excluded folders are skipped without being read.
+     *
+     * @param sourcePath    The path of the local file or folder.
+     * @param directoryPath The path of the directory to which the files are copied or linked.
+     * @param includes      The patterns of the files to be kept, all files are kept if empty.
+     * @param excludes      The patterns of the files and folders to be skipped.
+     * @param link          Whether the files are linked with hard links instead of copied.
+     * @throws IOException if an I/O error occurs.
+     */
+    public static void snapshotFiles(
+            String sourcePath, String directoryPath, String includes, String excludes, boolean link)
+            throws IOException {
+        deleteIfExists(directoryPath);
+        Path source = Paths.get(sourcePath);
+        Path destination = Files.createDirectories(Paths.get(directoryPath));
+        List<PathMatcher> includeMatchers = getPathMatchers(includes);
+        List<PathMatcher> excludeMatchers = getPathMatchers(excludes);
+        if (!Files.isDirectory(source)) {
+            Path name = source.getFileName();
+            if ((includeMatchers.isEmpty() || matches(includeMatchers, name))
+                    && !matches(excludeMatchers, name)) {
+                saveSnapshotFile(source, destination.resolve(name), link);
+            }
+            return;
+        }
+        Files.walkFileTree(
+                source,
+                new SimpleFileVisitor<>() {
+                    @Override
+                    public FileVisitResult preVisitDirectory(
+                            Path dir, BasicFileAttributes attrs) throws IOException {
+                        Path relative = source.relativize(dir);
+                        if (relative.toString().isEmpty()) {
+                            return FileVisitResult.CONTINUE;
+                        }
+                        if (matches(excludeMatchers, relative)) {
+                            return FileVisitResult.SKIP_SUBTREE;
+                        }
+                        Files.createDirectories(destination.resolve(relative.toString()));
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+                            throws IOException {
+                        Path relative = source.relativize(file);
+                        if ((includeMatchers.isEmpty() || matches(includeMatchers, relative))
+                                && !matches(excludeMatchers, relative)) {
+                            saveSnapshotFile(
+                                    file,
+                                    destination.resolve(relative.toString()),
+                                    link && attrs.isRegularFile());
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+    }
+
+    /**
+     * Copies the file, or links it with a hard link if requested and possible.
+     *
+     * @param source The file to be copied or linked.
+     * @param target The path of the new file.
+     * @param link   Whether the file is linked instead of copied.
+     * @throws IOException if the file can neither be linked nor copied.
+     */
+    private static void saveSnapshotFile(Path source, Path target, boolean link)
+            throws IOException {
+        if (link) {
+            linkOrCopy(source, target);
+        } else {
+            Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Links the file with a hard link, or copies it if the link can't be created.
+     *
+     * @param source The existing file.
+     * @param target The path of the new file.
+     * @throws IOException if the file can neither be linked nor copied.
+     */
+    public static void linkOrCopy(Path source, Path target) throws IOException {
+        try {
+            Files.createLink(target, source);
+        } catch (FileAlreadyExistsException e) {
+            throw e;
+        } catch (IOException | UnsupportedOperationException e) {
+            // e.g. the files are on different file systems
+            Files.copy(source, target);
+        }
+    }
+
+    /**
+     * Creates the matchers of the comma-separated glob patterns.
+     *
+     * @param patterns The comma-separated glob patterns, may be empty.
+     * @return The list of the matchers, empty if no patterns are specified.
+     */
+    private static List<PathMatcher> getPathMatchers(String patterns) {
+        List<PathMatcher> matchers = new ArrayList<>();
+        if (StringUtils.isBlank(patterns)) {
+            return matchers;
+        }
+        for (String pattern : patterns.split(",")) {
+            String glob = pattern.trim();
+            if (glob.isEmpty()) {
+                continue;
+            }
+            PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+            if (glob.contains("/")) {
+                matchers.add(matcher);
+            } else {
+                matchers.add(path -> matcher.matches(path.getFileName()));
+            }
+        }
+        return matchers;
+    }
+
+    /**
+     * Checks whether the relative path is matched by any of the matchers.
+     *
+     * @param matchers The matchers of the glob patterns.
+     * @param path     The path relative to the source folder.
+     * @return true if the path is matched, false otherwise.
+     */
+    private static boolean matches(List<PathMatcher> matchers, Path path) {
+        for (PathMatcher matcher : matchers) {
+            if (matcher.matches(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Deletes the specified directory if it exists.
      *
@@ -212,17 +884,22 @@ public class LPVSFileUtil {
 
     /**
      * Retrieves the local directory path based on the provided webhook configuration.
+     * The directory is placed in the workspace root of the webhook if it is set.
      *
      * @param webhookConfig The {@link LPVSQueue} configuration for the webhook.
      * @return The local directory path.
      */
     public static String getLocalDirectoryPath(LPVSQueue webhookConfig) {
+        String workspaceRoot =
+                StringUtils.isBlank(webhookConfig.getWorkspaceRoot())
+                        ? System.getProperty("user.home")
+                                + File.separator
+                                + "LPVS"
+                                + File.separator
+                                + "Projects"
+                        : webhookConfig.getWorkspaceRoot();
         if (StringUtils.isBlank(webhookConfig.getHeadCommitSHA())) {
-            return System.getProperty("user.home")
-                    + File.separator
-                    + "LPVS"
-                    + File.separator
-                    + "Projects"
+            return workspaceRoot
                     + File.separator
                     + LPVSPayloadUtil.getRepositoryName(webhookConfig)
                     + File.separator
@@ -230,11 +907,7 @@ public class LPVSFileUtil {
                     + "-"
                     + LPVSPayloadUtil.getPullRequestId(webhookConfig);
         } else {
-            return System.getProperty("user.home")
-                    + File.separator
-                    + "LPVS"
-                    + File.separator
-                    + "Projects"
+            return workspaceRoot
                     + File.separator
                     + LPVSPayloadUtil.getRepositoryName(webhookConfig)
                     + File.separator
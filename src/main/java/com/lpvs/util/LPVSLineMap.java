@@ -0,0 +1,209 @@
+/**
+ * Copyright (c) 2024, Samsung Electronics Co., Ltd. All rights reserved.
+ *
+ * Use of this source code is governed by a MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.lpvs.util;
+
+import io.micrometer.common.util.StringUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Map of the lines of the sparse files in the workspace to the lines of the original files.
+ * <p>
+ * A sparse file contains only the lines of the hunks of the patch, one after another, instead
+ * of the lines of the hunks at their line numbers padded with empty lines. Each file is mapped
+ * by its segments: the first line in the sparse file, the first line in the original file and
+ * the number of lines. The map is saved next to the workspace directory, so it is not scanned.
+ * </p>
+ */
+@Slf4j
+public class LPVSLineMap {
+
+    /**
+     * Suffix of the file of the map added to the path of the workspace directory.
+     */
+    private static final String SUFFIX = ".lines";
+
+    /**
+     * Segments of the sparse files by the file names.
+     */
+    private final Map<String, List<int[]>> segments = new HashMap<>();
+
+    /**
+     * Adds the segments of the sparse file.
+     *
+     * @param fileName     The name of the file relative to the workspace directory.
+     * @param fileSegments The segments of the file, each one is the first line in the sparse file,
+     *                     the first line in the original file and the number of lines.
+     */
+    public synchronized void add(String fileName, List<int[]> fileSegments) {
+        segments.put(fileName, new ArrayList<>(fileSegments));
+    }
+
+    /**
+     * Checks whether the map has no files.
+     *
+     * @return true if no file is mapped, false otherwise.
+     */
+    public synchronized boolean isEmpty() {
+        return segments.isEmpty();
+    }
+
+    /**
+     * Saves the map next to the workspace directory.
+     *
+     * @param directoryPath The path to the workspace directory.
+     * @throws IOException if the map can't be written.
+     */
+    public synchronized void save(String directoryPath) throws IOException {
+        Properties properties = new Properties();
+        for (Map.Entry<String, List<int[]>> entry : segments.entrySet()) {
+            StringBuilder value = new StringBuilder();
+            for (int[] segment : entry.getValue()) {
+                if (!value.isEmpty()) {
+                    value.append(',');
+                }
+                value.append(segment[0]).append(':').append(segment[1]).append(':');
+                value.append(segment[2]);
+            }
+            properties.setProperty(entry.getKey(), value.toString());
+        }
+        try (Writer writer =
+                Files.newBufferedWriter(getPath(directoryPath), StandardCharsets.UTF_8)) {
+            properties.store(writer, null);
+        }
+    }
+
+    /**
+     * Loads the map of the workspace directory.
+     *
+     * @param directoryPath The path to the workspace directory.
+     * @return The map, or null if the files of the workspace are not sparse.
+     */
+    public static LPVSLineMap load(String directoryPath) {
+        Path path = getPath(directoryPath);
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        } catch (IOException | IllegalArgumentException e) {
+            log.error("Can't read line map " + path + ": " + e.getMessage());
+            return null;
+        }
+        LPVSLineMap lineMap = new LPVSLineMap();
+        for (String fileName : properties.stringPropertyNames()) {
+            List<int[]> fileSegments = new ArrayList<>();
+            try {
+                for (String segment : properties.getProperty(fileName).split(",")) {
+                    String[] values = segment.split(":");
+                    fileSegments.add(
+                            new int[] {
+                                Integer.parseInt(values[0]),
+                                Integer.parseInt(values[1]),
+                                Integer.parseInt(values[2])
+                            });
+                }
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                log.error("Wrong line map of file " + fileName);
+                continue;
+            }
+            lineMap.add(fileName, fileSegments);
+        }
+        return lineMap;
+    }
+
+    /**
+     * Deletes the map of the workspace directory if it exists.
+     *
+     * @param directoryPath The path to the workspace directory.
+     */
+    public static void delete(String directoryPath) {
+        try {
+            Files.deleteIfExists(getPath(directoryPath));
+        } catch (IOException e) {
+            log.warn("Can't delete line map of " + directoryPath + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Translates the lines of the sparse file to the lines of the original file. The lines
+     * between the segments, which separate the hunks, are dropped.
+     *
+     * @param fileName The name of the file relative to the workspace directory.
+     * @param lines    The lines in the sparse file in the format {@code 1-6,10-12}.
+     * @return The lines in the original file, or the lines unchanged if the file is not sparse
+     * or the lines are not ranges.
+     */
+    public synchronized String toOriginalLines(String fileName, String lines) {
+        if (fileName == null || StringUtils.isBlank(lines)) {
+            return lines;
+        }
+        List<int[]> fileSegments = segments.get(fileName.replaceAll("^/+", ""));
+        if (fileSegments == null) {
+            return lines;
+        }
+        List<int[]> ranges = new ArrayList<>();
+        for (String range : lines.split(",")) {
+            String[] bounds = range.trim().split("-");
+            int start;
+            int end;
+            try {
+                start = Integer.parseInt(bounds[0].trim());
+                end = bounds.length > 1 ? Integer.parseInt(bounds[1].trim()) : start;
+            } catch (NumberFormatException e) {
+                return lines;
+            }
+            for (int[] segment : fileSegments) {
+                int from = Math.max(start, segment[0]);
+                int to = Math.min(end, segment[0] + segment[2] - 1);
+                if (from > to) {
+                    continue;
+                }
+                int[] last = ranges.isEmpty() ? null : ranges.get(ranges.size() - 1);
+                int originalFrom = segment[1] + from - segment[0];
+                int originalTo = segment[1] + to - segment[0];
+                if (last != null && last[1] + 1 == originalFrom) {
+                    last[1] = originalTo;
+                } else {
+                    ranges.add(new int[] {originalFrom, originalTo});
+                }
+            }
+        }
+        StringBuilder result = new StringBuilder();
+        for (int[] range : ranges) {
+            if (!result.isEmpty()) {
+                result.append(',');
+            }
+            result.append(range[0]).append('-').append(range[1]);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Gets the path to the file of the map of the workspace directory.
+     *
+     * @param directoryPath The path to the workspace directory.
+     * @return The path to the file of the map.
+     */
+    static Path getPath(String directoryPath) {
+        String directory = directoryPath.replaceAll("[/\\\\]+$", "");
+        return Paths.get(directory + SUFFIX);
+    }
+}
@@ -13,15 +13,22 @@ import com.google.gson.JsonObject;
 import com.lpvs.entity.LPVSLicense;
 import com.lpvs.entity.LPVSQueue;
 import com.lpvs.entity.enums.LPVSPullRequestAction;
+import com.lpvs.entity.enums.LPVSQueuePriority;
+import io.micrometer.common.util.StringUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.kohsuke.github.GHPullRequest;
 import org.kohsuke.github.GHRepository;
 import org.springframework.http.HttpHeaders;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Locale;
 
 /**
  * Utility class for processing GitHub webhook payloads and extracting relevant information.
@@ -38,6 +45,11 @@ public class LPVSPayloadUtil {
         throw new UnsupportedOperationException("Utility class, cannot be instantiated.");
     }
 
+    /**
+     * Maximum number of commits listed in the payload of the push event.
+     */
+    private static final int MAX_PUSH_COMMITS = 20;
+
     /**
      * Creates an InputStreamReader object with the specified input stream and UTF-8 encoding.
      *
@@ -226,9 +238,30 @@ public class LPVSPayloadUtil {
                         .getAsString());
         webhookConfig.setSender(json.getAsJsonObject("sender").get("login").getAsString());
         webhookConfig.setAttempts(0);
+        webhookConfig.setPriority(LPVSQueuePriority.forAction(webhookConfig.getAction()));
+        webhookConfig.setCost(getPullRequestCost(json.getAsJsonObject("pull_request")));
         return webhookConfig;
     }
 
+    /**
+     * Estimates the cost of scanning the pull request described in the webhook payload
+     * as the number of changed lines.
+     *
+     * @param pullRequest The "pull_request" object of the GitHub webhook payload.
+     * @return The number of changed lines, or null if the payload does not contain it.
+     */
+    private static Long getPullRequestCost(JsonObject pullRequest) {
+        JsonElement additions = pullRequest.get("additions");
+        JsonElement deletions = pullRequest.get("deletions");
+        if (additions == null
+                || additions.isJsonNull()
+                || deletions == null
+                || deletions.isJsonNull()) {
+            return null;
+        }
+        return additions.getAsLong() + deletions.getAsLong();
+    }
+
     /**
      * Checks if the provided payload represents a valid GitHub webhook event that LPVS can handle.
      *
@@ -256,6 +289,91 @@ public class LPVSPayloadUtil {
                         || action.equals(LPVSPullRequestAction.REOPEN));
     }
 
+    /**
+     * Gets the repository whose cached metadata is made outdated by the GitHub webhook event:
+     * any change of the repository settings, or a push to the default branch changing its
+     * license files.
+     *
+     * @param event   The type of the GitHub webhook event.
+     * @param payload The GitHub webhook payload in JSON format.
+     * @return The repository in the format {@code org/repo}, or null if its metadata is not
+     * changed by the event.
+     */
+    public static String getChangedRepository(String event, String payload) {
+        if (!isRepositoryEvent(event)) {
+            return null;
+        }
+        JsonObject json;
+        try {
+            json = new Gson().fromJson(payload, JsonObject.class);
+        } catch (RuntimeException e) {
+            log.error("Wrong payload of the " + event + " event: " + e.getMessage());
+            return null;
+        }
+        if (json == null
+                || !json.has("repository")
+                || !json.getAsJsonObject("repository").has("full_name")) {
+            return null;
+        }
+        JsonObject repository = json.getAsJsonObject("repository");
+        String repositoryName = repository.get("full_name").getAsString();
+        if (!"push".equals(event)) {
+            return repositoryName;
+        }
+        if (!json.has("ref")
+                || !repository.has("default_branch")
+                || !json.get("ref")
+                        .getAsString()
+                        .equals("refs/heads/" + repository.get("default_branch").getAsString())) {
+            return null;
+        }
+        JsonArray commits = json.has("commits") ? json.getAsJsonArray("commits") : null;
+        // GitHub lists at most 20 commits of a push, the rest may change the license files
+        if (commits == null || commits.size() >= MAX_PUSH_COMMITS) {
+            return repositoryName;
+        }
+        for (JsonElement commit : commits) {
+            for (String files : new String[] {"added", "modified", "removed"}) {
+                JsonArray paths = commit.getAsJsonObject().getAsJsonArray(files);
+                if (paths == null) {
+                    continue;
+                }
+                for (JsonElement path : paths) {
+                    if (isLicenseFile(path.getAsString())) {
+                        return repositoryName;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether the GitHub webhook event can change the metadata of the repository.
+     *
+     * @param event The type of the GitHub webhook event.
+     * @return true for the push, repository and public events, false otherwise.
+     */
+    public static boolean isRepositoryEvent(String event) {
+        return "push".equals(event) || "repository".equals(event) || "public".equals(event);
+    }
+
+    /**
+     * Checks whether the file can define the license of the repository.
+     *
+     * @param path The path of the file in the repository.
+     * @return true for the LICENSE, LICENCE and COPYING files and the files in the LICENSES
+     * directory, false otherwise.
+     */
+    static boolean isLicenseFile(String path) {
+        String upperCasePath = path.toUpperCase(Locale.ROOT);
+        String fileName = upperCasePath.substring(upperCasePath.lastIndexOf('/') + 1);
+        return upperCasePath.startsWith("LICENSES/")
+                || fileName.startsWith("LICENSE")
+                || fileName.startsWith("LICENCE")
+                || fileName.startsWith("COPYING");
+    }
+
     /**
      * Checks if the given LPVSQueue object is not null and has a non-null repository URL.
      *
@@ -355,6 +473,52 @@ public class LPVSPayloadUtil {
         return url.get(url.size() - 1);
     }
 
+    /**
+     * Retrieves the number of the pull request from the pull request API URL in the LPVSQueue
+     * object, or from the pull request URL if the API URL is absent.
+     *
+     * @param webhookConfig LPVSQueue object containing pull request information.
+     * @return The pull request number, or null if the URL does not end with a number.
+     */
+    public static Integer getPullRequestNumber(LPVSQueue webhookConfig) {
+        if (null == webhookConfig) {
+            return null;
+        }
+        String pullRequestUrl =
+                StringUtils.isBlank(webhookConfig.getPullRequestAPIUrl())
+                        ? webhookConfig.getPullRequestUrl()
+                        : webhookConfig.getPullRequestAPIUrl();
+        if (StringUtils.isBlank(pullRequestUrl)) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(
+                    pullRequestUrl.substring(pullRequestUrl.lastIndexOf('/') + 1).trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Calculates the hash of the pull request URL, which is stored in an indexed column
+     * to find the elements of the same pull request without comparing the long URLs.
+     *
+     * @param pullRequestUrl The URL of the pull request.
+     * @return The hex-encoded SHA-256 hash of the URL, or null if the URL is null.
+     */
+    public static String getPullRequestUrlHash(String pullRequestUrl) {
+        if (pullRequestUrl == null) {
+            return null;
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of()
+                    .formatHex(digest.digest(pullRequestUrl.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
     /**
      * Generates a HttpHeaders object with a set of security headers for a web application.
      *
@@ -427,6 +591,11 @@ public class LPVSPayloadUtil {
                 repo.getHtmlUrl() != null ? repo.getHtmlUrl().toString() : null);
         webhookConfig.setUserId("Single scan of pull request run");
         webhookConfig.setHeadCommitSHA(pR.getHead() != null ? pR.getHead().getSha() : null);
+        try {
+            webhookConfig.setCost((long) pR.getAdditions() + pR.getDeletions());
+        } catch (IOException e) {
+            log.warn("Can't get the size of the pull request " + e.getMessage());
+        }
         return webhookConfig;
     }
 }
@@ -34,6 +34,7 @@ CREATE TABLE IF NOT EXISTS lpvs_pull_requests (
   pull_request_head varchar(255) DEFAULT NULL,
   pull_request_base varchar(255) DEFAULT NULL,
   sender varchar(255) DEFAULT NULL,
+  scanned_commit_sha varchar(255) DEFAULT NULL,
   PRIMARY KEY (id)
 );
 
@@ -75,6 +76,7 @@ CREATE TABLE IF NOT EXISTS lpvs_queue (
   review_system_type varchar(255) DEFAULT NULL,
   repository_url longtext,
   pull_request_url longtext,
+  pull_request_url_hash char(64) DEFAULT NULL,
   pull_request_api_url longtext,
   pull_request_diff_url longtext,
   status_callback_url longtext,
@@ -82,7 +84,39 @@ CREATE TABLE IF NOT EXISTS lpvs_queue (
   pull_request_base varchar(255) DEFAULT NULL,
   pull_request_head varchar(255) DEFAULT NULL,
   sender varchar(255) DEFAULT NULL,
-  PRIMARY KEY (id)
+  lease_owner varchar(255) DEFAULT NULL,
+  lease_expiry datetime DEFAULT NULL,
+  priority int DEFAULT NULL,
+  cost bigint DEFAULT NULL,
+  not_before datetime DEFAULT NULL,
+  scan_checkpoint int DEFAULT NULL,
+  PRIMARY KEY (id),
+  KEY lpvs_queue_claim (lease_expiry, not_before, priority, cost, id),
+  KEY lpvs_queue_order (priority, cost, id),
+  KEY lpvs_queue_url_hash (pull_request_url_hash, id)
+);
+
+CREATE TABLE IF NOT EXISTS lpvs_outbox (
+  id bigint NOT NULL AUTO_INCREMENT,
+  pull_request_id bigint DEFAULT NULL,
+  repository_url longtext,
+  pull_request_url longtext,
+  pull_request_url_hash char(64) DEFAULT NULL,
+  pull_request_api_url longtext,
+  commit_sha varchar(255) DEFAULT NULL,
+  issues bit DEFAULT NULL,
+  comment longtext,
+  hub_link longtext,
+  attempts int DEFAULT '0',
+  created_date datetime DEFAULT NULL,
+  not_before datetime DEFAULT NULL,
+  lease_owner varchar(255) DEFAULT NULL,
+  lease_expiry datetime DEFAULT NULL,
+  PRIMARY KEY (id),
+  KEY lpvs_outbox_pull_request (pull_request_id),
+  KEY lpvs_outbox_not_before (not_before),
+  KEY lpvs_outbox_url_hash (pull_request_url_hash, id),
+  FOREIGN KEY (pull_request_id) REFERENCES lpvs_pull_requests (id)
 );
 
 
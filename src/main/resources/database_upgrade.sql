@@ -0,0 +1,46 @@
+-- Upgrade of the lpvs schema created by an earlier version of database_dump.sql.
+-- The new installations get these columns, tables and indexes from database_dump.sql.
+USE lpvs;
+
+ALTER TABLE lpvs_pull_requests
+  ADD COLUMN scanned_commit_sha varchar(255) DEFAULT NULL;
+
+ALTER TABLE lpvs_queue
+  ADD COLUMN pull_request_url_hash char(64) DEFAULT NULL,
+  ADD COLUMN lease_owner varchar(255) DEFAULT NULL,
+  ADD COLUMN lease_expiry datetime DEFAULT NULL,
+  ADD COLUMN priority int DEFAULT NULL,
+  ADD COLUMN cost bigint DEFAULT NULL,
+  ADD COLUMN not_before datetime DEFAULT NULL,
+  ADD COLUMN scan_checkpoint int DEFAULT NULL;
+
+-- the hash is set by LPVS together with the URL, the rows stored before are hashed here
+UPDATE lpvs_queue SET pull_request_url_hash = SHA2(pull_request_url, 256)
+  WHERE pull_request_url IS NOT NULL;
+
+CREATE INDEX lpvs_queue_claim ON lpvs_queue (lease_expiry, not_before, priority, cost, id);
+CREATE INDEX lpvs_queue_order ON lpvs_queue (priority, cost, id);
+CREATE INDEX lpvs_queue_url_hash ON lpvs_queue (pull_request_url_hash, id);
+
+CREATE TABLE IF NOT EXISTS lpvs_outbox (
+  id bigint NOT NULL AUTO_INCREMENT,
+  pull_request_id bigint DEFAULT NULL,
+  repository_url longtext,
+  pull_request_url longtext,
+  pull_request_url_hash char(64) DEFAULT NULL,
+  pull_request_api_url longtext,
+  commit_sha varchar(255) DEFAULT NULL,
+  issues bit DEFAULT NULL,
+  comment longtext,
+  hub_link longtext,
+  attempts int DEFAULT '0',
+  created_date datetime DEFAULT NULL,
+  not_before datetime DEFAULT NULL,
+  lease_owner varchar(255) DEFAULT NULL,
+  lease_expiry datetime DEFAULT NULL,
+  PRIMARY KEY (id),
+  KEY lpvs_outbox_pull_request (pull_request_id),
+  KEY lpvs_outbox_not_before (not_before),
+  KEY lpvs_outbox_url_hash (pull_request_url_hash, id),
+  FOREIGN KEY (pull_request_id) REFERENCES lpvs_pull_requests (id)
+);
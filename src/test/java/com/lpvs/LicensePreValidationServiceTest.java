@@ -14,11 +14,15 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.context.ApplicationContextInitializer;
 import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MutablePropertySources;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.core.task.TaskExecutor;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
+import java.util.concurrent.ThreadPoolExecutor;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -90,6 +94,8 @@ public class LicensePreValidationServiceTest {
         ConfigurableEnvironment env = mock(ConfigurableEnvironment.class);
         when(applicationContext.getEnvironment()).thenReturn(env);
         when(env.getProperty("lpvs.cores", "8")).thenReturn("8");
+        when(env.getProperty("lpvs.virtual-threads", "false")).thenReturn("false");
+        when(env.getProperty("lpvs.workspace.threads", "4")).thenReturn("4");
         when(env.getProperty("lpvs.version", "Unknown")).thenReturn("1.0.0");
 
         licensePreValidationService.run(args);
@@ -104,6 +110,46 @@ public class LicensePreValidationServiceTest {
         System.setOut(originalOut);
     }
 
+    @Test
+    public void testAddInitializers_VirtualThreads() {
+        Mockito.when(applicationContext.getBean(LPVSExitHandler.class)).thenReturn(exitHandler);
+        ArgumentCaptor<ApplicationContextInitializer<ConfigurableApplicationContext>> captor =
+                ArgumentCaptor.forClass(ApplicationContextInitializer.class);
+        ConfigurableEnvironment env = mock(ConfigurableEnvironment.class);
+        MutablePropertySources propertySources = new MutablePropertySources();
+        when(applicationContext.getEnvironment()).thenReturn(env);
+        when(env.getPropertySources()).thenReturn(propertySources);
+        when(env.getProperty("lpvs.cores", "8")).thenReturn("8");
+        when(env.getProperty("lpvs.virtual-threads", "false")).thenReturn("true");
+        when(env.getProperty("lpvs.workspace.threads", "4")).thenReturn("4");
+        when(env.getProperty("lpvs.version", "Unknown")).thenReturn("1.0.0");
+
+        licensePreValidationService.run(args);
+        verify(springApplication).addInitializers(captor.capture());
+        try {
+            captor.getValue().initialize(applicationContext);
+
+            boolean supported = LicensePreValidationService.isVirtualThreadsSupported();
+            assertEquals(
+                    supported,
+                    ReflectionTestUtils.getField(
+                            LicensePreValidationService.class, "virtualThreads"));
+            if (supported) {
+                assertFalse(propertySources.contains("lpvsVirtualThreads"));
+            } else {
+                // without virtual threads, the queue processor has lpvs.cores workers
+                assertEquals(
+                        "false",
+                        propertySources
+                                .get("lpvsVirtualThreads")
+                                .getProperty("lpvs.virtual-threads"));
+            }
+        } finally {
+            ReflectionTestUtils.setField(
+                    LicensePreValidationService.class, "virtualThreads", false);
+        }
+    }
+
     @Test
     public void testCreateSpringApplication() {
         LicensePreValidationService service = new LicensePreValidationService();
@@ -123,11 +169,87 @@ public class LicensePreValidationServiceTest {
 
             assertEquals(executor, mocked_constructed_executor);
             verify(mocked_constructed_executor, times(1)).setCorePoolSize(8);
+            verify(mocked_constructed_executor, times(1)).setMaxPoolSize(8);
+            verify(mocked_constructed_executor, times(1)).setQueueCapacity(8);
             verify(mocked_constructed_executor, times(1)).setThreadNamePrefix("LPVS::");
             verifyNoMoreInteractions(mocked_constructed_executor);
         }
     }
 
+    @Test
+    public void testGetAsyncExecutor_VirtualThreads() {
+        ReflectionTestUtils.setField(LicensePreValidationService.class, "virtualThreads", true);
+        try {
+            if (LicensePreValidationService.isVirtualThreadsSupported()) {
+                TaskExecutor executor = new LicensePreValidationService().getAsyncExecutor();
+                assertInstanceOf(SimpleAsyncTaskExecutor.class, executor);
+            } else {
+                // virtual threads are turned off at startup on older runtimes
+                assertThrows(
+                        UnsupportedOperationException.class,
+                        () -> new LicensePreValidationService().getAsyncExecutor());
+            }
+        } finally {
+            ReflectionTestUtils.setField(
+                    LicensePreValidationService.class, "virtualThreads", false);
+        }
+    }
+
+    @Test
+    public void testGetGitHubExecutor() {
+        try (MockedConstruction<ThreadPoolTaskExecutor> mocked =
+                mockConstruction(ThreadPoolTaskExecutor.class)) {
+            TaskExecutor executor = new LicensePreValidationService().getGitHubExecutor();
+
+            assertEquals(1, mocked.constructed().size());
+            ThreadPoolTaskExecutor mocked_constructed_executor = mocked.constructed().get(0);
+
+            assertEquals(executor, mocked_constructed_executor);
+            verify(mocked_constructed_executor, times(1)).setCorePoolSize(8);
+            verify(mocked_constructed_executor, times(1)).setMaxPoolSize(8);
+            verify(mocked_constructed_executor, times(1)).setThreadNamePrefix("LPVS-github::");
+            verifyNoMoreInteractions(mocked_constructed_executor);
+        }
+    }
+
+    @Test
+    public void testGetFileExecutor() {
+        try (MockedConstruction<ThreadPoolTaskExecutor> mocked =
+                mockConstruction(ThreadPoolTaskExecutor.class)) {
+            TaskExecutor executor = new LicensePreValidationService().getFileExecutor();
+
+            assertEquals(1, mocked.constructed().size());
+            ThreadPoolTaskExecutor mocked_constructed_executor = mocked.constructed().get(0);
+
+            assertEquals(executor, mocked_constructed_executor);
+            verify(mocked_constructed_executor, times(1)).setCorePoolSize(4);
+            verify(mocked_constructed_executor, times(1)).setMaxPoolSize(4);
+            verify(mocked_constructed_executor, times(1)).setQueueCapacity(16);
+            verify(mocked_constructed_executor, times(1))
+                    .setRejectedExecutionHandler(any(ThreadPoolExecutor.CallerRunsPolicy.class));
+            verify(mocked_constructed_executor, times(1)).setThreadNamePrefix("LPVS-files::");
+            verifyNoMoreInteractions(mocked_constructed_executor);
+        }
+    }
+
+    @Test
+    public void testGetOutboxExecutor() {
+        try (MockedConstruction<ThreadPoolTaskExecutor> mocked =
+                mockConstruction(ThreadPoolTaskExecutor.class)) {
+            TaskExecutor executor = new LicensePreValidationService().getOutboxExecutor();
+
+            assertEquals(1, mocked.constructed().size());
+            ThreadPoolTaskExecutor mocked_constructed_executor = mocked.constructed().get(0);
+
+            assertEquals(executor, mocked_constructed_executor);
+            verify(mocked_constructed_executor, times(1)).setCorePoolSize(1);
+            verify(mocked_constructed_executor, times(1)).setMaxPoolSize(1);
+            verify(mocked_constructed_executor, times(1)).setQueueCapacity(0);
+            verify(mocked_constructed_executor, times(1)).setThreadNamePrefix("LPVS-outbox::");
+            verifyNoMoreInteractions(mocked_constructed_executor);
+        }
+    }
+
     @Test
     public void testGetEmblem() {
         String emblem = LicensePreValidationService.getEmblem("test");
@@ -29,6 +29,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.kohsuke.github.GHPullRequest;
 import org.kohsuke.github.GHRepository;
 import org.kohsuke.github.GitHub;
+import org.mockito.InOrder;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
@@ -94,7 +95,7 @@ public class GitHubControllerTest {
     public void noSignatureTest() {
         ResponseEntity<LPVSResponseWrapper> actual;
         try {
-            actual = gitHubController.gitHubWebhooks(null, null);
+            actual = gitHubController.gitHubWebhooks(null, null, null);
         } catch (Exception e) {
             actual = null;
         }
@@ -107,7 +108,7 @@ public class GitHubControllerTest {
     public void wrongGithubSecretTest() {
         ResponseEntity<LPVSResponseWrapper> actual;
         try {
-            actual = gitHubControllerWrongSecret.gitHubWebhooks(SIGNATURE, "test");
+            actual = gitHubControllerWrongSecret.gitHubWebhooks(SIGNATURE, null, "test");
         } catch (Exception e) {
             actual = null;
         }
@@ -120,7 +121,7 @@ public class GitHubControllerTest {
     public void noPayloadTest() {
         ResponseEntity<LPVSResponseWrapper> actual;
         try {
-            actual = gitHubController.gitHubWebhooks(SIGNATURE, null);
+            actual = gitHubController.gitHubWebhooks(SIGNATURE, null, null);
         } catch (Exception e) {
             actual = null;
         }
@@ -130,7 +131,7 @@ public class GitHubControllerTest {
     }
 
     @Test
-    public void okTest() {
+    public void okTest() throws InterruptedException {
         ResponseEntity<LPVSResponseWrapper> actual;
 
         String json_to_test =
@@ -169,7 +170,7 @@ public class GitHubControllerTest {
                         + "}";
 
         try {
-            actual = gitHubController.gitHubWebhooks(SIGNATURE, json_to_test);
+            actual = gitHubController.gitHubWebhooks(SIGNATURE, "pull_request", json_to_test);
         } catch (Exception e) {
             log.error(e.getMessage());
             actual = null;
@@ -178,6 +179,39 @@ public class GitHubControllerTest {
         ResponseEntity<LPVSResponseWrapper> expected =
                 new ResponseEntity<>(new LPVSResponseWrapper(SUCCESS), HttpStatus.OK);
         assertEquals(expected.toString().substring(0, 42), actual.toString().substring(0, 42));
+
+        // the element is stored by the queue only after the pending check is set
+        InOrder inOrder = inOrder(mocked_instance_ghServ, mocked_instance_queueServ);
+        inOrder.verify(mocked_instance_ghServ).setPendingCheck(any());
+        inOrder.verify(mocked_instance_queueServ).addFirst(any());
+        verify(mocked_queueRepo, never()).save(any());
+    }
+
+    @Test
+    public void repositoryEventTest() throws Exception {
+        String push =
+                "{"
+                        + "\"ref\": \"refs/heads/main\", "
+                        + "\"repository\": {"
+                        + "\"full_name\": \"Samsung/LPVS\", "
+                        + "\"default_branch\": \"main\""
+                        + "}, "
+                        + "\"commits\": [{\"added\": [], \"removed\": [], "
+                        + "\"modified\": [\"%s\"]}]"
+                        + "}";
+
+        ResponseEntity<LPVSResponseWrapper> actual =
+                gitHubController.gitHubWebhooks(
+                        SIGNATURE, "push", String.format(push, "README.md"));
+        assertEquals(HttpStatus.OK, actual.getStatusCode());
+        verify(mocked_instance_ghServ, never()).invalidateRepository(anyString());
+
+        actual =
+                gitHubController.gitHubWebhooks(
+                        SIGNATURE, "push", String.format(push, "LICENSE"));
+        assertEquals(HttpStatus.OK, actual.getStatusCode());
+        verify(mocked_instance_ghServ, times(1)).invalidateRepository("Samsung/LPVS");
+        verify(mocked_instance_queueServ, never()).addFirst(any());
     }
 
     @Test
@@ -251,7 +285,6 @@ public class GitHubControllerTest {
         LPVSQueue mockScanConfig = new LPVSQueue();
         when(mocked_instance_ghServ.getInternalQueueByPullRequest(anyString()))
                 .thenReturn(mockScanConfig);
-        when(mocked_queueRepo.save(any())).thenReturn(mockScanConfig);
         doNothing().when(mocked_instance_queueServ).addFirst(any());
 
         when(mocked_ghConnServ.connectToGitHubApi()).thenReturn(gitHub);
@@ -7,6 +7,8 @@
 package com.lpvs.controller;
 
 import com.lpvs.repository.LPVSQueueRepository;
+import com.lpvs.service.LPVSPipeline;
+import com.lpvs.service.LPVSRateLimitGovernor;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
@@ -25,6 +27,10 @@ public class HealthControllerTest {
 
     @Mock private LPVSQueueRepository queueRepository;
 
+    @Mock private LPVSPipeline pipeline;
+
+    @Mock private LPVSRateLimitGovernor rateLimitGovernor;
+
     @InjectMocks private HealthController healthController;
 
     @Test
@@ -49,4 +55,27 @@ public class HealthControllerTest {
         Map<String, Long> responseBody = response.getBody();
         assertEquals(expectedQueueLength, responseBody.get("queueLength"));
     }
+
+    @Test
+    public void testGetPipelineStatus() {
+        Map<String, Map<String, Integer>> occupancy =
+                Map.of("scan", Map.of("active", 2, "workers", 8, "queued", 1, "capacity", 8));
+        when(pipeline.getOccupancy()).thenReturn(occupancy);
+
+        ResponseEntity<Map<String, Map<String, Integer>>> response =
+                healthController.getPipelineStatus();
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(2, response.getBody().get("scan").get("active"));
+    }
+
+    @Test
+    public void testGetGitHubRateLimitStatus() {
+        when(rateLimitGovernor.getStatus()).thenReturn(Map.of("remaining", 42L, "limit", 5000L));
+
+        ResponseEntity<Map<String, Long>> response = healthController.getGitHubRateLimitStatus();
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(42L, response.getBody().get("remaining"));
+    }
 }
@@ -28,6 +28,7 @@ public class LPVSPullRequestTest {
     final String pullRequestBase = "base";
     final String pullRequestHead = "head";
     final String sender = "sender";
+    final String scannedCommitSha = "sha";
 
     @BeforeEach
     void setUp() {
@@ -43,7 +44,8 @@ public class LPVSPullRequestTest {
                         status,
                         pullRequestHead,
                         pullRequestBase,
-                        sender);
+                        sender,
+                        scannedCommitSha);
     }
 
     @Test
@@ -58,6 +60,7 @@ public class LPVSPullRequestTest {
         assertEquals(lpvsPullRequest.getStatus(), status);
         assertEquals(lpvsPullRequest.getPullRequestBase(), pullRequestBase);
         assertEquals(lpvsPullRequest.getPullRequestHead(), pullRequestHead);
+        assertEquals(lpvsPullRequest.getScannedCommitSha(), scannedCommitSha);
     }
 
     @Test
@@ -7,6 +7,8 @@
 package com.lpvs.entity;
 
 import com.lpvs.entity.enums.LPVSPullRequestAction;
+import com.lpvs.entity.enums.LPVSQueueCheckpoint;
+import com.lpvs.entity.enums.LPVSQueuePriority;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -35,6 +37,12 @@ public class LPVSQueueTest {
         webhookConfig.setAttempts(10);
         webhookConfig.setDate(date);
         webhookConfig.setReviewSystemType("scanner");
+        webhookConfig.setLeaseOwner("node-1");
+        webhookConfig.setLeaseExpiry(date);
+        webhookConfig.setPriority(LPVSQueuePriority.RETRY);
+        webhookConfig.setCost(42L);
+        webhookConfig.setNotBefore(date);
+        webhookConfig.setCheckpoint(LPVSQueueCheckpoint.SCANNED);
     }
 
     @Test
@@ -96,6 +104,12 @@ public class LPVSQueueTest {
         assertEquals(webhookConfig.getReviewSystemType(), "scanner");
         assertEquals(
                 webhookConfig.getStatusCallbackUrl(), "https://github.com/Samsung/LPVS/pull/16");
+        assertEquals(webhookConfig.getLeaseOwner(), "node-1");
+        assertEquals(webhookConfig.getLeaseExpiry(), date);
+        assertEquals(webhookConfig.getPriority(), LPVSQueuePriority.RETRY);
+        assertEquals(webhookConfig.getCost(), Long.valueOf(42L));
+        assertEquals(webhookConfig.getNotBefore(), date);
+        assertEquals(webhookConfig.getCheckpoint(), LPVSQueueCheckpoint.SCANNED);
     }
 
     @Test
@@ -0,0 +1,60 @@
+/**
+ * Copyright (c) 2024, Samsung Electronics Co., Ltd. All rights reserved.
+ *
+ * Use of this source code is governed by a MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.lpvs.entity.enums;
+
+import com.lpvs.exception.LPVSPullRequestNotFoundException;
+import com.lpvs.exception.LPVSScannerException;
+import org.junit.jupiter.api.Test;
+import org.kohsuke.github.GHFileNotFoundException;
+import org.kohsuke.github.HttpException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class LPVSFailureTypeTest {
+
+    @Test
+    public void testOf_RateLimit() {
+        assertEquals(
+                LPVSFailureType.RATE_LIMIT,
+                LPVSFailureType.of(new HttpException("Too many requests", 429, "", "url")));
+        assertEquals(
+                LPVSFailureType.RATE_LIMIT,
+                LPVSFailureType.of(
+                        new UncheckedIOException(
+                                new HttpException("API rate limit exceeded", 403, "", "url"))));
+        assertEquals(
+                LPVSFailureType.OTHER,
+                LPVSFailureType.of(new HttpException("Forbidden", 403, "", "url")));
+    }
+
+    @Test
+    public void testOf_NotFound() {
+        assertEquals(
+                LPVSFailureType.PULL_REQUEST_NOT_FOUND,
+                LPVSFailureType.of(new GHFileNotFoundException("Not found")));
+        assertEquals(
+                LPVSFailureType.PULL_REQUEST_NOT_FOUND,
+                LPVSFailureType.of(new LPVSPullRequestNotFoundException("Files are not found")));
+    }
+
+    @Test
+    public void testOf_ScannerCrash() {
+        assertEquals(
+                LPVSFailureType.SCANNER_CRASH,
+                LPVSFailureType.of(
+                        new LPVSScannerException("Scan failed", new Exception("exit code 1"))));
+    }
+
+    @Test
+    public void testOf_Other() {
+        assertEquals(LPVSFailureType.OTHER, LPVSFailureType.of(new IOException("error")));
+        assertEquals(LPVSFailureType.OTHER, LPVSFailureType.of(null));
+    }
+}
@@ -25,6 +25,9 @@ public class LPVSPullRequestStatusTest {
                 LPVSPullRequestStatus.INTERNAL_ERROR.getPullRequestStatus());
         assertEquals("Scan completed", LPVSPullRequestStatus.COMPLETED.getPullRequestStatus());
         assertEquals("Scan is scheduled", LPVSPullRequestStatus.SCANNING.getPullRequestStatus());
+        assertEquals(
+                "Scan superseded by a newer commit",
+                LPVSPullRequestStatus.SUPERSEDED.getPullRequestStatus());
     }
 
     @Test
@@ -35,16 +38,18 @@ public class LPVSPullRequestStatusTest {
                 "Error while posting results", LPVSPullRequestStatus.INTERNAL_ERROR.toString());
         assertEquals("Scan completed", LPVSPullRequestStatus.COMPLETED.toString());
         assertEquals("Scan is scheduled", LPVSPullRequestStatus.SCANNING.toString());
+        assertEquals("Scan superseded by a newer commit", LPVSPullRequestStatus.SUPERSEDED.toString());
     }
 
     @Test
     public void testEnumValues() {
         LPVSPullRequestStatus[] values = LPVSPullRequestStatus.values();
-        assertEquals(5, values.length);
+        assertEquals(6, values.length);
         assertEquals(LPVSPullRequestStatus.NO_ACCESS, values[0]);
         assertEquals(LPVSPullRequestStatus.ISSUES_DETECTED, values[1]);
         assertEquals(LPVSPullRequestStatus.INTERNAL_ERROR, values[2]);
         assertEquals(LPVSPullRequestStatus.COMPLETED, values[3]);
         assertEquals(LPVSPullRequestStatus.SCANNING, values[4]);
+        assertEquals(LPVSPullRequestStatus.SUPERSEDED, values[5]);
     }
 }
@@ -0,0 +1,21 @@
+/**
+ * Copyright (c) 2024, Samsung Electronics Co., Ltd. All rights reserved.
+ *
+ * Use of this source code is governed by a MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.lpvs.entity.enums;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class LPVSQueueCheckpointTest {
+
+    @Test
+    public void testOrdinals() {
+        // checkpoints are stored by ordinal in the queue table
+        assertEquals(0, LPVSQueueCheckpoint.FILES_FETCHED.ordinal());
+        assertEquals(1, LPVSQueueCheckpoint.SCANNED.ordinal());
+    }
+}
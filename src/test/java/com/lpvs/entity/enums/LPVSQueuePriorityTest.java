@@ -0,0 +1,62 @@
+/**
+ * Copyright (c) 2024, Samsung Electronics Co., Ltd. All rights reserved.
+ *
+ * Use of this source code is governed by a MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.lpvs.entity.enums;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LPVSQueuePriorityTest {
+
+    @Test
+    public void testOrder() {
+        assertTrue(
+                LPVSQueuePriority.INTERACTIVE.getCode() < LPVSQueuePriority.WEBHOOK.getCode()
+                        && LPVSQueuePriority.WEBHOOK.getCode() < LPVSQueuePriority.RETRY.getCode()
+                        && LPVSQueuePriority.RETRY.getCode()
+                                < LPVSQueuePriority.BACKFILL.getCode());
+    }
+
+    @Test
+    public void testCodeConverter() {
+        LPVSQueuePriority.CodeConverter converter = new LPVSQueuePriority.CodeConverter();
+        for (LPVSQueuePriority priority : LPVSQueuePriority.values()) {
+            assertEquals(
+                    priority,
+                    converter.convertToEntityAttribute(
+                            converter.convertToDatabaseColumn(priority)));
+        }
+        assertEquals(1, converter.convertToDatabaseColumn(LPVSQueuePriority.WEBHOOK));
+        assertNull(converter.convertToDatabaseColumn(null));
+        assertNull(converter.convertToEntityAttribute(null));
+        assertNull(converter.convertToEntityAttribute(-1));
+    }
+
+    @Test
+    public void testForAction() {
+        assertEquals(
+                LPVSQueuePriority.INTERACTIVE,
+                LPVSQueuePriority.forAction(LPVSPullRequestAction.SINGLE_SCAN));
+        assertEquals(
+                LPVSQueuePriority.INTERACTIVE,
+                LPVSQueuePriority.forAction(LPVSPullRequestAction.RESCAN));
+        assertEquals(
+                LPVSQueuePriority.WEBHOOK, LPVSQueuePriority.forAction(LPVSPullRequestAction.OPEN));
+        assertEquals(
+                LPVSQueuePriority.WEBHOOK,
+                LPVSQueuePriority.forAction(LPVSPullRequestAction.UPDATE));
+        assertEquals(
+                LPVSQueuePriority.BACKFILL,
+                LPVSQueuePriority.forAction(LPVSPullRequestAction.BOT_SCAN));
+        assertEquals(
+                LPVSQueuePriority.BACKFILL,
+                LPVSQueuePriority.forAction(LPVSPullRequestAction.REPO_SCAN));
+        assertEquals(LPVSQueuePriority.WEBHOOK, LPVSQueuePriority.forAction(null));
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) 2024, Samsung Electronics Co., Ltd. All rights reserved.
+ *
+ * Use of this source code is governed by a MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.lpvs.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.util.Arrays;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LPVSGitHubAppJwtProviderTest {
+
+    private KeyPair keyPair;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        keyPair = generator.generateKeyPair();
+    }
+
+    private static String pem(String type, byte[] der) {
+        return "-----BEGIN "
+                + type
+                + "-----\n"
+                + Base64.getMimeEncoder().encodeToString(der)
+                + "\n-----END "
+                + type
+                + "-----\n";
+    }
+
+    @Test
+    public void testCreateToken() throws Exception {
+        LPVSGitHubAppJwtProvider provider =
+                new LPVSGitHubAppJwtProvider(
+                        "12345", pem("PRIVATE KEY", keyPair.getPrivate().getEncoded()));
+        String[] token = provider.createToken(1000000).split("\\.");
+        assertEquals(3, token.length);
+
+        Base64.Decoder decoder = Base64.getUrlDecoder();
+        assertEquals(
+                "{\"alg\":\"RS256\",\"typ\":\"JWT\"}",
+                new String(decoder.decode(token[0]), StandardCharsets.UTF_8));
+        assertEquals(
+                "{\"iat\":999940,\"exp\":1000480,\"iss\":\"12345\"}",
+                new String(decoder.decode(token[1]), StandardCharsets.UTF_8));
+
+        Signature signature = Signature.getInstance("SHA256withRSA");
+        signature.initVerify(keyPair.getPublic());
+        signature.update((token[0] + "." + token[1]).getBytes(StandardCharsets.US_ASCII));
+        assertTrue(signature.verify(decoder.decode(token[2])));
+    }
+
+    @Test
+    public void testGetEncodedAuthorization_Cached() throws Exception {
+        LPVSGitHubAppJwtProvider provider =
+                new LPVSGitHubAppJwtProvider(
+                        "12345", pem("PRIVATE KEY", keyPair.getPrivate().getEncoded()));
+        String authorization = provider.getEncodedAuthorization();
+        assertTrue(authorization.startsWith("Bearer "));
+        assertEquals(authorization, provider.getEncodedAuthorization());
+    }
+
+    @Test
+    public void testParsePrivateKey_Pkcs1() throws Exception {
+        byte[] pkcs8 = keyPair.getPrivate().getEncoded();
+        // the PKCS#1 key of a 2048-bit RSA key follows the 26-byte PKCS#8 header
+        byte[] pkcs1 = Arrays.copyOfRange(pkcs8, 26, pkcs8.length);
+        assertArrayEquals(pkcs8, LPVSGitHubAppJwtProvider.toPkcs8(pkcs1));
+        assertEquals(
+                keyPair.getPrivate(),
+                LPVSGitHubAppJwtProvider.parsePrivateKey(pem("RSA PRIVATE KEY", pkcs1)));
+    }
+
+    @Test
+    public void testParsePrivateKey_Invalid() {
+        assertThrows(
+                GeneralSecurityException.class,
+                () -> LPVSGitHubAppJwtProvider.parsePrivateKey(null));
+        assertThrows(
+                GeneralSecurityException.class,
+                () -> LPVSGitHubAppJwtProvider.parsePrivateKey("not a key"));
+        assertThrows(
+                GeneralSecurityException.class,
+                () ->
+                        LPVSGitHubAppJwtProvider.parsePrivateKey(
+                                pem("PRIVATE KEY", new byte[] {1, 2, 3})));
+    }
+}
@@ -0,0 +1,237 @@
+/**
+ * Copyright (c) 2024, Samsung Electronics Co., Ltd. All rights reserved.
+ *
+ * Use of this source code is governed by a MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.lpvs.service;
+
+import com.lpvs.entity.LPVSPullRequest;
+import com.lpvs.entity.LPVSQueue;
+import com.lpvs.repository.LPVSDetectedLicenseRepository;
+import com.lpvs.repository.LPVSLicenseConflictRepository;
+import com.lpvs.repository.LPVSLicenseRepository;
+import com.lpvs.repository.LPVSPullRequestRepository;
+import com.lpvs.util.LPVSExitHandler;
+import com.lpvs.util.LPVSFileUtil;
+import com.lpvs.util.LPVSGitHubApiSimulator;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Runs the GitHub part of the processing of pull requests against the local simulator of
+ * the GitHub API.
+ */
+@Slf4j
+public class LPVSGitHubServiceSimulationTest {
+
+    private LPVSGitHubApiSimulator simulator;
+    private LPVSGitHubConnectionService gitHubConnectionService;
+    private LPVSGitHubService gitHubService;
+    private final List<String> directories = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        simulator = new LPVSGitHubApiSimulator().start();
+        gitHubConnectionService =
+                new LPVSGitHubConnectionService(
+                        "", "token", simulator.getApiUrl(), mock(LPVSExitHandler.class));
+        gitHubService =
+                new LPVSGitHubService(
+                        mock(LPVSPullRequestRepository.class),
+                        mock(LPVSDetectedLicenseRepository.class),
+                        mock(LPVSLicenseRepository.class),
+                        mock(LPVSLicenseConflictRepository.class),
+                        gitHubConnectionService);
+    }
+
+    @AfterEach
+    void tearDown() {
+        simulator.close();
+        gitHubConnectionService.close();
+        directories.forEach(LPVSFileUtil::deleteIfExists);
+    }
+
+    private LPVSQueue getWebhookConfig(String repository, int number, String headSha) {
+        LPVSQueue webhookConfig = new LPVSQueue();
+        webhookConfig.setId((long) number);
+        webhookConfig.setRepositoryUrl("https://github.com/" + repository);
+        webhookConfig.setPullRequestUrl("https://github.com/" + repository + "/pull/" + number);
+        webhookConfig.setPullRequestAPIUrl(
+                simulator.getApiUrl() + "/repos/" + repository + "/pulls/" + number);
+        webhookConfig.setHeadCommitSHA(headSha);
+        return webhookConfig;
+    }
+
+    private void processPullRequest(LPVSQueue webhookConfig) throws Exception {
+        assertNotNull(gitHubService.getRepository(webhookConfig));
+        gitHubService.getRepositoryLicense(webhookConfig);
+        gitHubService.setPendingCheck(webhookConfig);
+        String directory = gitHubService.getPullRequestFiles(webhookConfig);
+        assertNotNull(directory);
+        synchronized (directories) {
+            directories.add(directory);
+        }
+        gitHubService.commentResults(
+                webhookConfig,
+                Collections.emptyList(),
+                Collections.emptyList(),
+                new LPVSPullRequest());
+    }
+
+    @Test
+    public void testProcessPullRequest_ListedFiles() throws Exception {
+        LPVSGitHubApiSimulator.PullRequest pullRequest =
+                simulator
+                        .addRepository("Samsung", "LPVS")
+                        .setLicense("MIT", "MIT License")
+                        .addPullRequest(1, "abc123");
+        for (int i = 0; i < 5; i++) {
+            pullRequest.addFile("src/File" + i + ".java", "line 1\nline 2\n");
+        }
+        simulator.setPageSize(2);
+        LPVSQueue webhookConfig = getWebhookConfig("Samsung/LPVS", 1, "abc123");
+
+        assertArrayEquals(
+                new String[] {"MIT", "MIT License"},
+                gitHubService.getRepositoryLicense(webhookConfig));
+        processPullRequest(webhookConfig);
+
+        String directory = LPVSFileUtil.getLocalDirectoryPath(webhookConfig);
+        assertEquals(5, new File(directory, "src").list().length);
+        assertEquals(
+                List.of("line 1", "line 2"),
+                Files.readAllLines(Paths.get(directory, "src", "File4.java")));
+        assertEquals(
+                3,
+                Collections.frequency(
+                        simulator.getRequests(), "GET /repos/Samsung/LPVS/pulls/1/files"));
+        LPVSGitHubApiSimulator.Repository repository = simulator.getRepository("samsung/lpvs");
+        assertEquals(List.of("pending", "success"), repository.getStatuses("abc123"));
+        assertEquals(1, pullRequest.getComments().size());
+        assertTrue(pullRequest.getComments().get(0).contains("No license issue detected"));
+    }
+
+    @Test
+    public void testProcessPullRequest_StreamedDiff() throws Exception {
+        simulator
+                .addRepository("Samsung", "LPVS")
+                .addPullRequest(2, "def456")
+                .addFile("README.md", "# LPVS\n")
+                .addPatch("src/Main.java", "@@ -3,2 +3,2 @@\n context\n-old\n+new");
+        ReflectionTestUtils.setField(gitHubService, "streamDiff", true);
+        LPVSQueue webhookConfig = getWebhookConfig("Samsung/LPVS", 2, "def456");
+
+        assertNull(gitHubService.getRepositoryLicense(webhookConfig));
+        processPullRequest(webhookConfig);
+
+        String directory = LPVSFileUtil.getLocalDirectoryPath(webhookConfig);
+        assertEquals(
+                List.of("# LPVS"), Files.readAllLines(Paths.get(directory, "README.md")));
+        assertTrue(new File(directory, "src/Main.java").exists());
+        assertFalse(simulator.getRequests().contains("GET /repos/Samsung/LPVS/pulls/2/files"));
+    }
+
+    @Test
+    public void testGetPullRequestFiles_RateLimitExceeded() {
+        simulator.addRepository("Samsung", "LPVS").addPullRequest(3, "abc123");
+        ReflectionTestUtils.setField(gitHubService, "streamDiff", true);
+        // the repository and the pull request are fetched, the diff exceeds the limit
+        simulator.setRateLimit(2, 3600000);
+        LPVSQueue webhookConfig = getWebhookConfig("Samsung/LPVS", 3, "abc123");
+        directories.add(LPVSFileUtil.getLocalDirectoryPath(webhookConfig));
+
+        assertThrows(
+                UncheckedIOException.class,
+                () -> gitHubService.getPullRequestFiles(webhookConfig));
+        assertEquals(1, simulator.getRateLimitedCount());
+    }
+
+    @Test
+    public void testRateLimitReportedToGovernor() {
+        simulator.addRepository("Samsung", "LPVS");
+        simulator.setRateLimit(100, 3600000);
+        LPVSRateLimitGovernor governor = new LPVSRateLimitGovernor();
+        gitHubConnectionService.setRateLimitGovernor(governor);
+        LPVSQueue webhookConfig = getWebhookConfig("Samsung/LPVS", 4, "abc123");
+
+        for (int i = 0; i < 3; i++) {
+            assertNotNull(gitHubService.getRepository(webhookConfig));
+        }
+        assertEquals(100L, governor.getStatus().get("limit"));
+        long remaining = governor.getStatus().get("remaining");
+        assertTrue(remaining >= 97 && remaining < 100, "remaining " + remaining);
+    }
+
+    @Test
+    public void testProcessPullRequests_Throughput() throws Exception {
+        int pullRequests = 16;
+        simulator.setLatency(20);
+        for (String name : new String[] {"LPVS", "Other"}) {
+            LPVSGitHubApiSimulator.Repository repository = simulator.addRepository("Samsung", name);
+            for (int number = 1; number <= pullRequests / 2; number++) {
+                repository.addPullRequest(number, name + number).addFile("File.java", "code\n");
+            }
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        long start = System.currentTimeMillis();
+        try {
+            List<Future<?>> jobs = new ArrayList<>();
+            for (String name : new String[] {"LPVS", "Other"}) {
+                for (int number = 1; number <= pullRequests / 2; number++) {
+                    LPVSQueue webhookConfig =
+                            getWebhookConfig("Samsung/" + name, number, name + number);
+                    jobs.add(
+                            executor.submit(
+                                    () -> {
+                                        processPullRequest(webhookConfig);
+                                        return null;
+                                    }));
+                }
+            }
+            for (Future<?> job : jobs) {
+                job.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        long elapsed = Math.max(System.currentTimeMillis() - start, 1);
+        log.info(
+                pullRequests
+                        + " pull requests processed in "
+                        + elapsed
+                        + " ms, "
+                        + simulator.getRequests().size()
+                        + " requests, "
+                        + pullRequests * 1000 / elapsed
+                        + " pull requests/s");
+
+        for (String name : new String[] {"LPVS", "Other"}) {
+            LPVSGitHubApiSimulator.Repository repository =
+                    simulator.getRepository("Samsung/" + name);
+            for (int number = 1; number <= pullRequests / 2; number++) {
+                assertEquals(
+                        List.of("pending", "success"), repository.getStatuses(name + number));
+                assertEquals(1, repository.getPullRequests().get(number).getComments().size());
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/**
+ * Copyright (c) 2024, Samsung Electronics Co., Ltd. All rights reserved.
+ *
+ * Use of this source code is governed by a MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.lpvs.service;
+
+import com.lpvs.entity.LPVSDetectedLicense;
+import com.lpvs.entity.LPVSFile;
+import com.lpvs.entity.LPVSLicense;
+import com.lpvs.entity.LPVSPullRequest;
+import com.lpvs.entity.LPVSQueue;
+import com.lpvs.entity.enums.LPVSPullRequestAction;
+import com.lpvs.repository.LPVSDetectedLicenseRepository;
+import com.lpvs.repository.LPVSPullRequestRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class LPVSIncrementalScanServiceTest {
+
+    private LPVSPullRequestRepository pullRequestRepository;
+    private LPVSDetectedLicenseRepository detectedLicenseRepository;
+    private LPVSIncrementalScanService incrementalScanService;
+    private LPVSQueue webhookConfig;
+    private LPVSPullRequest baseline;
+
+    @BeforeEach
+    void setUp() {
+        pullRequestRepository = mock(LPVSPullRequestRepository.class);
+        detectedLicenseRepository = mock(LPVSDetectedLicenseRepository.class);
+        incrementalScanService =
+                new LPVSIncrementalScanService(pullRequestRepository, detectedLicenseRepository);
+        ReflectionTestUtils.setField(incrementalScanService, "enabled", true);
+
+        webhookConfig = new LPVSQueue();
+        webhookConfig.setAction(LPVSPullRequestAction.UPDATE);
+        webhookConfig.setPullRequestUrl("https://github.com/Samsung/LPVS/pull/1");
+        webhookConfig.setHeadCommitSHA("new_sha");
+
+        baseline = new LPVSPullRequest();
+        baseline.setId(1L);
+        baseline.setScannedCommitSha("old_sha");
+        when(pullRequestRepository.findLatestScanned(
+                        eq("https://github.com/Samsung/LPVS/pull/1"), any()))
+                .thenReturn(baseline);
+    }
+
+    private static LPVSDetectedLicense detectedLicense(String filePath, LPVSLicense license) {
+        LPVSDetectedLicense detectedLicense = new LPVSDetectedLicense();
+        detectedLicense.setFilePath(filePath);
+        detectedLicense.setType("snippet");
+        detectedLicense.setMatch("100%");
+        detectedLicense.setLines("1-10");
+        detectedLicense.setComponentName("component");
+        detectedLicense.setLicense(license);
+        return detectedLicense;
+    }
+
+    @Test
+    public void testFindBaseline() {
+        assertSame(baseline, incrementalScanService.findBaseline(webhookConfig));
+    }
+
+    @Test
+    public void testFindBaseline_FullScan() {
+        // the same commit is scanned again
+        webhookConfig.setHeadCommitSHA("old_sha");
+        assertNull(incrementalScanService.findBaseline(webhookConfig));
+
+        // new pull requests are scanned completely
+        webhookConfig.setHeadCommitSHA("new_sha");
+        webhookConfig.setAction(LPVSPullRequestAction.OPEN);
+        assertNull(incrementalScanService.findBaseline(webhookConfig));
+
+        webhookConfig.setAction(LPVSPullRequestAction.UPDATE);
+        ReflectionTestUtils.setField(incrementalScanService, "enabled", false);
+        assertNull(incrementalScanService.findBaseline(webhookConfig));
+    }
+
+    @Test
+    public void testGetStoredFiles() {
+        LPVSLicense mit = new LPVSLicense(1L, "MIT License", "MIT", "PERMITTED", "", "");
+        LPVSLicense apache =
+                new LPVSLicense(2L, "Apache License 2.0", "Apache-2.0", "PERMITTED", "", "");
+        when(detectedLicenseRepository.findByPullRequestAndLicenseIsNotNull(baseline))
+                .thenReturn(
+                        Arrays.asList(
+                                detectedLicense("/src/kept.c", mit),
+                                detectedLicense("/src/kept.c", apache),
+                                detectedLicense("/src/changed.c", mit),
+                                detectedLicense("/src/rescanned.c", mit),
+                                detectedLicense(null, mit)));
+        LPVSFile rescanned = new LPVSFile();
+        rescanned.setFilePath("/src/rescanned.c");
+        Set<String> changedFiles = new HashSet<>(Collections.singletonList("src/changed.c"));
+
+        List<LPVSFile> files =
+                incrementalScanService.getStoredFiles(
+                        baseline, changedFiles, Collections.singletonList(rescanned));
+
+        assertEquals(1, files.size());
+        LPVSFile file = files.get(0);
+        assertEquals("/src/kept.c", file.getFilePath());
+        assertEquals("snippet", file.getSnippetType());
+        assertEquals("100%", file.getSnippetMatch());
+        assertEquals("1-10", file.getMatchedLines());
+        assertEquals("component", file.getComponentName());
+        assertEquals(new HashSet<>(Arrays.asList(mit, apache)), file.getLicenses());
+    }
+}
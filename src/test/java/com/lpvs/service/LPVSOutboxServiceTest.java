@@ -0,0 +1,224 @@
+/**
+ * Copyright (c) 2024, Samsung Electronics Co., Ltd. All rights reserved.
+ *
+ * Use of this source code is governed by a MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.lpvs.service;
+
+import com.lpvs.entity.LPVSFile;
+import com.lpvs.entity.LPVSOutbox;
+import com.lpvs.entity.LPVSPullRequest;
+import com.lpvs.entity.LPVSQueue;
+import com.lpvs.entity.enums.LPVSFailureType;
+import com.lpvs.repository.LPVSOutboxRepository;
+import com.lpvs.util.LPVSPayloadUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.kohsuke.github.HttpException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class LPVSOutboxServiceTest {
+
+    private LPVSOutboxRepository outboxRepository;
+    private LPVSGitHubService gitHubService;
+    private LPVSQueueService queueService;
+    private LPVSIncrementalScanService incrementalScanService;
+    private LPVSOutboxService outboxService;
+    private LPVSPullRequest pullRequest;
+
+    @BeforeEach
+    void setUp() {
+        outboxRepository = mock(LPVSOutboxRepository.class);
+        gitHubService = mock(LPVSGitHubService.class);
+        queueService = mock(LPVSQueueService.class);
+        incrementalScanService = mock(LPVSIncrementalScanService.class);
+        outboxService =
+                new LPVSOutboxService(
+                        outboxRepository, gitHubService, queueService, incrementalScanService);
+        ReflectionTestUtils.setField(outboxService, "enabled", true);
+        ReflectionTestUtils.setField(outboxService, "batchSize", 10);
+        ReflectionTestUtils.setField(outboxService, "maxAttempts", 3);
+        ReflectionTestUtils.setField(outboxService, "leaseDuration", 600000L);
+        when(queueService.getNodeId()).thenReturn("node");
+        when(queueService.getRetryDelay(any(), anyInt())).thenReturn(30000L);
+        when(outboxRepository.claim(anyLong(), eq("node"), any(), any())).thenReturn(1);
+        pullRequest = new LPVSPullRequest();
+    }
+
+    private LPVSOutbox outbox(long id, String pullRequestUrl) {
+        LPVSOutbox outbox = new LPVSOutbox();
+        outbox.setId(id);
+        outbox.setPullRequest(pullRequest);
+        outbox.setPullRequestUrl(pullRequestUrl);
+        return outbox;
+    }
+
+    @Test
+    public void testEnqueue() throws Exception {
+        LPVSQueue webhookConfig = new LPVSQueue();
+        webhookConfig.setRepositoryUrl("https://github.com/Samsung/LPVS");
+        webhookConfig.setPullRequestUrl("https://github.com/Samsung/LPVS/pull/1");
+        webhookConfig.setHeadCommitSHA("sha");
+        List<LPVSFile> files = Collections.emptyList();
+        when(gitHubService.getComment(webhookConfig, files, null)).thenReturn("report");
+        when(gitHubService.saveResults(webhookConfig, files, null, pullRequest)).thenReturn(true);
+        when(outboxRepository.save(any(LPVSOutbox.class))).thenAnswer(i -> i.getArguments()[0]);
+
+        LPVSOutbox outbox = outboxService.enqueue(webhookConfig, files, null, pullRequest);
+
+        assertTrue(outbox.isIssues());
+        assertEquals("report", outbox.getComment());
+        assertSame(pullRequest, outbox.getPullRequest());
+        assertEquals("https://github.com/Samsung/LPVS", outbox.getRepositoryUrl());
+        assertEquals("https://github.com/Samsung/LPVS/pull/1", outbox.getPullRequestUrl());
+        assertEquals(
+                LPVSPayloadUtil.getPullRequestUrlHash("https://github.com/Samsung/LPVS/pull/1"),
+                outbox.getPullRequestUrlHash());
+        assertEquals("sha", outbox.getHeadCommitSHA());
+        assertNotNull(outbox.getDate());
+        verify(gitHubService, never()).commentResults(any(), any(), any(), any());
+    }
+
+    @Test
+    public void testPublishPending_Published() throws Exception {
+        LPVSOutbox outbox = outbox(1L, "https://github.com/Samsung/LPVS/pull/1");
+        List<LPVSFile> files = Collections.singletonList(new LPVSFile());
+        when(outboxRepository.findPublishable(any(), any()))
+                .thenReturn(Collections.singletonList(outbox));
+        when(incrementalScanService.getStoredFiles(pullRequest, Collections.emptySet(), null))
+                .thenReturn(files);
+
+        outboxService.publishPending();
+
+        verify(gitHubService, times(1)).publishResults(outbox, files);
+        verify(outboxRepository, times(1)).delete(outbox);
+    }
+
+    @Test
+    public void testPublishPending_Superseded() throws Exception {
+        LPVSOutbox older = outbox(1L, "https://github.com/Samsung/LPVS/pull/1");
+        LPVSOutbox newer = outbox(2L, "https://github.com/Samsung/LPVS/pull/1");
+        when(outboxRepository.findPublishable(any(), any()))
+                .thenReturn(Arrays.asList(older, newer));
+        when(outboxRepository.existsByPullRequestUrlHashAndIdGreaterThan(
+                        older.getPullRequestUrlHash(), 1L))
+                .thenReturn(true);
+
+        outboxService.publishPending();
+
+        verify(gitHubService, never()).publishResults(eq(older), any());
+        verify(gitHubService, times(1)).publishResults(eq(newer), any());
+        verify(outboxRepository, times(1)).delete(older);
+        verify(outboxRepository, times(1)).delete(newer);
+    }
+
+    @Test
+    public void testPublishPending_ClaimedByOtherInstance() throws Exception {
+        LPVSOutbox outbox = outbox(1L, "https://github.com/Samsung/LPVS/pull/1");
+        when(outboxRepository.findPublishable(any(), any()))
+                .thenReturn(Collections.singletonList(outbox));
+        when(outboxRepository.claim(eq(1L), eq("node"), any(), any())).thenReturn(0);
+
+        outboxService.publishPending();
+
+        verify(gitHubService, never()).publishResults(any(), any());
+    }
+
+    @Test
+    public void testPublishPending_RetriedWithoutRescan() throws Exception {
+        LPVSOutbox outbox = outbox(1L, "https://github.com/Samsung/LPVS/pull/1");
+        when(outboxRepository.findPublishable(any(), any()))
+                .thenReturn(Collections.singletonList(outbox));
+        doThrow(new IOException("GitHub is not available"))
+                .when(gitHubService)
+                .publishResults(eq(outbox), any());
+
+        outboxService.publishPending();
+
+        assertEquals(1, outbox.getAttempts());
+        assertNotNull(outbox.getNotBefore());
+        assertNull(outbox.getLeaseOwner());
+        verify(queueService, times(1)).getRetryDelay(LPVSFailureType.OTHER, 1);
+        verify(outboxRepository, times(1)).save(outbox);
+        verify(outboxRepository, never()).delete(outbox);
+        verify(queueService, never()).retry(any(), any(), anyInt());
+    }
+
+    @Test
+    public void testPublishPending_RateLimitStopsBatch() throws Exception {
+        LPVSOutbox first = outbox(1L, "https://github.com/Samsung/LPVS/pull/1");
+        LPVSOutbox second = outbox(2L, "https://github.com/Samsung/LPVS/pull/2");
+        when(outboxRepository.findPublishable(any(), any()))
+                .thenReturn(Arrays.asList(first, second));
+        doThrow(new HttpException("API rate limit exceeded", 403, "Forbidden", "url"))
+                .when(gitHubService)
+                .publishResults(eq(first), any());
+
+        outboxService.publishPending();
+
+        verify(queueService, times(1)).getRetryDelay(LPVSFailureType.RATE_LIMIT, 1);
+        verify(gitHubService, never()).publishResults(eq(second), any());
+    }
+
+    @Test
+    public void testPublishPending_AttemptsExceeded() throws Exception {
+        LPVSOutbox outbox = outbox(1L, "https://github.com/Samsung/LPVS/pull/1");
+        outbox.setAttempts(2);
+        when(outboxRepository.findPublishable(any(), any()))
+                .thenReturn(Collections.singletonList(outbox));
+        doThrow(new IOException("GitHub is not available"))
+                .when(gitHubService)
+                .publishResults(eq(outbox), any());
+
+        outboxService.publishPending();
+
+        verify(outboxRepository, times(1)).delete(outbox);
+        verify(outboxRepository, never()).save(outbox);
+    }
+
+    @Test
+    public void testPublishPending_Disabled() {
+        ReflectionTestUtils.setField(outboxService, "enabled", false);
+        outboxService.publishPending();
+        verify(outboxRepository, never()).findPublishable(any(), any());
+        assertFalse(outboxService.isEnabled());
+    }
+
+    @Test
+    public void testPublishPending_OnPublisherExecutor() throws Exception {
+        LPVSOutbox outbox = outbox(1L, "https://github.com/Samsung/LPVS/pull/1");
+        when(outboxRepository.findPublishable(any(), any()))
+                .thenReturn(Collections.singletonList(outbox));
+        List<Runnable> runs = new ArrayList<>();
+        outboxService.setPublisherExecutor(runs::add);
+
+        // the scheduler thread only hands the run over to the publisher
+        outboxService.publishPending();
+        verify(gitHubService, never()).publishResults(any(), any());
+        assertEquals(1, runs.size());
+        runs.get(0).run();
+        verify(gitHubService, times(1)).publishResults(eq(outbox), any());
+
+        // the run is skipped while the previous one is still going
+        outboxService.setPublisherExecutor(
+                run -> {
+                    throw new RejectedExecutionException();
+                });
+        assertDoesNotThrow(() -> outboxService.publishPending());
+        verify(gitHubService, times(1)).publishResults(any(), any());
+    }
+}
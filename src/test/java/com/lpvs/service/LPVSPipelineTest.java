@@ -0,0 +1,161 @@
+/**
+ * Copyright (c) 2024, Samsung Electronics Co., Ltd. All rights reserved.
+ *
+ * Use of this source code is governed by a MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.lpvs.service;
+
+import com.lpvs.service.LPVSPipeline.Stage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LPVSPipelineTest {
+
+    private LPVSPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        pipeline = new LPVSPipeline();
+        for (Stage stage : Stage.values()) {
+            String name = stage.name().toLowerCase();
+            ReflectionTestUtils.setField(pipeline, name + "Workers", 1);
+            ReflectionTestUtils.setField(pipeline, name + "Queue", 1);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        pipeline.shutdown();
+    }
+
+    @Test
+    public void testIsEnabled() {
+        assertFalse(pipeline.isEnabled());
+        ReflectionTestUtils.setField(pipeline, "enabled", true);
+        assertTrue(pipeline.isEnabled());
+    }
+
+    @Test
+    public void testRunOnStageWorker() throws Exception {
+        AtomicReference<String> threadName = new AtomicReference<>();
+        pipeline.run(Stage.SCAN, () -> threadName.set(Thread.currentThread().getName()))
+                .get(5, TimeUnit.SECONDS);
+        assertTrue(threadName.get().startsWith("LPVS-scan::"));
+    }
+
+    @Test
+    public void testGetCapacity() {
+        assertEquals(8, pipeline.getCapacity());
+        ReflectionTestUtils.setField(pipeline, "scanWorkers", 0);
+        // at least one worker per stage
+        assertEquals(8, pipeline.getCapacity());
+        ReflectionTestUtils.setField(pipeline, "scanWorkers", 4);
+        ReflectionTestUtils.setField(pipeline, "scanQueue", 6);
+        assertEquals(16, pipeline.getCapacity());
+    }
+
+    @Test
+    public void testGetOccupancy() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        pipeline.run(
+                Stage.FETCH,
+                () -> {
+                    started.countDown();
+                    awaitQuietly(finish);
+                });
+        pipeline.run(Stage.FETCH, () -> {});
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        Map<String, Map<String, Integer>> occupancy = pipeline.getOccupancy();
+        assertEquals(4, occupancy.size());
+        assertEquals(1, occupancy.get("fetch").get("active"));
+        assertEquals(1, occupancy.get("fetch").get("workers"));
+        assertEquals(1, occupancy.get("fetch").get("queued"));
+        assertEquals(1, occupancy.get("fetch").get("capacity"));
+        assertEquals(0, occupancy.get("publish").get("active"));
+        assertEquals(0, occupancy.get("publish").get("queued"));
+        finish.countDown();
+    }
+
+    @Test
+    public void testRunWaitsForRoomInQueue() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        pipeline.run(
+                Stage.PUBLISH,
+                () -> {
+                    started.countDown();
+                    awaitQuietly(finish);
+                });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        pipeline.run(Stage.PUBLISH, () -> {});
+
+        // the queue of the stage is full, the third job waits for a free place
+        AtomicBoolean submitted = new AtomicBoolean(false);
+        CompletableFuture<Void> waiting =
+                CompletableFuture.runAsync(
+                        () -> {
+                            pipeline.run(Stage.PUBLISH, () -> {});
+                            submitted.set(true);
+                        });
+        Thread.sleep(100);
+        assertFalse(submitted.get());
+
+        finish.countDown();
+        waiting.get(5, TimeUnit.SECONDS);
+        assertTrue(submitted.get());
+    }
+
+    @Test
+    public void testRunAfterShutdown() throws Exception {
+        pipeline.run(Stage.RESOLVE, () -> {}).get(5, TimeUnit.SECONDS);
+        pipeline.shutdown();
+        assertEquals(0, pipeline.getOccupancy().get("resolve").get("active"));
+        // the stage is started again on the next use
+        pipeline.run(Stage.RESOLVE, () -> {}).get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testRunRejectedWhenStageStopped() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        pipeline.run(
+                Stage.SCAN,
+                () -> {
+                    started.countDown();
+                    awaitQuietly(finish);
+                });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        pipeline.run(Stage.SCAN, () -> {});
+
+        // the job waiting for a free place is rejected when the stage is stopped
+        CompletableFuture<Void> waiting =
+                CompletableFuture.runAsync(() -> pipeline.run(Stage.SCAN, () -> {}));
+        Thread.sleep(100);
+        pipeline.shutdown();
+        Exception e = assertThrows(Exception.class, () -> waiting.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(RejectedExecutionException.class, e.getCause());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
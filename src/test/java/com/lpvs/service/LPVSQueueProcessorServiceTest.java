@@ -16,7 +16,14 @@ import org.junit.jupiter.api.Test;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import static org.junit.jupiter.api.Assertions.fail;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 @Slf4j
@@ -33,7 +40,7 @@ public class LPVSQueueProcessorServiceTest {
         webhookConfigTest = new LPVSQueue();
 
         try {
-            when(queueService.getQueueFirstElement())
+            when(queueService.getQueueFirstElement(any(), any()))
                     // first iteration
                     .thenReturn(webhookConfigTest)
                     // second iteration
@@ -47,7 +54,15 @@ public class LPVSQueueProcessorServiceTest {
         when(webhookServiceFactory.createWebhookService(false)).thenReturn(webhookService);
 
         queueProcessorService =
-                new LPVSQueueProcessorService(queueService, webhookServiceFactory, false);
+                new LPVSQueueProcessorService(
+                        queueService,
+                        webhookServiceFactory,
+                        false,
+                        Runnable::run,
+                        new LPVSQueueScheduler(),
+                        new LPVSPipeline(),
+                        new LPVSRateLimitGovernor(),
+                        2);
     }
 
     @Test
@@ -78,7 +93,7 @@ public class LPVSQueueProcessorServiceTest {
 
         try {
             // called twice, first iteration, and second
-            verify(queueService, times(2)).getQueueFirstElement();
+            verify(queueService, times(2)).getQueueFirstElement(any(), any());
         } catch (InterruptedException e) {
             log.error(
                     "InterruptedException at LPVSQueueProcessorServiceTest.testQueueProcessor(): "
@@ -87,5 +102,152 @@ public class LPVSQueueProcessorServiceTest {
         }
         // called once, only at the end of first iteration
         verify(webhookService, times(1)).processWebHook(webhookConfigTest);
+        verify(queueService, times(1)).startProcessing(webhookConfigTest);
+        verify(queueService, times(1)).finishProcessing(webhookConfigTest);
+    }
+
+    @Test
+    public void testQueueProcessor_RejectedByExecutor() throws Exception {
+        queueProcessorService =
+                new LPVSQueueProcessorService(
+                        queueService,
+                        webhookServiceFactory,
+                        false,
+                        task -> {
+                            throw new TaskRejectedException("Test TaskRejectedException");
+                        },
+                        new LPVSQueueScheduler(),
+                        new LPVSPipeline(),
+                        new LPVSRateLimitGovernor(),
+                        2);
+        try {
+            Method method = queueProcessorService.getClass().getDeclaredMethod("queueProcessor");
+            method.setAccessible(true);
+            method.invoke(queueProcessorService);
+        } catch (InvocationTargetException e) {
+            assertInstanceOf(InterruptedException.class, e.getCause());
+        }
+        // rejected element is returned to the queue
+        verify(queueService, times(1)).add(webhookConfigTest);
+        verify(webhookService, never()).processWebHook(any());
+    }
+
+    @Test
+    public void testQueueProcessor_ReleasesRepositorySlot() throws Exception {
+        webhookConfigTest.setRepositoryUrl("https://github.com/Samsung/LPVS");
+        doAnswer(
+                        invocation -> {
+                            assertEquals(1, queueProcessorService.getInFlight("Samsung/LPVS"));
+                            assertEquals(1, queueProcessorService.getInFlight("Samsung"));
+                            return null;
+                        })
+                .when(webhookService)
+                .processWebHook(webhookConfigTest);
+        try {
+            Method method = queueProcessorService.getClass().getDeclaredMethod("queueProcessor");
+            method.setAccessible(true);
+            method.invoke(queueProcessorService);
+        } catch (InvocationTargetException e) {
+            assertInstanceOf(InterruptedException.class, e.getCause());
+        }
+        verify(webhookService, times(1)).processWebHook(webhookConfigTest);
+        assertEquals(0, queueProcessorService.getInFlight("Samsung/LPVS"));
+        assertEquals(0, queueProcessorService.getInFlight("Samsung"));
+    }
+
+    @Test
+    public void testQueueProcessor_Pipeline() throws Exception {
+        webhookConfigTest.setRepositoryUrl("https://github.com/Samsung/LPVS");
+        LPVSPipeline pipeline = new LPVSPipeline();
+        ReflectionTestUtils.setField(pipeline, "enabled", true);
+        CompletableFuture<Void> processing = new CompletableFuture<>();
+        when(webhookService.processWebHook(webhookConfigTest, pipeline)).thenReturn(processing);
+        queueProcessorService =
+                new LPVSQueueProcessorService(
+                        queueService,
+                        webhookServiceFactory,
+                        false,
+                        task -> fail("The executor is not used by the pipeline"),
+                        new LPVSQueueScheduler(),
+                        pipeline,
+                        new LPVSRateLimitGovernor(),
+                        2);
+        try {
+            queueProcessorService.queueProcessor();
+        } catch (InterruptedException e) {
+            log.info("Awaited behavior: InterruptedException at 2nd iteration");
+        }
+        verify(webhookService, never()).processWebHook(any());
+        verify(queueService, times(1)).startProcessing(webhookConfigTest);
+        verify(queueService, times(1)).pauseProcessing(webhookConfigTest);
+
+        // the slot is held until the element leaves the pipeline
+        assertEquals(1, queueProcessorService.getInFlight("Samsung/LPVS"));
+        processing.complete(null);
+        verify(queueService, times(1)).finishProcessing(webhookConfigTest);
+        assertEquals(0, queueProcessorService.getInFlight("Samsung/LPVS"));
+    }
+
+    @Test
+    public void testQueueProcessor_Draining() throws Exception {
+        when(queueService.isDraining()).thenReturn(true);
+        queueProcessorService.queueProcessor();
+        verify(queueService, never()).getQueueFirstElement(any(), any());
+    }
+
+    @Test
+    public void testQueueProcessor_DrainedWhileWaiting() throws Exception {
+        when(queueService.getQueueFirstElement(any(), any())).thenReturn(null);
+        queueProcessorService.queueProcessor();
+        verify(queueService, times(1)).getQueueFirstElement(any(), any());
+        verify(webhookService, never()).processWebHook(any());
+
+        // the worker slot is returned
+        queueProcessorService.drain();
+        verify(queueService, never()).suspendAll();
+    }
+
+    @Test
+    public void testDrain() {
+        queueProcessorService.drain();
+        verify(queueService, times(1)).drain();
+        verify(queueService, never()).suspendAll();
+        verify(queueService, times(1)).releaseAll();
+    }
+
+    @Test
+    public void testDrain_SuspendsRunningElements() throws Exception {
+        List<Runnable> running = new ArrayList<>();
+        queueProcessorService =
+                new LPVSQueueProcessorService(
+                        queueService,
+                        webhookServiceFactory,
+                        false,
+                        running::add,
+                        new LPVSQueueScheduler(),
+                        new LPVSPipeline(),
+                        new LPVSRateLimitGovernor(),
+                        2);
+        ReflectionTestUtils.setField(queueProcessorService, "drainTimeout", 10L);
+        try {
+            queueProcessorService.queueProcessor();
+        } catch (InterruptedException e) {
+            log.info("Awaited behavior: InterruptedException at 2nd iteration");
+        }
+        assertEquals(1, running.size());
+
+        // the suspended element stops right away
+        doAnswer(
+                        invocation -> {
+                            running.forEach(Runnable::run);
+                            return null;
+                        })
+                .when(queueService)
+                .suspendAll();
+        queueProcessorService.drain();
+
+        verify(queueService, times(1)).suspendAll();
+        verify(queueService, times(1)).finishProcessing(webhookConfigTest);
+        verify(queueService, times(1)).releaseAll();
     }
 }
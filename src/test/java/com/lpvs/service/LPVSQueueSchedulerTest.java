@@ -0,0 +1,155 @@
+/**
+ * Copyright (c) 2024, Samsung Electronics Co., Ltd. All rights reserved.
+ *
+ * Use of this source code is governed by a MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.lpvs.service;
+
+import com.lpvs.entity.LPVSQueue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LPVSQueueSchedulerTest {
+
+    private LPVSQueueScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new LPVSQueueScheduler();
+    }
+
+    private static LPVSQueue job(String repository) {
+        LPVSQueue webhookConfig = new LPVSQueue();
+        webhookConfig.setRepositoryUrl("https://github.com/" + repository);
+        return webhookConfig;
+    }
+
+    private Map<String, Integer> dispatch(List<LPVSQueue> jobs, int count) {
+        Map<String, Integer> dispatched = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            LPVSQueue next = Collections.min(jobs, scheduler);
+            scheduler.started(next);
+            scheduler.finished(next);
+            dispatched.merge(next.getRepositoryUrl(), 1, Integer::sum);
+        }
+        return dispatched;
+    }
+
+    @Test
+    public void testIsAdmitted_RepositoryLimits() {
+        ReflectionTestUtils.setField(scheduler, "repositoryMaxJobs", 2);
+        ReflectionTestUtils.setField(scheduler, "repositoryLimits", "Samsung/LPVS=1, wrong");
+
+        LPVSQueue lpvsJob = job("Samsung/LPVS");
+        LPVSQueue otherJob = job("Samsung/other");
+
+        assertTrue(scheduler.isAdmitted(lpvsJob));
+        scheduler.started(lpvsJob);
+        scheduler.started(otherJob);
+        assertFalse(scheduler.isAdmitted(lpvsJob));
+        assertTrue(scheduler.isAdmitted(otherJob));
+        assertEquals(1, scheduler.getInFlight("Samsung/LPVS"));
+        assertEquals(2, scheduler.getInFlight("Samsung"));
+        assertEquals(0, scheduler.getInFlight("Samsung/unknown"));
+
+        scheduler.finished(lpvsJob);
+        assertTrue(scheduler.isAdmitted(lpvsJob));
+        assertEquals(0, scheduler.getInFlight("Samsung/LPVS"));
+    }
+
+    @Test
+    public void testIsAdmitted_OrganizationLimits() {
+        ReflectionTestUtils.setField(scheduler, "organizationMaxJobs", 2);
+        ReflectionTestUtils.setField(scheduler, "organizationLimits", "Samsung=1");
+
+        LPVSQueue lpvsJob = job("Samsung/LPVS");
+        LPVSQueue otherJob = job("Samsung/other");
+        LPVSQueue foreignJob = job("other/LPVS");
+
+        scheduler.started(lpvsJob);
+        assertFalse(scheduler.isAdmitted(otherJob));
+        assertTrue(scheduler.isAdmitted(foreignJob));
+        scheduler.started(foreignJob);
+        assertTrue(scheduler.isAdmitted(foreignJob));
+        scheduler.started(foreignJob);
+        assertFalse(scheduler.isAdmitted(foreignJob));
+    }
+
+    @Test
+    public void testIsAdmitted_UnknownRepository() {
+        LPVSQueue unknownJob = new LPVSQueue();
+        assertTrue(scheduler.isAdmitted(unknownJob));
+        scheduler.started(unknownJob);
+        assertEquals(1, scheduler.getInFlight(""));
+        scheduler.finished(unknownJob);
+        assertEquals(0, scheduler.getInFlight(""));
+    }
+
+    @Test
+    public void testCompare_FairBetweenOrganizations() {
+        LPVSQueue busyJob = job("Samsung/LPVS");
+        LPVSQueue otherJob = job("other/LPVS");
+
+        assertEquals(0, scheduler.compare(busyJob, otherJob));
+        scheduler.started(busyJob);
+        assertTrue(scheduler.compare(busyJob, otherJob) > 0);
+        assertTrue(scheduler.compare(otherJob, busyJob) < 0);
+
+        Map<String, Integer> dispatched = dispatch(List.of(busyJob, otherJob), 20);
+        assertEquals(10, dispatched.get(busyJob.getRepositoryUrl()));
+        assertEquals(10, dispatched.get(otherJob.getRepositoryUrl()));
+    }
+
+    @Test
+    public void testCompare_FairBetweenRepositoriesOfOrganization() {
+        LPVSQueue lpvsJob = job("Samsung/LPVS");
+        LPVSQueue otherJob = job("Samsung/other");
+        LPVSQueue foreignJob = job("other/LPVS");
+
+        // two repositories of one organization share the organization's half
+        Map<String, Integer> dispatched = dispatch(List.of(lpvsJob, otherJob, foreignJob), 40);
+        assertEquals(10, dispatched.get(lpvsJob.getRepositoryUrl()));
+        assertEquals(10, dispatched.get(otherJob.getRepositoryUrl()));
+        assertEquals(20, dispatched.get(foreignJob.getRepositoryUrl()));
+    }
+
+    @Test
+    public void testCompare_OrganizationWeights() {
+        ReflectionTestUtils.setField(scheduler, "weights", "Samsung=2, wrong=x");
+
+        LPVSQueue lpvsJob = job("Samsung/LPVS");
+        LPVSQueue foreignJob = job("other/LPVS");
+        Map<String, Integer> dispatched = dispatch(List.of(foreignJob, lpvsJob), 30);
+        assertEquals(20, dispatched.get(lpvsJob.getRepositoryUrl()));
+        assertEquals(10, dispatched.get(foreignJob.getRepositoryUrl()));
+    }
+
+    @Test
+    public void testCompare_RepositoryWeights() {
+        ReflectionTestUtils.setField(scheduler, "weights", "Samsung/LPVS=3");
+
+        LPVSQueue lpvsJob = job("Samsung/LPVS");
+        LPVSQueue otherJob = job("Samsung/other");
+        Map<String, Integer> dispatched = dispatch(List.of(lpvsJob, otherJob), 40);
+        assertEquals(30, dispatched.get(lpvsJob.getRepositoryUrl()));
+        assertEquals(10, dispatched.get(otherJob.getRepositoryUrl()));
+    }
+
+    @Test
+    public void testCompare_IdleTenantHasNoCredit() {
+        LPVSQueue busyJob = job("Samsung/LPVS");
+        LPVSQueue idleJob = job("other/LPVS");
+
+        dispatch(List.of(busyJob), 10);
+        // the idle organization starts from the current virtual time, not from zero
+        Map<String, Integer> dispatched = dispatch(List.of(busyJob, idleJob), 10);
+        assertEquals(5, dispatched.get(busyJob.getRepositoryUrl()));
+        assertEquals(5, dispatched.get(idleJob.getRepositoryUrl()));
+    }
+}
@@ -7,18 +7,26 @@
 package com.lpvs.service;
 
 import com.lpvs.entity.LPVSQueue;
+import com.lpvs.entity.enums.LPVSFailureType;
 import com.lpvs.entity.enums.LPVSPullRequestAction;
+import com.lpvs.entity.enums.LPVSQueueCheckpoint;
+import com.lpvs.entity.enums.LPVSQueuePriority;
 import com.lpvs.repository.LPVSQueueRepository;
+import com.lpvs.util.LPVSPayloadUtil;
 import lombok.extern.slf4j.Slf4j;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @Slf4j
@@ -31,50 +39,383 @@ public class LPVSQueueServiceTest {
 
         LPVSQueue whConfig1;
         LPVSQueue whConfig2;
-        LPVSQueue whConfig3;
-        LPVSQueue whConfig4;
-        LPVSQueue whConfig5;
         LPVSQueueRepository mocked_queueRepository = mock(LPVSQueueRepository.class);
 
         @BeforeEach
         void setUp() {
             queueService = new LPVSQueueService(mocked_queueRepository);
+            ReflectionTestUtils.setField(queueService, "nodeId", "node-1");
+            ReflectionTestUtils.setField(queueService, "leaseDuration", 600000L);
+            ReflectionTestUtils.setField(queueService, "pollInterval", 10L);
 
             whConfig1 = new LPVSQueue();
             whConfig1.setId(1L);
 
             whConfig2 = new LPVSQueue();
             whConfig2.setId(2L);
+        }
 
-            whConfig3 = new LPVSQueue();
-            whConfig3.setId(3L);
+        @Test
+        public void testClaimNext() {
+            when(mocked_queueRepository.findClaimable(any(), any()))
+                    .thenReturn(List.of(whConfig1, whConfig2));
+            // element 1 is claimed by another instance in the meantime
+            when(mocked_queueRepository.claim(eq(1L), eq("node-1"), any(), any())).thenReturn(0);
+            when(mocked_queueRepository.claim(eq(2L), eq("node-1"), any(), any())).thenReturn(1);
+
+            assertEquals(whConfig2, queueService.claimNext());
+            assertEquals("node-1", whConfig2.getLeaseOwner());
+            assertNull(whConfig1.getLeaseOwner());
+        }
+
+        @Test
+        public void testClaimNext_Empty() {
+            when(mocked_queueRepository.findClaimable(any(), any())).thenReturn(List.of());
+            assertNull(queueService.claimNext());
+            verify(mocked_queueRepository, never()).claim(any(), any(), any(), any());
+        }
+
+        @Test
+        public void testGetQueueFirstElement_WaitsForElement() throws InterruptedException {
+            when(mocked_queueRepository.findClaimable(any(), any()))
+                    .thenReturn(List.of())
+                    .thenReturn(List.of(whConfig1));
+            when(mocked_queueRepository.claim(eq(1L), eq("node-1"), any(), any())).thenReturn(1);
+
+            assertEquals(whConfig1, queueService.getQueueFirstElement());
+            verify(mocked_queueRepository, times(2)).findClaimable(any(), any());
+        }
+
+        @Test
+        public void testRenewLeases() {
+            when(mocked_queueRepository.findClaimable(any(), any()))
+                    .thenReturn(List.of(whConfig1));
+            when(mocked_queueRepository.claim(eq(1L), eq("node-1"), any(), any())).thenReturn(1);
+            queueService.claimNext();
+
+            queueService.renewLeases();
+            verify(mocked_queueRepository, times(1))
+                    .renewLeases(eq(List.of(1L)), eq("node-1"), any());
+            verify(mocked_queueRepository, times(1)).releaseExpiredLeases(any());
+
+            // released element is not renewed anymore
+            queueService.delete(whConfig1);
+            queueService.renewLeases();
+            verify(mocked_queueRepository, times(1)).renewLeases(any(), any(), any());
+        }
+
+        @Test
+        public void testAddReleasesLease() throws InterruptedException {
+            whConfig1.setLeaseOwner("node-1");
+            whConfig1.setLeaseExpiry(new Date());
+            when(mocked_queueRepository.requeue(eq(1L), eq("node-1"), anyInt(), any(), any()))
+                    .thenReturn(1);
+            queueService.addFirst(whConfig1);
+            assertNull(whConfig1.getLeaseOwner());
+            assertNull(whConfig1.getLeaseExpiry());
+            verify(mocked_queueRepository, never()).save(any());
+        }
+
+        @Test
+        public void testAddKeepsLeaseOfOtherNode() throws InterruptedException {
+            whConfig1.setLeaseOwner("node-2");
+            whConfig1.setLeaseExpiry(new Date());
+            queueService.addFirst(whConfig1);
+            verify(mocked_queueRepository, times(1))
+                    .requeue(eq(1L), eq("node-1"), anyInt(), any(), any());
+            verify(mocked_queueRepository, never()).save(any());
+            verify(mocked_queueRepository, never()).deleteSuperseded(any(), any(), any());
+            assertEquals("node-2", whConfig1.getLeaseOwner());
+        }
+
+        @Test
+        public void testAddInsertsNewElement() throws InterruptedException {
+            LPVSQueue webhookConfig = new LPVSQueue();
+            queueService.addFirst(webhookConfig);
+            verify(mocked_queueRepository, times(1)).save(webhookConfig);
+            verify(mocked_queueRepository, never()).requeue(any(), any(), anyInt(), any(), any());
+        }
+
+        @Test
+        public void testClaimNext_Superseded() {
+            whConfig1.setPullRequestUrl("url");
+            whConfig2.setPullRequestUrl("url");
+            when(mocked_queueRepository.findClaimable(any(), any()))
+                    .thenReturn(List.of(whConfig1, whConfig2));
+            when(mocked_queueRepository.claim(any(), eq("node-1"), any(), any())).thenReturn(1);
+            when(mocked_queueRepository.existsByPullRequestUrlHashAndIdGreaterThan(
+                            LPVSPayloadUtil.getPullRequestUrlHash("url"), 1L))
+                    .thenReturn(true);
+
+            assertEquals(whConfig2, queueService.claimNext());
+            verify(mocked_queueRepository, times(1)).deleteById(1L);
+            verify(mocked_queueRepository, never()).deleteById(2L);
+        }
 
-            whConfig4 = new LPVSQueue();
+        @Test
+        public void testClaimNext_FairOrder() {
+            whConfig1.setRepositoryUrl("https://github.com/Samsung/LPVS");
+            whConfig1.setPriority(LPVSQueuePriority.WEBHOOK);
+            whConfig2.setRepositoryUrl("https://github.com/Samsung/LPVS");
+            whConfig2.setPriority(LPVSQueuePriority.WEBHOOK);
+            LPVSQueue whConfig3 = new LPVSQueue();
+            whConfig3.setId(3L);
+            whConfig3.setRepositoryUrl("https://github.com/other/LPVS");
+            whConfig3.setPriority(LPVSQueuePriority.WEBHOOK);
+            LPVSQueue whConfig4 = new LPVSQueue();
             whConfig4.setId(4L);
+            whConfig4.setRepositoryUrl("https://github.com/other/LPVS");
+            whConfig4.setPriority(LPVSQueuePriority.BACKFILL);
+            when(mocked_queueRepository.findClaimable(any(), any()))
+                    .thenReturn(List.of(whConfig1, whConfig2, whConfig3, whConfig4));
+            when(mocked_queueRepository.claim(any(), eq("node-1"), any(), any())).thenReturn(1);
+
+            // repository "other/LPVS" is next in turn within the priority class
+            Comparator<LPVSQueue> order =
+                    Comparator.comparing(
+                            webhookConfig -> !webhookConfig.getRepositoryUrl().contains("other"));
+            assertEquals(whConfig3, queueService.claimNext(webhookConfig -> true, order));
+            verify(mocked_queueRepository, never()).claim(eq(1L), any(), any(), any());
+        }
+
+        @Test
+        public void testClaimNext_FairOrderKeepsPriority() {
+            whConfig1.setRepositoryUrl("https://github.com/Samsung/LPVS");
+            whConfig1.setPriority(LPVSQueuePriority.INTERACTIVE);
+            whConfig2.setRepositoryUrl("https://github.com/other/LPVS");
+            whConfig2.setPriority(LPVSQueuePriority.WEBHOOK);
+            when(mocked_queueRepository.findClaimable(any(), any()))
+                    .thenReturn(List.of(whConfig1, whConfig2));
+            when(mocked_queueRepository.claim(any(), eq("node-1"), any(), any())).thenReturn(1);
 
-            whConfig5 = new LPVSQueue();
-            whConfig5.setId(5L);
+            Comparator<LPVSQueue> order =
+                    Comparator.comparing(
+                            webhookConfig -> !webhookConfig.getRepositoryUrl().contains("other"));
+            // the element of higher priority is claimed first regardless of the order
+            assertEquals(whConfig1, queueService.claimNext(webhookConfig -> true, order));
+            // rejected repositories are skipped
+            assertEquals(
+                    whConfig2,
+                    queueService.claimNext(webhookConfig -> webhookConfig.getId() != 1L, order));
         }
 
         @Test
-        public void testQueueMethods() {
+        public void testAddSupersedesOlderElements() throws InterruptedException {
+            whConfig1.setPullRequestUrl("url");
+            whConfig2.setPullRequestUrl("url");
+            when(mocked_queueRepository.requeue(eq(2L), eq("node-1"), anyInt(), any(), any()))
+                    .thenReturn(1);
+            queueService.startProcessing(whConfig1);
             try {
-                queueService.addFirst(whConfig1);
-                queueService.addFirst(whConfig2);
-                queueService.addFirst(whConfig3);
-                queueService.addFirst(whConfig4);
-                queueService.addFirst(whConfig5);
+                queueService.add(whConfig2);
+                verify(mocked_queueRepository, times(1))
+                        .deleteSuperseded(
+                                eq(LPVSPayloadUtil.getPullRequestUrlHash("url")), eq(2L), any());
+                assertTrue(queueService.isCancelled(whConfig1));
+                assertFalse(queueService.isCancelled(whConfig2));
+                assertTrue(Thread.currentThread().isInterrupted());
+            } finally {
+                queueService.finishProcessing(whConfig1);
+            }
+            assertFalse(queueService.isCancelled(whConfig1));
+            assertFalse(Thread.currentThread().isInterrupted());
+        }
 
-                assertEquals(whConfig5, queueService.getQueue().take());
+        @Test
+        public void testCancel_NotProcessing() {
+            queueService.cancel(1L);
+            assertFalse(queueService.isCancelled(whConfig1));
+            assertFalse(Thread.currentThread().isInterrupted());
+        }
 
-                // `whConfig`s 1-4 are left in Queue
-                queueService.delete(whConfig4);
-                assertEquals(whConfig3, queueService.getQueue().take());
+        @Test
+        public void testCancel_BetweenStages() {
+            queueService.startProcessing(whConfig1);
+            queueService.pauseProcessing(whConfig1);
+            try {
+                // the element waiting for the next stage is cancelled without interrupting
+                // the thread which handed it over
+                queueService.cancel(1L);
+                assertTrue(queueService.isCancelled(whConfig1));
+                assertFalse(Thread.currentThread().isInterrupted());
 
-            } catch (InterruptedException e) {
-                log.error("InterruptedException at LPVSQueueServiceTest.testQueueMethods(): " + e);
-                fail();
+                queueService.suspendAll();
+                assertTrue(queueService.isSuspended(whConfig1));
+                assertFalse(Thread.currentThread().isInterrupted());
+            } finally {
+                queueService.finishProcessing(whConfig1);
             }
+            assertFalse(queueService.isCancelled(whConfig1));
+            assertFalse(queueService.isSuspended(whConfig1));
+        }
+
+        @Test
+        public void testDrain() throws InterruptedException {
+            when(mocked_queueRepository.findClaimable(any(), any()))
+                    .thenReturn(List.of(whConfig1));
+            when(mocked_queueRepository.claim(eq(1L), eq("node-1"), any(), any())).thenReturn(1);
+
+            assertFalse(queueService.isDraining());
+            queueService.drain();
+            assertTrue(queueService.isDraining());
+            // no new elements are taken once the queue is drained
+            assertNull(queueService.getQueueFirstElement());
+            verify(mocked_queueRepository, never()).claim(any(), any(), any(), any());
+        }
+
+        @Test
+        public void testSuspendAll() {
+            queueService.startProcessing(whConfig1);
+            try {
+                queueService.suspendAll();
+                assertTrue(queueService.isSuspended(whConfig1));
+                assertFalse(queueService.isSuspended(whConfig2));
+                assertFalse(queueService.isCancelled(whConfig1));
+                assertTrue(Thread.currentThread().isInterrupted());
+            } finally {
+                queueService.finishProcessing(whConfig1);
+            }
+            assertFalse(queueService.isSuspended(whConfig1));
+            assertFalse(Thread.currentThread().isInterrupted());
+        }
+
+        @Test
+        public void testCheckpoint() {
+            queueService.checkpoint(whConfig1, LPVSQueueCheckpoint.FILES_FETCHED);
+            assertEquals(LPVSQueueCheckpoint.FILES_FETCHED, whConfig1.getCheckpoint());
+            verify(mocked_queueRepository, times(1))
+                    .saveCheckpoint(1L, "node-1", LPVSQueueCheckpoint.FILES_FETCHED);
+
+            LPVSQueue newConfig = new LPVSQueue();
+            queueService.checkpoint(newConfig, LPVSQueueCheckpoint.SCANNED);
+            assertEquals(LPVSQueueCheckpoint.SCANNED, newConfig.getCheckpoint());
+            verify(mocked_queueRepository, times(1)).saveCheckpoint(any(), any(), any());
+        }
+
+        @Test
+        public void testReleaseAll() {
+            when(mocked_queueRepository.findClaimable(any(), any()))
+                    .thenReturn(List.of(whConfig1));
+            when(mocked_queueRepository.claim(eq(1L), eq("node-1"), any(), any())).thenReturn(1);
+            queueService.claimNext();
+
+            queueService.releaseAll();
+            verify(mocked_queueRepository, times(1)).releaseLeases("node-1");
+            // released element is not renewed anymore
+            queueService.renewLeases();
+            verify(mocked_queueRepository, never()).renewLeases(any(), any(), any());
+        }
+
+        @Test
+        public void testRenewLeases_CancelsSuperseded() {
+            when(mocked_queueRepository.findClaimable(any(), any()))
+                    .thenReturn(List.of(whConfig1));
+            when(mocked_queueRepository.claim(eq(1L), eq("node-1"), any(), any())).thenReturn(1);
+            when(mocked_queueRepository.findSupersededIds(List.of(1L))).thenReturn(List.of(1L));
+            queueService.claimNext();
+            queueService.startProcessing(whConfig1);
+            try {
+                queueService.renewLeases();
+                assertTrue(queueService.isCancelled(whConfig1));
+            } finally {
+                queueService.finishProcessing(whConfig1);
+            }
+        }
+
+        @Test
+        public void testAddSetsPriority() throws InterruptedException {
+            whConfig1.setAction(LPVSPullRequestAction.SINGLE_SCAN);
+            queueService.add(whConfig1);
+            assertEquals(LPVSQueuePriority.INTERACTIVE, whConfig1.getPriority());
+
+            // explicitly set priority is kept
+            whConfig2.setAction(LPVSPullRequestAction.OPEN);
+            whConfig2.setPriority(LPVSQueuePriority.RETRY);
+            queueService.add(whConfig2);
+            assertEquals(LPVSQueuePriority.RETRY, whConfig2.getPriority());
+        }
+
+        @Test
+        public void testPromoteWaitingElements() {
+            ReflectionTestUtils.setField(queueService, "agingTime", 1000L);
+            queueService.promoteWaitingElements();
+            verify(mocked_queueRepository, times(1)).resetCostOfWaiting(any());
+
+            ReflectionTestUtils.setField(queueService, "agingTime", 0L);
+            queueService.promoteWaitingElements();
+            verify(mocked_queueRepository, times(1)).resetCostOfWaiting(any());
+        }
+
+        @Test
+        public void testRetry() throws InterruptedException {
+            ReflectionTestUtils.setField(queueService, "retryDelay", 1000L);
+            ReflectionTestUtils.setField(queueService, "retryMaxDelay", 60000L);
+            whConfig1.setPriority(LPVSQueuePriority.WEBHOOK);
+            long start = System.currentTimeMillis();
+
+            assertTrue(queueService.retry(whConfig1, LPVSFailureType.OTHER, 4));
+            assertEquals(1, whConfig1.getAttempts());
+            assertEquals(LPVSQueuePriority.RETRY, whConfig1.getPriority());
+            assertTrue(whConfig1.getNotBefore().getTime() >= start + 500);
+            verify(mocked_queueRepository, times(1))
+                    .requeue(
+                            1L,
+                            "node-1",
+                            1,
+                            LPVSQueuePriority.RETRY,
+                            whConfig1.getNotBefore());
+
+            // attempts exhausted
+            whConfig1.setAttempts(3);
+            assertFalse(queueService.retry(whConfig1, LPVSFailureType.OTHER, 4));
+            assertEquals(3, whConfig1.getAttempts());
+            verify(mocked_queueRepository, times(1)).requeue(any(), any(), anyInt(), any(), any());
+        }
+
+        @Test
+        public void testRetry_PolicyPerFailureType() throws InterruptedException {
+            ReflectionTestUtils.setField(queueService, "notFoundRetryAttempts", 2);
+            ReflectionTestUtils.setField(queueService, "rateLimitRetryAttempts", 10);
+
+            whConfig1.setAttempts(1);
+            assertFalse(
+                    queueService.retry(whConfig1, LPVSFailureType.PULL_REQUEST_NOT_FOUND, 4));
+
+            whConfig2.setAttempts(5);
+            assertTrue(queueService.retry(whConfig2, LPVSFailureType.RATE_LIMIT, 4));
+        }
+
+        @Test
+        public void testGetRetryDelay() {
+            ReflectionTestUtils.setField(queueService, "scannerRetryDelay", 1000L);
+            ReflectionTestUtils.setField(queueService, "retryMaxDelay", 5000L);
+
+            long first = queueService.getRetryDelay(LPVSFailureType.SCANNER_CRASH, 1);
+            assertTrue(first >= 500 && first <= 1000);
+            long third = queueService.getRetryDelay(LPVSFailureType.SCANNER_CRASH, 3);
+            assertTrue(third >= 2000 && third <= 4000);
+            long limited = queueService.getRetryDelay(LPVSFailureType.SCANNER_CRASH, 50);
+            assertTrue(limited >= 2500 && limited <= 5000);
+        }
+
+        @Test
+        public void testGetQueue() {
+            when(mocked_queueRepository.findAll()).thenReturn(List.of(whConfig1, whConfig2));
+            assertEquals(List.of(whConfig1, whConfig2), queueService.getQueue());
+        }
+
+        @Test
+        public void testGetNodeId_Generated() {
+            ReflectionTestUtils.setField(queueService, "nodeId", "");
+            ReflectionTestUtils.setField(queueService, "serverPort", "7896");
+            String nodeId = queueService.getNodeId();
+            assertTrue(nodeId.endsWith(":7896"));
+            assertEquals(nodeId, queueService.getNodeId());
+
+            // the same identifier is derived after the restart
+            LPVSQueueService restarted = new LPVSQueueService(mocked_queueRepository);
+            ReflectionTestUtils.setField(restarted, "serverPort", "7896");
+            assertEquals(nodeId, restarted.getNodeId());
         }
     }
 
@@ -92,11 +433,13 @@ public class LPVSQueueServiceTest {
 
         @Test
         public void testCheckForQueue() {
-            LPVSQueue webhookConfig = new LPVSQueue();
-            webhookConfig.setAttempts(100);
-            webhookConfig.setDate(new Date());
-            when(mocked_queueRepository.findAll()).thenReturn(List.of(webhookConfig));
+            ReflectionTestUtils.setField(queueService, "nodeId", "node-1");
+            when(mocked_queueRepository.releaseLeases("node-1")).thenReturn(1);
+            when(mocked_queueRepository.releaseExpiredLeases(any())).thenReturn(2);
+            when(mocked_queueRepository.count()).thenReturn(3L);
             assertDoesNotThrow(() -> queueService.checkForQueue());
+            verify(mocked_queueRepository, times(1)).releaseLeases("node-1");
+            verify(mocked_queueRepository, times(1)).releaseExpiredLeases(any());
         }
 
         @Test
@@ -109,6 +452,8 @@ public class LPVSQueueServiceTest {
             queue.setHeadCommitSHA("commitSha");
             queue.setPullRequestUrl("url");
             queueService.add(queue);
+            when(mocked_queueRepository.findClaimable(any(), any())).thenReturn(List.of(queue));
+            when(mocked_queueRepository.claim(eq(1L), any(), any(), any())).thenReturn(1);
             LPVSQueue result = queueService.getQueueFirstElement();
             assertNotNull(result);
         }
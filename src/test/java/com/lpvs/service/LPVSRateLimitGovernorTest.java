@@ -0,0 +1,135 @@
+/**
+ * Copyright (c) 2024, Samsung Electronics Co., Ltd. All rights reserved.
+ *
+ * Use of this source code is governed by a MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.lpvs.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.kohsuke.github.GHRateLimit;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class LPVSRateLimitGovernorTest {
+
+    private LPVSRateLimitGovernor governor;
+
+    @BeforeEach
+    void setUp() {
+        governor = new LPVSRateLimitGovernor();
+        ReflectionTestUtils.setField(governor, "reserve", 100);
+        ReflectionTestUtils.setField(governor, "defaultJobCost", 10);
+    }
+
+    private static GHRateLimit.Record record(int limit, int remaining, long reset) {
+        GHRateLimit.Record record = mock(GHRateLimit.Record.class);
+        when(record.getLimit()).thenReturn(limit);
+        when(record.getRemaining()).thenReturn(remaining);
+        when(record.getResetEpochSeconds()).thenReturn(reset / 1000);
+        return record;
+    }
+
+    @Test
+    public void testGetDispatchDelay_UnknownLimit() throws InterruptedException {
+        long now = System.currentTimeMillis();
+        assertEquals(0, governor.getDispatchDelay(now));
+        governor.update(null);
+        assertEquals(0, governor.getDispatchDelay(now));
+        assertTrue(governor.awaitBudget(() -> false));
+        assertEquals(-1L, governor.getStatus().get("remaining"));
+    }
+
+    @Test
+    public void testGetDispatchDelay_BudgetAvailable() {
+        long now = System.currentTimeMillis();
+        governor.update(record(5000, 4000, now + 3600000));
+        governor.started();
+        assertEquals(0, governor.getDispatchDelay(now));
+    }
+
+    @Test
+    public void testGetDispatchDelay_BudgetExhausted() throws InterruptedException {
+        long now = System.currentTimeMillis();
+        long reset = now + 600000;
+        governor.update(record(5000, 115, reset));
+        assertEquals(0, governor.getDispatchDelay(now));
+        // 115 requests minus the reserve of 100 do not cover the next job together with
+        // the job in processing
+        governor.started();
+        assertEquals(reset / 1000 * 1000 - now, governor.getDispatchDelay(now));
+        assertFalse(governor.awaitBudget(() -> true));
+
+        governor.finished();
+        // the job is finished, the next one is only spread over the time to reset
+        assertTrue(governor.getDispatchDelay(now) < reset - now);
+        // the window is reset, the old state does not block the processing
+        assertEquals(0, governor.getDispatchDelay(reset + 1000));
+    }
+
+    @Test
+    public void testGetDispatchDelay_PacedBelowHalfOfLimit() {
+        long now = System.currentTimeMillis();
+        governor.update(record(5000, 2110, now + 1000000));
+        governor.started();
+        // the job may be started a few milliseconds after now
+        long started = System.currentTimeMillis() - now;
+        // 2000 requests above the reserve and the job in processing cover 200 jobs,
+        // spread over the time to reset
+        long delay = governor.getDispatchDelay(now);
+        assertTrue(delay > 4000 && delay <= 5000 + started, "delay " + delay);
+    }
+
+    @Test
+    public void testGetDispatchDelay_JobCostEstimated() {
+        long now = System.currentTimeMillis();
+        governor.update(record(5000, 200, now + 600000));
+        for (int i = 0; i < 60; i++) {
+            governor.requested();
+        }
+        governor.started();
+        governor.finished();
+        governor.started();
+        governor.finished();
+        assertEquals(30L, governor.getStatus().get("jobCost"));
+
+        governor.started();
+        governor.started();
+        governor.started();
+        // 100 requests above the reserve do not cover 3 jobs in processing and one more
+        assertTrue(governor.getDispatchDelay(now) > 0);
+    }
+
+    @Test
+    public void testPause_SecondaryLimit() throws InterruptedException {
+        long now = System.currentTimeMillis();
+        governor.pause(now + 60000);
+        governor.pause(now + 1000);
+        assertEquals(60000, governor.getDispatchDelay(now));
+        assertFalse(governor.awaitBudget(() -> true));
+        Map<String, Long> status = governor.getStatus();
+        assertEquals((now + 60000) / 1000, status.get("pausedUntil"));
+        assertEquals(0, governor.getDispatchDelay(now + 60000));
+    }
+
+    @Test
+    public void testGetRetryTime() {
+        long now = 1000000;
+        assertEquals(now + 30000, LPVSRateLimitGovernor.getRetryTime("30", "5000", now));
+        assertEquals(5000000, LPVSRateLimitGovernor.getRetryTime(null, "5000", now));
+        assertEquals(now, LPVSRateLimitGovernor.getRetryTime(null, "1", now));
+        assertEquals(now + 60000, LPVSRateLimitGovernor.getRetryTime(null, null, now));
+        assertEquals(now + 60000, LPVSRateLimitGovernor.getRetryTime("soon", null, now));
+    }
+
+    @Test
+    public void testGetRateLimitCheckerAndAbuseLimitHandler() {
+        assertNotNull(governor.getRateLimitChecker());
+        assertNotNull(governor.getAbuseLimitHandler());
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2024, Samsung Electronics Co., Ltd. All rights reserved.
+ *
+ * Use of this source code is governed by a MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.lpvs.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.kohsuke.github.GHRepository;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class LPVSRepositoryMetadataCacheTest {
+
+    private LPVSRepositoryMetadataCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new LPVSRepositoryMetadataCache();
+        ReflectionTestUtils.setField(cache, "ttl", 60000L);
+        ReflectionTestUtils.setField(cache, "maxSize", 2);
+    }
+
+    @Test
+    public void testPutRepositoryAndLicense() {
+        GHRepository repository = mock(GHRepository.class);
+        when(repository.getDefaultBranch()).thenReturn("main");
+        when(repository.isPrivate()).thenReturn(true);
+        assertNull(cache.get("Samsung/LPVS"));
+
+        cache.putRepository("Samsung/LPVS", repository);
+        LPVSRepositoryMetadataCache.Metadata metadata = cache.get("samsung/lpvs");
+        assertTrue(metadata.isRepositoryLoaded());
+        assertEquals("main", metadata.getDefaultBranch());
+        assertTrue(metadata.isPrivateRepository());
+        assertFalse(metadata.isLicenseLoaded());
+
+        cache.putLicense("Samsung/LPVS", new String[] {"MIT", "MIT License"});
+        metadata = cache.get("Samsung/LPVS");
+        assertEquals("main", metadata.getDefaultBranch());
+        assertTrue(metadata.isPrivateRepository());
+        assertTrue(metadata.isLicenseLoaded());
+        assertArrayEquals(new String[] {"MIT", "MIT License"}, metadata.getLicense());
+
+        cache.putLicense("Samsung/Other", null);
+        assertTrue(cache.get("Samsung/Other").isLicenseLoaded());
+        assertNull(cache.get("Samsung/Other").getLicense());
+        assertFalse(cache.get("Samsung/Other").isRepositoryLoaded());
+
+        // the loaded metadata is kept until it expires or is invalidated
+        when(repository.getDefaultBranch()).thenReturn("develop");
+        cache.putRepository("Samsung/LPVS", repository);
+        assertEquals("main", cache.get("Samsung/LPVS").getDefaultBranch());
+    }
+
+    @Test
+    public void testInvalidate() {
+        cache.putRepository("Samsung/LPVS", mock(GHRepository.class));
+        cache.invalidate("SAMSUNG/LPVS");
+        assertNull(cache.get("Samsung/LPVS"));
+        cache.invalidate(null);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testExpiration() {
+        cache.putLicense("Samsung/LPVS", null);
+        assertNotNull(cache.get("Samsung/LPVS"));
+        ReflectionTestUtils.setField(cache, "ttl", 0L);
+        assertNull(cache.get("Samsung/LPVS"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testEvictionOfLeastRecentlyUsed() {
+        cache.putLicense("Samsung/A", null);
+        cache.putLicense("Samsung/B", null);
+        cache.get("Samsung/A");
+        cache.putLicense("Samsung/C", null);
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get("Samsung/A"));
+        assertNull(cache.get("Samsung/B"));
+        assertNotNull(cache.get("Samsung/C"));
+    }
+
+    @Test
+    public void testDisabled() {
+        ReflectionTestUtils.setField(cache, "maxSize", 0);
+        cache.putRepository("Samsung/LPVS", mock(GHRepository.class));
+        assertNull(cache.get("Samsung/LPVS"));
+        assertEquals(0, cache.size());
+    }
+}
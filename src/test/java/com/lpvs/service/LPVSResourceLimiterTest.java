@@ -0,0 +1,96 @@
+/**
+ * Copyright (c) 2024, Samsung Electronics Co., Ltd. All rights reserved.
+ *
+ * Use of this source code is governed by a MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.lpvs.service;
+
+import com.lpvs.service.LPVSResourceLimiter.Resource;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LPVSResourceLimiterTest {
+
+    @Test
+    public void testUnlimited() throws Exception {
+        LPVSResourceLimiter limiter = LPVSResourceLimiter.unlimited();
+        for (Resource resource : Resource.values()) {
+            assertEquals(-1, limiter.getAvailable(resource));
+            assertEquals("result", limiter.call(resource, () -> "result"));
+        }
+    }
+
+    @Test
+    public void testCallReleasesResource() throws Exception {
+        LPVSResourceLimiter limiter = new LPVSResourceLimiter(1, 2, 3);
+        assertEquals(1, limiter.getAvailable(Resource.SCANNER));
+        assertEquals(2, limiter.getAvailable(Resource.DATABASE));
+        assertEquals(3, limiter.getAvailable(Resource.GITHUB));
+
+        assertEquals(
+                0,
+                (int)
+                        limiter.call(
+                                Resource.SCANNER, () -> limiter.getAvailable(Resource.SCANNER)));
+        assertEquals(1, limiter.getAvailable(Resource.SCANNER));
+
+        assertThrows(
+                IllegalStateException.class,
+                () ->
+                        limiter.call(
+                                Resource.SCANNER,
+                                () -> {
+                                    throw new IllegalStateException("test");
+                                }));
+        assertEquals(1, limiter.getAvailable(Resource.SCANNER));
+    }
+
+    @Test
+    public void testCallWaitsForResource() throws Exception {
+        LPVSResourceLimiter limiter = new LPVSResourceLimiter(1, 0, 0);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        AtomicBoolean secondCalled = new AtomicBoolean(false);
+
+        Thread first =
+                new Thread(
+                        () -> {
+                            try {
+                                limiter.call(
+                                        Resource.SCANNER,
+                                        () -> {
+                                            started.countDown();
+                                            return finish.await(5, TimeUnit.SECONDS);
+                                        });
+                            } catch (Exception e) {
+                                fail(e);
+                            }
+                        });
+        first.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        Thread second =
+                new Thread(
+                        () -> {
+                            try {
+                                limiter.call(Resource.SCANNER, () -> secondCalled.getAndSet(true));
+                            } catch (Exception e) {
+                                fail(e);
+                            }
+                        });
+        second.start();
+        second.join(200);
+        assertFalse(secondCalled.get());
+
+        finish.countDown();
+        first.join(5000);
+        second.join(5000);
+        assertTrue(secondCalled.get());
+    }
+}
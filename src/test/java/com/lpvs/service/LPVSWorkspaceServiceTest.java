@@ -0,0 +1,108 @@
+/**
+ * Copyright (c) 2024, Samsung Electronics Co., Ltd. All rights reserved.
+ *
+ * Use of this source code is governed by a MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.lpvs.service;
+
+import com.lpvs.entity.LPVSQueue;
+import com.lpvs.util.LPVSFileUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LPVSWorkspaceServiceTest {
+
+    private Path memoryPath;
+    private LPVSWorkspaceService workspaceService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        memoryPath = Files.createTempDirectory("memory");
+        workspaceService = new LPVSWorkspaceService();
+        ReflectionTestUtils.setField(workspaceService, "memoryPath", memoryPath.toString());
+        ReflectionTestUtils.setField(workspaceService, "sparse", true);
+        ReflectionTestUtils.setField(
+                workspaceService, "maxSize", 100 * LPVSWorkspaceService.LINE_SIZE);
+        ReflectionTestUtils.setField(
+                workspaceService, "totalSize", 150 * LPVSWorkspaceService.LINE_SIZE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        LPVSFileUtil.deleteIfExists(memoryPath.toString());
+    }
+
+    private static LPVSQueue getWebhookConfig(long id, Long cost) {
+        LPVSQueue webhookConfig = new LPVSQueue();
+        webhookConfig.setId(id);
+        webhookConfig.setRepositoryUrl("https://github.com/Samsung/LPVS");
+        webhookConfig.setPullRequestUrl("https://github.com/Samsung/LPVS/pull/" + id);
+        webhookConfig.setHeadCommitSHA("sha" + id);
+        webhookConfig.setCost(cost);
+        return webhookConfig;
+    }
+
+    @Test
+    public void testAllocateAndRelease() throws IOException {
+        LPVSQueue webhookConfig = getWebhookConfig(1L, 100L);
+        assertTrue(workspaceService.allocate(webhookConfig));
+        assertEquals(memoryPath.toString(), webhookConfig.getWorkspaceRoot());
+        String directoryPath = LPVSFileUtil.getLocalDirectoryPath(webhookConfig);
+        assertTrue(directoryPath.startsWith(memoryPath.toString() + File.separator));
+        assertEquals(100 * LPVSWorkspaceService.LINE_SIZE, workspaceService.getAllocatedSize());
+
+        LPVSFileUtil.saveFileToDisk(
+                Files.createDirectories(Paths.get(directoryPath)).toString(), "a.c", "code");
+        workspaceService.release(webhookConfig);
+        assertFalse(Files.exists(Paths.get(directoryPath)));
+        assertNull(webhookConfig.getWorkspaceRoot());
+        assertEquals(0, workspaceService.getAllocatedSize());
+        assertTrue(
+                LPVSFileUtil.getLocalDirectoryPath(webhookConfig)
+                        .startsWith(System.getProperty("user.home")));
+    }
+
+    @Test
+    public void testAllocate_OnDisk() {
+        LPVSQueue large = getWebhookConfig(1L, 101L);
+        assertFalse(workspaceService.allocate(large));
+        assertNull(large.getWorkspaceRoot());
+
+        LPVSQueue unknown = getWebhookConfig(2L, null);
+        assertFalse(workspaceService.allocate(unknown));
+
+        ReflectionTestUtils.setField(workspaceService, "sparse", false);
+        assertFalse(workspaceService.isEnabled());
+        assertFalse(workspaceService.allocate(getWebhookConfig(3L, 1L)));
+
+        ReflectionTestUtils.setField(workspaceService, "sparse", true);
+        ReflectionTestUtils.setField(workspaceService, "memoryPath", "");
+        assertFalse(workspaceService.isEnabled());
+        assertFalse(workspaceService.allocate(getWebhookConfig(3L, 1L)));
+        assertEquals(0, workspaceService.getAllocatedSize());
+    }
+
+    @Test
+    public void testAllocate_TotalSizeExceeded() {
+        LPVSQueue first = getWebhookConfig(1L, 100L);
+        LPVSQueue second = getWebhookConfig(2L, 60L);
+        assertTrue(workspaceService.allocate(first));
+        assertFalse(workspaceService.allocate(second));
+        assertTrue(workspaceService.allocate(getWebhookConfig(3L, 50L)));
+
+        workspaceService.release(first);
+        assertTrue(workspaceService.allocate(second));
+        assertEquals(110 * LPVSWorkspaceService.LINE_SIZE, workspaceService.getAllocatedSize());
+    }
+}
@@ -17,6 +17,7 @@ import com.lpvs.service.LPVSLicenseService;
 import com.lpvs.service.scan.scanner.LPVSScanossDetectService;
 
 import com.lpvs.util.LPVSFileUtil;
+import com.lpvs.util.LPVSLineMap;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.context.ApplicationContext;
@@ -28,6 +29,7 @@ import org.kohsuke.github.GHCommitPointer;
 import org.kohsuke.github.GHPullRequest;
 import org.kohsuke.github.GHRepository;
 import org.kohsuke.github.GitHub;
+import org.mockito.ArgumentCaptor;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.File;
@@ -464,6 +466,54 @@ public class LPVSDetectServiceTest {
             deleteDirectory("report");
         }
 
+        @Test
+        void testRunOneScan_LocalFiles_InPlace() throws Exception {
+            File sourceDir = Files.createTempDirectory("source").toFile();
+            new File(sourceDir, "file1.c").createNewFile();
+
+            setPrivateField(detectService, "localPath", sourceDir.getAbsolutePath());
+            setPrivateField(detectService, "localScanMode", "in-place");
+            setPrivateField(detectService, "ctx", mockApplicationContext);
+            setPrivateField(detectService, "scanService", scanoss_mock);
+            when(reportBuilder_mock.generateCommandLineComment(anyString(), anyList(), anyList()))
+                    .thenReturn("Sample report");
+
+            assertDoesNotThrow(() -> detectService.runSingleScan());
+            verify(scanoss_mock, times(1)).runScan(any(), eq(sourceDir.getAbsolutePath()));
+
+            deleteDirectory(sourceDir.getAbsolutePath());
+        }
+
+        @Test
+        void testRunOneScan_LocalFiles_InPlaceWithFilters() throws Exception {
+            File sourceDir = Files.createTempDirectory("source").toFile();
+            File sourceFile = new File(sourceDir, "file1.c");
+            sourceFile.createNewFile();
+            new File(sourceDir, "build").mkdirs();
+            new File(sourceDir, "build/file2.c").createNewFile();
+
+            setPrivateField(detectService, "localPath", sourceDir.getAbsolutePath());
+            setPrivateField(detectService, "localScanMode", "in-place");
+            setPrivateField(detectService, "localScanExclude", "build");
+            setPrivateField(detectService, "ctx", mockApplicationContext);
+            setPrivateField(detectService, "scanService", scanoss_mock);
+            when(reportBuilder_mock.generateCommandLineComment(anyString(), anyList(), anyList()))
+                    .thenReturn("Sample report");
+
+            assertDoesNotThrow(() -> detectService.runSingleScan());
+            ArgumentCaptor<String> scanPath = ArgumentCaptor.forClass(String.class);
+            verify(scanoss_mock, times(1)).runScan(any(), scanPath.capture());
+            File snapshot = new File(scanPath.getValue());
+            assertNotEquals(sourceDir.getAbsolutePath(), snapshot.getAbsolutePath());
+            assertTrue(
+                    Files.isSameFile(
+                            sourceFile.toPath(), new File(snapshot, "file1.c").toPath()));
+            assertFalse(new File(snapshot, "build").exists());
+
+            deleteDirectory(sourceDir.getAbsolutePath());
+            deleteDirectory(snapshot.getAbsolutePath());
+        }
+
         @Test
         void testRunOneScan_LocalFiles_NoFile()
                 throws NoSuchFieldException, IllegalAccessException, IOException {
@@ -768,6 +818,24 @@ public class LPVSDetectServiceTest {
             verify(scanoss_mock, times(1)).checkLicenses(webhookConfig);
             verifyNoMoreInteractions(scanoss_mock);
         }
+
+        @Test
+        public void testRunScan__Scanoss_SparseFiles() throws Exception {
+            String path = Files.createTempDirectory("lpvs-sparse").toString();
+            LPVSLineMap lineMap = new LPVSLineMap();
+            lineMap.add("some_path", List.of(new int[] {1, 100, 20}, new int[] {22, 500, 30}));
+            lineMap.save(path);
+            try {
+                setPrivateField(detectService, "scanService", scanoss_mock);
+                List<LPVSFile> files = detectService.runScan(webhookConfig, path);
+                // the file without the line map keeps its lines
+                assertEquals("1-10", files.get(0).getMatchedLines());
+                assertEquals("512-523", files.get(1).getMatchedLines());
+            } finally {
+                LPVSLineMap.delete(path);
+                LPVSFileUtil.deleteIfExists(path);
+            }
+        }
     }
 
     @Nested
@@ -6,7 +6,10 @@
  */
 package com.lpvs.service.webhook;
 
+import com.lpvs.service.LPVSResourceLimiter;
 import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -22,6 +25,21 @@ public class LPVSWebhookServiceFactoryTest {
         assertTrue(service instanceof LPVSWebhookService);
     }
 
+    @Test
+    void testCreateScanService_InjectsResourceLimiter() {
+        LPVSResourceLimiter resourceLimiter = new LPVSResourceLimiter(1, 2, 3);
+        try (AnnotationConfigApplicationContext context =
+                new AnnotationConfigApplicationContext()) {
+            context.registerBean(LPVSResourceLimiter.class, () -> resourceLimiter);
+            context.refresh();
+            ReflectionTestUtils.setField(
+                    webhookServiceFactory, "beanFactory", context.getAutowireCapableBeanFactory());
+
+            LPVSWebhookService service = webhookServiceFactory.createWebhookService(false);
+            assertSame(resourceLimiter, ReflectionTestUtils.getField(service, "resourceLimiter"));
+        }
+    }
+
     @Test
     void testCreateScanService_NoSuchWebhookService_N() {
         assertThrows(
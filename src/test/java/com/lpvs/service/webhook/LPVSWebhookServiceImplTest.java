@@ -10,26 +10,49 @@ import com.lpvs.entity.LPVSFile;
 import com.lpvs.entity.LPVSLicense;
 import com.lpvs.entity.LPVSPullRequest;
 import com.lpvs.entity.LPVSQueue;
+import com.lpvs.entity.enums.LPVSFailureType;
 import com.lpvs.entity.enums.LPVSPullRequestStatus;
+import com.lpvs.entity.enums.LPVSQueueCheckpoint;
 import com.lpvs.repository.LPVSPullRequestRepository;
 import com.lpvs.repository.LPVSQueueRepository;
 import com.lpvs.service.LPVSGitHubService;
+import com.lpvs.service.LPVSIncrementalScanService;
 import com.lpvs.service.LPVSLicenseService;
+import com.lpvs.service.LPVSOutboxService;
+import com.lpvs.service.LPVSPipeline;
 import com.lpvs.service.LPVSQueueService;
+import com.lpvs.service.LPVSResourceLimiter;
+import com.lpvs.service.LPVSResourceLimiter.Resource;
+import com.lpvs.service.LPVSWorkspaceService;
 import com.lpvs.service.scan.LPVSDetectService;
+import com.lpvs.util.LPVSFileUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.kohsuke.github.GHRepository;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InOrder;
 import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
-
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
@@ -78,7 +101,7 @@ public class LPVSWebhookServiceImplTest {
             webhookConfig.setRepositoryUrl("http://test_url/url");
 
             mockGitHubService = mock(LPVSGitHubService.class);
-            when(mockGitHubService.getPullRequestFiles(webhookConfig)).thenReturn(null);
+            when(mockGitHubService.getPullRequestFiles(eq(webhookConfig), any())).thenReturn(null);
 
             mockDetectService = mock(LPVSDetectService.class);
             mockLicenseService = mock(LPVSLicenseService.class);
@@ -102,8 +125,10 @@ public class LPVSWebhookServiceImplTest {
             // main test
             webhookService.processWebHook(webhookConfig);
 
-            verify(mockGitHubService, times(1)).getPullRequestFiles(webhookConfig);
+            verify(mockGitHubService, times(1)).getPullRequestFiles(eq(webhookConfig), any());
 
+            verify(mockGitHubService, times(1)).getRepository(webhookConfig);
+            verify(mockGitHubService, times(1)).getRepositoryLicense(eq(webhookConfig), any());
             verifyNoMoreInteractions(mockGitHubService);
             verifyNoMoreInteractions(mockDetectService);
             verifyNoMoreInteractions(mockLicenseService);
@@ -112,12 +137,770 @@ public class LPVSWebhookServiceImplTest {
             webhookConfig.setAttempts(maxAttempts);
             webhookService.processWebHook(webhookConfig);
 
-            verify(mockGitHubService, times(2)).getPullRequestFiles(webhookConfig);
+            verify(mockGitHubService, times(2)).getPullRequestFiles(eq(webhookConfig), any());
             verify(mockGitHubService, times(1))
                     .commentResults(eq(webhookConfig), any(), any(), eq(lpvsPullRequest));
         }
     }
 
+    @Nested
+    class TestProcessWebHook__Cancelled {
+        LPVSQueueService mockQueueService = mock(LPVSQueueService.class);
+        LPVSGitHubService mockGitHubService = mock(LPVSGitHubService.class);
+        LPVSDetectService mockDetectService = mock(LPVSDetectService.class);
+        LPVSLicenseService mockLicenseService = mock(LPVSLicenseService.class);
+        LPVSPullRequestRepository mocked_lpvsPullRequestRepository =
+                mock(LPVSPullRequestRepository.class);
+        LPVSQueueRepository mocked_queueRepository = mock(LPVSQueueRepository.class);
+        LPVSQueue webhookConfig;
+        LPVSWebhookService webhookService;
+
+        @BeforeEach
+        void setUp() {
+            when(mocked_lpvsPullRequestRepository.saveAndFlush(Mockito.any(LPVSPullRequest.class)))
+                    .thenAnswer(i -> i.getArguments()[0]);
+
+            webhookConfig = new LPVSQueue();
+            webhookConfig.setId(1L);
+            webhookConfig.setPullRequestUrl("http://test_url/url/pull/1");
+            webhookConfig.setRepositoryUrl("http://test_url/url");
+            webhookConfig.setUserId("user");
+            webhookConfig.setDate(new Date());
+
+            when(mockGitHubService.getPullRequestFiles(eq(webhookConfig), any()))
+                    .thenReturn("path");
+            when(mockQueueService.isCancelled(webhookConfig)).thenReturn(true);
+
+            webhookService =
+                    new LPVSWebhookServiceImpl(
+                            mockDetectService,
+                            mockLicenseService,
+                            mockGitHubService,
+                            mockQueueService,
+                            mocked_queueRepository,
+                            mocked_lpvsPullRequestRepository,
+                            4);
+        }
+
+        @Test
+        public void testProcessWebHook__Cancelled() throws Exception {
+            webhookService.processWebHook(webhookConfig);
+
+            verify(mockGitHubService, times(1)).getPullRequestFiles(eq(webhookConfig), any());
+            verify(mockGitHubService, times(1)).getRepository(webhookConfig);
+            verify(mockGitHubService, times(1)).getRepositoryLicense(eq(webhookConfig), any());
+            verifyNoMoreInteractions(mockGitHubService);
+            verifyNoMoreInteractions(mockDetectService);
+            verify(mockQueueService, times(1)).delete(webhookConfig);
+            verify(mockQueueService, never()).addFirst(webhookConfig);
+            ArgumentCaptor<LPVSPullRequest> captor = ArgumentCaptor.forClass(LPVSPullRequest.class);
+            verify(mocked_lpvsPullRequestRepository, times(2)).saveAndFlush(captor.capture());
+            assertEquals(
+                    LPVSPullRequestStatus.SUPERSEDED.toString(), captor.getValue().getStatus());
+        }
+    }
+
+    @Nested
+    class TestProcessWebHook__ResourceLimits {
+        LPVSQueueService mockQueueService = mock(LPVSQueueService.class);
+        LPVSGitHubService mockGitHubService = mock(LPVSGitHubService.class);
+        LPVSPullRequestRepository mocked_lpvsPullRequestRepository =
+                mock(LPVSPullRequestRepository.class);
+        LPVSResourceLimiter resourceLimiter = new LPVSResourceLimiter(0, 1, 1);
+        List<Integer> availableDatabase = new ArrayList<>();
+        List<Integer> availableGitHub = new ArrayList<>();
+        LPVSQueue webhookConfig;
+        LPVSWebhookServiceImpl webhookService;
+
+        @BeforeEach
+        void setUp() {
+            webhookConfig = new LPVSQueue();
+            webhookConfig.setId(1L);
+            webhookConfig.setPullRequestUrl("http://test_url/url/pull/1");
+            webhookConfig.setRepositoryUrl("http://test_url/url");
+            webhookConfig.setUserId("user");
+            webhookConfig.setDate(new Date());
+
+            when(mocked_lpvsPullRequestRepository.saveAndFlush(Mockito.any(LPVSPullRequest.class)))
+                    .thenAnswer(
+                            i -> {
+                                availableDatabase.add(
+                                        resourceLimiter.getAvailable(Resource.DATABASE));
+                                return i.getArguments()[0];
+                            });
+            when(mockGitHubService.getPullRequestFiles(eq(webhookConfig), any()))
+                    .thenAnswer(
+                            i -> {
+                                availableGitHub.add(resourceLimiter.getAvailable(Resource.GITHUB));
+                                return null;
+                            });
+
+            webhookService =
+                    new LPVSWebhookServiceImpl(
+                            mock(LPVSDetectService.class),
+                            mock(LPVSLicenseService.class),
+                            mockGitHubService,
+                            mockQueueService,
+                            mock(LPVSQueueRepository.class),
+                            mocked_lpvsPullRequestRepository,
+                            4);
+            webhookService.setResourceLimiter(resourceLimiter);
+        }
+
+        @Test
+        public void testProcessWebHook__PermitsPerCall() {
+            webhookService.processWebHook(webhookConfig);
+
+            // the pull request is saved with a database permit
+            assertEquals(List.of(0, 0), availableDatabase);
+            // the paged download of the files does not hold a GitHub permit
+            assertEquals(List.of(1), availableGitHub);
+            assertEquals(1, resourceLimiter.getAvailable(Resource.DATABASE));
+            assertEquals(1, resourceLimiter.getAvailable(Resource.GITHUB));
+        }
+    }
+
+    @Nested
+    class TestProcessWebHook__Suspended {
+        LPVSQueueService mockQueueService = mock(LPVSQueueService.class);
+        LPVSGitHubService mockGitHubService = mock(LPVSGitHubService.class);
+        LPVSDetectService mockDetectService = mock(LPVSDetectService.class);
+        LPVSLicenseService mockLicenseService = mock(LPVSLicenseService.class);
+        LPVSPullRequestRepository mocked_lpvsPullRequestRepository =
+                mock(LPVSPullRequestRepository.class);
+        LPVSQueueRepository mocked_queueRepository = mock(LPVSQueueRepository.class);
+        LPVSQueue webhookConfig;
+        LPVSWebhookService webhookService;
+
+        @BeforeEach
+        void setUp() throws Exception {
+            when(mocked_lpvsPullRequestRepository.saveAndFlush(Mockito.any(LPVSPullRequest.class)))
+                    .thenAnswer(i -> i.getArguments()[0]);
+
+            webhookConfig = new LPVSQueue();
+            webhookConfig.setId(1L);
+            webhookConfig.setPullRequestUrl("http://test_url/url/pull/1");
+            webhookConfig.setRepositoryUrl("http://test_url/url");
+            webhookConfig.setUserId("user");
+            webhookConfig.setDate(new Date());
+
+            when(mockGitHubService.getPullRequestFiles(eq(webhookConfig), any()))
+                    .thenReturn(filePathTestNoDeletion);
+            when(mockDetectService.runScan(webhookConfig, filePathTestNoDeletion))
+                    .thenThrow(new InterruptedException("Test shutdown"));
+            when(mockQueueService.isSuspended(webhookConfig)).thenReturn(true);
+
+            webhookService =
+                    new LPVSWebhookServiceImpl(
+                            mockDetectService,
+                            mockLicenseService,
+                            mockGitHubService,
+                            mockQueueService,
+                            mocked_queueRepository,
+                            mocked_lpvsPullRequestRepository,
+                            4);
+        }
+
+        @Test
+        public void testProcessWebHook__Suspended() throws Exception {
+            webhookService.processWebHook(webhookConfig);
+
+            verify(mockQueueService, times(1))
+                    .checkpoint(webhookConfig, LPVSQueueCheckpoint.FILES_FETCHED);
+            verify(mockQueueService, never())
+                    .checkpoint(webhookConfig, LPVSQueueCheckpoint.SCANNED);
+            // the element stays in the queue with its checkpoint
+            verify(mockQueueService, never()).delete(webhookConfig);
+            verify(mockQueueService, never()).retry(any(), any(), anyInt());
+            verify(mockGitHubService, never()).commentResults(any(), any(), any(), any());
+        }
+    }
+
+    @Nested
+    class TestProcessWebHook__Resumed {
+        LPVSQueueService mockQueueService = mock(LPVSQueueService.class);
+        LPVSGitHubService mockGitHubService = mock(LPVSGitHubService.class);
+        LPVSDetectService mockDetectService = mock(LPVSDetectService.class);
+        LPVSLicenseService mockLicenseService = mock(LPVSLicenseService.class);
+        LPVSPullRequestRepository mocked_lpvsPullRequestRepository =
+                mock(LPVSPullRequestRepository.class);
+        LPVSQueueRepository mocked_queueRepository = mock(LPVSQueueRepository.class);
+        LPVSQueue webhookConfig;
+        LPVSWebhookService webhookService;
+        Path workspace;
+
+        @BeforeEach
+        void setUp() throws Exception {
+            when(mocked_lpvsPullRequestRepository.saveAndFlush(Mockito.any(LPVSPullRequest.class)))
+                    .thenAnswer(i -> i.getArguments()[0]);
+
+            webhookConfig = new LPVSQueue();
+            webhookConfig.setId(1L);
+            webhookConfig.setPullRequestUrl("http://test_url/url/pull/1");
+            webhookConfig.setRepositoryUrl("http://test_url/url");
+            webhookConfig.setUserId("user");
+            webhookConfig.setDate(new Date());
+            webhookConfig.setHeadCommitSHA("resumed-test-sha");
+            webhookConfig.setCheckpoint(LPVSQueueCheckpoint.FILES_FETCHED);
+
+            workspace = Paths.get(LPVSFileUtil.getLocalDirectoryPath(webhookConfig));
+            Files.createDirectories(workspace);
+            Files.write(workspace.resolve("dummyFile"), List.of("test"));
+
+            when(mockDetectService.runScan(webhookConfig, workspace.toString()))
+                    .thenReturn(LPVSFilesTest);
+            when(mockLicenseService.findConflicts(webhookConfig, LPVSFilesTest))
+                    .thenReturn(Collections.emptyList());
+
+            webhookService =
+                    new LPVSWebhookServiceImpl(
+                            mockDetectService,
+                            mockLicenseService,
+                            mockGitHubService,
+                            mockQueueService,
+                            mocked_queueRepository,
+                            mocked_lpvsPullRequestRepository,
+                            4);
+        }
+
+        @AfterEach
+        void cleanUp() {
+            LPVSFileUtil.deleteIfExists(workspace.toString());
+        }
+
+        @Test
+        public void testProcessWebHook__Resumed() throws Exception {
+            webhookService.processWebHook(webhookConfig);
+
+            // the files downloaded before the shutdown are reused
+            verify(mockGitHubService, never()).getPullRequestFiles(any(), any());
+            verify(mockDetectService, times(1)).runScan(webhookConfig, workspace.toString());
+            verify(mockQueueService, times(1))
+                    .checkpoint(webhookConfig, LPVSQueueCheckpoint.SCANNED);
+            verify(mockGitHubService, times(1))
+                    .commentResults(eq(webhookConfig), eq(LPVSFilesTest), any(), any());
+            verify(mockQueueService, times(1)).delete(webhookConfig);
+        }
+
+        @Test
+        public void testProcessWebHook__ResumedWorkspaceLost() throws Exception {
+            LPVSFileUtil.deleteIfExists(workspace.toString());
+            webhookService.processWebHook(webhookConfig);
+
+            // the processing is started from scratch
+            verify(mockGitHubService, times(1)).getPullRequestFiles(eq(webhookConfig), any());
+            verify(mockDetectService, never()).runScan(any(), any());
+        }
+    }
+
+    @Nested
+    class TestProcessWebHook__Pipeline {
+        LPVSQueueService mockQueueService = mock(LPVSQueueService.class);
+        LPVSGitHubService mockGitHubService = mock(LPVSGitHubService.class);
+        LPVSDetectService mockDetectService = mock(LPVSDetectService.class);
+        LPVSLicenseService mockLicenseService = mock(LPVSLicenseService.class);
+        LPVSPullRequestRepository mocked_lpvsPullRequestRepository =
+                mock(LPVSPullRequestRepository.class);
+        LPVSQueueRepository mocked_queueRepository = mock(LPVSQueueRepository.class);
+        LPVSQueue webhookConfig;
+        LPVSWebhookService webhookService;
+        LPVSPipeline pipeline;
+        Path workspace;
+
+        @BeforeEach
+        void setUp() throws Exception {
+            when(mocked_lpvsPullRequestRepository.saveAndFlush(Mockito.any(LPVSPullRequest.class)))
+                    .thenAnswer(i -> i.getArguments()[0]);
+
+            webhookConfig = new LPVSQueue();
+            webhookConfig.setId(1L);
+            webhookConfig.setPullRequestUrl("http://test_url/url/pull/1");
+            webhookConfig.setRepositoryUrl("http://test_url/url");
+            webhookConfig.setUserId("user");
+            webhookConfig.setDate(new Date());
+            webhookConfig.setHeadCommitSHA("pipeline-test-sha");
+
+            workspace = Paths.get(LPVSFileUtil.getLocalDirectoryPath(webhookConfig));
+            Files.createDirectories(workspace);
+            Files.write(workspace.resolve("dummyFile"), List.of("test"));
+
+            when(mockGitHubService.getPullRequestFiles(eq(webhookConfig), any()))
+                    .thenReturn(workspace.toString());
+            when(mockGitHubService.getRepositoryLicense(eq(webhookConfig), any()))
+                    .thenReturn(new String[] {spdxIdTest, licenseNameTest});
+            when(mockLicenseService.getLicenseBySpdxIdAndName(
+                            spdxIdTest, Optional.of(licenseNameTest)))
+                    .thenReturn(lpvsLicenseTest);
+            when(mockDetectService.runScan(webhookConfig, workspace.toString()))
+                    .thenReturn(LPVSFilesTest);
+            when(mockLicenseService.findConflicts(webhookConfig, LPVSFilesTest))
+                    .thenReturn(Collections.emptyList());
+
+            pipeline = new LPVSPipeline();
+            ReflectionTestUtils.setField(pipeline, "enabled", true);
+            webhookService =
+                    new LPVSWebhookServiceImpl(
+                            mockDetectService,
+                            mockLicenseService,
+                            mockGitHubService,
+                            mockQueueService,
+                            mocked_queueRepository,
+                            mocked_lpvsPullRequestRepository,
+                            4);
+        }
+
+        @AfterEach
+        void cleanUp() {
+            pipeline.shutdown();
+            LPVSFileUtil.deleteIfExists(workspace.toString());
+        }
+
+        @Test
+        public void testProcessWebHook__Pipeline() throws Exception {
+            List<String> threads = Collections.synchronizedList(new ArrayList<>());
+            doAnswer(
+                            invocation -> {
+                                threads.add(Thread.currentThread().getName());
+                                return null;
+                            })
+                    .when(mockQueueService)
+                    .startProcessing(webhookConfig);
+
+            webhookService.processWebHook(webhookConfig, pipeline).get(10, TimeUnit.SECONDS);
+
+            verify(mockDetectService, times(1)).runScan(webhookConfig, workspace.toString());
+            verify(mockGitHubService, times(1))
+                    .commentResults(
+                            eq(webhookConfig),
+                            eq(LPVSFilesTest),
+                            eq(Collections.emptyList()),
+                            any());
+            verify(mockQueueService, times(1)).delete(webhookConfig);
+            assertEquals(spdxIdTest, webhookConfig.getRepositoryLicense());
+
+            // every stage runs on its own workers and hands the element over
+            assertEquals(4, threads.size());
+            assertTrue(threads.get(0).startsWith("LPVS-fetch::"));
+            assertTrue(threads.get(1).startsWith("LPVS-scan::"));
+            assertTrue(threads.get(2).startsWith("LPVS-resolve::"));
+            assertTrue(threads.get(3).startsWith("LPVS-publish::"));
+            verify(mockQueueService, times(4)).pauseProcessing(webhookConfig);
+        }
+
+        @Test
+        public void testProcessWebHook__PipelineCancelledBetweenStages() throws Exception {
+            when(mockQueueService.isCancelled(webhookConfig)).thenReturn(false, false, true);
+
+            webhookService.processWebHook(webhookConfig, pipeline).get(10, TimeUnit.SECONDS);
+
+            // the element is dropped before it reaches the scanner
+            verify(mockGitHubService, times(1)).getPullRequestFiles(eq(webhookConfig), any());
+            verify(mockDetectService, never()).runScan(any(), any());
+            verify(mockGitHubService, never()).commentResults(any(), any(), any(), any());
+            verify(mockQueueService, times(1)).delete(webhookConfig);
+            verify(mockQueueService, never()).retry(any(), any(), anyInt());
+            ArgumentCaptor<LPVSPullRequest> captor = ArgumentCaptor.forClass(LPVSPullRequest.class);
+            verify(mocked_lpvsPullRequestRepository, times(2)).saveAndFlush(captor.capture());
+            assertEquals(
+                    LPVSPullRequestStatus.SUPERSEDED.toString(), captor.getValue().getStatus());
+        }
+
+        @Test
+        public void testProcessWebHook__PipelineFailed() throws Exception {
+            when(mockDetectService.runScan(webhookConfig, workspace.toString()))
+                    .thenThrow(new RuntimeException("Test scanner crash"));
+            when(mockQueueService.retry(eq(webhookConfig), any(), eq(4))).thenReturn(true);
+
+            webhookService.processWebHook(webhookConfig, pipeline).get(10, TimeUnit.SECONDS);
+
+            verify(mockQueueService, times(1))
+                    .retry(webhookConfig, LPVSFailureType.SCANNER_CRASH, 4);
+            verify(mockQueueService, never()).delete(webhookConfig);
+            verify(mockGitHubService, never()).commentResults(any(), any(), any(), any());
+        }
+
+        @Test
+        public void testProcessWebHook__PipelineFailedBeforePullRequest() throws Exception {
+            when(mocked_lpvsPullRequestRepository.findByQueueId(any()))
+                    .thenThrow(new RuntimeException("Test database failure"));
+            when(mockQueueService.retry(eq(webhookConfig), any(), eq(4)))
+                    .thenReturn(true, false);
+
+            // the failed element is retried as when its pull request exists
+            webhookService.processWebHook(webhookConfig, pipeline).get(10, TimeUnit.SECONDS);
+            verify(mockQueueService, times(1)).retry(webhookConfig, LPVSFailureType.OTHER, 4);
+            verify(mockQueueService, never()).delete(webhookConfig);
+
+            // and removed from the queue when the attempts are exhausted
+            webhookService.processWebHook(webhookConfig, pipeline).get(10, TimeUnit.SECONDS);
+            verify(mockQueueService, times(2)).retry(webhookConfig, LPVSFailureType.OTHER, 4);
+            verify(mockQueueService, times(1)).delete(webhookConfig);
+            verify(mockGitHubService, never()).commentResults(any(), any(), any(), any());
+            verify(mocked_lpvsPullRequestRepository, never()).saveAndFlush(any());
+        }
+    }
+
+    @Nested
+    class TestProcessWebHook__ConcurrentGitHubCalls {
+        LPVSQueueService mockQueueService = mock(LPVSQueueService.class);
+        LPVSGitHubService mockGitHubService = mock(LPVSGitHubService.class);
+        LPVSDetectService mockDetectService = mock(LPVSDetectService.class);
+        LPVSLicenseService mockLicenseService = mock(LPVSLicenseService.class);
+        LPVSPullRequestRepository mocked_lpvsPullRequestRepository =
+                mock(LPVSPullRequestRepository.class);
+        LPVSQueueRepository mocked_queueRepository = mock(LPVSQueueRepository.class);
+        GHRepository mockRepository = mock(GHRepository.class);
+        ExecutorService gitHubExecutor = Executors.newSingleThreadExecutor();
+        LPVSQueue webhookConfig;
+        LPVSWebhookServiceImpl webhookService;
+        CountDownLatch licenseRequested = new CountDownLatch(1);
+        List<String> threads = Collections.synchronizedList(new ArrayList<>());
+
+        @BeforeEach
+        void setUp() throws Exception {
+            when(mocked_lpvsPullRequestRepository.saveAndFlush(Mockito.any(LPVSPullRequest.class)))
+                    .thenAnswer(i -> i.getArguments()[0]);
+
+            webhookConfig = new LPVSQueue();
+            webhookConfig.setId(1L);
+            webhookConfig.setPullRequestUrl("http://test_url/url/pull/1");
+            webhookConfig.setRepositoryUrl("http://test_url/url");
+            webhookConfig.setUserId("user");
+            webhookConfig.setDate(new Date());
+
+            when(mockGitHubService.getRepository(webhookConfig)).thenReturn(mockRepository);
+            when(mockGitHubService.getRepositoryLicense(webhookConfig, mockRepository))
+                    .thenAnswer(
+                            invocation -> {
+                                threads.add(Thread.currentThread().getName());
+                                licenseRequested.countDown();
+                                return new String[] {spdxIdTest, licenseNameTest};
+                            });
+            // the files are downloaded while the license is requested
+            when(mockGitHubService.getPullRequestFiles(webhookConfig, mockRepository))
+                    .thenAnswer(
+                            invocation -> {
+                                threads.add(Thread.currentThread().getName());
+                                assertTrue(licenseRequested.await(5, TimeUnit.SECONDS));
+                                return null;
+                            });
+
+            webhookService =
+                    new LPVSWebhookServiceImpl(
+                            mockDetectService,
+                            mockLicenseService,
+                            mockGitHubService,
+                            mockQueueService,
+                            mocked_queueRepository,
+                            mocked_lpvsPullRequestRepository,
+                            4);
+            webhookService.setGitHubExecutor(gitHubExecutor);
+        }
+
+        @AfterEach
+        void cleanUp() {
+            gitHubExecutor.shutdownNow();
+        }
+
+        @Test
+        public void testProcessWebHook__ConcurrentGitHubCalls() {
+            webhookService.processWebHook(webhookConfig);
+
+            // the repository is fetched once and shared by the calls
+            verify(mockGitHubService, times(1)).getRepository(webhookConfig);
+            verify(mockGitHubService, times(1)).getPullRequestFiles(webhookConfig, mockRepository);
+            verify(mockGitHubService, times(1)).getRepositoryLicense(webhookConfig, mockRepository);
+            assertEquals(2, threads.size());
+            assertNotEquals(threads.get(0), threads.get(1));
+        }
+    }
+
+    @Nested
+    class TestProcessWebHook__IncrementalRescan {
+        LPVSQueueService mockQueueService = mock(LPVSQueueService.class);
+        LPVSGitHubService mockGitHubService = mock(LPVSGitHubService.class);
+        LPVSDetectService mockDetectService = mock(LPVSDetectService.class);
+        LPVSLicenseService mockLicenseService = mock(LPVSLicenseService.class);
+        LPVSIncrementalScanService mockIncrementalScanService =
+                mock(LPVSIncrementalScanService.class);
+        LPVSPullRequestRepository mocked_lpvsPullRequestRepository =
+                mock(LPVSPullRequestRepository.class);
+        LPVSQueueRepository mocked_queueRepository = mock(LPVSQueueRepository.class);
+        GHRepository mockRepository = mock(GHRepository.class);
+        LPVSQueue webhookConfig;
+        LPVSPullRequest baseline;
+        Set<String> changedFiles = new HashSet<>(Collections.singletonList(filePath_1));
+        LPVSWebhookServiceImpl webhookService;
+        @Captor ArgumentCaptor<List<LPVSFile>> files;
+
+        @BeforeEach
+        void setUp() {
+            MockitoAnnotations.openMocks(this);
+            when(mocked_lpvsPullRequestRepository.saveAndFlush(Mockito.any(LPVSPullRequest.class)))
+                    .thenAnswer(i -> i.getArguments()[0]);
+
+            webhookConfig = new LPVSQueue();
+            webhookConfig.setId(1L);
+            webhookConfig.setPullRequestUrl("http://test_url/url/pull/1");
+            webhookConfig.setRepositoryUrl("http://test_url/url");
+            webhookConfig.setUserId("user");
+            webhookConfig.setHeadCommitSHA("new_sha");
+            webhookConfig.setDate(new Date());
+
+            baseline = new LPVSPullRequest();
+            baseline.setId(2L);
+            baseline.setScannedCommitSha("old_sha");
+
+            when(mockGitHubService.getRepository(webhookConfig)).thenReturn(mockRepository);
+            when(mockIncrementalScanService.findBaseline(webhookConfig)).thenReturn(baseline);
+            when(mockGitHubService.getChangedFiles(mockRepository, "old_sha", "new_sha"))
+                    .thenReturn(changedFiles);
+            when(mockIncrementalScanService.getStoredFiles(eq(baseline), eq(changedFiles), any()))
+                    .thenReturn(Collections.singletonList(lpvsFileTest_2));
+
+            webhookService =
+                    new LPVSWebhookServiceImpl(
+                            mockDetectService,
+                            mockLicenseService,
+                            mockGitHubService,
+                            mockQueueService,
+                            mocked_queueRepository,
+                            mocked_lpvsPullRequestRepository,
+                            4);
+            webhookService.setIncrementalScanService(mockIncrementalScanService);
+        }
+
+        @Test
+        public void testProcessWebHook__ChangedFilesRescanned() throws Exception {
+            when(mockGitHubService.getPullRequestFiles(webhookConfig, mockRepository))
+                    .thenReturn(filePathTestNoDeletion);
+            when(mockDetectService.runScan(webhookConfig, filePathTestNoDeletion))
+                    .thenReturn(new ArrayList<>(Collections.singletonList(lpvsFileTest_1)));
+
+            webhookService.processWebHook(webhookConfig);
+
+            assertEquals(changedFiles, webhookConfig.getChangedFiles());
+            ArgumentCaptor<LPVSPullRequest> pullRequest =
+                    ArgumentCaptor.forClass(LPVSPullRequest.class);
+            verify(mockGitHubService, times(1))
+                    .commentResults(
+                            eq(webhookConfig), files.capture(), any(), pullRequest.capture());
+            assertEquals(Arrays.asList(lpvsFileTest_1, lpvsFileTest_2), files.getValue());
+            assertEquals("new_sha", pullRequest.getValue().getScannedCommitSha());
+            verify(mockQueueService, times(1)).delete(webhookConfig);
+        }
+
+        @Test
+        public void testProcessWebHook__NoFilesChanged() throws Exception {
+            when(mockGitHubService.getPullRequestFiles(webhookConfig, mockRepository))
+                    .thenReturn(filePathTestNoDeletion + "/nothing_saved");
+
+            webhookService.processWebHook(webhookConfig);
+
+            verify(mockDetectService, never()).runScan(any(), any());
+            verify(mockGitHubService, times(1))
+                    .commentResults(
+                            eq(webhookConfig),
+                            eq(Collections.singletonList(lpvsFileTest_2)),
+                            any(),
+                            any());
+        }
+
+        @Test
+        public void testProcessWebHook__FullScanWithoutChangedFiles() throws Exception {
+            when(mockGitHubService.getChangedFiles(mockRepository, "old_sha", "new_sha"))
+                    .thenReturn(null);
+            when(mockGitHubService.getPullRequestFiles(webhookConfig, mockRepository))
+                    .thenReturn(filePathTestNoDeletion);
+            when(mockDetectService.runScan(webhookConfig, filePathTestNoDeletion))
+                    .thenReturn(LPVSFilesTest);
+
+            webhookService.processWebHook(webhookConfig);
+
+            assertNull(webhookConfig.getChangedFiles());
+            verify(mockIncrementalScanService, never()).getStoredFiles(any(), any(), any());
+            verify(mockGitHubService, times(1))
+                    .commentResults(eq(webhookConfig), eq(LPVSFilesTest), any(), any());
+        }
+
+        @Test
+        public void testProcessWebHook__FailureResetsScannedCommit() throws Exception {
+            when(mockGitHubService.getPullRequestFiles(webhookConfig, mockRepository))
+                    .thenReturn(filePathTestNoDeletion);
+            when(mockDetectService.runScan(webhookConfig, filePathTestNoDeletion))
+                    .thenReturn(LPVSFilesTest);
+            doThrow(new RuntimeException("Test publish failure"))
+                    .when(mockGitHubService)
+                    .commentResults(eq(webhookConfig), any(), any(), any());
+            when(mockQueueService.retry(eq(webhookConfig), any(), eq(4))).thenReturn(true);
+
+            webhookService.processWebHook(webhookConfig);
+
+            ArgumentCaptor<LPVSPullRequest> pullRequest =
+                    ArgumentCaptor.forClass(LPVSPullRequest.class);
+            verify(mocked_lpvsPullRequestRepository, atLeastOnce())
+                    .saveAndFlush(pullRequest.capture());
+            assertNull(pullRequest.getValue().getScannedCommitSha());
+        }
+    }
+
+    @Nested
+    class TestProcessWebHook__Outbox {
+        LPVSQueueService mockQueueService = mock(LPVSQueueService.class);
+        LPVSGitHubService mockGitHubService = mock(LPVSGitHubService.class);
+        LPVSDetectService mockDetectService = mock(LPVSDetectService.class);
+        LPVSLicenseService mockLicenseService = mock(LPVSLicenseService.class);
+        LPVSOutboxService mockOutboxService = mock(LPVSOutboxService.class);
+        LPVSPullRequestRepository mocked_lpvsPullRequestRepository =
+                mock(LPVSPullRequestRepository.class);
+        LPVSQueueRepository mocked_queueRepository = mock(LPVSQueueRepository.class);
+        GHRepository mockRepository = mock(GHRepository.class);
+        LPVSQueue webhookConfig;
+        LPVSWebhookServiceImpl webhookService;
+
+        @BeforeEach
+        void setUp() throws Exception {
+            when(mocked_lpvsPullRequestRepository.saveAndFlush(Mockito.any(LPVSPullRequest.class)))
+                    .thenAnswer(i -> i.getArguments()[0]);
+
+            webhookConfig = new LPVSQueue();
+            webhookConfig.setId(1L);
+            webhookConfig.setPullRequestUrl("http://test_url/url/pull/1");
+            webhookConfig.setRepositoryUrl("http://test_url/url");
+            webhookConfig.setUserId("user");
+            webhookConfig.setHeadCommitSHA("sha");
+            webhookConfig.setDate(new Date());
+
+            when(mockGitHubService.getRepository(webhookConfig)).thenReturn(mockRepository);
+            when(mockGitHubService.getPullRequestFiles(webhookConfig, mockRepository))
+                    .thenReturn(filePathTestNoDeletion);
+            when(mockDetectService.runScan(webhookConfig, filePathTestNoDeletion))
+                    .thenReturn(LPVSFilesTest);
+            when(mockOutboxService.isEnabled()).thenReturn(true);
+
+            webhookService =
+                    new LPVSWebhookServiceImpl(
+                            mockDetectService,
+                            mockLicenseService,
+                            mockGitHubService,
+                            mockQueueService,
+                            mocked_queueRepository,
+                            mocked_lpvsPullRequestRepository,
+                            4);
+            webhookService.setOutboxService(mockOutboxService);
+        }
+
+        @Test
+        public void testProcessWebHook__ResultsSavedToOutbox() throws Exception {
+            webhookService.processWebHook(webhookConfig);
+
+            ArgumentCaptor<LPVSPullRequest> pullRequest =
+                    ArgumentCaptor.forClass(LPVSPullRequest.class);
+            verify(mockOutboxService, times(1))
+                    .enqueue(eq(webhookConfig), eq(LPVSFilesTest), any(), pullRequest.capture());
+            assertEquals("sha", pullRequest.getValue().getScannedCommitSha());
+            verify(mockGitHubService, never()).commentResults(any(), any(), any(), any());
+            verify(mockQueueService, times(1)).delete(webhookConfig);
+        }
+
+        @Test
+        public void testProcessWebHook__OutboxDisabled() throws Exception {
+            when(mockOutboxService.isEnabled()).thenReturn(false);
+
+            webhookService.processWebHook(webhookConfig);
+
+            verify(mockOutboxService, never()).enqueue(any(), any(), any(), any());
+            verify(mockGitHubService, times(1))
+                    .commentResults(eq(webhookConfig), eq(LPVSFilesTest), any(), any());
+        }
+    }
+
+    @Nested
+    class TestProcessWebHook__MemoryWorkspace {
+        LPVSQueueService mockQueueService = mock(LPVSQueueService.class);
+        LPVSGitHubService mockGitHubService = mock(LPVSGitHubService.class);
+        LPVSDetectService mockDetectService = mock(LPVSDetectService.class);
+        LPVSLicenseService mockLicenseService = mock(LPVSLicenseService.class);
+        LPVSWorkspaceService mockWorkspaceService = mock(LPVSWorkspaceService.class);
+        LPVSPullRequestRepository mocked_lpvsPullRequestRepository =
+                mock(LPVSPullRequestRepository.class);
+        LPVSQueueRepository mocked_queueRepository = mock(LPVSQueueRepository.class);
+        GHRepository mockRepository = mock(GHRepository.class);
+        LPVSQueue webhookConfig;
+        LPVSWebhookServiceImpl webhookService;
+
+        @BeforeEach
+        void setUp() throws Exception {
+            when(mocked_lpvsPullRequestRepository.saveAndFlush(Mockito.any(LPVSPullRequest.class)))
+                    .thenAnswer(i -> i.getArguments()[0]);
+
+            webhookConfig = new LPVSQueue();
+            webhookConfig.setId(1L);
+            webhookConfig.setPullRequestUrl("http://test_url/url/pull/1");
+            webhookConfig.setRepositoryUrl("http://test_url/url");
+            webhookConfig.setUserId("user");
+            webhookConfig.setHeadCommitSHA("sha");
+            webhookConfig.setDate(new Date());
+
+            when(mockGitHubService.getRepository(webhookConfig)).thenReturn(mockRepository);
+            when(mockGitHubService.getPullRequestFiles(webhookConfig, mockRepository))
+                    .thenReturn(filePathTestNoDeletion);
+            when(mockWorkspaceService.allocate(webhookConfig)).thenReturn(true);
+
+            webhookService =
+                    new LPVSWebhookServiceImpl(
+                            mockDetectService,
+                            mockLicenseService,
+                            mockGitHubService,
+                            mockQueueService,
+                            mocked_queueRepository,
+                            mocked_lpvsPullRequestRepository,
+                            4);
+            webhookService.setWorkspaceService(mockWorkspaceService);
+        }
+
+        @Test
+        public void testProcessWebHook__WorkspaceReleasedAfterScan() throws Exception {
+            when(mockDetectService.runScan(webhookConfig, filePathTestNoDeletion))
+                    .thenReturn(LPVSFilesTest);
+
+            webhookService.processWebHook(webhookConfig);
+
+            InOrder inOrder =
+                    inOrder(mockWorkspaceService, mockGitHubService, mockDetectService);
+            inOrder.verify(mockWorkspaceService).allocate(webhookConfig);
+            inOrder.verify(mockGitHubService).getPullRequestFiles(webhookConfig, mockRepository);
+            inOrder.verify(mockDetectService).runScan(webhookConfig, filePathTestNoDeletion);
+            inOrder.verify(mockWorkspaceService).release(webhookConfig);
+            inOrder.verify(mockGitHubService)
+                    .commentResults(eq(webhookConfig), eq(LPVSFilesTest), any(), any());
+            verify(mockQueueService, times(1)).delete(webhookConfig);
+        }
+
+        @Test
+        public void testProcessWebHook__WorkspaceReleasedOnFailure() throws Exception {
+            when(mockDetectService.runScan(webhookConfig, filePathTestNoDeletion))
+                    .thenThrow(new RuntimeException("scanner failed"));
+
+            webhookService.processWebHook(webhookConfig);
+
+            verify(mockWorkspaceService, atLeastOnce()).release(webhookConfig);
+            verify(mockGitHubService, never())
+                    .commentResults(eq(webhookConfig), eq(LPVSFilesTest), any(), any());
+        }
+
+        @Test
+        public void testProcessWebHook__WorkspaceKeptWhenSuspended() throws Exception {
+            when(mockDetectService.runScan(webhookConfig, filePathTestNoDeletion))
+                    .thenThrow(new RuntimeException("interrupted"));
+            when(mockQueueService.isSuspended(webhookConfig)).thenReturn(true);
+
+            webhookService.processWebHook(webhookConfig);
+
+            verify(mockWorkspaceService, never()).release(webhookConfig);
+        }
+    }
+
     // ==== constants common for next 6 tests ====
 
     // case DeletionAbsent
@@ -269,9 +1052,9 @@ public class LPVSWebhookServiceImplTest {
             webhookConfigMain.setDate(date);
 
             mockGitHubService = mock(LPVSGitHubService.class);
-            when(mockGitHubService.getPullRequestFiles(webhookConfigMain))
+            when(mockGitHubService.getPullRequestFiles(eq(webhookConfigMain), any()))
                     .thenReturn(filePathTestNoDeletion);
-            when(mockGitHubService.getRepositoryLicense(webhookConfigMain))
+            when(mockGitHubService.getRepositoryLicense(eq(webhookConfigMain), any()))
                     .thenReturn(new String[] {spdxIdTest, licenseNameTest});
 
             mockLicenseService = mock(LPVSLicenseService.class);
@@ -310,8 +1093,8 @@ public class LPVSWebhookServiceImplTest {
             // main test
             webhookService.processWebHook(webhookConfigMain);
 
-            verify(mockGitHubService, times(1)).getPullRequestFiles(webhookConfigMain);
-            verify(mockGitHubService, times(1)).getRepositoryLicense(webhookConfigMain);
+            verify(mockGitHubService, times(1)).getPullRequestFiles(eq(webhookConfigMain), any());
+            verify(mockGitHubService, times(1)).getRepositoryLicense(eq(webhookConfigMain), any());
             verify(mockLicenseService, times(1))
                     .getLicenseBySpdxIdAndName(spdxIdTest, Optional.of(licenseNameTest));
             try {
@@ -329,6 +1112,7 @@ public class LPVSWebhookServiceImplTest {
                             eq(Collections.emptyList()),
                             eq(lpvsPullRequest));
 
+            verify(mockGitHubService, times(1)).getRepository(webhookConfigMain);
             verifyNoMoreInteractions(mockGitHubService);
             verifyNoMoreInteractions(mockDetectService);
             verifyNoMoreInteractions(mockLicenseService);
@@ -372,9 +1156,9 @@ public class LPVSWebhookServiceImplTest {
             webhookConfigMain.setDate(date);
 
             mockGitHubService = mock(LPVSGitHubService.class);
-            when(mockGitHubService.getPullRequestFiles(webhookConfigMain))
+            when(mockGitHubService.getPullRequestFiles(eq(webhookConfigMain), any()))
                     .thenReturn(filePathTestWithDeletion);
-            when(mockGitHubService.getRepositoryLicense(webhookConfigMain))
+            when(mockGitHubService.getRepositoryLicense(eq(webhookConfigMain), any()))
                     .thenReturn(new String[] {spdxIdTest, licenseNameTest});
 
             mockLicenseService = mock(LPVSLicenseService.class);
@@ -414,8 +1198,8 @@ public class LPVSWebhookServiceImplTest {
             // main test
             webhookService.processWebHook(webhookConfigMain);
 
-            verify(mockGitHubService, times(1)).getPullRequestFiles(webhookConfigMain);
-            verify(mockGitHubService, times(1)).getRepositoryLicense(webhookConfigMain);
+            verify(mockGitHubService, times(1)).getPullRequestFiles(eq(webhookConfigMain), any());
+            verify(mockGitHubService, times(1)).getRepositoryLicense(eq(webhookConfigMain), any());
             verify(mockLicenseService, times(1))
                     .getLicenseBySpdxIdAndName(spdxIdTest, Optional.of(licenseNameTest));
             try {
@@ -433,6 +1217,7 @@ public class LPVSWebhookServiceImplTest {
                             eq(Collections.emptyList()),
                             eq(lpvsPullRequest));
 
+            verify(mockGitHubService, times(1)).getRepository(webhookConfigMain);
             verifyNoMoreInteractions(mockGitHubService);
             verifyNoMoreInteractions(mockDetectService);
             verifyNoMoreInteractions(mockLicenseService);
@@ -473,9 +1258,9 @@ public class LPVSWebhookServiceImplTest {
             webhookConfigMain.setDate(date);
 
             mockGitHubService = mock(LPVSGitHubService.class);
-            when(mockGitHubService.getPullRequestFiles(webhookConfigMain))
+            when(mockGitHubService.getPullRequestFiles(eq(webhookConfigMain), any()))
                     .thenReturn(filePathTestNoDeletion);
-            when(mockGitHubService.getRepositoryLicense(webhookConfigMain))
+            when(mockGitHubService.getRepositoryLicense(eq(webhookConfigMain), any()))
                     .thenReturn(new String[] {spdxIdTest, licenseNameTest});
 
             mockLicenseService = mock(LPVSLicenseService.class);
@@ -519,8 +1304,8 @@ public class LPVSWebhookServiceImplTest {
             // main test
             webhookService.processWebHook(webhookConfigMain);
 
-            verify(mockGitHubService, times(1)).getPullRequestFiles(webhookConfigMain);
-            verify(mockGitHubService, times(1)).getRepositoryLicense(webhookConfigMain);
+            verify(mockGitHubService, times(1)).getPullRequestFiles(eq(webhookConfigMain), any());
+            verify(mockGitHubService, times(1)).getRepositoryLicense(eq(webhookConfigMain), any());
             verify(mockLicenseService, times(1))
                     .getLicenseBySpdxIdAndName(spdxIdTest, Optional.of(licenseNameTest));
             try {
@@ -538,6 +1323,7 @@ public class LPVSWebhookServiceImplTest {
                             eq(Collections.emptyList()),
                             eq(lpvsPullRequest));
 
+            verify(mockGitHubService, times(1)).getRepository(webhookConfigMain);
             verifyNoMoreInteractions(mockGitHubService);
             verifyNoMoreInteractions(mockDetectService);
             verifyNoMoreInteractions(mockLicenseService);
@@ -581,9 +1367,9 @@ public class LPVSWebhookServiceImplTest {
             webhookConfigMain.setDate(date);
 
             mockGitHubService = mock(LPVSGitHubService.class);
-            when(mockGitHubService.getPullRequestFiles(webhookConfigMain))
+            when(mockGitHubService.getPullRequestFiles(eq(webhookConfigMain), any()))
                     .thenReturn(filePathTestWithDeletion);
-            when(mockGitHubService.getRepositoryLicense(webhookConfigMain))
+            when(mockGitHubService.getRepositoryLicense(eq(webhookConfigMain), any()))
                     .thenReturn(new String[] {spdxIdTest, licenseNameTest});
 
             mockLicenseService = mock(LPVSLicenseService.class);
@@ -623,8 +1409,8 @@ public class LPVSWebhookServiceImplTest {
             // main test
             webhookService.processWebHook(webhookConfigMain);
 
-            verify(mockGitHubService, times(1)).getPullRequestFiles(webhookConfigMain);
-            verify(mockGitHubService, times(1)).getRepositoryLicense(webhookConfigMain);
+            verify(mockGitHubService, times(1)).getPullRequestFiles(eq(webhookConfigMain), any());
+            verify(mockGitHubService, times(1)).getRepositoryLicense(eq(webhookConfigMain), any());
             verify(mockLicenseService, times(1))
                     .getLicenseBySpdxIdAndName(spdxIdTest, Optional.of(licenseNameTest));
             try {
@@ -642,6 +1428,7 @@ public class LPVSWebhookServiceImplTest {
                             eq(Collections.emptyList()),
                             eq(lpvsPullRequest));
 
+            verify(mockGitHubService, times(1)).getRepository(webhookConfigMain);
             verifyNoMoreInteractions(mockGitHubService);
             verifyNoMoreInteractions(mockDetectService);
             verifyNoMoreInteractions(mockLicenseService);
@@ -685,9 +1472,10 @@ public class LPVSWebhookServiceImplTest {
             webhookConfigMain.setDate(date);
 
             mockGitHubService = mock(LPVSGitHubService.class);
-            when(mockGitHubService.getPullRequestFiles(webhookConfigMain))
+            when(mockGitHubService.getPullRequestFiles(eq(webhookConfigMain), any()))
                     .thenReturn(filePathTestNoDeletion);
-            when(mockGitHubService.getRepositoryLicense(webhookConfigMain)).thenReturn(null);
+            when(mockGitHubService.getRepositoryLicense(eq(webhookConfigMain), any()))
+                    .thenReturn(null);
 
             mockLicenseService = mock(LPVSLicenseService.class);
             mockDetectService = mock(LPVSDetectService.class);
@@ -721,8 +1509,8 @@ public class LPVSWebhookServiceImplTest {
             // main test
             webhookService.processWebHook(webhookConfigMain);
 
-            verify(mockGitHubService, times(1)).getPullRequestFiles(webhookConfigMain);
-            verify(mockGitHubService, times(1)).getRepositoryLicense(webhookConfigMain);
+            verify(mockGitHubService, times(1)).getPullRequestFiles(eq(webhookConfigMain), any());
+            verify(mockGitHubService, times(1)).getRepositoryLicense(eq(webhookConfigMain), any());
             try {
                 verify(mockDetectService, times(1))
                         .runScan(webhookConfigMain, filePathTestNoDeletion);
@@ -738,6 +1526,7 @@ public class LPVSWebhookServiceImplTest {
                             eq(Collections.emptyList()),
                             eq(lpvsPullRequest));
 
+            verify(mockGitHubService, times(1)).getRepository(webhookConfigMain);
             verifyNoMoreInteractions(mockGitHubService);
             verifyNoMoreInteractions(mockDetectService);
             verifyNoMoreInteractions(mockLicenseService);
@@ -782,9 +1571,10 @@ public class LPVSWebhookServiceImplTest {
             webhookConfigMain.setDate(date);
 
             mockGitHubService = mock(LPVSGitHubService.class);
-            when(mockGitHubService.getPullRequestFiles(webhookConfigMain))
+            when(mockGitHubService.getPullRequestFiles(eq(webhookConfigMain), any()))
                     .thenReturn(filePathTestWithDeletion);
-            when(mockGitHubService.getRepositoryLicense(webhookConfigMain)).thenReturn(null);
+            when(mockGitHubService.getRepositoryLicense(eq(webhookConfigMain), any()))
+                    .thenReturn(null);
 
             mockLicenseService = mock(LPVSLicenseService.class);
             mockDetectService = mock(LPVSDetectService.class);
@@ -820,8 +1610,8 @@ public class LPVSWebhookServiceImplTest {
             // main test
             webhookService.processWebHook(webhookConfigMain);
 
-            verify(mockGitHubService, times(1)).getPullRequestFiles(webhookConfigMain);
-            verify(mockGitHubService, times(1)).getRepositoryLicense(webhookConfigMain);
+            verify(mockGitHubService, times(1)).getPullRequestFiles(eq(webhookConfigMain), any());
+            verify(mockGitHubService, times(1)).getRepositoryLicense(eq(webhookConfigMain), any());
             try {
                 verify(mockDetectService, times(1))
                         .runScan(webhookConfigMain, filePathTestWithDeletionTruncated);
@@ -837,6 +1627,7 @@ public class LPVSWebhookServiceImplTest {
                             eq(Collections.emptyList()),
                             eq(lpvsPullRequest));
 
+            verify(mockGitHubService, times(1)).getRepository(webhookConfigMain);
             verifyNoMoreInteractions(mockGitHubService);
             verifyNoMoreInteractions(mockDetectService);
             verifyNoMoreInteractions(mockLicenseService);
@@ -0,0 +1,57 @@
+/**
+ * Copyright (c) 2024, Samsung Electronics Co., Ltd. All rights reserved.
+ *
+ * Use of this source code is governed by a MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.lpvs.service.webhook;
+
+import com.lpvs.entity.LPVSQueue;
+import com.lpvs.service.LPVSPipeline;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LPVSWebhookServiceTest {
+
+    private LPVSPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        pipeline = new LPVSPipeline();
+        ReflectionTestUtils.setField(pipeline, "enabled", true);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        pipeline.shutdown();
+    }
+
+    @Test
+    public void testProcessWebHook_DefaultPipeline() throws Exception {
+        List<LPVSQueue> processed = Collections.synchronizedList(new ArrayList<>());
+        List<String> threads = Collections.synchronizedList(new ArrayList<>());
+        LPVSWebhookService webhookService =
+                webhookConfig -> {
+                    processed.add(webhookConfig);
+                    threads.add(Thread.currentThread().getName());
+                };
+        LPVSQueue webhookConfig = new LPVSQueue();
+
+        webhookService.processWebHook(webhookConfig, pipeline).get(10, TimeUnit.SECONDS);
+
+        assertEquals(1, processed.size());
+        assertSame(webhookConfig, processed.get(0));
+        assertTrue(threads.get(0).startsWith("LPVS-fetch::"));
+    }
+}
@@ -0,0 +1,140 @@
+/**
+ * Copyright (c) 2024, Samsung Electronics Co., Ltd. All rights reserved.
+ *
+ * Use of this source code is governed by a MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.lpvs.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LPVSBlobStoreTest {
+
+    private static final String SHA_A = "a".repeat(40);
+    private static final String SHA_B = "b".repeat(40);
+    private static final String SHA_C = "c".repeat(40);
+
+    private Path storePath;
+    private Path workspace;
+    private LPVSBlobStore blobStore;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        storePath = Files.createTempDirectory("blobs");
+        workspace = Files.createTempDirectory("workspace");
+        blobStore = new LPVSBlobStore();
+        ReflectionTestUtils.setField(blobStore, "storePath", storePath.toString());
+        ReflectionTestUtils.setField(blobStore, "quota", 10L);
+        blobStore.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        LPVSFileUtil.deleteIfExists(storePath.toString());
+        LPVSFileUtil.deleteIfExists(workspace.toString());
+    }
+
+    private Path write(String name, String content) throws IOException {
+        Path path = workspace.resolve(name);
+        Files.createDirectories(path.getParent());
+        return Files.writeString(path, content);
+    }
+
+    @Test
+    public void testStoreAndLink() throws IOException {
+        Path source = write("a.c", "abcd");
+        assertFalse(blobStore.link(SHA_A, workspace.resolve("copy/a.c")));
+
+        blobStore.store(SHA_A, source);
+        assertTrue(blobStore.contains(SHA_A));
+        assertEquals(4, blobStore.getSize());
+        assertTrue(Files.isRegularFile(storePath.resolve("aa").resolve(SHA_A)));
+
+        Path target = workspace.resolve("copy/a.c");
+        assertTrue(blobStore.link(SHA_A, target));
+        assertEquals("abcd", Files.readString(target));
+        assertTrue(Files.isSameFile(source, target));
+
+        // the stored file is not affected by the deletion of the workspace
+        Files.delete(source);
+        Files.delete(target);
+        assertTrue(blobStore.link(SHA_A, target));
+    }
+
+    @Test
+    public void testEvictionOfLeastRecentlyUsed() throws IOException {
+        blobStore.store(SHA_A, write("a.c", "aaaa"));
+        blobStore.store(SHA_B, write("b.c", "bbbb"));
+        assertTrue(blobStore.link(SHA_A, workspace.resolve("copy/a.c")));
+        blobStore.store(SHA_C, write("c.c", "cccc"));
+
+        assertTrue(blobStore.contains(SHA_A));
+        assertFalse(blobStore.contains(SHA_B));
+        assertTrue(blobStore.contains(SHA_C));
+        assertEquals(8, blobStore.getSize());
+        assertFalse(Files.exists(storePath.resolve("bb").resolve(SHA_B)));
+        assertEquals("bbbb", Files.readString(workspace.resolve("b.c")));
+    }
+
+    @Test
+    public void testStore_Rejected() throws IOException {
+        blobStore.store(SHA_A, write("large.c", "01234567890"));
+        blobStore.store("../../etc", write("a.c", "a"));
+        blobStore.store(SHA_B.substring(1), write("b.c", "b"));
+        assertEquals(0, blobStore.getSize());
+        assertFalse(blobStore.link("../../etc", workspace.resolve("etc")));
+
+        ReflectionTestUtils.setField(blobStore, "quota", 0L);
+        assertFalse(blobStore.isEnabled());
+        blobStore.store(SHA_C, write("c.c", "c"));
+        assertFalse(blobStore.contains(SHA_C));
+    }
+
+    @Test
+    public void testInit_LoadsStoredFiles() throws IOException {
+        blobStore.store(SHA_A, write("a.c", "aaaa"));
+        blobStore.store(SHA_B, write("b.c", "bbbb"));
+        Path stored = storePath.resolve("aa").resolve(SHA_A);
+        Files.setLastModifiedTime(stored, FileTime.fromMillis(1000));
+
+        LPVSBlobStore restarted = new LPVSBlobStore();
+        ReflectionTestUtils.setField(restarted, "storePath", storePath.toString());
+        ReflectionTestUtils.setField(restarted, "quota", 6L);
+        restarted.init();
+
+        assertFalse(restarted.contains(SHA_A));
+        assertTrue(restarted.contains(SHA_B));
+        assertEquals(4, restarted.getSize());
+    }
+
+    @Test
+    public void testLink_StoredFileMissing() throws IOException {
+        blobStore.store(SHA_A, write("a.c", "aaaa"));
+        Files.delete(storePath.resolve("aa").resolve(SHA_A));
+
+        assertFalse(blobStore.link(SHA_A, workspace.resolve("copy/a.c")));
+        assertFalse(blobStore.contains(SHA_A));
+        assertEquals(0, blobStore.getSize());
+    }
+
+    @Test
+    @ExtendWith(OutputCaptureExtension.class)
+    public void testInitWithStreamedDiff(CapturedOutput capturedOutput) {
+        ReflectionTestUtils.setField(blobStore, "streamDiff", true);
+        blobStore.init();
+        assertTrue(capturedOutput.toString().contains("set github.diff.stream=false"));
+    }
+}
@@ -12,15 +12,23 @@ import org.junit.jupiter.api.Test;
 import org.kohsuke.github.GHPullRequestFileDetail;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.StringReader;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static com.lpvs.util.LPVSFileUtil.copyFiles;
 import static org.junit.jupiter.api.Assertions.*;
@@ -54,7 +62,10 @@ public class LPVSFileUtilTest {
                                 add(detail);
                             }
                         },
-                        webhookConfig));
+                        webhookConfig,
+                        false,
+                        null,
+                        null));
     }
 
     @Test
@@ -73,7 +84,10 @@ public class LPVSFileUtilTest {
                                 add(detail);
                             }
                         },
-                        webhookConfig));
+                        webhookConfig,
+                        false,
+                        null,
+                        null));
     }
 
     @Test
@@ -92,7 +106,296 @@ public class LPVSFileUtilTest {
                                 add(detail);
                             }
                         },
+                        webhookConfig,
+                        false,
+                        null,
+                        null));
+    }
+
+    @Test
+    public void testSaveGithubDiffsWithBlobStore() throws IOException {
+        webhookConfig.setHeadCommitSHA("aaaa");
+        LPVSQueue otherWebhookConfig = new LPVSQueue();
+        otherWebhookConfig.setId(2L);
+        otherWebhookConfig.setRepositoryUrl("http://test.com/test/test");
+        otherWebhookConfig.setHeadCommitSHA("bbbb");
+        Path storePath = Files.createTempDirectory("blobs");
+        LPVSBlobStore blobStore = new LPVSBlobStore();
+        ReflectionTestUtils.setField(blobStore, "storePath", storePath.toString());
+        ReflectionTestUtils.setField(blobStore, "quota", 1024L);
+        String blobSha = "0123456789abcdef0123456789abcdef01234567";
+
+        GHPullRequestFileDetail added = new GHPullRequestFileDetail();
+        ReflectionTestUtils.setField(added, "filename", "vendor/lib.c");
+        ReflectionTestUtils.setField(added, "status", "added");
+        ReflectionTestUtils.setField(added, "sha", blobSha);
+        ReflectionTestUtils.setField(added, "patch", "@@ -0,0 +1,2 @@\n+int a;\n+int b;");
+        GHPullRequestFileDetail modified = new GHPullRequestFileDetail();
+        ReflectionTestUtils.setField(modified, "filename", "main.c");
+        ReflectionTestUtils.setField(modified, "status", "modified");
+        ReflectionTestUtils.setField(modified, "sha", "1".repeat(40));
+        ReflectionTestUtils.setField(modified, "patch", "@@ -1 +1 @@\n-a\n+b");
+
+        String first =
+                LPVSFileUtil.saveGithubDiffs(
+                        List.of(added, modified), webhookConfig, true, blobStore, null);
+        assertTrue(blobStore.contains(blobSha));
+        assertFalse(blobStore.contains("1".repeat(40)));
+
+        // the content of the stored blob is linked, not saved from the patch
+        ReflectionTestUtils.setField(added, "patch", "@@ -0,0 +1,1 @@\n+changed");
+        String second =
+                LPVSFileUtil.saveGithubDiffs(
+                        List.of(added), otherWebhookConfig, true, blobStore, null);
+        Path linked = Paths.get(second, "vendor", "lib.c");
+        assertEquals(List.of("int a;", "int b;"), Files.readAllLines(linked));
+        assertTrue(Files.isSameFile(Paths.get(first, "vendor", "lib.c"), linked));
+        assertFalse(Files.exists(Paths.get(second, "main.c")));
+
+        LPVSFileUtil.deleteIfExists(first);
+        LPVSFileUtil.deleteIfExists(second);
+        LPVSLineMap.delete(first);
+        LPVSLineMap.delete(second);
+        LPVSFileUtil.deleteIfExists(storePath.toString());
+    }
+
+    @Test
+    public void testSaveGithubDiffsInParallel() throws IOException {
+        webhookConfig.setHeadCommitSHA("aaaa");
+        List<GHPullRequestFileDetail> files = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            GHPullRequestFileDetail detail = new GHPullRequestFileDetail();
+            ReflectionTestUtils.setField(detail, "filename", "dir" + i % 7 + "/file" + i + ".c");
+            ReflectionTestUtils.setField(
+                    detail, "patch", "@@ -" + i + ",1 +" + (i + 10) + ",2 @@\n a\n+" + i);
+            files.add(detail);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            String directoryPath =
+                    LPVSFileUtil.saveGithubDiffs(files, webhookConfig, true, null, executor);
+            for (int i = 0; i < 200; i++) {
+                Path path = Paths.get(directoryPath, "dir" + i % 7, "file" + i + ".c");
+                assertEquals(List.of("a", String.valueOf(i)), Files.readAllLines(path));
+            }
+            LPVSLineMap lineMap = LPVSLineMap.load(directoryPath);
+            assertNotNull(lineMap);
+            assertEquals("109-110", lineMap.toOriginalLines("dir1/file99.c", "1-2"));
+            LPVSFileUtil.deleteIfExists(directoryPath);
+            LPVSLineMap.delete(directoryPath);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSaveGithubDiffsInParallel_WrongPatch() {
+        webhookConfig.setHeadCommitSHA("aaaa");
+        GHPullRequestFileDetail wrong = new GHPullRequestFileDetail();
+        ReflectionTestUtils.setField(wrong, "filename", "wrong.c");
+        ReflectionTestUtils.setField(wrong, "patch", "@@ -1,1 +x,1 @@\n+a");
+        GHPullRequestFileDetail right = new GHPullRequestFileDetail();
+        ReflectionTestUtils.setField(right, "filename", "right.c");
+        ReflectionTestUtils.setField(right, "patch", "@@ -1,1 +1,1 @@\n+a");
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            assertThrows(
+                    NumberFormatException.class,
+                    () ->
+                            LPVSFileUtil.saveGithubDiffs(
+                                    List.of(wrong, right), webhookConfig, false, null, executor));
+            String directoryPath = getExpectedProjectsPathWithCommitSHA(1);
+            assertTrue(Files.exists(Paths.get(directoryPath, "right.c")));
+            LPVSFileUtil.deleteIfExists(directoryPath);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSaveGithubDiff() throws IOException {
+        webhookConfig.setHeadCommitSHA("aaaa");
+        String expected = getExpectedProjectsPathWithCommitSHA(1);
+        String diff =
+                "diff --git a/dir/file.c b/dir/file.c\n"
+                        + "--- a/dir/file.c\n"
+                        + "+++ b/dir/file.c\n"
+                        + "@@ -2,2 +2,2 @@\n"
+                        + " a\n"
+                        + "-b\n"
+                        + "+c\n";
+        assertEquals(
+                expected,
+                LPVSFileUtil.saveGithubDiff(
+                        new ByteArrayInputStream(diff.getBytes(StandardCharsets.UTF_8)),
                         webhookConfig));
+        assertEquals(
+                "\na\nc\n",
+                Files.readString(Paths.get(expected, "dir", "file.c"), StandardCharsets.UTF_8));
+        LPVSFileUtil.deleteIfExists(expected);
+    }
+
+    @Test
+    public void testSaveUnifiedDiff() throws IOException {
+        sourceDir = Files.createTempDirectory("diff").toFile();
+        String diff =
+                "diff --git a/added.txt b/added.txt\n"
+                        + "new file mode 100644\n"
+                        + "index 0000000..3b18e51\n"
+                        + "--- /dev/null\n"
+                        + "+++ b/added.txt\n"
+                        + "@@ -0,0 +1,3 @@\n"
+                        + "+first\n"
+                        + "+++ not a header\n"
+                        + "+\n"
+                        + "\\ No newline at end of file\n"
+                        + "diff --git a/deleted.txt b/deleted.txt\n"
+                        + "deleted file mode 100644\n"
+                        + "--- a/deleted.txt\n"
+                        + "+++ /dev/null\n"
+                        + "@@ -1,2 +0,0 @@\n"
+                        + "-one\n"
+                        + "--- not a header\n"
+                        + "diff --git a/image.png b/image.png\n"
+                        + "Binary files a/image.png and b/image.png differ\n"
+                        + "diff --git a/old.txt b/renamed.txt\n"
+                        + "similarity index 100%\n"
+                        + "rename from old.txt\n"
+                        + "rename to renamed.txt\n"
+                        + "diff --git a/src/main.c b/src/main.c\n"
+                        + "--- a/src/main.c\n"
+                        + "+++ b/src/main.c\n"
+                        + "@@ -1,2 +1,2 @@\n"
+                        + "-int a;\n"
+                        + "+int b;\n"
+                        + " \n"
+                        + "@@ -10,3 +10,4 @@ int main()\n"
+                        + " x\n"
+                        + "-y\n"
+                        + "+y1\n"
+                        + "+y2\n"
+                        + "\n"
+                        + "diff --git \"a/t\\303\\251st.txt\" \"b/t\\303\\251st.txt\"\n"
+                        + "--- \"a/t\\303\\251st.txt\"\n"
+                        + "+++ \"b/t\\303\\251st.txt\"\n"
+                        + "@@ -1 +1 @@\n"
+                        + "-a\n"
+                        + "+b\n"
+                        + "diff --git a/../escape.txt b/../escape.txt\n"
+                        + "--- a/../escape.txt\n"
+                        + "+++ b/../escape.txt\n"
+                        + "@@ -1 +1 @@\n"
+                        + "-a\n"
+                        + "+b\n";
+
+        Path directory = sourceDir.toPath();
+        // the non-ASCII name can't be encoded in the file system with the POSIX locale
+        boolean encodable;
+        try {
+            directory.resolve("t\u00e9st.txt");
+            encodable = true;
+        } catch (InvalidPathException e) {
+            encodable = false;
+        }
+        assertEquals(
+                encodable ? 3 : 2,
+                LPVSFileUtil.saveUnifiedDiff(
+                        new BufferedReader(new StringReader(diff)),
+                        sourceDir.getAbsolutePath(),
+                        null));
+
+        assertEquals(
+                "first\n++ not a header\n\n",
+                Files.readString(directory.resolve("added.txt"), StandardCharsets.UTF_8));
+        assertEquals(
+                "int b;\n\n\n\n\n\n\n\n\nx\ny1\ny2\n\n",
+                Files.readString(directory.resolve("src/main.c"), StandardCharsets.UTF_8));
+        if (encodable) {
+            assertEquals(
+                    "b\n",
+                    Files.readString(directory.resolve("t\u00e9st.txt"), StandardCharsets.UTF_8));
+        }
+        assertFalse(Files.exists(directory.resolve("deleted.txt")));
+        assertFalse(Files.exists(directory.resolve("image.png")));
+        assertFalse(Files.exists(directory.resolve("renamed.txt")));
+        assertFalse(Files.exists(directory.getParent().resolve("escape.txt")));
+        deleteDirectory(sourceDir);
+    }
+
+    @Test
+    public void testSaveUnifiedDiff_ChangedFilesOnly() throws IOException {
+        sourceDir = Files.createTempDirectory("diff").toFile();
+        String diff =
+                "diff --git a/a.txt b/a.txt\n"
+                        + "--- a/a.txt\n"
+                        + "+++ b/a.txt\n"
+                        + "@@ -1 +1 @@\n"
+                        + "-a\n"
+                        + "+b\n"
+                        + "diff --git a/b.txt b/b.txt\n"
+                        + "--- a/b.txt\n"
+                        + "+++ b/b.txt\n"
+                        + "@@ -1 +1 @@\n"
+                        + "-a\n"
+                        + "+b\n";
+
+        assertEquals(
+                1,
+                LPVSFileUtil.saveUnifiedDiff(
+                        new BufferedReader(new StringReader(diff)),
+                        sourceDir.getAbsolutePath(),
+                        Collections.singleton("b.txt")));
+        assertFalse(Files.exists(sourceDir.toPath().resolve("a.txt")));
+        assertTrue(Files.exists(sourceDir.toPath().resolve("b.txt")));
+        deleteDirectory(sourceDir);
+    }
+
+    @Test
+    public void testSaveUnifiedDiff_Sparse() throws IOException {
+        sourceDir = Files.createTempDirectory("diff").toFile();
+        String diff =
+                "diff --git a/c.txt b/c.txt\n"
+                        + "--- a/c.txt\n"
+                        + "+++ b/c.txt\n"
+                        + "@@ -1000,2 +1000,3 @@\n"
+                        + " a\n"
+                        + "+b\n"
+                        + " c\n"
+                        + "@@ -1002,0 +1003,1 @@\n"
+                        + "+d\n"
+                        + "@@ -2000,1 +2001,1 @@\n"
+                        + "-y\n"
+                        + "+z\n";
+        LPVSLineMap lineMap = new LPVSLineMap();
+
+        assertEquals(
+                1,
+                LPVSFileUtil.saveUnifiedDiff(
+                        new BufferedReader(new StringReader(diff)),
+                        sourceDir.getAbsolutePath(),
+                        null,
+                        lineMap));
+        assertEquals(
+                List.of("a", "b", "c", "d", "", "z"),
+                Files.readAllLines(sourceDir.toPath().resolve("c.txt")));
+        assertEquals("1000-1003,2001-2001", lineMap.toOriginalLines("c.txt", "1-6"));
+        assertEquals("2001-2001", lineMap.toOriginalLines("/c.txt", "5-6"));
+        deleteDirectory(sourceDir);
+    }
+
+    @Test
+    public void testGetHunkLines() {
+        assertArrayEquals(new int[] {7, 6}, LPVSFileUtil.getHunkLines("@@ -8,7 +8,6 @@"));
+        assertArrayEquals(new int[] {1, 1}, LPVSFileUtil.getHunkLines("@@ -1 +1 @@ text"));
+        assertArrayEquals(new int[] {0, 3}, LPVSFileUtil.getHunkLines("@@ -0,0 +1,3 @@"));
+        assertArrayEquals(new int[] {0, 0}, LPVSFileUtil.getHunkLines("@@ -1,x +1,y @@"));
+    }
+
+    @Test
+    public void testGetDiffFileName() {
+        assertEquals("dir/file.c", LPVSFileUtil.getDiffFileName("b/dir/file.c"));
+        assertEquals("t\u00e9st\tfile", LPVSFileUtil.getDiffFileName("\"b/t\\303\\251st\\tfile\""));
+        assertNull(LPVSFileUtil.getDiffFileName("/dev/null"));
     }
 
     @Test
@@ -153,6 +456,56 @@ public class LPVSFileUtilTest {
         deleteDirectory(destinationDir);
     }
 
+    @Test
+    public void testSnapshotFilesWithFilters() throws IOException {
+        Path source = Files.createTempDirectory("source");
+        Path destination = Files.createTempDirectory("destination").resolve("snapshot");
+        Files.createDirectories(source.resolve("src/gen"));
+        Files.createDirectories(source.resolve("node_modules/lib"));
+        Files.writeString(source.resolve("a.c"), "a");
+        Files.writeString(source.resolve("a.txt"), "a");
+        Files.writeString(source.resolve("src/b.c"), "b");
+        Files.writeString(source.resolve("src/gen/c.c"), "c");
+        Files.writeString(source.resolve("node_modules/lib/d.c"), "d");
+
+        LPVSFileUtil.snapshotFiles(
+                source.toString(), destination.toString(), "*.c", "node_modules, src/gen", false);
+
+        assertTrue(Files.isRegularFile(destination.resolve("a.c")));
+        assertTrue(Files.isRegularFile(destination.resolve("src/b.c")));
+        assertFalse(Files.exists(destination.resolve("a.txt")));
+        assertFalse(Files.exists(destination.resolve("src/gen")));
+        assertFalse(Files.exists(destination.resolve("node_modules")));
+        assertFalse(Files.isSameFile(source.resolve("a.c"), destination.resolve("a.c")));
+
+        deleteDirectory(source.toFile());
+        deleteDirectory(destination.getParent().toFile());
+    }
+
+    @Test
+    public void testSnapshotFilesWithLinks() throws IOException {
+        Path source = Files.createTempDirectory("source");
+        Path destination = Files.createTempDirectory("destination");
+        Files.createDirectories(source.resolve("src"));
+        Files.writeString(source.resolve("src/a.c"), "a");
+        Files.writeString(destination.resolve("stale.c"), "stale");
+
+        LPVSFileUtil.snapshotFiles(source.toString(), destination.toString(), "", null, true);
+
+        assertTrue(Files.isSameFile(source.resolve("src/a.c"), destination.resolve("src/a.c")));
+        assertFalse(Files.exists(destination.resolve("stale.c")));
+
+        LPVSFileUtil.snapshotFiles(
+                source.resolve("src/a.c").toString(), destination.toString(), null, "*.c", true);
+        assertFalse(Files.exists(destination.resolve("a.c")));
+        LPVSFileUtil.snapshotFiles(
+                source.resolve("src/a.c").toString(), destination.toString(), "*.c", null, true);
+        assertEquals("a", Files.readString(destination.resolve("a.c")));
+
+        deleteDirectory(source.toFile());
+        deleteDirectory(destination.toFile());
+    }
+
     @Test
     public void testGetLocalDirectoryPathWithHeadCommitSHA() {
         webhookConfig.setHeadCommitSHA("aaaa");
@@ -177,6 +530,16 @@ public class LPVSFileUtilTest {
         assertEquals(expected, LPVSFileUtil.getLocalDirectoryPath(webhookConfig));
     }
 
+    @Test
+    public void testGetLocalDirectoryPathWithWorkspaceRoot() {
+        webhookConfig.setHeadCommitSHA("aaaa");
+        webhookConfig.setWorkspaceRoot("/dev/shm/lpvs");
+
+        assertEquals(
+                "/dev/shm/lpvs" + File.separator + "test" + File.separator + "1-aaaa",
+                LPVSFileUtil.getLocalDirectoryPath(webhookConfig));
+    }
+
     @Test
     public void testGetScanResultsJsonFilePathWithHeadCommitSHA() {
         webhookConfig.setHeadCommitSHA("aaaa");
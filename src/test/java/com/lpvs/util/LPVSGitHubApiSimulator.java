@@ -0,0 +1,968 @@
+/**
+ * Copyright (c) 2024, Samsung Electronics Co., Ltd. All rights reserved.
+ *
+ * Use of this source code is governed by a MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.lpvs.util;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Local stand-in for the endpoints of the GitHub REST API used by LPVS.
+ * <p>
+ * The simulator serves fixture repositories with their license and pull requests: the pull
+ * request, its files and its unified diff. The commit statuses and the comments posted by LPVS
+ * are recorded, so the tests can check them. Setting {@code github.api.url} to
+ * {@link #getApiUrl()} lets the whole path from the webhook to the comment run without
+ * network, with configurable latency, page size and rate limit.
+ * </p>
+ * <p>
+ * Only the fields read by LPVS are returned, and all requests are accepted regardless of
+ * the credential.
+ * </p>
+ */
+@Slf4j
+public class LPVSGitHubApiSimulator implements AutoCloseable {
+
+    /**
+     * Maximum page size accepted in the {@code per_page} parameter, as by GitHub.
+     */
+    private static final int MAX_PAGE_SIZE = 100;
+
+    /**
+     * JSON serializer of the responses.
+     */
+    private static final Gson GSON = new Gson();
+
+    /**
+     * Fixture repositories by their lowercase full name.
+     */
+    private final Map<String, Repository> repositories = new ConcurrentHashMap<>();
+
+    /**
+     * Requests received by the simulator, in the format {@code METHOD path}.
+     */
+    private final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * Number of requests rejected by the rate limit.
+     */
+    private final AtomicInteger rateLimited = new AtomicInteger();
+
+    /**
+     * Number of the following requests rejected by the secondary rate limit.
+     */
+    private final AtomicInteger secondaryLimited = new AtomicInteger();
+
+    /**
+     * Sequence of the IDs of the created objects.
+     */
+    private final AtomicLong ids = new AtomicLong(1000);
+
+    /**
+     * Time in milliseconds added to each response.
+     */
+    private volatile long latency;
+
+    /**
+     * Number of elements on a page of a list, if not requested by the client.
+     */
+    private volatile int pageSize = 30;
+
+    /**
+     * Number of requests per window of the rate limit (0 - unlimited).
+     */
+    private int rateLimit;
+
+    /**
+     * Duration in milliseconds of the window of the rate limit.
+     */
+    private long rateLimitWindow = 3600000;
+
+    /**
+     * Number of requests left in the current window of the rate limit.
+     */
+    private int rateLimitRemaining;
+
+    /**
+     * Time in milliseconds when the current window of the rate limit ends.
+     */
+    private long rateLimitReset;
+
+    /**
+     * Time in seconds to wait after a request rejected by the secondary rate limit.
+     */
+    private volatile int retryAfter = 1;
+
+    /**
+     * HTTP server of the simulator, created by {@link #start()}.
+     */
+    private HttpServer server;
+
+    /**
+     * Executor handling the requests in parallel.
+     */
+    private ExecutorService executor;
+
+    /**
+     * Fixture repository.
+     */
+    @Getter
+    public static class Repository {
+
+        /**
+         * Owner of the repository.
+         */
+        private final String owner;
+
+        /**
+         * Name of the repository.
+         */
+        private final String name;
+
+        /**
+         * ID of the repository.
+         */
+        private final long id;
+
+        /**
+         * SPDX ID of the license of the repository, null if it has no license.
+         */
+        private String licenseSpdxId;
+
+        /**
+         * Name of the license of the repository.
+         */
+        private String licenseName;
+
+        /**
+         * Pull requests of the repository by their number.
+         */
+        private final Map<Integer, PullRequest> pullRequests = new ConcurrentHashMap<>();
+
+        /**
+         * Commit statuses posted to the repository, in the order of their creation.
+         */
+        private final List<Map<String, Object>> statuses =
+                Collections.synchronizedList(new ArrayList<>());
+
+        /**
+         * Constructs the fixture repository.
+         *
+         * @param owner Owner of the repository.
+         * @param name  Name of the repository.
+         * @param id    ID of the repository.
+         */
+        Repository(String owner, String name, long id) {
+            this.owner = owner;
+            this.name = name;
+            this.id = id;
+        }
+
+        /**
+         * Gets the full name of the repository.
+         *
+         * @return The repository in the format {@code owner/name}.
+         */
+        public String getFullName() {
+            return owner + "/" + name;
+        }
+
+        /**
+         * Sets the license of the repository.
+         *
+         * @param spdxId SPDX ID of the license, null to remove the license.
+         * @param name   Name of the license.
+         * @return This repository.
+         */
+        public Repository setLicense(String spdxId, String name) {
+            this.licenseSpdxId = spdxId;
+            this.licenseName = name;
+            return this;
+        }
+
+        /**
+         * Adds the pull request to the repository.
+         *
+         * @param number  Number of the pull request.
+         * @param headSha SHA of the head commit of the pull request.
+         * @return The added pull request.
+         */
+        public PullRequest addPullRequest(int number, String headSha) {
+            PullRequest pullRequest = new PullRequest(number, headSha);
+            pullRequests.put(number, pullRequest);
+            return pullRequest;
+        }
+
+        /**
+         * Gets the commit statuses posted for the commit.
+         *
+         * @param sha SHA of the commit.
+         * @return The states of the statuses in the order of their creation.
+         */
+        public List<String> getStatuses(String sha) {
+            List<String> states = new ArrayList<>();
+            synchronized (statuses) {
+                for (Map<String, Object> status : statuses) {
+                    if (sha.equals(status.get("sha"))) {
+                        states.add((String) status.get("state"));
+                    }
+                }
+            }
+            return states;
+        }
+    }
+
+    /**
+     * Fixture pull request.
+     */
+    @Getter
+    public static class PullRequest {
+
+        /**
+         * Number of the pull request.
+         */
+        private final int number;
+
+        /**
+         * SHA of the head commit of the pull request.
+         */
+        private final String headSha;
+
+        /**
+         * Files changed by the pull request.
+         */
+        private final List<Map<String, Object>> files =
+                Collections.synchronizedList(new ArrayList<>());
+
+        /**
+         * Bodies of the comments posted to the pull request, in the order of their creation.
+         */
+        private final List<String> comments = Collections.synchronizedList(new ArrayList<>());
+
+        /**
+         * Constructs the fixture pull request.
+         *
+         * @param number  Number of the pull request.
+         * @param headSha SHA of the head commit of the pull request.
+         */
+        PullRequest(int number, String headSha) {
+            this.number = number;
+            this.headSha = headSha;
+        }
+
+        /**
+         * Adds a new file to the pull request.
+         *
+         * @param filename Path of the file in the repository.
+         * @param content  Content of the file.
+         * @return This pull request.
+         */
+        public PullRequest addFile(String filename, String content) {
+            String[] lines = content.split("\n", -1);
+            int count = content.endsWith("\n") ? lines.length - 1 : lines.length;
+            StringBuilder patch = new StringBuilder("@@ -0,0 +1," + count + " @@");
+            for (int i = 0; i < count; i++) {
+                patch.append("\n+").append(lines[i]);
+            }
+            return addFile(filename, "added", count, patch.toString());
+        }
+
+        /**
+         * Adds a modified file with the patch in the format of the GitHub pull request files.
+         *
+         * @param filename Path of the file in the repository.
+         * @param patch    Patch of the file, starting with the hunk header.
+         * @return This pull request.
+         */
+        public PullRequest addPatch(String filename, String patch) {
+            return addFile(filename, "modified", 0, patch);
+        }
+
+        /**
+         * Adds the text files of the directory as new files of the pull request.
+         *
+         * @param directory Directory with the files, its relative paths are the file names.
+         * @return This pull request.
+         * @throws IOException if the directory can't be read.
+         */
+        public PullRequest addFiles(Path directory) throws IOException {
+            try (Stream<Path> paths = Files.walk(directory)) {
+                for (Path path : paths.filter(Files::isRegularFile).sorted().toList()) {
+                    String filename = directory.relativize(path).toString().replace('\\', '/');
+                    try {
+                        addFile(filename, Files.readString(path));
+                    } catch (CharacterCodingException e) {
+                        log.debug("Binary file " + filename + " is skipped");
+                    }
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Adds the file to the pull request.
+         *
+         * @param filename  Path of the file in the repository.
+         * @param status    Status of the file.
+         * @param additions Number of the added lines.
+         * @param patch     Patch of the file.
+         * @return This pull request.
+         */
+        private PullRequest addFile(String filename, String status, int additions, String patch) {
+            Map<String, Object> file = new LinkedHashMap<>();
+            file.put("sha", Integer.toHexString(filename.hashCode()));
+            file.put("filename", filename);
+            file.put("status", status);
+            file.put("additions", additions);
+            file.put("deletions", 0);
+            file.put("changes", additions);
+            file.put("patch", patch);
+            files.add(file);
+            return this;
+        }
+    }
+
+    /**
+     * Starts the simulator on a free local port.
+     *
+     * @return This simulator.
+     * @throws IOException if the server can't be started.
+     */
+    public LPVSGitHubApiSimulator start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+        log.debug("GitHub API simulator is started at " + getApiUrl());
+        return this;
+    }
+
+    /**
+     * Stops the simulator.
+     */
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            server = null;
+        }
+    }
+
+    /**
+     * Gets the URL of the API of the simulator, to be set as {@code github.api.url}.
+     *
+     * @return The URL of the API.
+     */
+    public String getApiUrl() {
+        return "http://"
+                + server.getAddress().getAddress().getHostAddress()
+                + ":"
+                + server.getAddress().getPort();
+    }
+
+    /**
+     * Adds the fixture repository.
+     *
+     * @param owner Owner of the repository.
+     * @param name  Name of the repository.
+     * @return The added repository.
+     */
+    public Repository addRepository(String owner, String name) {
+        Repository repository = new Repository(owner, name, ids.incrementAndGet());
+        repositories.put(repository.getFullName().toLowerCase(Locale.ROOT), repository);
+        return repository;
+    }
+
+    /**
+     * Gets the fixture repository.
+     *
+     * @param fullName The repository in the format {@code owner/name}.
+     * @return The repository, or null if it is not added.
+     */
+    public Repository getRepository(String fullName) {
+        return repositories.get(fullName.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Sets the time added to each response.
+     *
+     * @param latency Time in milliseconds.
+     */
+    public void setLatency(long latency) {
+        this.latency = latency;
+    }
+
+    /**
+     * Sets the number of elements on a page of a list, if not requested by the client.
+     *
+     * @param pageSize Number of elements on a page.
+     */
+    public void setPageSize(int pageSize) {
+        this.pageSize = Math.max(pageSize, 1);
+    }
+
+    /**
+     * Sets the rate limit. The requests above the limit are rejected with the response of
+     * GitHub until the end of the window.
+     *
+     * @param limit  Number of requests per window (0 - unlimited).
+     * @param window Duration of the window in milliseconds.
+     */
+    public synchronized void setRateLimit(int limit, long window) {
+        this.rateLimit = limit;
+        this.rateLimitWindow = window;
+        this.rateLimitRemaining = limit;
+        this.rateLimitReset = System.currentTimeMillis() + window;
+    }
+
+    /**
+     * Rejects the following requests by the secondary rate limit.
+     *
+     * @param requests   Number of the rejected requests.
+     * @param retryAfter Time in seconds to wait, returned in the Retry-After header.
+     */
+    public void setSecondaryRateLimit(int requests, int retryAfter) {
+        this.retryAfter = retryAfter;
+        secondaryLimited.set(requests);
+    }
+
+    /**
+     * Gets the requests received by the simulator.
+     *
+     * @return The requests in the format {@code METHOD path}.
+     */
+    public List<String> getRequests() {
+        synchronized (requests) {
+            return new ArrayList<>(requests);
+        }
+    }
+
+    /**
+     * Gets the number of requests rejected by the primary or the secondary rate limit.
+     *
+     * @return The number of rejected requests.
+     */
+    public int getRateLimitedCount() {
+        return rateLimited.get();
+    }
+
+    /**
+     * Handles the request.
+     *
+     * @param exchange The HTTP exchange.
+     * @throws IOException if the response can't be sent.
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getPath().replaceAll("^/+|/+$", "");
+            requests.add(method + " /" + path);
+            if (latency > 0) {
+                Thread.sleep(latency);
+            }
+            if ("rate_limit".equals(path)) {
+                // the rate limit status does not count against the rate limit
+                send(exchange, 200, GSON.toJson(getRateLimitStatus()));
+                return;
+            }
+            if (!takeRateLimit(exchange)) {
+                return;
+            }
+            route(exchange, method, path.split("/"));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.error("GitHub API simulator failed: " + e.getMessage());
+            send(exchange, 500, message(e.getMessage()));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Routes the request to the simulated endpoint.
+     *
+     * @param exchange The HTTP exchange.
+     * @param method   The HTTP method of the request.
+     * @param segments The segments of the path of the request.
+     * @throws IOException if the response can't be sent.
+     */
+    private void route(HttpExchange exchange, String method, String[] segments)
+            throws IOException {
+        Repository repository =
+                segments.length >= 3 && "repos".equals(segments[0])
+                        ? getRepository(segments[1] + "/" + segments[2])
+                        : null;
+        if (repository == null) {
+            send(exchange, 404, message("Not Found"));
+            return;
+        }
+        String resource = segments.length > 3 ? segments[3] : "";
+        PullRequest pullRequest = null;
+        if (segments.length > 4 && ("pulls".equals(resource) || "issues".equals(resource))) {
+            try {
+                pullRequest = repository.getPullRequests().get(Integer.parseInt(segments[4]));
+            } catch (NumberFormatException e) {
+                pullRequest = null;
+            }
+        }
+        String tail = segments.length > 5 ? segments[5] : "";
+        boolean get = "GET".equals(method);
+        boolean post = "POST".equals(method);
+        if (segments.length == 3 && get) {
+            send(exchange, 200, GSON.toJson(toJson(repository)));
+        } else if ("license".equals(resource) && segments.length == 4 && get) {
+            if (repository.getLicenseSpdxId() == null) {
+                send(exchange, 404, message("Not Found"));
+            } else {
+                send(exchange, 200, GSON.toJson(toLicenseJson(repository)));
+            }
+        } else if ("pulls".equals(resource) && segments.length == 4 && get) {
+            List<Object> pullRequests = new ArrayList<>();
+            for (PullRequest element : repository.getPullRequests().values()) {
+                pullRequests.add(toJson(repository, element));
+            }
+            sendPage(exchange, pullRequests);
+        } else if ("statuses".equals(resource) && segments.length == 5 && post) {
+            Map<String, Object> status = toStatusJson(repository, segments[4], readBody(exchange));
+            repository.getStatuses().add(status);
+            send(exchange, 201, GSON.toJson(status));
+        } else if (pullRequest == null) {
+            send(exchange, 404, message("Not Found"));
+        } else if ("pulls".equals(resource) && segments.length == 5 && get) {
+            String accept = exchange.getRequestHeaders().getFirst("Accept");
+            if (accept != null && accept.contains("diff")) {
+                sendDiff(exchange, pullRequest);
+            } else {
+                send(exchange, 200, GSON.toJson(toJson(repository, pullRequest)));
+            }
+        } else if ("pulls".equals(resource) && "files".equals(tail) && get) {
+            synchronized (pullRequest.getFiles()) {
+                sendPage(exchange, new ArrayList<>(pullRequest.getFiles()));
+            }
+        } else if ("issues".equals(resource) && "comments".equals(tail) && get) {
+            List<Object> comments = new ArrayList<>();
+            synchronized (pullRequest.getComments()) {
+                long id = 1;
+                for (String body : pullRequest.getComments()) {
+                    comments.add(toCommentJson(repository, pullRequest, id++, body));
+                }
+            }
+            sendPage(exchange, comments);
+        } else if ("issues".equals(resource) && "comments".equals(tail) && post) {
+            String body = readBody(exchange).get("body").getAsString();
+            long id;
+            synchronized (pullRequest.getComments()) {
+                pullRequest.getComments().add(body);
+                id = pullRequest.getComments().size();
+            }
+            send(exchange, 201, GSON.toJson(toCommentJson(repository, pullRequest, id, body)));
+        } else {
+            send(exchange, 404, message("Not Found"));
+        }
+    }
+
+    /**
+     * Takes a request from the rate limit, rejecting the request if the limit is exceeded.
+     *
+     * @param exchange The HTTP exchange.
+     * @return true if the request is accepted, false if it is rejected.
+     * @throws IOException if the response can't be sent.
+     */
+    private boolean takeRateLimit(HttpExchange exchange) throws IOException {
+        if (secondaryLimited.getAndUpdate(n -> Math.max(n - 1, 0)) > 0) {
+            rateLimited.incrementAndGet();
+            exchange.getResponseHeaders().set("Retry-After", String.valueOf(retryAfter));
+            send(exchange, 403, message("You have exceeded a secondary rate limit."));
+            return false;
+        }
+        boolean accepted;
+        synchronized (this) {
+            if (rateLimit <= 0) {
+                return true;
+            }
+            long now = System.currentTimeMillis();
+            if (now >= rateLimitReset) {
+                rateLimitRemaining = rateLimit;
+                rateLimitReset = now + rateLimitWindow;
+            }
+            accepted = rateLimitRemaining > 0;
+            if (accepted) {
+                rateLimitRemaining--;
+            }
+            exchange.getResponseHeaders().set("X-RateLimit-Limit", String.valueOf(rateLimit));
+            exchange.getResponseHeaders()
+                    .set("X-RateLimit-Remaining", String.valueOf(rateLimitRemaining));
+            exchange.getResponseHeaders()
+                    .set("X-RateLimit-Used", String.valueOf(rateLimit - rateLimitRemaining));
+            exchange.getResponseHeaders()
+                    .set("X-RateLimit-Reset", String.valueOf((rateLimitReset + 999) / 1000));
+            exchange.getResponseHeaders().set("X-RateLimit-Resource", "core");
+        }
+        if (!accepted) {
+            rateLimited.incrementAndGet();
+            send(exchange, 403, message("API rate limit exceeded."));
+        }
+        return accepted;
+    }
+
+    /**
+     * Gets the response of the rate limit status endpoint.
+     *
+     * @return The rate limit status.
+     */
+    private synchronized Map<String, Object> getRateLimitStatus() {
+        long now = System.currentTimeMillis();
+        boolean limited = rateLimit > 0;
+        Map<String, Object> core = new LinkedHashMap<>();
+        core.put("limit", limited ? rateLimit : 1000000);
+        int remaining = now >= rateLimitReset ? rateLimit : rateLimitRemaining;
+        core.put("remaining", limited ? remaining : 1000000);
+        core.put("reset", limited ? (rateLimitReset + 999) / 1000 : now / 1000 + 3600);
+        core.put("used", limited ? rateLimit - rateLimitRemaining : 0);
+        Map<String, Object> resources = new LinkedHashMap<>();
+        for (String resource :
+                new String[] {"core", "search", "graphql", "integration_manifest"}) {
+            resources.put(resource, core);
+        }
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("resources", resources);
+        status.put("rate", core);
+        return status;
+    }
+
+    /**
+     * Sends a page of the list with the link to the next page, as paginated by GitHub.
+     *
+     * @param exchange The HTTP exchange.
+     * @param elements All elements of the list.
+     * @throws IOException if the response can't be sent.
+     */
+    private void sendPage(HttpExchange exchange, List<Object> elements) throws IOException {
+        Map<String, String> query = getQuery(exchange.getRequestURI());
+        int size = pageSize;
+        int page = 1;
+        try {
+            if (query.containsKey("per_page")) {
+                size = Integer.parseInt(query.get("per_page"));
+                size = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+            }
+            if (query.containsKey("page")) {
+                page = Math.max(Integer.parseInt(query.get("page")), 1);
+            }
+        } catch (NumberFormatException e) {
+            send(exchange, 422, message("Invalid page"));
+            return;
+        }
+        int from = Math.min((page - 1) * size, elements.size());
+        int to = Math.min(from + size, elements.size());
+        int last = Math.max((elements.size() + size - 1) / size, 1);
+        if (page < last) {
+            String url = getApiUrl() + exchange.getRequestURI().getPath() + "?per_page=" + size;
+            exchange.getResponseHeaders()
+                    .set(
+                            "Link",
+                            "<"
+                                    + url
+                                    + "&page="
+                                    + (page + 1)
+                                    + ">; rel=\"next\", <"
+                                    + url
+                                    + "&page="
+                                    + last
+                                    + ">; rel=\"last\"");
+        }
+        send(exchange, 200, GSON.toJson(elements.subList(from, to)));
+    }
+
+    /**
+     * Sends the unified diff of the pull request.
+     *
+     * @param exchange    The HTTP exchange.
+     * @param pullRequest The pull request.
+     * @throws IOException if the response can't be sent.
+     */
+    private void sendDiff(HttpExchange exchange, PullRequest pullRequest) throws IOException {
+        StringBuilder diff = new StringBuilder();
+        synchronized (pullRequest.getFiles()) {
+            for (Map<String, Object> file : pullRequest.getFiles()) {
+                String filename = (String) file.get("filename");
+                boolean added = "added".equals(file.get("status"));
+                diff.append("diff --git a/")
+                        .append(filename)
+                        .append(" b/")
+                        .append(filename)
+                        .append('\n');
+                if (added) {
+                    diff.append("new file mode 100644\n");
+                }
+                diff.append(added ? "--- /dev/null\n" : "--- a/" + filename + "\n")
+                        .append("+++ b/")
+                        .append(filename)
+                        .append('\n')
+                        .append(file.get("patch"))
+                        .append('\n');
+            }
+        }
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        sendBytes(exchange, 200, diff.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Sends the JSON response.
+     *
+     * @param exchange The HTTP exchange.
+     * @param code     The status code.
+     * @param json     The body of the response.
+     * @throws IOException if the response can't be sent.
+     */
+    private static void send(HttpExchange exchange, int code, String json) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        sendBytes(exchange, code, json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Sends the response.
+     *
+     * @param exchange The HTTP exchange.
+     * @param code     The status code.
+     * @param body     The body of the response.
+     * @throws IOException if the response can't be sent.
+     */
+    private static void sendBytes(HttpExchange exchange, int code, byte[] body)
+            throws IOException {
+        exchange.sendResponseHeaders(code, body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    /**
+     * Reads the JSON body of the request.
+     *
+     * @param exchange The HTTP exchange.
+     * @return The body of the request, empty if it is not a JSON object.
+     * @throws IOException if the body can't be read.
+     */
+    private static JsonObject readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            String json = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            JsonObject body = GSON.fromJson(json, JsonObject.class);
+            return body == null ? new JsonObject() : body;
+        } catch (JsonParseException e) {
+            return new JsonObject();
+        }
+    }
+
+    /**
+     * Gets the parameters of the query of the request.
+     *
+     * @param uri The URI of the request.
+     * @return Map of the parameter names to their values.
+     */
+    private static Map<String, String> getQuery(URI uri) {
+        Map<String, String> query = new LinkedHashMap<>();
+        if (uri.getQuery() != null) {
+            for (String parameter : uri.getQuery().split("&")) {
+                int separator = parameter.indexOf('=');
+                if (separator > 0) {
+                    query.put(
+                            parameter.substring(0, separator), parameter.substring(separator + 1));
+                }
+            }
+        }
+        return query;
+    }
+
+    /**
+     * Creates the error response.
+     *
+     * @param message The message of the error.
+     * @return The body of the error response.
+     */
+    private static String message(String message) {
+        Map<String, Object> error = new LinkedHashMap<>();
+        error.put("message", message);
+        error.put("documentation_url", "https://docs.github.com/rest");
+        return GSON.toJson(error);
+    }
+
+    /**
+     * Creates the JSON of the owner of the repository.
+     *
+     * @param repository The repository.
+     * @return The owner of the repository.
+     */
+    private Map<String, Object> toOwnerJson(Repository repository) {
+        Map<String, Object> owner = new LinkedHashMap<>();
+        owner.put("login", repository.getOwner());
+        owner.put("id", Math.abs((long) repository.getOwner().hashCode()));
+        owner.put("type", "Organization");
+        owner.put("url", getApiUrl() + "/users/" + repository.getOwner());
+        owner.put("html_url", "https://github.com/" + repository.getOwner());
+        return owner;
+    }
+
+    /**
+     * Creates the JSON of the repository.
+     *
+     * @param repository The repository.
+     * @return The repository.
+     */
+    private Map<String, Object> toJson(Repository repository) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", repository.getId());
+        json.put("name", repository.getName());
+        json.put("full_name", repository.getFullName());
+        json.put("owner", toOwnerJson(repository));
+        json.put("private", false);
+        json.put("html_url", "https://github.com/" + repository.getFullName());
+        json.put("url", getApiUrl() + "/repos/" + repository.getFullName());
+        json.put("default_branch", "main");
+        return json;
+    }
+
+    /**
+     * Creates the JSON of the license of the repository.
+     *
+     * @param repository The repository.
+     * @return The license file with the license of the repository.
+     */
+    private Map<String, Object> toLicenseJson(Repository repository) {
+        Map<String, Object> license = new LinkedHashMap<>();
+        license.put("key", repository.getLicenseSpdxId().toLowerCase(Locale.ROOT));
+        license.put("name", repository.getLicenseName());
+        license.put("spdx_id", repository.getLicenseSpdxId());
+        license.put("url", getApiUrl() + "/licenses/" + license.get("key"));
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("name", "LICENSE");
+        json.put("path", "LICENSE");
+        json.put("type", "file");
+        json.put("url", getApiUrl() + "/repos/" + repository.getFullName() + "/contents/LICENSE");
+        json.put("license", license);
+        return json;
+    }
+
+    /**
+     * Creates the JSON of the pull request.
+     *
+     * @param repository  The repository of the pull request.
+     * @param pullRequest The pull request.
+     * @return The pull request.
+     */
+    private Map<String, Object> toJson(Repository repository, PullRequest pullRequest) {
+        String repositoryUrl = getApiUrl() + "/repos/" + repository.getFullName();
+        String url = repositoryUrl + "/pulls/";
+        String htmlUrl = "https://github.com/" + repository.getFullName() + "/pull/";
+        Map<String, Object> head = new LinkedHashMap<>();
+        head.put("label", repository.getOwner() + ":pr-" + pullRequest.getNumber());
+        head.put("ref", "pr-" + pullRequest.getNumber());
+        head.put("sha", pullRequest.getHeadSha());
+        head.put("repo", toJson(repository));
+        Map<String, Object> base = new LinkedHashMap<>();
+        base.put("label", repository.getOwner() + ":main");
+        base.put("ref", "main");
+        base.put("sha", "0000000000000000000000000000000000000000");
+        base.put("repo", toJson(repository));
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", repository.getId() * 100000 + pullRequest.getNumber());
+        json.put("number", pullRequest.getNumber());
+        json.put("state", "open");
+        json.put("title", "Pull request " + pullRequest.getNumber());
+        json.put("url", url + pullRequest.getNumber());
+        json.put("html_url", htmlUrl + pullRequest.getNumber());
+        json.put("diff_url", htmlUrl + pullRequest.getNumber() + ".diff");
+        json.put("patch_url", htmlUrl + pullRequest.getNumber() + ".patch");
+        json.put("issue_url", repositoryUrl + "/issues/" + pullRequest.getNumber());
+        json.put("head", head);
+        json.put("base", base);
+        json.put("mergeable_state", "clean");
+        json.put("changed_files", pullRequest.getFiles().size());
+        return json;
+    }
+
+    /**
+     * Creates the JSON of the commit status.
+     *
+     * @param repository The repository of the commit.
+     * @param sha        SHA of the commit.
+     * @param request    The body of the request creating the status.
+     * @return The commit status.
+     */
+    private Map<String, Object> toStatusJson(
+            Repository repository, String sha, JsonObject request) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", ids.incrementAndGet());
+        json.put("url", getApiUrl() + "/repos/" + repository.getFullName() + "/statuses/" + sha);
+        json.put("sha", sha);
+        for (String field : new String[] {"state", "description", "context", "target_url"}) {
+            if (request.has(field) && !request.get(field).isJsonNull()) {
+                json.put(field, request.get(field).getAsString());
+            }
+        }
+        return json;
+    }
+
+    /**
+     * Creates the JSON of the comment of the pull request.
+     *
+     * @param repository  The repository of the pull request.
+     * @param pullRequest The pull request.
+     * @param id          ID of the comment within the pull request.
+     * @param body        Body of the comment.
+     * @return The comment.
+     */
+    private Map<String, Object> toCommentJson(
+            Repository repository, PullRequest pullRequest, long id, String body) {
+        long commentId = (repository.getId() * 100000 + pullRequest.getNumber()) * 1000 + id;
+        String fullName = repository.getFullName();
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", commentId);
+        json.put("url", getApiUrl() + "/repos/" + fullName + "/issues/comments/" + commentId);
+        json.put(
+                "html_url",
+                "https://github.com/"
+                        + fullName
+                        + "/pull/"
+                        + pullRequest.getNumber()
+                        + "#issuecomment-"
+                        + commentId);
+        json.put("body", body);
+        return json;
+    }
+}
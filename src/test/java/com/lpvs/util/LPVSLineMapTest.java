@@ -0,0 +1,82 @@
+/**
+ * Copyright (c) 2024, Samsung Electronics Co., Ltd. All rights reserved.
+ *
+ * Use of this source code is governed by a MIT license that can be
+ * found in the LICENSE file.
+ */
+package com.lpvs.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LPVSLineMapTest {
+
+    private Path directory;
+    private LPVSLineMap lineMap;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("workspace");
+        lineMap = new LPVSLineMap();
+        lineMap.add("src/a.c", List.of(new int[] {1, 100, 20}, new int[] {22, 500, 30}));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        LPVSLineMap.delete(directory.toString());
+        Files.deleteIfExists(directory);
+    }
+
+    @Test
+    public void testToOriginalLines() {
+        assertEquals("100-119,500-509", lineMap.toOriginalLines("src/a.c", "1-31"));
+        assertEquals("105-105,529-529", lineMap.toOriginalLines("/src/a.c", "6, 51"));
+        assertEquals("118-119", lineMap.toOriginalLines("src/a.c", "19-21"));
+        assertEquals("", lineMap.toOriginalLines("src/a.c", "21"));
+    }
+
+    @Test
+    public void testToOriginalLines_Unchanged() {
+        assertEquals("1-31", lineMap.toOriginalLines("src/b.c", "1-31"));
+        assertEquals("all", lineMap.toOriginalLines("src/a.c", "all"));
+        assertNull(lineMap.toOriginalLines("src/a.c", null));
+        assertEquals("1-2", lineMap.toOriginalLines(null, "1-2"));
+    }
+
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        assertNull(LPVSLineMap.load(directory.toString()));
+        assertFalse(lineMap.isEmpty());
+
+        lineMap.save(directory + "/");
+        assertTrue(Files.exists(LPVSLineMap.getPath(directory.toString())));
+        LPVSLineMap loaded = LPVSLineMap.load(directory.toString());
+        assertNotNull(loaded);
+        assertEquals("100-119,500-509", loaded.toOriginalLines("src/a.c", "1-31"));
+
+        LPVSLineMap.delete(directory.toString());
+        assertNull(LPVSLineMap.load(directory.toString()));
+        assertTrue(Files.isDirectory(directory));
+    }
+
+    @Test
+    public void testLoad_WrongSegments() throws IOException {
+        Files.writeString(
+                LPVSLineMap.getPath(directory.toString()),
+                "src/a.c=1:100\nsrc/b.c=1:200:5\n",
+                StandardCharsets.UTF_8);
+        LPVSLineMap loaded = LPVSLineMap.load(directory.toString());
+        assertNotNull(loaded);
+        assertEquals("3", loaded.toOriginalLines("src/a.c", "3"));
+        assertEquals("202-204", loaded.toOriginalLines("src/b.c", "3-7"));
+    }
+}
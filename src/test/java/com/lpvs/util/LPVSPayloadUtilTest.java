@@ -9,6 +9,7 @@ package com.lpvs.util;
 import com.lpvs.entity.LPVSLicense;
 import com.lpvs.entity.LPVSQueue;
 import com.lpvs.entity.enums.LPVSPullRequestAction;
+import com.lpvs.entity.enums.LPVSQueuePriority;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -296,9 +297,16 @@ public class LPVSPayloadUtilTest {
             when(pR.getHead().getRepository().getHtmlUrl())
                     .thenReturn(new URL("https://github.com/repo"));
             when(pR.getHead().getSha()).thenReturn("1234567890");
+            try {
+                when(pR.getAdditions()).thenReturn(7);
+                when(pR.getDeletions()).thenReturn(3);
+            } catch (IOException e) {
+                fail("Unexpected exception " + e.getMessage());
+            }
 
             LPVSQueue webhookConfig = LPVSPayloadUtil.getGitHubWebhookConfig(repo, pR);
 
+            assertEquals(10L, webhookConfig.getCost().longValue());
             assertEquals("https://github.com/repo/pull/1", webhookConfig.getPullRequestUrl());
             assertEquals("https://github.com/repo", webhookConfig.getPullRequestFilesUrl());
             assertNull(webhookConfig.getPullRequestAPIUrl());
@@ -378,7 +386,9 @@ public class LPVSPayloadUtilTest {
                             + "\"sha\": \"edde69ecb8e8a88dde09fa9789e2c9cab7cf7cf9\", "
                             + "\"ref\": \"o-kopysov:utests\""
                             + "}, "
-                            + "\"url\": \"https://api.github.com/repos/Samsung/LPVS/pulls/18\""
+                            + "\"url\": \"https://api.github.com/repos/Samsung/LPVS/pulls/18\", "
+                            + "\"additions\": 10, "
+                            + "\"deletions\": 5"
                             + "},"
                             + "\"sender\": {"
                             + "\"login\": \"o-kopysov\""
@@ -403,7 +413,19 @@ public class LPVSPayloadUtilTest {
         @Test
         public void testGetGitHubWebhookConfig__ForkTrue() {
             // main test
-            assertEquals(expected, LPVSPayloadUtil.getGitHubWebhookConfig(json_to_test));
+            LPVSQueue webhookConfig = LPVSPayloadUtil.getGitHubWebhookConfig(json_to_test);
+            assertEquals(expected, webhookConfig);
+            assertEquals(LPVSQueuePriority.WEBHOOK, webhookConfig.getPriority());
+            assertEquals(15L, webhookConfig.getCost().longValue());
+        }
+
+        @Test
+        public void testGetGitHubWebhookConfig__NullChangedLines() {
+            LPVSQueue webhookConfig =
+                    LPVSPayloadUtil.getGitHubWebhookConfig(
+                            json_to_test.replace("\"additions\": 10", "\"additions\": null"));
+            assertEquals(expected, webhookConfig);
+            assertNull(webhookConfig.getCost());
         }
     }
 
@@ -467,7 +489,10 @@ public class LPVSPayloadUtilTest {
         @Test
         public void testGetGitHubWebhookConfig__ForkFalse() {
             // main test
-            assertEquals(expected, LPVSPayloadUtil.getGitHubWebhookConfig(json_to_test));
+            LPVSQueue webhookConfig = LPVSPayloadUtil.getGitHubWebhookConfig(json_to_test);
+            assertEquals(expected, webhookConfig);
+            // size of the pull request is unknown
+            assertNull(webhookConfig.getCost());
         }
     }
 
@@ -515,6 +540,32 @@ public class LPVSPayloadUtilTest {
             String result = LPVSPayloadUtil.getPullRequestId(mockWebhookConfig);
             assertEquals("123", result);
         }
+
+        @Test
+        public void testGetPullRequestNumber() {
+            assertNull(LPVSPayloadUtil.getPullRequestNumber(null));
+            mockWebhookConfig = new LPVSQueue();
+            assertNull(LPVSPayloadUtil.getPullRequestNumber(mockWebhookConfig));
+            mockWebhookConfig.setPullRequestUrl("https://github.com/repo/pull/123");
+            assertEquals(123, LPVSPayloadUtil.getPullRequestNumber(mockWebhookConfig));
+            mockWebhookConfig.setPullRequestAPIUrl("https://api.github.com/repos/repo/pulls/124");
+            assertEquals(124, LPVSPayloadUtil.getPullRequestNumber(mockWebhookConfig));
+            mockWebhookConfig.setPullRequestAPIUrl("http://url.com");
+            assertNull(LPVSPayloadUtil.getPullRequestNumber(mockWebhookConfig));
+        }
+
+        @Test
+        public void testGetPullRequestUrlHash() {
+            assertNull(LPVSPayloadUtil.getPullRequestUrlHash(null));
+            assertEquals(
+                    "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855",
+                    LPVSPayloadUtil.getPullRequestUrlHash(""));
+            mockWebhookConfig = new LPVSQueue();
+            mockWebhookConfig.setPullRequestUrl("https://github.com/repo/pull/123");
+            assertEquals(
+                    LPVSPayloadUtil.getPullRequestUrlHash("https://github.com/repo/pull/123"),
+                    mockWebhookConfig.getPullRequestUrlHash());
+        }
     }
 
     @Nested
@@ -734,6 +785,63 @@ public class LPVSPayloadUtilTest {
         }
     }
 
+    @Nested
+    public class TestGetChangedRepository {
+
+        private static final String PUSH =
+                "{"
+                        + "\"ref\": \"%s\", "
+                        + "\"repository\": {"
+                        + "\"full_name\": \"Samsung/LPVS\", "
+                        + "\"default_branch\": \"main\""
+                        + "}, "
+                        + "\"commits\": [{\"added\": [\"src/Main.java\"], \"removed\": [], "
+                        + "\"modified\": [\"%s\"]}]"
+                        + "}";
+
+        @Test
+        public void testGetChangedRepository_RepositoryEvent() {
+            String payload =
+                    "{\"action\": \"privatized\", "
+                            + "\"repository\": {\"full_name\": \"Samsung/LPVS\"}}";
+            assertEquals(
+                    "Samsung/LPVS", LPVSPayloadUtil.getChangedRepository("repository", payload));
+            assertEquals("Samsung/LPVS", LPVSPayloadUtil.getChangedRepository("public", payload));
+            assertNull(LPVSPayloadUtil.getChangedRepository("pull_request", payload));
+            assertNull(LPVSPayloadUtil.getChangedRepository(null, payload));
+            assertNull(LPVSPayloadUtil.getChangedRepository("repository", "{\"action\": 1}"));
+            assertNull(LPVSPayloadUtil.getChangedRepository("repository", "not json"));
+        }
+
+        @Test
+        public void testGetChangedRepository_PushEvent() {
+            assertEquals(
+                    "Samsung/LPVS",
+                    LPVSPayloadUtil.getChangedRepository(
+                            "push", String.format(PUSH, "refs/heads/main", "LICENSE.md")));
+            assertEquals(
+                    "Samsung/LPVS",
+                    LPVSPayloadUtil.getChangedRepository(
+                            "push", String.format(PUSH, "refs/heads/main", "LICENSES/MIT.txt")));
+            assertNull(
+                    LPVSPayloadUtil.getChangedRepository(
+                            "push", String.format(PUSH, "refs/heads/main", "README.md")));
+            assertNull(
+                    LPVSPayloadUtil.getChangedRepository(
+                            "push", String.format(PUSH, "refs/heads/feature", "LICENSE")));
+        }
+
+        @Test
+        public void testIsLicenseFile() {
+            assertTrue(LPVSPayloadUtil.isLicenseFile("LICENSE"));
+            assertTrue(LPVSPayloadUtil.isLicenseFile("licence.txt"));
+            assertTrue(LPVSPayloadUtil.isLicenseFile("third_party/COPYING"));
+            assertTrue(LPVSPayloadUtil.isLicenseFile("LICENSES/Apache-2.0.txt"));
+            assertFalse(LPVSPayloadUtil.isLicenseFile("src/license/Checker.java"));
+            assertFalse(LPVSPayloadUtil.isLicenseFile("README.md"));
+        }
+    }
+
     @Test
     void testConstructorThrowsException_N() {
 